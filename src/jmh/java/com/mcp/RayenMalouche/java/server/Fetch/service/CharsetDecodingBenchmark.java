@@ -0,0 +1,114 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of turning an uncompressed response body into a string with {@link DecodingBodyHandler}:
+ * buffering the chunks, working out the charset and decoding. The charset is declared in the
+ * {@code Content-Type} header, found in a {@code <meta charset>} tag, or given by a byte order mark.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CharsetDecodingBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CharsetDecodingBenchmark {
+
+    /** Chunk size the body arrives in, as the HTTP client hands it over */
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    @Param({"landing-small", "wiki-article"})
+    public String page;
+
+    @Param({"utf-8-header", "utf-8-meta", "windows-1252-meta", "utf-16le-bom"})
+    public String charset;
+
+    private DecodingBodyHandler handler;
+    private HttpResponse.ResponseInfo responseInfo;
+    private List<ByteBuffer> chunks;
+
+    @Setup
+    public void setUp() {
+        String html = Corpus.page(page);
+        String contentType = "text/html";
+        byte[] body;
+        switch (charset) {
+            case "utf-8-header" -> {
+                contentType = "text/html; charset=utf-8";
+                body = html.getBytes(StandardCharsets.UTF_8);
+            }
+            case "utf-8-meta" -> body = html.getBytes(StandardCharsets.UTF_8);
+            case "windows-1252-meta" -> body = html.replace("charset=\"utf-8\"", "charset=\"windows-1252\"")
+                    .getBytes(Charset.forName("windows-1252"));
+            case "utf-16le-bom" -> body = ("\uFEFF" + html).getBytes(StandardCharsets.UTF_16LE);
+            default -> throw new IllegalArgumentException("Unknown charset case " + charset);
+        }
+
+        chunks = new ArrayList<>();
+        for (int offset = 0; offset < body.length; offset += CHUNK_BYTES) {
+            chunks.add(ByteBuffer.wrap(body, offset, Math.min(CHUNK_BYTES, body.length - offset)));
+        }
+        handler = new DecodingBodyHandler(32 * 1024 * 1024);
+        HttpHeaders headers = HttpHeaders.of(Map.of("content-type", List.of(contentType)), (name, value) -> true);
+        responseInfo = new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+
+    @Benchmark
+    public String decode() {
+        HttpResponse.BodySubscriber<String> subscriber = handler.apply(responseInfo);
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        for (ByteBuffer chunk : chunks) {
+            subscriber.onNext(List.of(chunk.duplicate()));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,186 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares fetching a page uncompressed with {@code BodyHandlers.ofString()}, the previous behavior,
+ * against fetching it through {@link DecodingBodyHandler} with each content encoding the JDK can
+ * produce, from a local server that can throttle its output to emulate a slow link.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CompressionBenchmark"}.
+ * The {@code wireBytes} and {@code decodedBytes} counters show the transfer size per iteration.
+ * Brotli is not covered because the JDK has no brotli encoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class CompressionBenchmark {
+
+    /** Emulated link speed in megabits per second; 0 serves as fast as loopback allows */
+    @Param({"0", "20"})
+    public int linkMbps;
+
+    /** {@code ofString} for the previous behavior, otherwise the content encoding to request */
+    @Param({"ofString", "identity", "gzip", "deflate"})
+    public String encoding;
+
+    private HttpServer server;
+    private HttpClient client;
+    private DecodingBodyHandler handler;
+    private HttpRequest request;
+    private Map<String, byte[]> bodies;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfer {
+        public long wireBytes;
+        public long decodedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0;
+            decodedBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        byte[] page = samplePage().getBytes(StandardCharsets.UTF_8);
+        bodies = Map.of(
+                "identity", page,
+                "gzip", compress(page, true),
+                "deflate", compress(page, false));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/page", exchange -> {
+            String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            String chosen = accepted != null && bodies.containsKey(accepted) ? accepted : "identity";
+            byte[] body = bodies.get(chosen);
+
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            if (!chosen.equals("identity")) {
+                exchange.getResponseHeaders().set("Content-Encoding", chosen);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                writeThrottled(out, body);
+            }
+        });
+        server.start();
+
+        client = HttpClient.newHttpClient();
+        handler = new DecodingBodyHandler(32 * 1024 * 1024);
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/page"))
+                .GET();
+        if (!encoding.equals("ofString")) {
+            builder.header("Accept-Encoding", encoding);
+        }
+        request = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public String fetch(Transfer transfer) throws Exception {
+        String body;
+        if (encoding.equals("ofString")) {
+            body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            transfer.wireBytes += bodies.get("identity").length;
+        } else {
+            body = client.send(request, handler).body();
+            transfer.wireBytes += bodies.get(encoding).length;
+        }
+        transfer.decodedBytes += bodies.get("identity").length;
+        return body;
+    }
+
+    private void writeThrottled(OutputStream out, byte[] body) throws IOException {
+        if (linkMbps <= 0) {
+            out.write(body);
+            return;
+        }
+        int chunk = 16 * 1024;
+        double bytesPerNano = linkMbps * 1_000_000 / 8.0 / 1_000_000_000;
+        long start = System.nanoTime();
+        for (int offset = 0; offset < body.length; offset += chunk) {
+            int length = Math.min(chunk, body.length - offset);
+            out.write(body, offset, length);
+            long due = start + (long) ((offset + length) / bytesPerNano);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static byte[] compress(byte[] data, boolean gzip) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A documentation-style page of about 250 KB with the repetitive markup typical of real sites
+     */
+    private static String samplePage() {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><meta charset=\"utf-8\">"
+                + "<title>Reference</title></head><body><nav><ul>");
+        for (int i = 0; i < 200; i++) {
+            html.append("<li><a href=\"/docs/section-").append(i).append("\">Section ").append(i).append("</a></li>");
+        }
+        html.append("</ul></nav><main>");
+        for (int i = 0; i < 400; i++) {
+            html.append("<h2 id=\"s").append(i).append("\">Section ").append(i).append("</h2>")
+                    .append("<p>The <code>fetch</code> call number ").append(i)
+                    .append(" returns a response whose body is read incrementally; headers such as ")
+                    .append("<em>Content-Type</em> and <em>Content-Encoding</em> describe how to decode it.</p>")
+                    .append("<table><tr><th>Name</th><th>Value</th></tr><tr><td>id</td><td>")
+                    .append(i * 7919 % 10007).append("</td></tr></table>");
+        }
+        return html.append("</main></body></html>").toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The checked-in pages under {@code src/jmh/resources/corpus}, shaped after common sites: a blog post,
+ * a documentation page, a forum listing, a news story in unmarked divs, a rendered single-page
+ * application, an encyclopedia article, a small landing page and a page of data tables.
+ */
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * The HTML of a corpus page, named without its extension
+     */
+    static String page(String name) {
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".html")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No corpus page " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+/**
+ * The main content choice used before {@link ContentScorer}: the first of a fixed list of selectors
+ * that matches an element with text, else the body. Kept only as the baseline for
+ * {@link MainContentExtractionBenchmark}.
+ */
+final class LegacyMainContentSelector {
+
+    /** Candidate main content areas, most specific first; the first one with text is used */
+    static final String[] MAIN_CONTENT_SELECTORS = {
+            "main", "article", "[role=main]", "#main", "#content",
+            ".main", ".content", ".article", ".post", ".entry"
+    };
+
+    private LegacyMainContentSelector() {
+    }
+
+    static Element mainContent(Document doc) {
+        for (String selector : MAIN_CONTENT_SELECTORS) {
+            Element element = doc.selectFirst(selector);
+            if (element != null && element.hasText()) {
+                return element;
+            }
+        }
+        return doc.body();
+    }
+}
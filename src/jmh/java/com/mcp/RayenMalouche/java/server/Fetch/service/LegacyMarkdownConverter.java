@@ -0,0 +1,110 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.vladsch.flexmark.html2md.converter.FlexmarkHtmlConverter;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+/**
+ * The HTML to Markdown conversion used before {@link MarkdownConverter}: parse with Jsoup, rewrite
+ * tables and definition lists and parse them again, serialize the document and let Flexmark parse
+ * and convert it. Kept only as the baseline for {@link MarkdownConversionBenchmark}.
+ */
+class LegacyMarkdownConverter {
+
+    private final FlexmarkHtmlConverter htmlConverter = FlexmarkHtmlConverter.builder().build();
+
+    String convert(String htmlContent, boolean mainContentOnly) {
+        Document doc = Jsoup.parse(htmlContent);
+
+        doc.select("script").remove();
+        doc.select("style").remove();
+
+        if (mainContentOnly) {
+            doc.select("header, footer, nav").remove();
+
+            Element mainContent = extractMainContent(doc);
+            if (mainContent != null) {
+                doc = Jsoup.parse(mainContent.outerHtml());
+            }
+        }
+
+        for (Element table : doc.select("table")) {
+            table.replaceWith(Jsoup.parse(convertTableToMarkdown(table)).body());
+        }
+
+        for (Element dl : doc.select("dl")) {
+            dl.replaceWith(Jsoup.parse(convertDefinitionListToMarkdown(dl)).body());
+        }
+
+        return htmlConverter.convert(doc.html());
+    }
+
+    private Element extractMainContent(Document doc) {
+        String[] selectors = {
+                "main", "article", "[role=main]", "#main", "#content",
+                ".main", ".content", ".article", ".post", ".entry"
+        };
+
+        for (String selector : selectors) {
+            Element element = doc.selectFirst(selector);
+            if (element != null && !element.text().trim().isEmpty()) {
+                return element;
+            }
+        }
+        return doc.body();
+    }
+
+    private String convertTableToMarkdown(Element table) {
+        StringBuilder markdown = new StringBuilder("\n\n");
+        Elements rows = table.select("tr");
+
+        if (rows.isEmpty()) {
+            return "";
+        }
+
+        Elements headerCells = rows.first().select("th, td");
+        if (!headerCells.isEmpty()) {
+            markdown.append("|");
+            for (Element cell : headerCells) {
+                markdown.append(" ").append(cell.text().trim()).append(" |");
+            }
+            markdown.append("\n|");
+            for (int i = 0; i < headerCells.size(); i++) {
+                markdown.append("---|");
+            }
+            markdown.append("\n");
+
+            for (int i = 1; i < rows.size(); i++) {
+                markdown.append("|");
+                for (Element cell : rows.get(i).select("th, td")) {
+                    markdown.append(" ").append(cell.text().trim()).append(" |");
+                }
+                markdown.append("\n");
+            }
+        }
+
+        return markdown.append("\n").toString();
+    }
+
+    private String convertDefinitionListToMarkdown(Element dl) {
+        StringBuilder markdown = new StringBuilder("\n\n");
+
+        for (Element child : dl.children()) {
+            if (child.tagName().equals("dt")) {
+                String term = child.text().trim();
+                if (!term.isEmpty()) {
+                    markdown.append("**").append(term).append(":** ");
+                }
+            } else if (child.tagName().equals("dd")) {
+                String definition = child.text().trim();
+                if (!definition.isEmpty()) {
+                    markdown.append(definition).append("\n");
+                }
+            }
+        }
+
+        return markdown.append("\n").toString();
+    }
+}
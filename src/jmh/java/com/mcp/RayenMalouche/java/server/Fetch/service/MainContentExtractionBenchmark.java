@@ -0,0 +1,63 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ContentScorer} with the previous selector list on the pages of the benchmark corpus,
+ * after page chrome has been removed as it is for summaries. The setup prints the size of the element
+ * each approach chooses and of its Markdown, so that the time can be read next to what it buys.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="MainContentExtractionBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MainContentExtractionBenchmark {
+
+    /** Page of the corpus under {@code src/jmh/resources/corpus} */
+    @Param({"blog-post", "docs-semantic", "forum-listing", "news-divsoup", "spa-rendered", "wiki-article"})
+    public String page;
+
+    private Document doc;
+
+    @Setup
+    public void setUp() {
+        doc = Jsoup.parse(Corpus.page(page));
+        doc.select(MarkdownConverter.PAGE_CHROME).remove();
+
+        MarkdownConverter converter = new MarkdownConverter();
+        Element scored = ContentScorer.mainContent(doc.body());
+        Element selected = LegacyMainContentSelector.mainContent(doc);
+        System.out.printf("%n%s: scorer chose <%s> (%d HTML / %d Markdown chars), selectors chose <%s> (%d / %d)%n",
+                page, scored.cssSelector(), scored.outerHtml().length(), converter.convert(scored.outerHtml(), false).length(),
+                selected.cssSelector(), selected.outerHtml().length(), converter.convert(selected.outerHtml(), false).length());
+    }
+
+    @Benchmark
+    public Element scorer() {
+        return ContentScorer.mainContent(doc.body());
+    }
+
+    @Benchmark
+    public Element selectors() {
+        return LegacyMainContentSelector.mainContent(doc);
+    }
+}
@@ -0,0 +1,85 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MarkdownConverter} with the previous parse, rewrite, serialize and reparse chain
+ * on a documentation-style page with navigation, lists, code blocks, tables and definition lists.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="MarkdownConversionBenchmark -prof gc"}
+ * to see allocation per conversion next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownConversionBenchmark {
+
+    /** Number of sections in the generated page; 100 sections are about 110 KB of HTML */
+    @Param({"10", "100"})
+    public int sections;
+
+    @Param({"false", "true"})
+    public boolean mainContentOnly;
+
+    private String html;
+    private MarkdownConverter converter;
+    private LegacyMarkdownConverter legacy;
+
+    @Setup
+    public void setUp() {
+        html = samplePage(sections);
+        converter = new MarkdownConverter();
+        legacy = new LegacyMarkdownConverter();
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return converter.convert(html, mainContentOnly);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacy.convert(html, mainContentOnly);
+    }
+
+    private static String samplePage(int sections) {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><meta charset=\"utf-8\">"
+                + "<title>Reference</title><style>body { margin: 0 }</style></head><body>"
+                + "<header><h1>Project</h1></header><nav><ul>");
+        for (int i = 0; i < sections; i++) {
+            html.append("<li><a href=\"#s").append(i).append("\">Section ").append(i).append("</a></li>");
+        }
+        html.append("</ul></nav><main><h1>Reference</h1>");
+        for (int i = 0; i < sections; i++) {
+            html.append("<h2 id=\"s").append(i).append("\">Section ").append(i).append("</h2>")
+                    .append("<p>The <code>fetch</code> call number ").append(i)
+                    .append(" returns a <strong>response</strong> whose body is read <em>incrementally</em>; see ")
+                    .append("<a href=\"/docs/api#fetch-").append(i).append("\" title=\"API\">the API reference</a>")
+                    .append(" for the options [1] and defaults.</p>")
+                    .append("<ul><li>Connect timeout</li><li>Read timeout<ul><li>Per chunk</li></ul></li>")
+                    .append("<li><a href=\"/limits\">Size limits</a></li></ul>")
+                    .append("<pre><code class=\"language-java\">Response response = client.fetch(url);\n")
+                    .append("String body = response.body();\n</code></pre>")
+                    .append("<table><tr><th>Name</th><th>Value</th></tr><tr><td>id</td><td>")
+                    .append(i * 7919 % 10007).append("</td></tr><tr><td>mode</td><td>raw</td></tr></table>")
+                    .append("<dl><dt>Retries</dt><dd>Up to three attempts</dd><dt>Backoff</dt><dd>Exponential</dd></dl>")
+                    .append("<blockquote><p>Note: responses over the size limit are rejected.</p></blockquote>");
+        }
+        return html.append("</main><footer><p>Copyright</p></footer><script>track();</script></body></html>").toString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the steps between a fetched page and the response sent for it, on each page of the
+ * {@link Corpus}: Markdown conversion of the whole page and of its main content, choosing the main
+ * content of an already parsed page, and serializing the result as the REST endpoints and the MCP
+ * transport do.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="PipelineBenchmark -prof gc"}
+ * to see allocation per operation next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"blog-post", "data-tables", "docs-semantic", "forum-listing", "landing-small", "news-divsoup",
+            "spa-rendered", "wiki-article"})
+    public String page;
+
+    private String html;
+    private Document chromeless;
+    private ContentPage result;
+    private MarkdownConverter converter;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        html = Corpus.page(page);
+        converter = new MarkdownConverter();
+        objectMapper = new ObjectMapper();
+        chromeless = Jsoup.parse(html);
+        chromeless.select(MarkdownConverter.PAGE_CHROME).remove();
+        result = ContentPage.of(converter.convert(html, false), 0, 100000)
+                .withRender(RenderDecision.http("static HTML"));
+    }
+
+    @Benchmark
+    public String markdown() {
+        return converter.convert(html, false);
+    }
+
+    @Benchmark
+    public String markdownSummary() {
+        return converter.convert(html, true);
+    }
+
+    @Benchmark
+    public Element mainContent() {
+        return ContentScorer.mainContent(chromeless.body());
+    }
+
+    /**
+     * The body of a single-URL REST response, shaped as {@code WebContentController} builds it
+     */
+    @Benchmark
+    public String restJson() throws JsonProcessingException {
+        Map<String, Object> pagination = new HashMap<>();
+        pagination.put("startIndex", result.startIndex());
+        pagination.put("endIndex", result.endIndex());
+        pagination.put("totalLength", result.totalLength());
+        pagination.put("truncated", result.truncated());
+        pagination.put("nextStartIndex", result.nextStartIndex());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("content", result.content());
+        response.put("pagination", pagination);
+        response.put("render", Map.of("path", result.render().path().getName(), "reason", result.render().reason()));
+        response.put("timestamp", System.currentTimeMillis());
+        return objectMapper.writeValueAsString(response);
+    }
+
+    /**
+     * A tool call's JSON-RPC response as the MCP transport writes it, with the metadata of
+     * {@code BaseFetchTool#createPageResult}
+     */
+    @Benchmark
+    public String mcpJson() throws JsonProcessingException {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("render", result.render().path().getName());
+        meta.put("renderReason", result.render().reason());
+        McpSchema.CallToolResult toolResult = new McpSchema.CallToolResult(
+                List.of(new McpSchema.TextContent(result.content())), false, null, meta);
+        return objectMapper.writeValueAsString(
+                new McpSchema.JSONRPCResponse(McpSchema.JSONRPC_VERSION, 1, toolResult, null));
+    }
+}
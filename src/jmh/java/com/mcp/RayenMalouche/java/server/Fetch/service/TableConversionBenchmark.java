@@ -0,0 +1,54 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of converting every table of a {@link Corpus} page to a Markdown pipe table, from an
+ * already parsed page, so that table handling can be watched apart from parsing and prose.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="TableConversionBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableConversionBenchmark {
+
+    /** Corpus pages with tables: an infobox, a topic list, reference tables and wide data tables */
+    @Param({"data-tables", "docs-semantic", "forum-listing", "wiki-article"})
+    public String page;
+
+    private Elements tables;
+    private MarkdownConverter converter;
+
+    @Setup
+    public void setUp() {
+        tables = Jsoup.parse(Corpus.page(page)).select("table");
+        converter = new MarkdownConverter();
+    }
+
+    @Benchmark
+    public void tables(Blackhole blackhole) {
+        for (Element table : tables) {
+            blackhole.consume(converter.convert(table));
+        }
+    }
+}
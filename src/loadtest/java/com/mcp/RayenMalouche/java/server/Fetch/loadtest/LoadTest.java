@@ -0,0 +1,90 @@
+package com.mcp.RayenMalouche.java.server.Fetch.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * End-to-end load test: starts a local origin serving the benchmark corpus and the fetch server,
+ * drives the REST API and the MCP SSE transport in one phase per transport and fetch mode, and
+ * reports throughput, latency percentiles, errors, memory and browser processes. Needs no network.
+ * <p>
+ * Run with {@code mvn -Ploadtest compile exec:exec -Dloadtest.args="--duration=30 ..."}; the
+ * options are listed on {@link Settings}.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        // Jetty and the MCP client log every start and session at INFO, which buries the progress lines
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        OriginServer origin = new OriginServer(settings);
+        origin.start();
+        try {
+            System.out.println("Origin serving " + origin.pageCount() + " pages, starting the server ...");
+            List<Phase.Result> results;
+            try (ServerUnderTest server = ServerUnderTest.start(settings)) {
+                System.out.println("Server " + server.pid() + " ready at " + server.restUrl() + " (REST) and "
+                        + server.mcpUrl() + "/sse (MCP)");
+                results = Phase.runAll(settings, origin, server);
+            }
+            print(settings, results);
+            if (settings.json() != null) {
+                Map<String, Object> report = new LinkedHashMap<>();
+                report.put("timestamp", Instant.now().toString());
+                report.put("javaVersion", System.getProperty("java.version"));
+                report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+                report.put("settings", settings);
+                report.put("phases", results);
+                Files.writeString(settings.json(), new ObjectMapper()
+                        .findAndRegisterModules()
+                        .enable(SerializationFeature.INDENT_OUTPUT)
+                        .writeValueAsString(report));
+                System.out.println("Report written to " + settings.json());
+            }
+        } finally {
+            origin.stop();
+        }
+        System.exit(0);
+    }
+
+    private static void print(Settings settings, List<Phase.Result> results) {
+        System.out.println();
+        System.out.printf("%d REST clients, %d MCP sessions, %ds measured after %ds warmup, origin latency %d+%d ms%s%n",
+                settings.concurrency(), settings.sessions(), settings.duration().toSeconds(),
+                settings.warmup().toSeconds(), settings.latencyMs(), settings.jitterMs(),
+                settings.gzip() ? ", gzip" : "");
+        System.out.println(settings.rate() > 0
+                ? String.format("Open loop: %.1f requests/s due per phase, latency measured from when each was due",
+                        settings.rate())
+                : "Closed loop: each client sends its next request when the previous one returns, so latencies "
+                        + "leave out the time requests would have waited on an overloaded server");
+        System.out.printf("%-5s %-17s %9s %9s %9s %9s %9s %7s %8s %8s %9s %6s %8s%n",
+                "", "mode", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors",
+                "heap MB", "RSS MB", "brwsr MB", "brwsr", "origin");
+        for (Phase.Result result : results) {
+            System.out.printf("%-5s %-17s %9.1f %9.1f %9.1f %9.1f %9.1f %6.2f%% %8s %8s %9s %6d %8d%n",
+                    result.transport(), result.mode(), result.throughput(), result.p50Ms(), result.p99Ms(),
+                    result.p999Ms(), result.maxMs(), result.errorRate() * 100,
+                    megabytes(result.peakHeapUsed()), megabytes(result.peakServerRss()),
+                    megabytes(result.peakBrowserRss()), result.peakBrowsers(), result.originRequests());
+        }
+        for (Phase.Result result : results) {
+            result.errorKinds().forEach((kind, count) ->
+                    System.out.println("  " + result.transport() + " " + result.mode() + ": " + count + " x " + kind));
+        }
+        System.out.println("Memory and browser process counts are peaks; origin counts the pages it served while measuring");
+    }
+
+    private static String megabytes(long bytes) {
+        return bytes < 0 ? "-" : String.valueOf(bytes / (1024 * 1024));
+    }
+}
@@ -0,0 +1,213 @@
+package com.mcp.RayenMalouche.java.server.Fetch.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+import org.eclipse.jetty.util.Callback;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the web: serves the benchmark corpus, generated articles of chosen sizes and
+ * script-built versions of the corpus pages after a configurable delay, optionally gzip-compressed.
+ * <p>
+ * Static pages are addressed as {@code localhost} and script-built ones as {@code 127.0.0.1}: the
+ * server remembers per host whether pages need the browser, so the two kinds must not share a host.
+ */
+final class OriginServer {
+
+    static final String STATIC_HOST = "localhost";
+    static final String SCRIPT_HOST = "127.0.0.1";
+
+    private static final String[] WORDS = ("the of and to in is that for it as was with be by on not he this are "
+            + "or his from at which but have an they you were her she there been one all we their has would when "
+            + "what if more will about up out them can into some could time these two may first then do any like "
+            + "new other only my over such our man me even most made after also did many before must through back "
+            + "years where much your way well down should because each just those people how too little state good "
+            + "very make world still own see men work long get here between both life being under never day same "
+            + "another know while last might us great old year off come since against go came right used take three")
+            .split(" ");
+
+    private final Settings settings;
+    private final Map<String, byte[]> pages = new HashMap<>();
+    private final List<String> staticPaths = new ArrayList<>();
+    private final List<String> scriptPaths = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private Server server;
+    private int port;
+
+    OriginServer(Settings settings) {
+        this.settings = settings;
+        for (String name : settings.pages()) {
+            String html = corpusPage(name);
+            add(staticPaths, "/corpus/" + name + ".html", html);
+            add(scriptPaths, "/script/" + name + ".html", scriptBuilt(html));
+        }
+        for (int kb : settings.sizesKb()) {
+            add(staticPaths, "/sized/" + kb + ".html", generated(kb));
+        }
+        if (staticPaths.isEmpty()) {
+            throw new IllegalArgumentException("No pages to serve");
+        }
+    }
+
+    private void add(List<String> paths, String path, String html) {
+        paths.add(path);
+        pages.put(path, html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void start() throws Exception {
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        Handler pageHandler = new PageHandler();
+        if (settings.gzip()) {
+            GzipHandler gzip = new GzipHandler();
+            gzip.setHandler(pageHandler);
+            server.setHandler(gzip);
+        } else {
+            server.setHandler(pageHandler);
+        }
+        server.start();
+        port = connector.getLocalPort();
+    }
+
+    void stop() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * A random page's URL, script-built with the configured probability
+     */
+    String pickUrl() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean script = random.nextDouble() < settings.scriptShare();
+        List<String> paths = script ? scriptPaths : staticPaths;
+        String url = "http://" + (script ? SCRIPT_HOST : STATIC_HOST) + ":" + port
+                + paths.get(random.nextInt(paths.size()));
+        return settings.cacheBust() ? url + "?n=" + sequence.incrementAndGet() : url;
+    }
+
+    /**
+     * Responses sent so far
+     */
+    long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * Uncompressed bytes of the responses sent so far
+     */
+    long bytes() {
+        return bytes.sum();
+    }
+
+    int pageCount() {
+        return pages.size();
+    }
+
+    private final class PageHandler extends Handler.Abstract {
+
+        @Override
+        public boolean handle(Request request, Response response, Callback callback) {
+            byte[] body = pages.get(Request.getPathInContext(request));
+            if (body == null) {
+                Response.writeError(request, response, callback, 404);
+                return true;
+            }
+            requests.increment();
+            bytes.add(body.length);
+            Runnable reply = () -> {
+                response.setStatus(200);
+                response.getHeaders().put(HttpHeader.CONTENT_TYPE, "text/html; charset=utf-8");
+                response.write(true, ByteBuffer.wrap(body), callback);
+            };
+            long delay = settings.latencyMs()
+                    + (settings.jitterMs() > 0 ? ThreadLocalRandom.current().nextInt(settings.jitterMs() + 1) : 0);
+            if (delay > 0) {
+                request.getComponents().getScheduler().schedule(reply, delay, TimeUnit.MILLISECONDS);
+            } else {
+                reply.run();
+            }
+            return true;
+        }
+    }
+
+    private static String corpusPage(String name) {
+        try (InputStream in = OriginServer.class.getResourceAsStream("/corpus/" + name + ".html")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No corpus page " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The page as an application shell whose script writes the original body into an empty root
+     */
+    private static String scriptBuilt(String html) {
+        Document doc = Jsoup.parse(html);
+        doc.select("script, noscript").remove();
+        String body;
+        try {
+            body = new ObjectMapper().writeValueAsString(doc.body().html()).replace("</", "<\\/");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return "<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>" + doc.title() + "</title></head>\n"
+                + "<body><div id=\"root\"></div>\n"
+                + "<script>document.getElementById('root').innerHTML = " + body + ";</script>\n"
+                + "</body></html>\n";
+    }
+
+    /**
+     * An article of paragraphs of random words, at least {@code kb} kilobytes long
+     */
+    private static String generated(int kb) {
+        Random random = new Random(kb);
+        StringBuilder html = new StringBuilder(kb * 1024 + 256)
+                .append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Generated article of ")
+                .append(kb).append(" KB</title></head>\n<body><nav><a href=\"/\">Home</a></nav>\n<article><h1>Article ")
+                .append(kb).append("</h1>\n");
+        for (int paragraph = 1; html.length() < kb * 1024; paragraph++) {
+            if (paragraph % 8 == 0) {
+                html.append("<h2>Section ").append(paragraph / 8).append("</h2>\n");
+            }
+            html.append("<p>");
+            int words = 40 + random.nextInt(80);
+            for (int i = 0; i < words; i++) {
+                html.append(i == 0 ? "" : random.nextInt(12) == 0 ? ", " : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            html.append(".</p>\n");
+        }
+        return html.append("</article>\n<footer>Generated</footer></body></html>\n").toString();
+    }
+}
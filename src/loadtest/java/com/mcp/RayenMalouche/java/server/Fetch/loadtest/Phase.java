@@ -0,0 +1,309 @@
+package com.mcp.RayenMalouche.java.server.Fetch.loadtest;
+
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One transport and fetch mode under load, for the warmup and then the measured duration, while the
+ * server is sampled twice a second.
+ * <p>
+ * In a closed loop, every client sends its next request as soon as the previous one completes, so a
+ * slow server is sent fewer requests and its latencies look better than users would see them. In an
+ * open loop, requests are due at a fixed rate and each is sent by the next free client; its latency
+ * counts from when it was due, so time spent waiting for a client while the server is behind is
+ * included. Latencies are those of successful requests due, or started, after the warmup.
+ */
+final class Phase {
+
+    private static final long SAMPLE_INTERVAL_MS = 500;
+
+    /**
+     * Outcome of one phase; memory figures are peaks over the phase, in bytes, {@code -1} if unknown
+     */
+    record Result(String transport, String mode, int clients, double offeredRate, double seconds, long requests,
+                  long errors,
+                  double throughput, double p50Ms, double p99Ms, double p999Ms, double maxMs,
+                  Map<String, Long> errorKinds, long originRequests, long peakHeapUsed, long peakServerRss,
+                  long peakBrowserRss, int peakBrowsers, int browsersAfter) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+
+    /**
+     * Sends one request; returns {@code null} on success, otherwise a short description of the error
+     */
+    private interface Client extends AutoCloseable {
+        String call(String url) throws Exception;
+
+        @Override
+        default void close() {
+        }
+    }
+
+    private final String transport;
+    private final String mode;
+    private final Settings settings;
+    private final OriginServer origin;
+    private final ServerUnderTest server;
+
+    Phase(String transport, String mode, Settings settings, OriginServer origin, ServerUnderTest server) {
+        this.transport = transport;
+        this.mode = mode;
+        this.settings = settings;
+        this.origin = origin;
+        this.server = server;
+    }
+
+    Result run() throws Exception {
+        List<Client> clients = transport.equals("rest") ? restClients() : mcpClients();
+        try {
+            return measure(clients);
+        } finally {
+            for (Client client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    private List<Client> restClients() {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        String endpoint = server.restUrl() + "/api/fetch/" + mode + "?url=";
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < settings.concurrency(); i++) {
+            clients.add(url -> {
+                HttpRequest request = HttpRequest.newBuilder(
+                                URI.create(endpoint + URLEncoder.encode(url, StandardCharsets.UTF_8)))
+                        .timeout(settings.requestTimeout())
+                        .build();
+                int status = http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+                return status == 200 ? null : "HTTP " + status;
+            });
+        }
+        return clients;
+    }
+
+    private List<Client> mcpClients() {
+        String tool = "get_" + mode.replace('-', '_');
+        List<Client> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < settings.sessions(); i++) {
+                McpSyncClient session = McpClient.sync(HttpClientSseClientTransport.builder(server.mcpUrl())
+                                .sseEndpoint("/sse")
+                                .build())
+                        .requestTimeout(settings.requestTimeout())
+                        .clientInfo(new McpSchema.Implementation("fetch-load-test", "1.0.0"))
+                        .build();
+                clients.add(new Client() {
+                    @Override
+                    public String call(String url) {
+                        McpSchema.CallToolResult result = session.callTool(
+                                new McpSchema.CallToolRequest(tool, Map.of("url", url)));
+                        return Boolean.TRUE.equals(result.isError()) ? "tool error" : null;
+                    }
+
+                    @Override
+                    public void close() {
+                        session.closeGracefully();
+                    }
+                });
+                session.initialize();
+            }
+        } catch (RuntimeException e) {
+            clients.forEach(Client::close);
+            throw e;
+        }
+        return clients;
+    }
+
+    private Result measure(List<Client> clients) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+
+        long interval = settings.rate() > 0 ? Math.max(1, (long) (1e9 / settings.rate())) : 0;
+        AtomicLong due = new AtomicLong();
+
+        long[][] latencies = new long[clients.size()][];
+        int[] counts = new int[clients.size()];
+        List<Map<String, Long>> errors = new ArrayList<>();
+        long[] lastCompletion = new long[clients.size()];
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients.size(); i++) {
+            int index = i;
+            Client client = clients.get(i);
+            Map<String, Long> clientErrors = new HashMap<>();
+            errors.add(clientErrors);
+            latencies[i] = new long[1024];
+            Thread thread = new Thread(() -> {
+                while (true) {
+                    long sent;
+                    if (interval > 0) {
+                        sent = start + due.getAndIncrement() * interval;
+                        if (sent >= end) {
+                            break;
+                        }
+                        for (long wait = sent - System.nanoTime(); wait > 0; wait = sent - System.nanoTime()) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        sent = System.nanoTime();
+                        if (sent >= end) {
+                            break;
+                        }
+                    }
+                    String url = origin.pickUrl();
+                    String error;
+                    try {
+                        error = client.call(url);
+                    } catch (Exception e) {
+                        error = e.getClass().getSimpleName();
+                    }
+                    long done = System.nanoTime();
+                    if (sent < measureFrom) {
+                        continue;
+                    }
+                    lastCompletion[index] = done;
+                    if (error != null) {
+                        clientErrors.merge(error, 1L, Long::sum);
+                    } else {
+                        if (counts[index] == latencies[index].length) {
+                            latencies[index] = Arrays.copyOf(latencies[index], counts[index] * 2);
+                        }
+                        latencies[index][counts[index]++] = done - sent;
+                    }
+                }
+            }, transport + "-" + mode + "-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        Sampler sampler = new Sampler();
+        Thread sampling = new Thread(sampler, "sampler");
+        sampling.setDaemon(true);
+        sampling.start();
+        while (System.nanoTime() < measureFrom) {
+            Thread.sleep(50);
+        }
+        long originBefore = origin.requests();
+        sampler.reset();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long originRequests = origin.requests() - originBefore;
+        sampler.stop();
+        sampling.join();
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int i = 0; i < counts.length; i++) {
+            System.arraycopy(latencies[i], 0, all, offset, counts[i]);
+            offset += counts[i];
+        }
+        Arrays.sort(all);
+        Map<String, Long> errorKinds = new TreeMap<>();
+        errors.forEach(clientErrors -> clientErrors.forEach((kind, n) -> errorKinds.merge(kind, n, Long::sum)));
+        long errorCount = errorKinds.values().stream().mapToLong(Long::longValue).sum();
+        long finished = Math.max(end, Arrays.stream(lastCompletion).max().orElse(end));
+        double seconds = (finished - measureFrom) / 1e9;
+
+        return new Result(transport, mode, clients.size(), settings.rate(), seconds, total + errorCount, errorCount,
+                total / seconds, millis(all, 0.50), millis(all, 0.99), millis(all, 0.999),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6, errorKinds, originRequests,
+                sampler.heapUsed, sampler.serverRss, sampler.browserRss, sampler.browsers,
+                server.sample().browsers());
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    /**
+     * Keeps the peaks of the server's samples until stopped
+     */
+    private final class Sampler implements Runnable {
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private volatile long heapUsed = -1;
+        private volatile long serverRss = -1;
+        private volatile long browserRss;
+        private volatile int browsers;
+
+        @Override
+        public void run() {
+            while (running.get()) {
+                ServerUnderTest.Sample sample = server.sample();
+                synchronized (this) {
+                    heapUsed = Math.max(heapUsed, sample.heapUsed());
+                    serverRss = Math.max(serverRss, sample.serverRss());
+                    browserRss = Math.max(browserRss, sample.browserRss());
+                    browsers = Math.max(browsers, sample.browsers());
+                }
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Forgets the peaks seen during the warmup
+         */
+        synchronized void reset() {
+            heapUsed = -1;
+            serverRss = -1;
+            browserRss = 0;
+            browsers = 0;
+        }
+
+        void stop() {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Runs the phases of every configured transport and mode in turn
+     */
+    static List<Result> runAll(Settings settings, OriginServer origin, ServerUnderTest server) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (String transport : settings.transports()) {
+            for (String mode : settings.modes()) {
+                System.out.println("Running " + transport + " " + mode + " ...");
+                Result result = new Phase(transport, mode, settings, origin, server).run();
+                System.out.printf("  %.0f req/s, p99 %.1f ms, %d errors%n",
+                        result.throughput(), result.p99Ms(), result.errors());
+                results.add(result);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,218 @@
+package com.mcp.RayenMalouche.java.server.Fetch.loadtest;
+
+import com.sun.tools.attach.VirtualMachine;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fetch server, started as a child process on free ports with politeness limits lifted for the
+ * origin, and sampled for its heap, its resident memory and that of the browsers it launches.
+ * Its output goes to {@code target/loadtest-server.log}.
+ */
+final class ServerUnderTest implements AutoCloseable {
+
+    private static final String MAIN_CLASS = "com.mcp.RayenMalouche.java.server.Fetch.FetchApplication";
+    private static final Path LOG = Path.of("target", "loadtest-server.log");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    /**
+     * Memory and browsers at one point in time; sizes are {@code -1} where they cannot be read
+     *
+     * @param heapUsed   bytes of the server's heap in use
+     * @param serverRss  resident bytes of the server process
+     * @param browserRss resident bytes of the browser processes under it, summed, so memory they
+     *                   share is counted once per process
+     * @param browsers   browser processes under it
+     */
+    record Sample(long heapUsed, long serverRss, long browserRss, int browsers) {
+    }
+
+    private final Process process;
+    private final int restPort;
+    private final int mcpPort;
+    private JMXConnector jmx;
+    private MemoryMXBean memory;
+
+    private ServerUnderTest(Process process, int restPort, int mcpPort) {
+        this.process = process;
+        this.restPort = restPort;
+        this.mcpPort = mcpPort;
+    }
+
+    static ServerUnderTest start(Settings settings) throws Exception {
+        int restPort = freePort();
+        int mcpPort = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(settings.jvmArgs());
+        if (settings.jar() != null) {
+            command.add("-jar");
+            command.add(settings.jar().toString());
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(MAIN_CLASS);
+        }
+        command.add("--server.port=" + restPort);
+        command.add("--mcp.server.port=" + mcpPort);
+        // The origin stands in for many sites; per-host politeness would measure the limit, not the server
+        command.add("--webcontent.host.overrides=" + OriginServer.STATIC_HOST + "=100000:0,"
+                + OriginServer.SCRIPT_HOST + "=100000:0");
+        command.addAll(settings.serverArgs());
+
+        Files.createDirectories(LOG.getParent());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(LOG.toFile())
+                .start();
+        ServerUnderTest server = new ServerUnderTest(process, restPort, mcpPort);
+        try {
+            server.awaitReady();
+            server.connectJmx();
+        } catch (Exception e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    String restUrl() {
+        return "http://localhost:" + restPort;
+    }
+
+    String mcpUrl() {
+        return "http://localhost:" + mcpPort;
+    }
+
+    long pid() {
+        return process.pid();
+    }
+
+    private void awaitReady() throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest health = HttpRequest.newBuilder(URI.create(restUrl() + "/api/fetch/health"))
+                .timeout(Duration.ofSeconds(2)).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Server exited with " + process.exitValue() + ", see " + LOG);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200
+                        && mcpAccepts()) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Server not ready after " + STARTUP_TIMEOUT.toSeconds() + "s, see " + LOG);
+    }
+
+    private boolean mcpAccepts() {
+        try (Socket socket = new Socket("localhost", mcpPort)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Attaches to the server and starts its local JMX agent to read heap usage; without it the
+     * heap is reported as unknown
+     */
+    private void connectJmx() {
+        try {
+            VirtualMachine vm = VirtualMachine.attach(String.valueOf(process.pid()));
+            try {
+                jmx = JMXConnectorFactory.connect(new JMXServiceURL(vm.startLocalManagementAgent()));
+            } finally {
+                vm.detach();
+            }
+            MBeanServerConnection connection = jmx.getMBeanServerConnection();
+            memory = ManagementFactory.newPlatformMXBeanProxy(connection,
+                    ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+        } catch (Exception e) {
+            System.err.println("Heap usage unavailable, cannot attach to the server: " + e.getMessage());
+        }
+    }
+
+    Sample sample() {
+        long heapUsed = -1;
+        if (memory != null) {
+            try {
+                heapUsed = memory.getHeapMemoryUsage().getUsed();
+            } catch (RuntimeException e) {
+                // The server is going away
+            }
+        }
+        long browserRss = 0;
+        int browsers = 0;
+        for (ProcessHandle child : process.descendants().toList()) {
+            String command = child.info().command().orElse("");
+            if (command.contains("chrom") || command.contains("headless_shell")) {
+                browsers++;
+                browserRss += Math.max(0, rss(child.pid()));
+            }
+        }
+        return new Sample(heapUsed, rss(process.pid()), browserRss, browsers);
+    }
+
+    /**
+     * Resident set size of a process from {@code /proc}, or {@code -1} where there is none
+     */
+    private static long rss(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or the process has exited
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (jmx != null) {
+            try {
+                jmx.close();
+            } catch (IOException e) {
+                // Closed with the server
+            }
+        }
+        List<ProcessHandle> descendants = process.descendants().toList();
+        process.destroy();
+        if (!process.waitFor(15, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+        descendants.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+    }
+}
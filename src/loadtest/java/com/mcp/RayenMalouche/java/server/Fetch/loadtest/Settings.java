@@ -0,0 +1,118 @@
+package com.mcp.RayenMalouche.java.server.Fetch.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load test options, given as {@code --name=value} arguments
+ *
+ * @param duration       measured time per phase
+ * @param warmup         time per phase before measuring starts
+ * @param concurrency    REST clients sending requests back-to-back
+ * @param sessions       MCP sessions calling tools back-to-back
+ * @param rate           requests per second sent on a fixed schedule by the clients or sessions of a
+ *                       phase, {@code 0} for back-to-back requests
+ * @param transports     {@code rest} and/or {@code mcp}
+ * @param modes          fetch modes, one phase each per transport
+ * @param pages          corpus pages served as-is
+ * @param sizesKb        sizes of generated article pages served next to the corpus
+ * @param scriptShare    share of requests for pages that build their content with JavaScript
+ * @param latencyMs      origin delay before each response
+ * @param jitterMs       random delay added to the origin latency, up to this much
+ * @param gzip           whether the origin compresses responses
+ * @param cacheBust      whether every request gets a unique URL, so the server's cache never answers
+ * @param requestTimeout client timeout per request
+ * @param jar            server jar to start instead of the classes on the load test's class path
+ * @param jvmArgs        JVM options of the server, space-separated
+ * @param serverArgs     extra server arguments such as {@code --webcontent.browser.pool.size=4}
+ * @param json           file the report is also written to as JSON, for comparing releases
+ */
+record Settings(Duration duration, Duration warmup, int concurrency, int sessions, double rate, List<String> transports,
+                List<String> modes, List<String> pages, List<Integer> sizesKb, double scriptShare,
+                int latencyMs, int jitterMs, boolean gzip, boolean cacheBust, Duration requestTimeout,
+                Path jar, List<String> jvmArgs, List<String> serverArgs, Path json) {
+
+    static final List<String> CORPUS = List.of("blog-post", "data-tables", "docs-semantic", "forum-listing",
+            "landing-small", "news-divsoup", "spa-rendered", "wiki-article");
+
+    static final List<String> MODES = List.of("raw-text", "markdown", "markdown-summary", "rendered-html");
+
+    private static final Set<String> NAMES = Set.of("duration", "warmup", "concurrency", "sessions", "rate",
+            "transports", "modes", "pages", "sizes-kb", "script-share", "latency-ms", "jitter-ms", "gzip",
+            "cache-bust", "request-timeout", "jar", "jvm-args", "server-args", "json");
+
+    Settings {
+        if (concurrency < 1 || sessions < 1) {
+            throw new IllegalArgumentException("concurrency and sessions must be at least 1");
+        }
+        if (rate < 0) {
+            throw new IllegalArgumentException("rate must not be negative");
+        }
+        if (scriptShare < 0 || scriptShare > 1) {
+            throw new IllegalArgumentException("script-share must be between 0 and 1");
+        }
+        for (String transport : transports) {
+            if (!transport.equals("rest") && !transport.equals("mcp")) {
+                throw new IllegalArgumentException("Unknown transport " + transport + ", expected rest or mcp");
+            }
+        }
+        for (String mode : modes) {
+            if (!MODES.contains(mode)) {
+                throw new IllegalArgumentException("Unknown mode " + mode + ", expected one of " + MODES);
+            }
+        }
+        for (String page : pages) {
+            if (!CORPUS.contains(page)) {
+                throw new IllegalArgumentException("Unknown corpus page " + page + ", expected one of " + CORPUS);
+            }
+        }
+    }
+
+    static Settings parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", expected one of " + NAMES);
+            }
+            values.put(name, arg.substring(equals + 1));
+        }
+        return new Settings(
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "30"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10"))),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                Integer.parseInt(values.getOrDefault("sessions", "32")),
+                Double.parseDouble(values.getOrDefault("rate", "0")),
+                list(values.getOrDefault("transports", "rest,mcp")),
+                list(values.getOrDefault("modes", String.join(",", MODES))),
+                list(values.getOrDefault("pages", String.join(",", CORPUS))),
+                list(values.getOrDefault("sizes-kb", "")).stream().map(Integer::valueOf).toList(),
+                Double.parseDouble(values.getOrDefault("script-share", "0.1")),
+                Integer.parseInt(values.getOrDefault("latency-ms", "50")),
+                Integer.parseInt(values.getOrDefault("jitter-ms", "25")),
+                Boolean.parseBoolean(values.getOrDefault("gzip", "true")),
+                Boolean.parseBoolean(values.getOrDefault("cache-bust", "true")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("request-timeout", "60"))),
+                values.containsKey("jar") ? Path.of(values.get("jar")) : null,
+                words(values.getOrDefault("jvm-args", "")),
+                words(values.getOrDefault("server-args", "")),
+                values.containsKey("json") ? Path.of(values.get("json")) : null);
+    }
+
+    private static List<String> list(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(item -> !item.isEmpty()).toList();
+    }
+
+    private static List<String> words(String value) {
+        return Arrays.stream(value.trim().split("\\s+")).filter(word -> !word.isEmpty()).toList();
+    }
+}
@@ -1,5 +1,6 @@
 package com.mcp.RayenMalouche.java.server.Fetch;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -7,20 +8,40 @@ import org.springframework.context.ConfigurableApplicationContext;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.server.McpAsyncServer;
 import io.modelcontextprotocol.server.McpServer;
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.server.McpSyncServer;
 import io.modelcontextprotocol.server.transport.HttpServletSseServerTransportProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.ee10.servlet.FilterHolder;
 import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
 import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 import com.mcp.RayenMalouche.java.server.Fetch.tools.*;
-import com.mcp.RayenMalouche.java.server.Fetch.service.WebContentService;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @SpringBootApplication
 public class FetchApplication {
@@ -37,8 +58,21 @@ public class FetchApplication {
 	@Value("${mcp.server.version:1.0.0}")
 	private String serverVersion;
 
+	@Value("${mcp.server.mode:async}")
+	private String serverMode;
+
+	@Value("${mcp.server.max-threads:200}")
+	private int maxServerThreads;
+
+	@Autowired
+	private List<BaseFetchTool> fetchTools;
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
 	private static ConfigurableApplicationContext springContext;
 	private static FetchApplication instance;
+	private volatile Server mcpServer;
 
 	public static void main(String[] args) throws Exception {
 		// Start Spring Boot application for REST API
@@ -66,6 +100,7 @@ public class FetchApplication {
 		System.out.println("  - Rendered HTML: http://localhost:" + restServerPort + "/api/fetch/rendered-html");
 		System.out.println("  - Markdown: http://localhost:" + restServerPort + "/api/fetch/markdown");
 		System.out.println("  - Markdown Summary: http://localhost:" + restServerPort + "/api/fetch/markdown-summary");
+		System.out.println("  - Stats: http://localhost:" + restServerPort + "/api/fetch/stats");
 
 		// Start MCP server in a separate thread
 		Thread mcpServerThread = new Thread(() -> {
@@ -83,41 +118,78 @@ public class FetchApplication {
 		System.out.println("  - SSE Endpoint: http://localhost:" + mcpServerPort + "/sse");
 		System.out.println("  - Server Name: " + serverName);
 		System.out.println("  - Server Version: " + serverVersion);
+		System.out.println("  - Server Mode: " + serverMode);
 		System.out.println("=====================================");
 	}
 
-	private void startMcpServerInternal() throws Exception {
-		// Initialize web content service for MCP server
-		WebContentService webContentService = new WebContentService();
+	@PreDestroy
+	public void stopMcpServer() {
+		if (mcpServer != null) {
+			try {
+				mcpServer.stop();
+				System.out.println("MCP Server stopped");
+			} catch (Exception e) {
+				System.err.println("Error stopping MCP server: " + e.getMessage());
+			}
+		}
+	}
 
+	private void startMcpServerInternal() throws Exception {
+		// The MCP server shares the Spring-managed WebContentService (and its browsers, cache and
+		// connection pool) with the REST controller
 		// Create SSE transport provider
 		HttpServletSseServerTransportProvider transportProvider =
 				new HttpServletSseServerTransportProvider(new ObjectMapper(), "/", "/sse");
 
-		// Build synchronous MCP server
-		McpSyncServer syncServer = McpServer.sync(transportProvider)
-				.serverInfo(serverName, serverVersion)
-				.capabilities(McpSchema.ServerCapabilities.builder()
-						.tools(true)
-						.resources(false, false)
-						.prompts(false)
-						.build())
+		McpSchema.ServerCapabilities capabilities = McpSchema.ServerCapabilities.builder()
+				.tools(true)
+				.resources(false, false)
+				.prompts(false)
 				.build();
 
-		// Register all tools
-		registerTools(syncServer, webContentService);
+		if ("sync".equalsIgnoreCase(serverMode)) {
+			// Build synchronous MCP server: each tool call holds a request thread until it completes
+			McpSyncServer syncServer = McpServer.sync(transportProvider)
+					.serverInfo(serverName, serverVersion)
+					.capabilities(capabilities)
+					.build();
+			registerTools(syncServer);
+		} else {
+			// Build asynchronous MCP server: tool calls complete from the fetch engine's futures
+			McpAsyncServer asyncServer = McpServer.async(transportProvider)
+					.serverInfo(serverName, serverVersion)
+					.capabilities(capabilities)
+					.build();
+			registerTools(asyncServer);
+		}
 
 		// Configure Jetty server
-		QueuedThreadPool threadPool = new QueuedThreadPool();
+		QueuedThreadPool threadPool = new QueuedThreadPool(maxServerThreads);
 		threadPool.setName("mcp-fetch-server");
+		if (VirtualThreads.areSupported()) {
+			// The SSE transport waits for each reply on the posting request thread; on Java 21+
+			// that thread is virtual, so slow fetches do not exhaust the pool
+			threadPool.setVirtualThreadsExecutor(VirtualThreads.getNamedVirtualThreadsExecutor("mcp-fetch-vt"));
+			System.out.println("MCP Server request handling uses virtual threads");
+		}
 
 		Server server = new Server(threadPool);
+		mcpServer = server;
 		ServerConnector connector = new ServerConnector(server);
 		connector.setPort(mcpServerPort);
 		server.addConnector(connector);
 
 		ServletContextHandler context = new ServletContextHandler();
 		context.setContextPath("/");
+		SessionCounter sessions = new SessionCounter();
+		if (meterRegistry != null) {
+			Gauge.builder("mcp.sessions.active", sessions.open::get)
+					.description("MCP clients connected to the SSE endpoint")
+					.register(meterRegistry);
+		}
+		FilterHolder sessionFilter = new FilterHolder(sessions);
+		sessionFilter.setAsyncSupported(true);
+		context.addFilter(sessionFilter, "/sse", EnumSet.of(DispatcherType.REQUEST));
 		context.addServlet(new ServletHolder(transportProvider), "/*");
 		server.setHandler(context);
 
@@ -127,19 +199,71 @@ public class FetchApplication {
 		server.join();
 	}
 
-	private void registerTools(McpSyncServer syncServer, WebContentService webContentService) {
-		// Register get_raw_text tool
-		syncServer.addTool(new GetRawTextTool(webContentService).getToolSpecification());
+	private void registerTools(McpAsyncServer asyncServer) {
+		// Register every fetch tool bean (get_raw_text, get_rendered_html, get_markdown, get_markdown_summary, fetch_many)
+		List<McpServerFeatures.AsyncToolSpecification> specifications = fetchTools.stream()
+				.map(BaseFetchTool::getAsyncToolSpecification)
+				.collect(Collectors.toList());
+		specifications.forEach(specification -> asyncServer.addTool(specification).block());
+
+		System.out.println("MCP Tools registered (async): " + specifications.stream()
+				.map(specification -> specification.tool().name())
+				.collect(Collectors.joining(", ")));
+	}
+
+	private void registerTools(McpSyncServer syncServer) {
+		// Register every fetch tool bean (get_raw_text, get_rendered_html, get_markdown, get_markdown_summary, fetch_many)
+		List<McpServerFeatures.SyncToolSpecification> specifications = fetchTools.stream()
+				.map(BaseFetchTool::getToolSpecification)
+				.collect(Collectors.toList());
+		specifications.forEach(syncServer::addTool);
+
+		System.out.println("MCP Tools registered (sync): " + specifications.stream()
+				.map(specification -> specification.tool().name())
+				.collect(Collectors.joining(", ")));
+	}
+
+	/**
+	 * Counts open SSE streams, one per connected MCP session. A stream stays open from the request
+	 * until its asynchronous processing completes, however it ends.
+	 */
+	private static final class SessionCounter implements Filter {
 
-		// Register get_rendered_html tool
-		syncServer.addTool(new GetRenderedHtmlTool(webContentService).getToolSpecification());
+		private final AtomicInteger open = new AtomicInteger();
 
-		// Register get_markdown tool
-		syncServer.addTool(new GetMarkdownTool(webContentService).getToolSpecification());
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+				throws IOException, ServletException {
+			open.incrementAndGet();
+			boolean streaming = false;
+			try {
+				chain.doFilter(request, response);
+				if (request.isAsyncStarted()) {
+					request.getAsyncContext().addListener(new AsyncListener() {
+						@Override
+						public void onComplete(AsyncEvent event) {
+							open.decrementAndGet();
+						}
 
-		// Register get_markdown_summary tool
-		syncServer.addTool(new GetMarkdownSummaryTool(webContentService).getToolSpecification());
+						@Override
+						public void onTimeout(AsyncEvent event) {
+						}
 
-		System.out.println("MCP Tools registered: get_raw_text, get_rendered_html, get_markdown, get_markdown_summary");
+						@Override
+						public void onError(AsyncEvent event) {
+						}
+
+						@Override
+						public void onStartAsync(AsyncEvent event) {
+						}
+					});
+					streaming = true;
+				}
+			} finally {
+				if (!streaming) {
+					open.decrementAndGet();
+				}
+			}
+		}
 	}
-}
\ No newline at end of file
+}
@@ -1,13 +1,27 @@
 package com.mcp.RayenMalouche.java.server.Fetch.controller;
 
+import com.mcp.RayenMalouche.java.server.Fetch.service.BatchFetchService;
+import com.mcp.RayenMalouche.java.server.Fetch.service.BatchResult;
+import com.mcp.RayenMalouche.java.server.Fetch.service.ContentPage;
+import com.mcp.RayenMalouche.java.server.Fetch.service.DeadlineExceededException;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchMode;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchOptions;
+import com.mcp.RayenMalouche.java.server.Fetch.service.OverloadedException;
+import com.mcp.RayenMalouche.java.server.Fetch.service.RenderMode;
 import com.mcp.RayenMalouche.java.server.Fetch.service.WebContentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/fetch")
@@ -17,14 +31,20 @@ public class WebContentController {
     @Autowired
     private WebContentService webContentService;
 
+    @Autowired
+    private BatchFetchService batchFetchService;
+
     /**
      * Get raw text content from a URL
      */
     @PostMapping("/raw-text")
-    public ResponseEntity<Map<String, Object>> getRawText(@RequestBody Map<String, String> request) {
-        return handleRequest(() -> {
-            String url = validateUrl(request.get("url"));
-            return webContentService.getRawTextContent(url);
+    public ResponseEntity<Map<String, Object>> getRawText(@RequestBody Map<String, Object> request) {
+        return handleRequest(validateFlag(request.get("timings"), "timings"), () -> {
+            String url = validateUrl(request.get("url") != null ? request.get("url").toString() : null);
+            return webContentService.getContentPage(FetchMode.RAW_TEXT, url,
+                    validateIndex(request.get("start_index"), "start_index"),
+                    validateMaxLength(request.get("max_length")),
+                    FetchOptions.DEFAULT.withDeadline(FetchOptions.parseDeadline(request.get("deadline_ms"))));
         });
     }
 
@@ -32,10 +52,13 @@ public class WebContentController {
      * Get rendered HTML content from a URL
      */
     @PostMapping("/rendered-html")
-    public ResponseEntity<Map<String, Object>> getRenderedHtml(@RequestBody Map<String, String> request) {
-        return handleRequest(() -> {
-            String url = validateUrl(request.get("url"));
-            return webContentService.getRenderedHtmlContent(url);
+    public ResponseEntity<Map<String, Object>> getRenderedHtml(@RequestBody Map<String, Object> request) {
+        return handleRequest(validateFlag(request.get("timings"), "timings"), () -> {
+            String url = validateUrl(request.get("url") != null ? request.get("url").toString() : null);
+            return webContentService.getContentPage(FetchMode.RENDERED_HTML, url,
+                    validateIndex(request.get("start_index"), "start_index"),
+                    validateMaxLength(request.get("max_length")),
+                    validateOptions(null, request));
         });
     }
 
@@ -43,10 +66,13 @@ public class WebContentController {
      * Get markdown content from a URL
      */
     @PostMapping("/markdown")
-    public ResponseEntity<Map<String, Object>> getMarkdown(@RequestBody Map<String, String> request) {
-        return handleRequest(() -> {
-            String url = validateUrl(request.get("url"));
-            return webContentService.getMarkdownContent(url);
+    public ResponseEntity<Map<String, Object>> getMarkdown(@RequestBody Map<String, Object> request) {
+        return handleRequest(validateFlag(request.get("timings"), "timings"), () -> {
+            String url = validateUrl(request.get("url") != null ? request.get("url").toString() : null);
+            return webContentService.getContentPage(FetchMode.MARKDOWN, url,
+                    validateIndex(request.get("start_index"), "start_index"),
+                    validateMaxLength(request.get("max_length")),
+                    validateOptions(request.get("render"), request));
         });
     }
 
@@ -54,10 +80,13 @@ public class WebContentController {
      * Get markdown summary (main content only) from a URL
      */
     @PostMapping("/markdown-summary")
-    public ResponseEntity<Map<String, Object>> getMarkdownSummary(@RequestBody Map<String, String> request) {
-        return handleRequest(() -> {
-            String url = validateUrl(request.get("url"));
-            return webContentService.getMarkdownSummary(url);
+    public ResponseEntity<Map<String, Object>> getMarkdownSummary(@RequestBody Map<String, Object> request) {
+        return handleRequest(validateFlag(request.get("timings"), "timings"), () -> {
+            String url = validateUrl(request.get("url") != null ? request.get("url").toString() : null);
+            return webContentService.getContentPage(FetchMode.MARKDOWN_SUMMARY, url,
+                    validateIndex(request.get("start_index"), "start_index"),
+                    validateMaxLength(request.get("max_length")),
+                    validateOptions(request.get("render"), request));
         });
     }
 
@@ -65,10 +94,17 @@ public class WebContentController {
      * GET endpoint for raw text (alternative method)
      */
     @GetMapping("/raw-text")
-    public ResponseEntity<Map<String, Object>> getRawTextGet(@RequestParam String url) {
-        return handleRequest(() -> {
+    public ResponseEntity<Map<String, Object>> getRawTextGet(@RequestParam String url,
+                                                       @RequestParam(name = "start_index", required = false) String startIndex,
+                                                       @RequestParam(name = "max_length", required = false) String maxLength,
+                                                       @RequestParam(required = false) String timings,
+                                                       @RequestParam(name = "deadline_ms", required = false) String deadlineMs) {
+        return handleRequest(validateFlag(timings, "timings"), () -> {
             String validatedUrl = validateUrl(url);
-            return webContentService.getRawTextContent(validatedUrl);
+            return webContentService.getContentPage(FetchMode.RAW_TEXT, validatedUrl,
+                    validateIndex(startIndex, "start_index"),
+                    validateMaxLength(maxLength),
+                    FetchOptions.DEFAULT.withDeadline(FetchOptions.parseDeadline(deadlineMs)));
         });
     }
 
@@ -76,10 +112,20 @@ public class WebContentController {
      * GET endpoint for rendered HTML (alternative method)
      */
     @GetMapping("/rendered-html")
-    public ResponseEntity<Map<String, Object>> getRenderedHtmlGet(@RequestParam String url) {
-        return handleRequest(() -> {
+    public ResponseEntity<Map<String, Object>> getRenderedHtmlGet(@RequestParam String url,
+                                                       @RequestParam(name = "start_index", required = false) String startIndex,
+                                                       @RequestParam(name = "max_length", required = false) String maxLength,
+                                                       @RequestParam(name = "block_resources", required = false) String blockResources,
+                                                       @RequestParam(required = false) String wait,
+                                                       @RequestParam(name = "wait_for", required = false) String waitFor,
+                                                       @RequestParam(required = false) String timings,
+                                                       @RequestParam(name = "deadline_ms", required = false) String deadlineMs) {
+        return handleRequest(validateFlag(timings, "timings"), () -> {
             String validatedUrl = validateUrl(url);
-            return webContentService.getRenderedHtmlContent(validatedUrl);
+            return webContentService.getContentPage(FetchMode.RENDERED_HTML, validatedUrl,
+                    validateIndex(startIndex, "start_index"),
+                    validateMaxLength(maxLength),
+                    validateOptions(null, blockResources, wait, waitFor, deadlineMs));
         });
     }
 
@@ -87,10 +133,21 @@ public class WebContentController {
      * GET endpoint for markdown (alternative method)
      */
     @GetMapping("/markdown")
-    public ResponseEntity<Map<String, Object>> getMarkdownGet(@RequestParam String url) {
-        return handleRequest(() -> {
+    public ResponseEntity<Map<String, Object>> getMarkdownGet(@RequestParam String url,
+                                                       @RequestParam(name = "start_index", required = false) String startIndex,
+                                                       @RequestParam(name = "max_length", required = false) String maxLength,
+                                                       @RequestParam(required = false) String render,
+                                                       @RequestParam(name = "block_resources", required = false) String blockResources,
+                                                       @RequestParam(required = false) String wait,
+                                                       @RequestParam(name = "wait_for", required = false) String waitFor,
+                                                       @RequestParam(required = false) String timings,
+                                                       @RequestParam(name = "deadline_ms", required = false) String deadlineMs) {
+        return handleRequest(validateFlag(timings, "timings"), () -> {
             String validatedUrl = validateUrl(url);
-            return webContentService.getMarkdownContent(validatedUrl);
+            return webContentService.getContentPage(FetchMode.MARKDOWN, validatedUrl,
+                    validateIndex(startIndex, "start_index"),
+                    validateMaxLength(maxLength),
+                    validateOptions(render, blockResources, wait, waitFor, deadlineMs));
         });
     }
 
@@ -98,11 +155,81 @@ public class WebContentController {
      * GET endpoint for markdown summary (alternative method)
      */
     @GetMapping("/markdown-summary")
-    public ResponseEntity<Map<String, Object>> getMarkdownSummaryGet(@RequestParam String url) {
-        return handleRequest(() -> {
+    public ResponseEntity<Map<String, Object>> getMarkdownSummaryGet(@RequestParam String url,
+                                                       @RequestParam(name = "start_index", required = false) String startIndex,
+                                                       @RequestParam(name = "max_length", required = false) String maxLength,
+                                                       @RequestParam(required = false) String render,
+                                                       @RequestParam(name = "block_resources", required = false) String blockResources,
+                                                       @RequestParam(required = false) String wait,
+                                                       @RequestParam(name = "wait_for", required = false) String waitFor,
+                                                       @RequestParam(required = false) String timings,
+                                                       @RequestParam(name = "deadline_ms", required = false) String deadlineMs) {
+        return handleRequest(validateFlag(timings, "timings"), () -> {
             String validatedUrl = validateUrl(url);
-            return webContentService.getMarkdownSummary(validatedUrl);
+            return webContentService.getContentPage(FetchMode.MARKDOWN_SUMMARY, validatedUrl,
+                    validateIndex(startIndex, "start_index"),
+                    validateMaxLength(maxLength),
+                    validateOptions(render, blockResources, wait, waitFor, deadlineMs));
+        });
+    }
+
+    /**
+     * Fetch several URLs in parallel and return one result per URL
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> batch(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<String> urls = validateUrls(request.get("urls"));
+            FetchMode mode = validateMode(request.get("mode"));
+
+            List<BatchResult> results = batchFetchService.fetchAll(urls, mode, result -> { }).get();
+            response.put("success", true);
+            response.put("results", results);
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", "Invalid parameters: " + e.getMessage());
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Failed to fetch content: " + e.getMessage());
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Fetch several URLs in parallel and stream each result as a server-sent event as soon as it completes
+     */
+    @PostMapping("/batch/stream")
+    public SseEmitter batchStream(@RequestBody Map<String, Object> request) {
+        List<String> urls = validateUrls(request.get("urls"));
+        FetchMode mode = validateMode(request.get("mode"));
+
+        SseEmitter emitter = new SseEmitter(0L);
+        CompletableFuture<List<BatchResult>> batch = batchFetchService.fetchAll(urls, mode, result -> {
+            try {
+                emitter.send(SseEmitter.event().name("result").data(result));
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the remaining results are still cached for later requests
+            }
         });
+        batch.whenComplete((results, error) -> {
+            try {
+                emitter.send(SseEmitter.event().name("complete").data(Map.of(
+                        "count", urls.size(),
+                        "timestamp", System.currentTimeMillis())));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        emitter.onTimeout(() -> batch.cancel(true));
+        emitter.onError(e -> batch.cancel(true));
+        return emitter;
     }
 
     /**
@@ -117,6 +244,16 @@ public class WebContentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Cache and engine statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> response = new HashMap<>(webContentService.getStats());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get available endpoints
      */
@@ -147,8 +284,29 @@ public class WebContentController {
                         "methods", new String[]{"GET", "POST"},
                         "get_example", "/api/fetch/markdown-summary?url=https://example.com",
                         "post_example", "{\"url\": \"https://example.com\"}"
+                ),
+                "batch", Map.of(
+                        "description", "Fetches several URLs in parallel; /batch/stream streams each result as a server-sent event",
+                        "methods", new String[]{"POST"},
+                        "post_example", "{\"urls\": [\"https://example.com\", \"https://example.org\"], \"mode\": \"markdown\"}"
                 )
         ));
+        response.put("pagination", "Single-URL endpoints accept start_index and max_length; the response's "
+                + "pagination.nextStartIndex is the start_index of the next page, or null on the last page");
+        response.put("render", "markdown and markdown-summary accept render=auto|http|browser; auto fetches over plain "
+                + "HTTP and uses the browser only for pages that need JavaScript. The response's render.path "
+                + "reports which was used");
+        response.put("block_resources", "rendered-html, markdown and markdown-summary accept block_resources, a list "
+                + "of resource types (image, media, font, stylesheet, script, ...) the browser skips while rendering, "
+                + "or none to load everything; the server's setting applies when it is omitted");
+        response.put("wait", "rendered-html, markdown and markdown-summary accept wait=domcontentloaded|load|networkidle|"
+                + "selector|quiescent and wait_for=<css selector>; a render that is not ready by its deadline returns "
+                + "what has loaded, with render.partial saying why");
+        response.put("deadline_ms", "Single-URL endpoints accept deadline_ms, how long the caller will wait; origin "
+                + "requests and renders are cut to fit it, and a fetch that cannot finish in time fails with 504");
+        response.put("timings", "Single-URL endpoints accept timings=true to add a timings object: totalMs, stagesMs "
+                + "(ttfb, body, browser-lease, navigation, page-content, parse, conversion), bytesFetched, "
+                + "bytesEmitted, cache (hit|miss|revalidated|coalesced|bypass) and browser");
         return ResponseEntity.ok(response);
     }
 
@@ -165,15 +323,132 @@ public class WebContentController {
         return trimmedUrl;
     }
 
-    private ResponseEntity<Map<String, Object>> handleRequest(ContentFetcher fetcher) {
+    /**
+     * Rejects invalid batch stream requests before the event stream is opened
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidParameters(IllegalArgumentException e) {
         Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "Invalid parameters: " + e.getMessage());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.badRequest().body(response);
+    }
 
+    private int validateIndex(Object value, String name) {
+        if (value == null || value.toString().isBlank()) {
+            return 0;
+        }
         try {
-            String content = fetcher.fetch();
+            int index = Integer.parseInt(value.toString().trim());
+            if (index < 0) {
+                throw new IllegalArgumentException(name + " must not be negative");
+            }
+            return index;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer");
+        }
+    }
+
+    private boolean validateFlag(Object value, String name) {
+        if (value == null || value.toString().isBlank()) {
+            return false;
+        }
+        String flag = value.toString().trim();
+        if (!flag.equalsIgnoreCase("true") && !flag.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException(name + " must be true or false");
+        }
+        return Boolean.parseBoolean(flag);
+    }
+
+    /**
+     * REST clients predate pagination, so without max_length they get whole documents rather than
+     * the page size MCP tools default to
+     */
+    private Integer validateMaxLength(Object value) {
+        return value == null || value.toString().isBlank() ? 0 : validateIndex(value, "max_length");
+    }
+
+    private List<String> validateUrls(Object urlsObj) {
+        if (!(urlsObj instanceof List<?> values) || values.isEmpty()) {
+            throw new IllegalArgumentException("urls must be a non-empty array");
+        }
+        if (values.size() > batchFetchService.getMaxUrls()) {
+            throw new IllegalArgumentException("At most " + batchFetchService.getMaxUrls() + " URLs can be fetched in one batch");
+        }
+
+        List<String> urls = new ArrayList<>(values.size());
+        for (Object value : values) {
+            urls.add(validateUrl(value != null ? value.toString() : null));
+        }
+        return urls;
+    }
+
+    private FetchOptions validateOptions(Object renderObj, Map<String, Object> request) {
+        Object waitFor = request.get("wait_for");
+        return validateOptions(renderObj, request.get("block_resources"), request.get("wait"),
+                waitFor != null ? waitFor.toString() : null, request.get("deadline_ms"));
+    }
+
+    private FetchOptions validateOptions(Object renderObj, Object blockResources, Object wait, String waitFor,
+                                         Object deadlineMs) {
+        RenderMode render = renderObj == null || renderObj.toString().isBlank()
+                ? null
+                : RenderMode.fromName(renderObj.toString().trim());
+        return new FetchOptions(render, FetchOptions.parseBlockedResources(blockResources),
+                FetchOptions.parseWait(wait), waitFor, FetchOptions.parseDeadline(deadlineMs));
+    }
+
+    private FetchMode validateMode(Object modeObj) {
+        return modeObj == null ? FetchMode.MARKDOWN : FetchMode.fromName(modeObj.toString().trim());
+    }
+
+    /**
+     * Runs a single-URL fetch and builds its response
+     *
+     * @param timings whether to report where the time of the request went
+     */
+    private ResponseEntity<Map<String, Object>> handleRequest(boolean timings, ContentFetcher fetcher) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            ContentPage page = fetcher.fetch();
+            Map<String, Object> pagination = new HashMap<>();
+            pagination.put("startIndex", page.startIndex());
+            pagination.put("endIndex", page.endIndex());
+            pagination.put("totalLength", page.totalLength());
+            pagination.put("truncated", page.truncated());
+            pagination.put("nextStartIndex", page.nextStartIndex());
+
             response.put("success", true);
-            response.put("content", content);
+            response.put("content", page.content());
+            response.put("pagination", pagination);
+            if (page.render() != null) {
+                Map<String, Object> render = new HashMap<>();
+                render.put("path", page.render().path().getName());
+                render.put("reason", page.render().reason());
+                if (page.render().partial() != null) {
+                    render.put("partial", page.render().partial());
+                }
+                response.put("render", render);
+            }
+            if (timings && page.timings() != null) {
+                response.put("timings", page.timings().toMap());
+            }
             response.put("timestamp", System.currentTimeMillis());
             return ResponseEntity.ok(response);
+        } catch (OverloadedException e) {
+            response.put("success", false);
+            response.put("error", "Server busy: " + e.getMessage());
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.retryAfter().toSeconds()))
+                    .body(response);
+        } catch (DeadlineExceededException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
         } catch (IllegalArgumentException e) {
             response.put("success", false);
             response.put("error", "Invalid parameters: " + e.getMessage());
@@ -189,6 +464,6 @@ public class WebContentController {
 
     @FunctionalInterface
     private interface ContentFetcher {
-        String fetch() throws Exception;
+        ContentPage fetch() throws Exception;
     }
 }
\ No newline at end of file
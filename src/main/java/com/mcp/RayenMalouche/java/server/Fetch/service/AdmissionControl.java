@@ -0,0 +1,287 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Admits fetches into the pipeline so that a spike turns into fast rejections rather than timeouts
+ * for everyone.
+ * <p>
+ * At most {@code maxActive} fetches run at once, and modes other than raw-text leave
+ * {@code rawTextReserve} of those slots free, so cheap fetches keep flowing while browser renders
+ * back up. Fetches beyond that wait in a bounded queue per mode and are admitted by priority:
+ * raw-text, then the Markdown modes, then rendered HTML. A fetch is refused when its queue is full,
+ * and shed, on arrival or while it waits, once the wait ahead of it plus the typical duration of
+ * its mode would overrun its deadline. Waiters hold no thread.
+ */
+class AdmissionControl {
+
+    /** Weight of the newest duration in the per-mode moving average */
+    private static final double SMOOTHING = 0.2;
+
+    /** Admission order of the modes, most favoured first */
+    private static final FetchMode[] PRIORITY = {
+            FetchMode.RAW_TEXT, FetchMode.MARKDOWN, FetchMode.MARKDOWN_SUMMARY, FetchMode.RENDERED_HTML};
+
+    private final int maxActive;
+    private final int rawTextReserve;
+    private final int queueCapacity;
+    private final Duration deadline;
+    private final Map<FetchMode, Deque<CompletableFuture<Void>>> queues = new EnumMap<>(FetchMode.class);
+    private final Map<FetchMode, Double> typicalNanos = new EnumMap<>(FetchMode.class);
+    private final Map<FetchMode, LongAdder> refused = new EnumMap<>(FetchMode.class);
+    private final Map<FetchMode, LongAdder> shed = new EnumMap<>(FetchMode.class);
+    private final LongAdder admitted = new LongAdder();
+    private int active;
+
+    /**
+     * @param maxActive      fetches running at the same time
+     * @param rawTextReserve slots only raw-text fetches may take, less than {@code maxActive}
+     * @param queueCapacity  fetches of one mode allowed to wait for a slot
+     * @param deadline       how long a fetch may take from arrival before it is not worth running
+     */
+    AdmissionControl(int maxActive, int rawTextReserve, int queueCapacity, Duration deadline) {
+        if (maxActive < 1) {
+            throw new IllegalArgumentException("maxActive must be at least 1");
+        }
+        this.maxActive = maxActive;
+        this.rawTextReserve = Math.max(0, Math.min(rawTextReserve, maxActive - 1));
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.deadline = deadline;
+        for (FetchMode mode : FetchMode.values()) {
+            queues.put(mode, new ArrayDeque<>());
+            typicalNanos.put(mode, 0.0);
+            refused.put(mode, new LongAdder());
+            shed.put(mode, new LongAdder());
+        }
+    }
+
+    /**
+     * Runs the fetch once it is admitted. The returned future fails with {@link OverloadedException}
+     * if it is refused or shed; cancelling it gives up its place in the queue or cancels the fetch.
+     */
+    <T> CompletableFuture<T> submit(FetchMode mode, Supplier<CompletableFuture<T>> fetch) {
+        return submit(mode, null, fetch);
+    }
+
+    /**
+     * Variant of {@link #submit(FetchMode, Supplier)} for a caller that set its own deadline
+     *
+     * @param callerDeadline how long the caller will wait; the configured deadline applies when it
+     *                       is {@code null} or later
+     */
+    <T> CompletableFuture<T> submit(FetchMode mode, Duration callerDeadline, Supplier<CompletableFuture<T>> fetch) {
+        Duration deadline = callerDeadline != null && callerDeadline.compareTo(this.deadline) < 0
+                ? callerDeadline : this.deadline;
+        CompletableFuture<Void> granted;
+        synchronized (this) {
+            if (queuedAhead(mode) == 0 && hasSlot(mode)) {
+                active++;
+                granted = CompletableFuture.completedFuture(null);
+            } else {
+                Deque<CompletableFuture<Void>> queue = queues.get(mode);
+                if (queue.size() >= queueCapacity) {
+                    queue.removeIf(CompletableFuture::isDone);
+                }
+                long wait = expectedWaitNanos(mode);
+                if (queue.size() >= queueCapacity) {
+                    refused.get(mode).increment();
+                    return CompletableFuture.failedFuture(overloaded(
+                            "The " + mode.getName() + " queue is full (" + queue.size() + " waiting)", wait));
+                }
+                long budget = deadline.toNanos() - typicalNanos(mode);
+                if (wait > budget) {
+                    shed.get(mode).increment();
+                    return CompletableFuture.failedFuture(overloaded("A " + mode.getName()
+                            + " request would not finish within " + describe(deadline), wait));
+                }
+                granted = new CompletableFuture<>();
+                queue.add(granted);
+                // Give up the place in the queue once the fetch could no longer finish in time
+                granted.orTimeout(Math.max(0, budget), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> running = new AtomicReference<>();
+        granted.whenComplete((slot, error) -> {
+            if (error instanceof TimeoutException) {
+                shed.get(mode).increment();
+                result.completeExceptionally(overloaded("A " + mode.getName() + " request waited too long to finish within "
+                        + describe(deadline), expectedWaitNanos(mode)));
+                return;
+            }
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            CompletableFuture<T> fetching = run(mode, fetch);
+            running.set(fetching);
+            fetching.whenComplete((value, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            });
+            if (result.isCancelled()) {
+                fetching.cancel(true);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                granted.cancel(false);
+                CompletableFuture<T> fetching = running.get();
+                if (fetching != null) {
+                    fetching.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Starts an admitted fetch, releasing its slot and learning its duration when it completes
+     */
+    private <T> CompletableFuture<T> run(FetchMode mode, Supplier<CompletableFuture<T>> fetch) {
+        admitted.increment();
+        long started = System.nanoTime();
+        CompletableFuture<T> fetching;
+        try {
+            fetching = fetch.get();
+        } catch (Throwable t) {
+            release();
+            return CompletableFuture.failedFuture(t);
+        }
+        fetching.whenComplete((value, error) -> {
+            if (error == null) {
+                learn(mode, System.nanoTime() - started);
+            }
+            release();
+        });
+        return fetching;
+    }
+
+    private void release() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            active--;
+            next = nextWaiter();
+            if (next == null) {
+                return;
+            }
+            active++;
+        }
+        // Hand the slot straight to the waiter, outside the lock
+        if (!next.complete(null)) {
+            release();
+        }
+    }
+
+    /**
+     * Removes the most favoured waiter that may take the free slot, skipping those that gave up
+     */
+    private CompletableFuture<Void> nextWaiter() {
+        for (FetchMode mode : PRIORITY) {
+            if (!hasSlot(mode)) {
+                continue;
+            }
+            Deque<CompletableFuture<Void>> queue = queues.get(mode);
+            CompletableFuture<Void> waiter;
+            while ((waiter = queue.poll()) != null) {
+                if (!waiter.isDone()) {
+                    return waiter;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasSlot(FetchMode mode) {
+        return active < (mode == FetchMode.RAW_TEXT ? maxActive : maxActive - rawTextReserve);
+    }
+
+    /**
+     * Live waiters of this mode or of more favoured ones, which are admitted first
+     */
+    private int queuedAhead(FetchMode mode) {
+        int ahead = 0;
+        for (FetchMode queued : PRIORITY) {
+            ahead += (int) queues.get(queued).stream().filter(waiter -> !waiter.isDone()).count();
+            if (queued == mode) {
+                break;
+            }
+        }
+        return ahead;
+    }
+
+    /**
+     * Rough time until a new fetch of this mode gets a slot: the typical duration of everything
+     * queued ahead of it, spread over the slots it may use
+     */
+    private synchronized long expectedWaitNanos(FetchMode mode) {
+        double work = 0;
+        for (FetchMode queued : PRIORITY) {
+            work += queues.get(queued).stream().filter(waiter -> !waiter.isDone()).count()
+                    * typicalNanos.get(queued);
+            if (queued == mode) {
+                break;
+            }
+        }
+        // A full house also has to finish one of the running fetches first
+        if (!hasSlot(mode)) {
+            work += typicalNanos.get(mode);
+        }
+        int slots = mode == FetchMode.RAW_TEXT ? maxActive : maxActive - rawTextReserve;
+        return (long) (work / slots);
+    }
+
+    private synchronized long typicalNanos(FetchMode mode) {
+        return typicalNanos.get(mode).longValue();
+    }
+
+    private synchronized void learn(FetchMode mode, long nanos) {
+        double typical = typicalNanos.get(mode);
+        typicalNanos.put(mode, typical == 0 ? nanos : typical + SMOOTHING * (nanos - typical));
+    }
+
+    private static String describe(Duration deadline) {
+        return deadline.toMillis() % 1000 == 0 ? deadline.toSeconds() + " seconds" : deadline.toMillis() + " ms";
+    }
+
+    private static OverloadedException overloaded(String message, long waitNanos) {
+        long seconds = Math.max(1, (long) Math.ceil(waitNanos / 1e9));
+        return new OverloadedException(message + ", retry in " + seconds + " seconds", Duration.ofSeconds(seconds));
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxActive", maxActive);
+        stats.put("rawTextReserve", rawTextReserve);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("deadlineSeconds", deadline.toSeconds());
+        stats.put("active", active);
+        stats.put("admitted", admitted.sum());
+        Map<String, Object> modes = new LinkedHashMap<>();
+        for (FetchMode mode : PRIORITY) {
+            Map<String, Object> modeStats = new LinkedHashMap<>();
+            modeStats.put("queued", queues.get(mode).stream().filter(waiter -> !waiter.isDone()).count());
+            modeStats.put("typicalMs", Math.round(typicalNanos.get(mode) / 1e6));
+            modeStats.put("refused", refused.get(mode).sum());
+            modeStats.put("shed", shed.get(mode).sum());
+            modes.put(mode.getName(), modeStats);
+        }
+        stats.put("modes", modes);
+        return stats;
+    }
+}
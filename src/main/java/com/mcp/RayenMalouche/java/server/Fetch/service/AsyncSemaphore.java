@@ -0,0 +1,123 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A counting semaphore whose waiters are futures instead of blocked threads.
+ * <p>
+ * Used to cap how much asynchronous work runs at once without tying up a thread per queued
+ * request. Waiters are served in FIFO order; waiters whose future has been cancelled are skipped.
+ */
+class AsyncSemaphore {
+
+    private final int permits;
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int available;
+
+    AsyncSemaphore(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits must be at least 1");
+        }
+        this.permits = permits;
+        this.available = permits;
+    }
+
+    /**
+     * Returns a future that completes once a permit has been granted to the caller
+     */
+    synchronized CompletableFuture<Void> acquire() {
+        if (available > 0) {
+            available--;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    void release() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            do {
+                next = waiters.poll();
+            } while (next != null && next.isDone());
+
+            if (next == null) {
+                available = Math.min(permits, available + 1);
+                return;
+            }
+        }
+        // Hand the permit straight to the next waiter, outside the lock
+        if (!next.complete(null)) {
+            release();
+        }
+    }
+
+    /**
+     * Runs the operation once a permit is available and releases the permit when it completes.
+     * Cancelling the returned future gives up the place in the queue, or cancels the operation if it
+     * has started.
+     */
+    <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<Void> granted = acquire();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> running = new AtomicReference<>();
+        granted.whenComplete((permit, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            if (result.isDone()) {
+                // Cancelled while the permit was being handed over
+                release();
+                return;
+            }
+            CompletableFuture<T> started;
+            try {
+                started = operation.get();
+            } catch (Throwable t) {
+                release();
+                result.completeExceptionally(t);
+                return;
+            }
+            running.set(started);
+            started.whenComplete((value, failure) -> {
+                release();
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            });
+            if (result.isCancelled()) {
+                started.cancel(true);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                granted.cancel(false);
+                CompletableFuture<T> started = running.get();
+                if (started != null) {
+                    started.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    int permits() {
+        return permits;
+    }
+
+    synchronized int inUse() {
+        return permits - available;
+    }
+
+    synchronized int queued() {
+        return (int) waiters.stream().filter(waiter -> !waiter.isDone()).count();
+    }
+}
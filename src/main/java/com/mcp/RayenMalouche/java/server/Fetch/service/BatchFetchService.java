@@ -0,0 +1,116 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Fetches many URLs in parallel through {@link WebContentService}.
+ * <p>
+ * Fan-out is bounded by a cap shared by all batches, so that one large batch cannot monopolize the
+ * engine; the engine's per-host scheduling keeps a batch of URLs on one site from hammering it.
+ * Each URL gets its own result with timing, and results can be observed as soon as they complete.
+ */
+@Service
+public class BatchFetchService {
+
+    @Value("${webcontent.batch.max-urls:50}")
+    private int maxUrls = 50;
+
+    @Value("${webcontent.batch.concurrency:8}")
+    private int concurrency = 8;
+
+    private final WebContentService webContentService;
+    private AsyncSemaphore permits;
+
+    public BatchFetchService(WebContentService webContentService) {
+        this.webContentService = webContentService;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        this.permits = new AsyncSemaphore(concurrency);
+    }
+
+    public int getMaxUrls() {
+        return maxUrls;
+    }
+
+    /**
+     * Fetches every URL in the given mode.
+     * The returned future always completes normally; failures are reported per URL. Cancelling it
+     * cancels the fetches still queued or running.
+     *
+     * @param onResult called with each result as soon as it is available, in completion order
+     */
+    public CompletableFuture<List<BatchResult>> fetchAll(List<String> urls, FetchMode mode,
+                                                         Consumer<BatchResult> onResult) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one URL is required");
+        }
+        if (urls.size() > maxUrls) {
+            throw new IllegalArgumentException("At most " + maxUrls + " URLs can be fetched in one batch");
+        }
+
+        List<CompletableFuture<BatchResult>> started = new ArrayList<>(urls.size());
+        List<CompletableFuture<BatchResult>> fetches = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            CompletableFuture<BatchResult> fetch = fetchOne(i, urls.get(i), mode);
+            started.add(fetch);
+            fetches.add(fetch.thenApply(result -> {
+                onResult.accept(result);
+                return result;
+            }));
+        }
+
+        CompletableFuture<List<BatchResult>> all = CompletableFuture
+                .allOf(fetches.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> fetches.stream().map(CompletableFuture::join).toList());
+        all.whenComplete((value, error) -> {
+            if (all.isCancelled()) {
+                // Latest first, so queued fetches are withdrawn before running ones hand them their permits
+                for (int i = started.size() - 1; i >= 0; i--) {
+                    started.get(i).cancel(true);
+                }
+            }
+        });
+        return all;
+    }
+
+    private CompletableFuture<BatchResult> fetchOne(int index, String url, FetchMode mode) {
+        return permits.run(() -> {
+            long start = System.nanoTime();
+            CompletableFuture<String> fetch = webContentService.fetchAsync(mode, url);
+            CompletableFuture<BatchResult> result = fetch.handle((content, error) -> {
+                long durationMillis = (System.nanoTime() - start) / 1_000_000;
+                if (error != null) {
+                    return BatchResult.failure(index, url, mode, rootMessage(error), durationMillis);
+                }
+                return BatchResult.success(index, url, mode, content, durationMillis);
+            });
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    fetch.cancel(true);
+                }
+            });
+            return result;
+        });
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+}
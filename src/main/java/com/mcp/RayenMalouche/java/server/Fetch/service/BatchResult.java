@@ -0,0 +1,21 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+/**
+ * Outcome of fetching one URL of a batch
+ *
+ * @param index          position of the URL in the request
+ * @param content        fetched content, or {@code null} on failure
+ * @param error          failure message, or {@code null} on success
+ * @param durationMillis time from the start of the fetch (after queuing) to its completion
+ */
+public record BatchResult(int index, String url, String mode, boolean success, String content,
+                          String error, long durationMillis) {
+
+    static BatchResult success(int index, String url, FetchMode mode, String content, long durationMillis) {
+        return new BatchResult(index, url, mode.getName(), true, content, null, durationMillis);
+    }
+
+    static BatchResult failure(int index, String url, FetchMode mode, String error, long durationMillis) {
+        return new BatchResult(index, url, mode.getName(), false, null, error, durationMillis);
+    }
+}
@@ -0,0 +1,176 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A cached body together with the HTTP caching metadata needed to decide whether it is still fresh
+ * and how to revalidate it with the origin.
+ */
+final class CacheEntry {
+
+    private final String content;
+    private final String etag;
+    private final String lastModified;
+    private final long expiresAtMillis;
+    private final boolean storable;
+    private final RenderDecision render;
+
+    CacheEntry(String content, String etag, String lastModified, long expiresAtMillis, boolean storable) {
+        this(content, etag, lastModified, expiresAtMillis, storable, null);
+    }
+
+    /**
+     * @param render how the content was fetched, or {@code null} if not recorded
+     */
+    CacheEntry(String content, String etag, String lastModified, long expiresAtMillis, boolean storable,
+               RenderDecision render) {
+        this.content = content;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.expiresAtMillis = expiresAtMillis;
+        this.storable = storable;
+        this.render = render;
+    }
+
+    /**
+     * Builds an entry from response headers, honoring Cache-Control and Expires.
+     * When the response carries no explicit freshness information the default TTL is used.
+     *
+     * @param header looks up the first value of a response header by name
+     */
+    static CacheEntry fromHeaders(String content, Function<String, Optional<String>> header, Duration defaultTtl) {
+        long now = System.currentTimeMillis();
+        String etag = header.apply("etag").orElse(null);
+        String lastModified = header.apply("last-modified").orElse(null);
+
+        boolean storable = true;
+        Long maxAgeSeconds = null;
+        Long sharedMaxAgeSeconds = null;
+        boolean noCache = false;
+
+        String cacheControl = header.apply("cache-control").orElse("");
+        for (String directive : cacheControl.split(",")) {
+            String d = directive.trim().toLowerCase(Locale.ROOT);
+            if (d.equals("no-store") || d.equals("private")) {
+                storable = false;
+            } else if (d.equals("no-cache")) {
+                noCache = true;
+            } else if (d.startsWith("max-age=")) {
+                maxAgeSeconds = parseSeconds(d.substring("max-age=".length()));
+            } else if (d.startsWith("s-maxage=")) {
+                sharedMaxAgeSeconds = parseSeconds(d.substring("s-maxage=".length()));
+            }
+        }
+
+        long expiresAt;
+        if (noCache) {
+            expiresAt = now;
+        } else if (sharedMaxAgeSeconds != null) {
+            expiresAt = now + sharedMaxAgeSeconds * 1000;
+        } else if (maxAgeSeconds != null) {
+            expiresAt = now + maxAgeSeconds * 1000;
+        } else if (header.apply("expires").isPresent()) {
+            expiresAt = parseHttpDate(header.apply("expires").get()).orElse(now);
+        } else {
+            expiresAt = now + defaultTtl.toMillis();
+        }
+
+        return new CacheEntry(content, etag, lastModified, expiresAt, storable);
+    }
+
+    /**
+     * Returns a copy with the same body but the validators and freshness from a 304 response
+     */
+    CacheEntry revalidated(Function<String, Optional<String>> header, Duration defaultTtl) {
+        CacheEntry fresh = fromHeaders(content, header, defaultTtl);
+        return new CacheEntry(
+                content,
+                fresh.etag != null ? fresh.etag : etag,
+                fresh.lastModified != null ? fresh.lastModified : lastModified,
+                fresh.expiresAtMillis,
+                fresh.storable,
+                render);
+    }
+
+    /**
+     * Returns an entry holding derived content (e.g. Markdown) with this entry's caching metadata
+     */
+    CacheEntry withContent(String derivedContent) {
+        return new CacheEntry(derivedContent, etag, lastModified, expiresAtMillis, storable, render);
+    }
+
+    /**
+     * Returns a copy recording how the content was fetched
+     */
+    CacheEntry withRender(RenderDecision decision) {
+        return new CacheEntry(content, etag, lastModified, expiresAtMillis, storable, decision);
+    }
+
+    String content() {
+        return content;
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    String lastModified() {
+        return lastModified;
+    }
+
+    RenderDecision render() {
+        return render;
+    }
+
+    long expiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    boolean isStorable() {
+        return storable;
+    }
+
+    boolean isFresh() {
+        return System.currentTimeMillis() < expiresAtMillis;
+    }
+
+    boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+
+    /**
+     * Approximate heap footprint, used to weigh entries against the cache size limit
+     */
+    long weight() {
+        long weight = 64L + 2L * content.length();
+        if (etag != null) {
+            weight += 2L * etag.length();
+        }
+        if (lastModified != null) {
+            weight += 2L * lastModified.length();
+        }
+        return weight;
+    }
+
+    private static Long parseSeconds(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value.replace("\"", "").trim()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static Optional<Long> parseHttpDate(String value) {
+        try {
+            return Optional.of(ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli());
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.TimeoutError;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Stops sending requests to hosts that are down or keep failing, so that they fail at once instead
+ * of each holding a fetch slot or a browser page until it times out.
+ * <p>
+ * Every host has a breaker that remembers the outcome of its last {@code window} requests. Once at
+ * least {@code minRequests} of them are known, the breaker opens when the share of failures and
+ * timeouts together reaches {@code failureRate}, or the share of timeouts alone reaches
+ * {@code timeoutRate}. While open, requests to the host fail with {@link HostUnavailableException}.
+ * After {@code openDuration} the breaker is half-open: up to {@code halfOpenProbes} requests are let
+ * through, and the first of them to finish closes the breaker again or reopens it.
+ */
+class CircuitBreakers {
+
+    /** Hosts tracked before closed ones are dropped */
+    private static final int MAX_TRACKED_HOSTS = 1024;
+
+    /**
+     * How a request to a host went, as far as the host's health is concerned
+     */
+    enum Outcome {
+        SUCCESS,
+        FAILURE,
+        TIMEOUT,
+        /** Failed for reasons of our own, such as cancellation or a full render queue */
+        IGNORED
+    }
+
+    private enum State {
+        CLOSED("closed"), OPEN("open"), HALF_OPEN("half-open");
+
+        private final String name;
+
+        State(String name) {
+            this.name = name;
+        }
+    }
+
+    private final int window;
+    private final int minRequests;
+    private final double failureRate;
+    private final double timeoutRate;
+    private final Duration openDuration;
+    private final int halfOpenProbes;
+    private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param window         recent requests per host the rates are taken over
+     * @param minRequests    requests that must be known before the breaker may open
+     * @param failureRate    share of failed or timed out requests that opens the breaker
+     * @param timeoutRate    share of timed out requests that opens the breaker
+     * @param openDuration   how long an open breaker refuses requests before probing the host
+     * @param halfOpenProbes requests let through at the same time to probe a host
+     */
+    CircuitBreakers(int window, int minRequests, double failureRate, double timeoutRate, Duration openDuration,
+                    int halfOpenProbes) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be at least 1");
+        }
+        this.window = window;
+        this.minRequests = Math.max(1, Math.min(minRequests, window));
+        this.failureRate = failureRate;
+        this.timeoutRate = timeoutRate;
+        this.openDuration = openDuration;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+    }
+
+    /**
+     * Runs the request unless the URL's host's breaker is open, and records how it went.
+     * Requests that fail with an error count as failures or timeouts by {@link #classify(Throwable)};
+     * requests that complete are judged by {@code outcome}.
+     */
+    <T> CompletableFuture<T> call(String url, Supplier<CompletableFuture<T>> request, Function<T, Outcome> outcome) {
+        String host = HostScheduler.hostOf(url);
+        Breaker breaker = breakerFor(host);
+        long now = System.nanoTime();
+        boolean probe;
+        synchronized (breaker) {
+            if (breaker.state == State.OPEN && now - breaker.openedAt >= openDuration.toNanos()) {
+                breaker.state = State.HALF_OPEN;
+                breaker.probes = 0;
+            }
+            if (breaker.state == State.OPEN || (breaker.state == State.HALF_OPEN && breaker.probes >= halfOpenProbes)) {
+                breaker.rejected++;
+                rejected.increment();
+                long retryNanos = Math.max(0, openDuration.toNanos() - (now - breaker.openedAt));
+                return CompletableFuture.failedFuture(new HostUnavailableException(host, breaker.reason,
+                        Duration.ofNanos(retryNanos)));
+            }
+            probe = breaker.state == State.HALF_OPEN;
+            if (probe) {
+                breaker.probes++;
+            }
+        }
+
+        CompletableFuture<T> result;
+        try {
+            result = request.get();
+        } catch (Throwable t) {
+            result = CompletableFuture.failedFuture(t);
+        }
+        result.whenComplete((value, error) -> record(host, breaker, probe,
+                error != null ? classify(error) : outcome.apply(value)));
+        return result;
+    }
+
+    /**
+     * Timeouts count as timeouts, and I/O and browser navigation errors as failures. Anything else,
+     * such as a cancelled request, a refusal by this server or a caller's deadline cutting a request
+     * short, says nothing about the host.
+     */
+    static Outcome classify(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HostUnavailableException || cause instanceof DeadlineExceededException) {
+            return Outcome.IGNORED;
+        }
+        if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException
+                || cause instanceof TimeoutError) {
+            return Outcome.TIMEOUT;
+        }
+        if (cause instanceof IOException || cause instanceof PlaywrightException) {
+            return Outcome.FAILURE;
+        }
+        return Outcome.IGNORED;
+    }
+
+    private void record(String host, Breaker breaker, boolean probe, Outcome outcome) {
+        synchronized (breaker) {
+            if (probe) {
+                breaker.probes--;
+                if (breaker.state != State.HALF_OPEN) {
+                    return;
+                }
+                if (outcome == Outcome.SUCCESS) {
+                    breaker.close();
+                    System.out.println("Circuit closed for " + host + " after a successful probe");
+                } else if (outcome != Outcome.IGNORED) {
+                    breaker.open(System.nanoTime(), "probe " + (outcome == Outcome.TIMEOUT ? "timed out" : "failed"));
+                    System.err.println("Circuit reopened for " + host + ": " + breaker.reason);
+                }
+                return;
+            }
+            if (outcome == Outcome.IGNORED || breaker.state != State.CLOSED) {
+                return;
+            }
+
+            breaker.add(outcome);
+            if (breaker.size < minRequests) {
+                return;
+            }
+            double failures = (breaker.failures + breaker.timeouts) / (double) breaker.size;
+            double timeouts = breaker.timeouts / (double) breaker.size;
+            if (failures >= failureRate || timeouts >= timeoutRate) {
+                breaker.open(System.nanoTime(), breaker.failures + " failures and " + breaker.timeouts
+                        + " timeouts in the last " + breaker.size + " requests");
+                System.err.println("Circuit opened for " + host + " for " + openDuration.toSeconds()
+                        + " seconds: " + breaker.reason);
+            }
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> perHost = new LinkedHashMap<>();
+        int open = 0;
+        for (Map.Entry<String, Breaker> entry : breakers.entrySet()) {
+            Breaker breaker = entry.getValue();
+            synchronized (breaker) {
+                if (breaker.state != State.CLOSED) {
+                    open++;
+                }
+                Map<String, Object> hostStats = new LinkedHashMap<>();
+                hostStats.put("state", breaker.state.name);
+                hostStats.put("requests", breaker.size);
+                hostStats.put("failures", breaker.failures);
+                hostStats.put("timeouts", breaker.timeouts);
+                hostStats.put("rejected", breaker.rejected);
+                perHost.put(entry.getKey(), hostStats);
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracked", perHost.size());
+        stats.put("open", open);
+        stats.put("rejected", rejected.sum());
+        stats.put("hosts", perHost);
+        return stats;
+    }
+
+    private Breaker breakerFor(String host) {
+        if (breakers.size() > MAX_TRACKED_HOSTS) {
+            breakers.values().removeIf(Breaker::isClosed);
+        }
+        return breakers.computeIfAbsent(host, name -> new Breaker(window));
+    }
+
+    /**
+     * State of one host, guarded by its own monitor
+     */
+    private static class Breaker {
+
+        private final Outcome[] outcomes;
+        private int next;
+        private int size;
+        private int failures;
+        private int timeouts;
+        private long rejected;
+        private State state = State.CLOSED;
+        private long openedAt;
+        private int probes;
+        private String reason;
+
+        Breaker(int window) {
+            this.outcomes = new Outcome[window];
+        }
+
+        void add(Outcome outcome) {
+            if (size == outcomes.length) {
+                count(outcomes[next], -1);
+            } else {
+                size++;
+            }
+            outcomes[next] = outcome;
+            count(outcome, 1);
+            next = (next + 1) % outcomes.length;
+        }
+
+        private void count(Outcome outcome, int delta) {
+            if (outcome == Outcome.FAILURE) {
+                failures += delta;
+            } else if (outcome == Outcome.TIMEOUT) {
+                timeouts += delta;
+            }
+        }
+
+        void open(long now, String reason) {
+            state = State.OPEN;
+            openedAt = now;
+            this.reason = reason;
+        }
+
+        void close() {
+            state = State.CLOSED;
+            next = 0;
+            size = 0;
+            failures = 0;
+            timeouts = 0;
+            reason = null;
+        }
+
+        synchronized boolean isClosed() {
+            return state == State.CLOSED;
+        }
+    }
+}
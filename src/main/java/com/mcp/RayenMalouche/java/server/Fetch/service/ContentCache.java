@@ -0,0 +1,172 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded in-memory cache of fetched bodies and converted Markdown.
+ * <p>
+ * Entries are weighed by their approximate heap footprint and evicted in least-recently-used order
+ * once the total weight exceeds the configured limit. Stale entries are kept as long as they carry
+ * validators, so that they can be revalidated with a conditional request instead of refetched.
+ * <p>
+ * With a {@link PageStore} behind it, every entry put is also written to disk, and a key missing
+ * from memory is looked up on disk and brought back into memory when found.
+ */
+class ContentCache {
+
+    private final long maxBytes;
+    private final PageStore store;
+    private final LinkedHashMap<FetchKey, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    ContentCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    /**
+     * @param store persistent store behind the cache, or {@code null} for none
+     */
+    ContentCache(long maxBytes, PageStore store) {
+        this.maxBytes = maxBytes;
+        this.store = store;
+    }
+
+    /**
+     * Returns the entry for the key, which may be stale but revalidatable, or {@code null}.
+     * A fresh entry counts as a hit, anything else as a miss.
+     */
+    CacheEntry lookup(FetchKey key) {
+        CacheEntry entry = get(key);
+        if (entry != null && entry.isFresh()) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the entry for the key whether fresh or stale, without touching the statistics.
+     * Stale entries that cannot be revalidated are dropped.
+     */
+    CacheEntry get(FetchKey key) {
+        CacheEntry entry = getInMemory(key);
+        if (entry != null || store == null) {
+            return entry;
+        }
+        CacheEntry stored = store.get(key);
+        if (stored != null) {
+            synchronized (this) {
+                // An entry put while the store was read is newer than the stored one
+                CacheEntry current = entries.get(key);
+                if (current != null) {
+                    return current;
+                }
+                putInMemory(key, stored);
+            }
+        }
+        return stored;
+    }
+
+    private synchronized CacheEntry getInMemory(FetchKey key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && !entry.isFresh() && !entry.hasValidators()) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    void put(FetchKey key, CacheEntry entry) {
+        if (!entry.isStorable() || entry.content() == null || entry.content().isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            putInMemory(key, entry);
+        }
+        if (store != null) {
+            store.put(key, entry);
+        }
+    }
+
+    private void putInMemory(FetchKey key, CacheEntry entry) {
+        long weight = entry.weight();
+        if (weight > maxBytes) {
+            return;
+        }
+
+        CacheEntry previous = entries.put(key, entry);
+        if (previous != null) {
+            currentBytes -= previous.weight();
+        }
+        currentBytes += weight;
+
+        Iterator<Map.Entry<FetchKey, CacheEntry>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<FetchKey, CacheEntry> victim = eldest.next();
+            currentBytes -= victim.getValue().weight();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    synchronized void remove(FetchKey key) {
+        CacheEntry removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.weight();
+        }
+    }
+
+    /**
+     * Records that a stale entry was confirmed unchanged by the origin (HTTP 304)
+     */
+    void recordRevalidation() {
+        revalidations.incrementAndGet();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long weightedSize() {
+        return currentBytes;
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Share of lookups that found a fresh entry, {@code 0} before the first lookup
+     */
+    double hitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", size());
+        stats.put("bytes", weightedSize());
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits());
+        stats.put("misses", misses());
+        stats.put("revalidations", revalidations.get());
+        stats.put("evictions", evictions.get());
+        stats.put("hitRatio", hitRatio());
+        return stats;
+    }
+}
@@ -0,0 +1,59 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+/**
+ * One window of a fetched document, as returned for paginated requests.
+ *
+ * @param content     the characters from {@code startIndex} up to {@link #endIndex()}
+ * @param startIndex  index of the first character of this page in the whole document
+ * @param totalLength length of the whole document
+ * @param truncated   whether the document continues after this page
+ * @param render      how the document was fetched, or {@code null} if not recorded
+ * @param timings     where the time of the request went, or {@code null} if not recorded
+ */
+public record ContentPage(String content, int startIndex, int totalLength, boolean truncated, RenderDecision render,
+                          FetchTimings timings) {
+
+    /**
+     * Cuts the window {@code [startIndex, startIndex + maxLength)} out of a document.
+     * A {@code maxLength} of zero or less returns everything from {@code startIndex} on, and a start
+     * past the end returns an empty page. The window never splits a surrogate pair: it stops before
+     * one, unless the pair is all it would hold, in which case the whole pair is included.
+     */
+    public static ContentPage of(String document, int startIndex, int maxLength) {
+        int total = document.length();
+        int start = Math.min(Math.max(0, startIndex), total);
+        int end = maxLength > 0 ? (int) Math.min(total, (long) start + maxLength) : total;
+        if (end < total && end > start && Character.isHighSurrogate(document.charAt(end - 1))) {
+            end = end - 1 > start ? end - 1 : end + 1;
+        }
+        return new ContentPage(document.substring(start, end), start, total, end < total, null, null);
+    }
+
+    /**
+     * Returns a copy recording how the document was fetched
+     */
+    public ContentPage withRender(RenderDecision decision) {
+        return new ContentPage(content, startIndex, totalLength, truncated, decision, timings);
+    }
+
+    /**
+     * Returns a copy carrying the timings of the request that produced it
+     */
+    public ContentPage withTimings(FetchTimings requestTimings) {
+        return new ContentPage(content, startIndex, totalLength, truncated, render, requestTimings);
+    }
+
+    /**
+     * Index just past the last character of this page
+     */
+    public int endIndex() {
+        return startIndex + content.length();
+    }
+
+    /**
+     * The {@code start_index} that returns the next page, or {@code null} if this is the last one
+     */
+    public Integer nextStartIndex() {
+        return truncated ? endIndex() : null;
+    }
+}
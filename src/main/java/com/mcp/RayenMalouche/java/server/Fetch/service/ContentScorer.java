@@ -0,0 +1,214 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the element holding a page's main content in a single bottom-up pass, in the style of
+ * Readability. Every paragraph-like element with enough text scores points for its length and
+ * commas, credited in full to its parent and by half to its grandparent. A {@code div} without
+ * block-level children counts as a paragraph, since script-built pages rarely use {@code p}.
+ * Each element that collects points is a candidate: its tag and its class and id names add to or
+ * take from its score, which is then scaled down by the share of its text that sits in links.
+ * The candidate with the best score wins.
+ * <p>
+ * Text, link text and commas are summed per element as the traversal leaves it, so each node is
+ * visited once and the whole page is scored in linear time.
+ * {@link MainContentExtractor} runs the same scoring inside the browser from these constants.
+ */
+final class ContentScorer {
+
+    /** Elements whose text is never content */
+    static final Set<String> SKIPPED_TAGS = Set.of("script", "style", "template", "noscript", "svg", "iframe");
+
+    /** Elements that score points for their parent and grandparent */
+    static final Set<String> PARAGRAPH_TAGS = Set.of("p", "pre", "td", "blockquote", "section", "h2", "h3", "h4", "h5", "h6");
+
+    /** Children that keep a div from counting as a paragraph */
+    static final Set<String> BLOCK_TAGS = Set.of(
+            "address", "article", "aside", "blockquote", "div", "dl", "fieldset", "figure", "footer", "form",
+            "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "main", "nav", "ol", "p", "pre", "section",
+            "table", "ul");
+
+    /** Table parts that stand for their whole table when chosen */
+    private static final Set<String> TABLE_PARTS = Set.of("thead", "tbody", "tfoot", "tr");
+
+    /** Paragraphs with less text than this score nothing */
+    static final int MIN_PARAGRAPH_CHARS = 25;
+
+    /** Points added to main and article elements, which are candidates even without paragraphs */
+    static final int SEMANTIC_BONUS = 25;
+
+    /** Points for class or id names that suggest content or boilerplate */
+    static final int CLASS_WEIGHT = 25;
+
+    static final Map<String, Integer> TAG_WEIGHTS = Map.ofEntries(
+            Map.entry("div", 5), Map.entry("pre", 3), Map.entry("td", 3), Map.entry("blockquote", 3),
+            Map.entry("address", -3), Map.entry("ol", -3), Map.entry("ul", -3), Map.entry("dl", -3),
+            Map.entry("dd", -3), Map.entry("dt", -3), Map.entry("li", -3), Map.entry("form", -3),
+            Map.entry("h1", -5), Map.entry("h2", -5), Map.entry("h3", -5), Map.entry("h4", -5),
+            Map.entry("h5", -5), Map.entry("h6", -5), Map.entry("th", -5), Map.entry("aside", -25));
+
+    static final String POSITIVE_NAMES = "article|body|content|entry|hentry|h-entry|main|page|post|text|blog|story";
+
+    static final String NEGATIVE_NAMES = "hidden|banner|combx|comment|com-|contact|foot|masthead|media|meta|"
+            + "outbrain|promo|related|scroll|share|shoutbox|sidebar|skyscraper|sponsor|shopping|tags|tool|widget|"
+            + "menu|breadcrumb|cookie|popup|modal|advert";
+
+    private static final Pattern POSITIVE = Pattern.compile(POSITIVE_NAMES, Pattern.CASE_INSENSITIVE);
+    private static final Pattern NEGATIVE = Pattern.compile(NEGATIVE_NAMES, Pattern.CASE_INSENSITIVE);
+
+    private ContentScorer() {
+    }
+
+    /**
+     * Per-element sums, kept on a stack indexed by depth and reused across siblings
+     */
+    private static final class Frame {
+        int textChars;
+        int linkChars;
+        int commas;
+        double points;
+        boolean candidate;
+        boolean hasBlockChild;
+
+        void reset() {
+            textChars = 0;
+            linkChars = 0;
+            commas = 0;
+            points = 0;
+            candidate = false;
+            hasBlockChild = false;
+        }
+    }
+
+    /**
+     * The element with the best content score under {@code root}, or {@code root} itself if nothing
+     * looks like content. A chosen table section or row is widened to its table.
+     */
+    static Element mainContent(Element root) {
+        List<Frame> frames = new ArrayList<>();
+        Element[] best = {root};
+        double[] bestScore = {Double.NEGATIVE_INFINITY};
+
+        NodeTraversor.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (node instanceof Element element) {
+                    if (SKIPPED_TAGS.contains(element.normalName())) {
+                        return FilterResult.SKIP_ENTIRELY;
+                    }
+                    if (frames.size() == depth) {
+                        frames.add(new Frame());
+                    }
+                    frames.get(depth).reset();
+                } else if (node instanceof TextNode text && depth > 0) {
+                    countText(text.getWholeText(), frames.get(depth - 1));
+                }
+                return FilterResult.CONTINUE;
+            }
+
+            @Override
+            public FilterResult tail(Node node, int depth) {
+                if (!(node instanceof Element element)) {
+                    return FilterResult.CONTINUE;
+                }
+                Frame frame = frames.get(depth);
+                String tag = element.normalName();
+                if (tag.equals("a")) {
+                    frame.linkChars = frame.textChars;
+                }
+
+                boolean paragraph = PARAGRAPH_TAGS.contains(tag) || (tag.equals("div") && !frame.hasBlockChild);
+                if (paragraph && frame.textChars >= MIN_PARAGRAPH_CHARS) {
+                    double points = 1 + frame.commas + Math.min(frame.textChars / 100, 3);
+                    if (depth > 0) {
+                        frames.get(depth - 1).points += points;
+                        frames.get(depth - 1).candidate = true;
+                    }
+                    if (depth > 1) {
+                        frames.get(depth - 2).points += points / 2;
+                        frames.get(depth - 2).candidate = true;
+                    }
+                }
+
+                boolean semantic = tag.equals("main") || tag.equals("article") || "main".equals(element.attr("role"));
+                if ((frame.candidate || semantic) && frame.textChars > 0) {
+                    double score = frame.points + TAG_WEIGHTS.getOrDefault(tag, 0)
+                            + classWeight(element.className() + " " + element.id())
+                            + (semantic ? SEMANTIC_BONUS : 0);
+                    score *= 1 - (double) frame.linkChars / frame.textChars;
+                    if (score > bestScore[0]) {
+                        bestScore[0] = score;
+                        best[0] = element;
+                    }
+                }
+
+                if (depth > 0) {
+                    Frame parent = frames.get(depth - 1);
+                    parent.textChars += frame.textChars;
+                    parent.linkChars += frame.linkChars;
+                    parent.commas += frame.commas;
+                    parent.hasBlockChild |= BLOCK_TAGS.contains(tag);
+                }
+                return FilterResult.CONTINUE;
+            }
+        }, root);
+
+        Element chosen = best[0];
+        while (chosen != root && TABLE_PARTS.contains(chosen.normalName()) && chosen.parent() != null) {
+            chosen = chosen.parent();
+        }
+        return chosen;
+    }
+
+    /**
+     * Adds a text node's length, with runs of whitespace and non-breaking spaces counted as one
+     * character, and its commas
+     */
+    private static void countText(String text, Frame frame) {
+        int chars = 0;
+        int commas = 0;
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c <= ' ' || c == '\u00a0') {
+                if (!space) {
+                    chars++;
+                    space = true;
+                }
+            } else {
+                chars++;
+                space = false;
+                if (c == ',') {
+                    commas++;
+                }
+            }
+        }
+        frame.textChars += chars;
+        frame.commas += commas;
+    }
+
+    private static int classWeight(String names) {
+        if (names.isBlank()) {
+            return 0;
+        }
+        int weight = 0;
+        if (NEGATIVE.matcher(names).find()) {
+            weight -= CLASS_WEIGHT;
+        }
+        if (POSITIVE.matcher(names).find()) {
+            weight += CLASS_WEIGHT;
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,14 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.net.http.HttpTimeoutException;
+
+/**
+ * Thrown when a fetch cannot finish by the deadline its caller set. Unlike other timeouts it says
+ * nothing about the health of the origin.
+ */
+public class DeadlineExceededException extends HttpTimeoutException {
+
+    DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,565 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.brotli.dec.BrotliInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads response bodies as text, decoding {@code gzip}, {@code deflate} and {@code br} content
+ * encodings while the body streams in.
+ * <p>
+ * Compressed chunks are inflated as they arrive into a single growable buffer, so the compressed
+ * body is never held in full (except for brotli, whose decoder is pull-based) and the decoded bytes
+ * are turned into a string exactly once. The charset comes from {@code Content-Type}, then a byte
+ * order mark, then a {@code <meta charset>} declaration near the start of the document, and falls
+ * back to UTF-8. Bodies that decode to more than the configured limit are rejected.
+ */
+class DecodingBodyHandler implements HttpResponse.BodyHandler<String> {
+
+    /** Value for the {@code Accept-Encoding} request header */
+    static final String ACCEPT_ENCODING = "gzip, deflate, br";
+
+    /** How far into the document to look for a {@code <meta charset>} declaration, as in the HTML spec */
+    private static final int META_PRESCAN_BYTES = 1024;
+
+    private static final Pattern META_CHARSET = Pattern.compile(
+            "<meta[^>]+charset\\s*=\\s*[\"']?\\s*([A-Za-z0-9._:-]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONTENT_TYPE_CHARSET = Pattern.compile(
+            ";\\s*charset\\s*=\\s*\"?([^\";\\s]+)", Pattern.CASE_INSENSITIVE);
+
+    private final int maxBodyBytes;
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder decodedBytes = new LongAdder();
+
+    DecodingBodyHandler(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<String> apply(HttpResponse.ResponseInfo responseInfo) {
+        String encoding = responseInfo.headers().firstValue("content-encoding")
+                .orElse("identity").trim().toLowerCase(Locale.ROOT);
+        String contentType = responseInfo.headers().firstValue("content-type").orElse(null);
+        int sizeHint = (int) Math.min(maxBodyBytes, responseInfo.headers().firstValueAsLong("content-length").orElse(-1));
+
+        Output output = new Output(sizeHint > 0 && encoding.equals("identity") ? sizeHint : 8192, maxBodyBytes);
+        Decoder decoder;
+        switch (encoding) {
+            case "identity":
+            case "":
+                decoder = new IdentityDecoder(output);
+                break;
+            case "gzip":
+            case "x-gzip":
+                decoder = new InflatingDecoder(output, true);
+                break;
+            case "deflate":
+                decoder = new InflatingDecoder(output, false);
+                break;
+            case "br":
+                decoder = new BrotliDecoder(output, maxBodyBytes);
+                break;
+            default:
+                return new FailedSubscriber(new IOException("Unsupported Content-Encoding: " + encoding));
+        }
+        return new DecodingSubscriber(decoder, output, declaredCharset(contentType), sniffable(contentType));
+    }
+
+    /**
+     * Compressed and decoded byte totals across all responses read by this handler
+     */
+    Map<String, Object> stats() {
+        long wire = wireBytes.sum();
+        long decoded = decodedBytes.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("wireBytes", wire);
+        stats.put("decodedBytes", decoded);
+        stats.put("compressionRatio", wire == 0 ? 1.0 : (double) decoded / wire);
+        return stats;
+    }
+
+    /**
+     * Returns the charset named by a {@code Content-Type} header, or {@code null}
+     */
+    static Charset declaredCharset(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        Matcher matcher = CONTENT_TYPE_CHARSET.matcher(contentType);
+        return matcher.find() ? charsetOrNull(matcher.group(1)) : null;
+    }
+
+    /**
+     * Works out the charset of a decoded body: the declared one if any, otherwise a byte order mark,
+     * otherwise a {@code <meta charset>} in the first kilobyte of HTML, otherwise UTF-8
+     */
+    static Charset detectCharset(byte[] body, int length, Charset declared, boolean sniffMeta) {
+        if (declared != null) {
+            return declared;
+        }
+        if (bomLength(body, length, StandardCharsets.UTF_8) > 0) {
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 2 && (body[0] & 0xFF) == 0xFE && (body[1] & 0xFF) == 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (length >= 2 && (body[0] & 0xFF) == 0xFF && (body[1] & 0xFF) == 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (sniffMeta) {
+            String head = new String(body, 0, Math.min(length, META_PRESCAN_BYTES), StandardCharsets.ISO_8859_1);
+            Matcher matcher = META_CHARSET.matcher(head);
+            if (matcher.find()) {
+                Charset meta = charsetOrNull(matcher.group(1));
+                // A document that could be read as ASCII to find its meta tag is not UTF-16
+                if (meta != null && !meta.name().startsWith("UTF-16")) {
+                    return meta;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static boolean sniffable(String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.contains("html") || type.contains("xml");
+    }
+
+    private static Charset charsetOrNull(String name) {
+        try {
+            return Charset.isSupported(name) ? Charset.forName(name) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int bomLength(byte[] body, int length, Charset charset) {
+        if (charset == StandardCharsets.UTF_8 && length >= 3
+                && (body[0] & 0xFF) == 0xEF && (body[1] & 0xFF) == 0xBB && (body[2] & 0xFF) == 0xBF) {
+            return 3;
+        }
+        if ((charset == StandardCharsets.UTF_16BE || charset == StandardCharsets.UTF_16LE) && length >= 2) {
+            return 2;
+        }
+        return 0;
+    }
+
+    /**
+     * Feeds decoded chunks into the output buffer and turns it into a string once the body is complete
+     */
+    private final class DecodingSubscriber implements HttpResponse.BodySubscriber<String> {
+
+        private final CompletableFuture<String> body = new CompletableFuture<>();
+        private final Decoder decoder;
+        private final Output output;
+        private final Charset declared;
+        private final boolean sniffMeta;
+        private Flow.Subscription subscription;
+
+        DecodingSubscriber(Decoder decoder, Output output, Charset declared, boolean sniffMeta) {
+            this.decoder = decoder;
+            this.output = output;
+            this.declared = declared;
+            this.sniffMeta = sniffMeta;
+        }
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) {
+                return;
+            }
+            try {
+                for (ByteBuffer item : items) {
+                    wireBytes.add(item.remaining());
+                    decoder.decode(item);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            decoder.close();
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (body.isDone()) {
+                return;
+            }
+            try {
+                decoder.finish();
+                decodedBytes.add(output.size);
+                Charset charset = detectCharset(output.bytes, output.size, declared, sniffMeta);
+                int offset = declared == null ? bomLength(output.bytes, output.size, charset) : 0;
+                body.complete(new String(output.bytes, offset, output.size - offset, charset));
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                decoder.close();
+            }
+        }
+
+        private void fail(IOException e) {
+            decoder.close();
+            subscription.cancel();
+            body.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Consumes the body without reading it and fails, for encodings that cannot be decoded
+     */
+    private static final class FailedSubscriber implements HttpResponse.BodySubscriber<String> {
+
+        private final IOException error;
+
+        FailedSubscriber(IOException error) {
+            this.error = error;
+        }
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return CompletableFuture.failedFuture(error);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * A growable byte array with a hard size limit
+     */
+    static final class Output {
+
+        private final int limit;
+        private byte[] bytes;
+        private int size;
+
+        Output(int initialCapacity, int limit) {
+            this.limit = limit;
+            this.bytes = new byte[Math.max(16, Math.min(initialCapacity, limit))];
+        }
+
+        void write(ByteBuffer source) throws IOException {
+            int length = source.remaining();
+            ensureCapacity(length);
+            source.get(bytes, size, length);
+            size += length;
+        }
+
+        void write(byte[] source, int offset, int length) throws IOException {
+            ensureCapacity(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        /**
+         * Returns a buffer over the free space, at least {@code minimum} bytes long when the limit allows
+         */
+        ByteBuffer freeSpace(int minimum) throws IOException {
+            ensureCapacity(Math.min(minimum, Math.max(1, limit - size)));
+            return ByteBuffer.wrap(bytes, size, bytes.length - size);
+        }
+
+        void advance(int written) {
+            size += written;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        private void ensureCapacity(int additional) throws IOException {
+            long required = (long) size + additional;
+            if (required > limit) {
+                throw new IOException("Response body exceeds " + limit + " bytes");
+            }
+            if (required > bytes.length) {
+                long grown = Math.max(required, (long) bytes.length * 2);
+                bytes = Arrays.copyOf(bytes, (int) Math.min(grown, limit));
+            }
+        }
+    }
+
+    private abstract static class Decoder {
+
+        final Output output;
+
+        Decoder(Output output) {
+            this.output = output;
+        }
+
+        abstract void decode(ByteBuffer chunk) throws IOException;
+
+        void finish() throws IOException {
+        }
+
+        void close() {
+        }
+    }
+
+    private static final class IdentityDecoder extends Decoder {
+
+        IdentityDecoder(Output output) {
+            super(output);
+        }
+
+        @Override
+        void decode(ByteBuffer chunk) throws IOException {
+            output.write(chunk);
+        }
+    }
+
+    /**
+     * Inflates gzip or deflate bodies chunk by chunk. Deflate bodies may be zlib-wrapped, as the
+     * HTTP spec requires, or raw, as some servers send them; the first two bytes tell them apart.
+     * A gzip body may hold several members, which are decoded one after the other.
+     */
+    private static final class InflatingDecoder extends Decoder {
+
+        private static final int GZIP_TRAILER_BYTES = 8;
+
+        private final boolean gzip;
+        private final CRC32 crc = new CRC32();
+        private Inflater inflater;
+        private byte[] prelude = new byte[0];
+        private int trailerBytes;
+        private final byte[] trailer = new byte[GZIP_TRAILER_BYTES];
+
+        InflatingDecoder(Output output, boolean gzip) {
+            super(output);
+            this.gzip = gzip;
+        }
+
+        @Override
+        void decode(ByteBuffer chunk) throws IOException {
+            while (chunk.hasRemaining()) {
+                if (inflater == null) {
+                    // Collect enough leading bytes to parse the gzip header or tell zlib from raw deflate
+                    byte[] joined = Arrays.copyOf(prelude, prelude.length + chunk.remaining());
+                    chunk.get(joined, prelude.length, joined.length - prelude.length);
+                    prelude = joined;
+
+                    int headerLength = gzip ? gzipHeaderLength(prelude) : (prelude.length >= 2 ? 0 : -1);
+                    if (headerLength < 0) {
+                        return;
+                    }
+                    inflater = new Inflater(gzip || !isZlibHeader(prelude));
+                    chunk = ByteBuffer.wrap(prelude, headerLength, prelude.length - headerLength);
+                    prelude = null;
+                }
+                inflate(chunk);
+            }
+        }
+
+        private void inflate(ByteBuffer chunk) throws IOException {
+            if (!inflater.finished()) {
+                inflater.setInput(chunk);
+                try {
+                    while (!inflater.finished() && !inflater.needsInput()) {
+                        ByteBuffer free = output.freeSpace(8192);
+                        int start = free.position();
+                        int written = inflater.inflate(free);
+                        if (gzip) {
+                            crc.update(output.bytes(), start, written);
+                        }
+                        output.advance(written);
+                        if (written == 0 && inflater.needsDictionary()) {
+                            throw new IOException("Compressed body requires a preset dictionary");
+                        }
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Invalid compressed body: " + e.getMessage(), e);
+                }
+                if (!inflater.finished()) {
+                    return;
+                }
+            }
+
+            if (!gzip) {
+                if (chunk.hasRemaining()) {
+                    throw new IOException("Unexpected data after compressed body");
+                }
+                return;
+            }
+            int take = Math.min(chunk.remaining(), GZIP_TRAILER_BYTES - trailerBytes);
+            chunk.get(trailer, trailerBytes, take);
+            trailerBytes += take;
+            if (trailerBytes == GZIP_TRAILER_BYTES) {
+                finishMember();
+            }
+        }
+
+        /**
+         * Checks the completed gzip member against its trailer and gets ready for the next member
+         */
+        private void finishMember() throws IOException {
+            if (littleEndianInt(trailer, 0) != (int) crc.getValue()
+                    || littleEndianInt(trailer, 4) != (int) inflater.getBytesWritten()) {
+                throw new IOException("Corrupt gzip body: checksum mismatch");
+            }
+            inflater.end();
+            inflater = null;
+            crc.reset();
+            trailerBytes = 0;
+            prelude = new byte[0];
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (inflater == null) {
+                // Either nothing was received, as for an empty 200, 204 or 304, or every gzip member was complete
+                if (prelude.length > 0) {
+                    throw new IOException("Compressed body ended unexpectedly");
+                }
+                return;
+            }
+            if (!inflater.finished() || gzip) {
+                throw new IOException("Compressed body ended unexpectedly");
+            }
+        }
+
+        @Override
+        void close() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+
+        private static boolean isZlibHeader(byte[] bytes) {
+            int cmf = bytes[0] & 0xFF;
+            int flg = bytes[1] & 0xFF;
+            return (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+        }
+
+        /**
+         * Returns the length of the gzip member header (RFC 1952), or -1 if more bytes are needed
+         */
+        static int gzipHeaderLength(byte[] bytes) throws IOException {
+            if (bytes.length < 10) {
+                return -1;
+            }
+            if ((bytes[0] & 0xFF) != 0x1F || (bytes[1] & 0xFF) != 0x8B || bytes[2] != 8) {
+                throw new IOException("Invalid gzip header");
+            }
+            int flags = bytes[3] & 0xFF;
+            int position = 10;
+            if ((flags & 0x04) != 0) {
+                if (bytes.length < position + 2) {
+                    return -1;
+                }
+                position += 2 + ((bytes[position] & 0xFF) | (bytes[position + 1] & 0xFF) << 8);
+            }
+            for (int field : new int[]{0x08, 0x10}) {
+                if ((flags & field) != 0) {
+                    do {
+                        if (position >= bytes.length) {
+                            return -1;
+                        }
+                    } while (bytes[position++] != 0);
+                }
+            }
+            if ((flags & 0x02) != 0) {
+                position += 2;
+            }
+            return position <= bytes.length ? position : -1;
+        }
+
+        private static int littleEndianInt(byte[] bytes, int offset) {
+            return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8
+                    | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24;
+        }
+    }
+
+    /**
+     * Brotli's Java decoder only reads from a stream, so the compressed bytes are collected first
+     * and decoded when the body is complete
+     */
+    private static final class BrotliDecoder extends Decoder {
+
+        private final Output compressed;
+
+        BrotliDecoder(Output output, int maxBodyBytes) {
+            super(output);
+            this.compressed = new Output(8192, maxBodyBytes);
+        }
+
+        @Override
+        void decode(ByteBuffer chunk) throws IOException {
+            compressed.write(chunk);
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (compressed.size() == 0) {
+                return;
+            }
+            try (InputStream in = new BrotliInputStream(
+                    new ByteArrayInputStream(compressed.bytes(), 0, compressed.size()))) {
+                while (true) {
+                    ByteBuffer free = output.freeSpace(8192);
+                    int read = in.read(free.array(), free.arrayOffset() + free.position(), free.remaining());
+                    if (read < 0) {
+                        break;
+                    }
+                    output.advance(read);
+                }
+            }
+        }
+    }
+}
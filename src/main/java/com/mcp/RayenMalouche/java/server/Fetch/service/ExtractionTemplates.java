@@ -0,0 +1,420 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Learns, per host, where a site keeps its main content, so that later pages from the same site
+ * skip {@link ContentScorer} and take the content straight from a selector.
+ * <p>
+ * Each scored page is observed as the path from the body to the chosen element, one step per
+ * element with its tag, id and classes. Consecutive pages whose paths have the same shape agree;
+ * steps keep only the id and classes the pages share, so per-page names such as {@code post-1234}
+ * drop out. Once {@code minPages} pages, at least two, agree, the path becomes a template. Blocks
+ * directly inside the content, or one level below, that carry a class or id and had the same text
+ * on every one of those pages are learned as boilerplate (share bars, newsletter forms) and
+ * removed on later pages.
+ * <p>
+ * A template is used while its selector matches exactly one element with text. When it matches
+ * nothing, several elements or an empty one, the page is scored instead and the host learns again
+ * from it. Templates expire after a while so that redesigned sites are relearned.
+ */
+class ExtractionTemplates {
+
+    /** Hosts tracked before expired and unconfirmed ones are dropped */
+    private static final int MAX_HOSTS = 1024;
+
+    /** Boilerplate candidates tracked per host while learning */
+    private static final int MAX_BLOCKS = 64;
+
+    /** Class and id names usable in a selector without escaping */
+    private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_-]*");
+
+    /**
+     * One element on the path to the content: its tag, its id or {@code ""}, and its classes
+     */
+    record Step(String tag, String id, List<String> classes) {
+
+        Step {
+            classes = List.copyOf(classes);
+        }
+
+        static Step of(Element element) {
+            return of(element.normalName(), element.id(), element.classNames());
+        }
+
+        /**
+         * A step with the id and classes that can be used in a selector
+         */
+        static Step of(String tag, String id, Collection<String> classNames) {
+            List<String> classes = new ArrayList<>();
+            for (String name : classNames) {
+                if (NAME.matcher(name).matches()) {
+                    classes.add(name);
+                }
+            }
+            return new Step(tag, NAME.matcher(id).matches() ? id : "", classes);
+        }
+
+        boolean named() {
+            return !id.isEmpty() || !classes.isEmpty();
+        }
+
+        /**
+         * The id and classes this step shares with another step of the same tag, or {@code null}
+         * if the tags differ
+         */
+        Step common(Step other) {
+            if (!tag.equals(other.tag)) {
+                return null;
+            }
+            List<String> shared = new ArrayList<>(classes);
+            shared.retainAll(other.classes);
+            return new Step(tag, id.equals(other.id) ? id : "", shared);
+        }
+
+        String selector() {
+            StringBuilder selector = new StringBuilder(tag);
+            if (!id.isEmpty()) {
+                selector.append('#').append(id);
+            }
+            for (String name : classes) {
+                selector.append('.').append(name);
+            }
+            return selector.toString();
+        }
+    }
+
+    /**
+     * A block inside the content: its selector relative to the content element and a hash of its text
+     */
+    record Block(String selector, int textHash) {
+    }
+
+    /**
+     * How a page's main content was chosen: the steps from the body to it, and the named blocks
+     * directly inside it or one level below. An empty path means the body itself.
+     */
+    record Observation(List<Step> path, List<Block> blocks) {
+
+        static Observation of(Element root, Element content) {
+            List<Step> path = new ArrayList<>();
+            for (Element element = content; element != root && element != null; element = element.parent()) {
+                path.add(0, Step.of(element));
+            }
+            List<Block> blocks = new ArrayList<>();
+            for (Element child : content.children()) {
+                Step step = Step.of(child);
+                if (step.named()) {
+                    blocks.add(new Block(step.selector(), textHash(child)));
+                }
+                for (Element grandchild : child.children()) {
+                    Step inner = Step.of(grandchild);
+                    if (step.named() && inner.named()) {
+                        blocks.add(new Block(step.selector() + " > " + inner.selector(), textHash(grandchild)));
+                    }
+                }
+            }
+            return new Observation(path, blocks);
+        }
+    }
+
+    /**
+     * A learned template: a selector for the content from the body, and boilerplate blocks within it
+     */
+    record Template(String selector, List<Block> boilerplate) {
+    }
+
+    /**
+     * What a host has taught us so far; guarded by its own monitor
+     */
+    private static final class Host {
+        Template template;
+        long expiresAtNanos;
+        String lastUrl;
+        List<Step> path;
+        int agreeingPages;
+        Map<Block, Integer> blocks = new LinkedHashMap<>();
+    }
+
+    private final boolean enabled;
+    private final int minPages;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder scored = new LongAdder();
+    private final LongAdder learned = new LongAdder();
+    private final LongAdder removedBlocks = new LongAdder();
+
+    ExtractionTemplates(boolean enabled, int minPages, Duration ttl) {
+        this.enabled = enabled;
+        this.minPages = Math.max(2, minPages);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * The main content of a parsed page for a summary, after its page chrome has been removed
+     */
+    Element summaryContent(String url, Document doc) {
+        doc.select(MarkdownConverter.PAGE_CHROME).remove();
+        return mainContent(url, doc.body());
+    }
+
+    /**
+     * The main content of a page under {@code root}, usually its body with page chrome already
+     * removed: taken from the host's template when it still matches, else scored and learned from.
+     * Learned boilerplate is removed from the returned element.
+     */
+    Element mainContent(String url, Element root) {
+        if (!enabled) {
+            scored.increment();
+            return ContentScorer.mainContent(root);
+        }
+        Template template = templateFor(url);
+        if (template != null) {
+            Elements matches = root.select(template.selector());
+            if (matches.size() == 1 && matches.get(0).hasText()) {
+                Element content = matches.get(0);
+                recordHit(removeBoilerplate(content, template.boilerplate()));
+                return content;
+            }
+        }
+        Element content = ContentScorer.mainContent(root);
+        observe(url, template, Observation.of(root, content));
+        return content;
+    }
+
+    /**
+     * The unexpired template learned for the URL's host, or {@code null}
+     */
+    Template templateFor(String url) {
+        if (!enabled) {
+            return null;
+        }
+        Host host = hosts.get(HostScheduler.hostOf(url));
+        if (host == null) {
+            return null;
+        }
+        synchronized (host) {
+            return host.template != null && host.expiresAtNanos - System.nanoTime() > 0 ? host.template : null;
+        }
+    }
+
+    /**
+     * Counts a page taken from a template
+     *
+     * @param removed boilerplate blocks removed from it
+     */
+    void recordHit(int removed) {
+        hits.increment();
+        removedBlocks.add(removed);
+    }
+
+    /**
+     * Learns from a page whose content was scored
+     *
+     * @param template the template that was tried and did not match, or {@code null}; it is dropped
+     */
+    void observe(String url, Template template, Observation observation) {
+        scored.increment();
+        if (!enabled) {
+            return;
+        }
+        if (template != null) {
+            misses.increment();
+        }
+        String name = HostScheduler.hostOf(url);
+        Host host = hosts.get(name);
+        if (host == null) {
+            trimHosts();
+            host = hosts.computeIfAbsent(name, key -> new Host());
+        }
+        synchronized (host) {
+            if (host.template != null && (template != null || host.expiresAtNanos - System.nanoTime() <= 0)) {
+                host.template = null;
+                host.path = null;
+            }
+            if (host.template != null || url.equals(host.lastUrl)) {
+                return;
+            }
+            host.lastUrl = url;
+            learn(host, observation);
+        }
+    }
+
+    private void learn(Host host, Observation observation) {
+        List<Step> common = host.path != null ? commonPath(host.path, observation.path()) : null;
+        if (common == null) {
+            host.path = observation.path();
+            host.agreeingPages = 1;
+            host.blocks.clear();
+        } else {
+            host.path = common;
+            host.agreeingPages++;
+        }
+        for (Block block : observation.blocks()) {
+            if (host.blocks.containsKey(block) || host.blocks.size() < MAX_BLOCKS) {
+                host.blocks.merge(block, 1, Integer::sum);
+            }
+        }
+        if (host.path.isEmpty() || host.agreeingPages < minPages) {
+            return;
+        }
+
+        List<Block> boilerplate = new ArrayList<>();
+        host.blocks.forEach((block, pages) -> {
+            if (pages >= host.agreeingPages) {
+                boilerplate.add(block);
+            }
+        });
+        host.template = new Template(selector(host.path), boilerplate);
+        host.expiresAtNanos = System.nanoTime() + ttlNanos;
+        host.blocks.clear();
+        learned.increment();
+    }
+
+    /**
+     * Step-wise common part of two paths of the same shape, or {@code null} if their shapes differ
+     */
+    private static List<Step> commonPath(List<Step> first, List<Step> second) {
+        if (first.size() != second.size()) {
+            return null;
+        }
+        List<Step> common = new ArrayList<>(first.size());
+        for (int i = 0; i < first.size(); i++) {
+            Step step = first.get(i).common(second.get(i));
+            if (step == null) {
+                return null;
+            }
+            common.add(step);
+        }
+        return common;
+    }
+
+    private static String selector(List<Step> path) {
+        StringBuilder selector = new StringBuilder();
+        for (Step step : path) {
+            selector.append(selector.length() == 0 ? "> " : " > ").append(step.selector());
+        }
+        return selector.toString();
+    }
+
+    /**
+     * Removes the blocks of {@code content} that match a boilerplate selector and still have its text
+     *
+     * @return the number of blocks removed
+     */
+    static int removeBoilerplate(Element content, List<Block> boilerplate) {
+        int removed = 0;
+        for (Block block : boilerplate) {
+            for (Element element : content.select("> " + block.selector())) {
+                if (textHash(element) == block.textHash()) {
+                    element.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Hash of an element's text with runs of whitespace collapsed to one space and the ends trimmed,
+     * skipping the elements {@link ContentScorer} skips; {@link MainContentExtractor} computes the same
+     */
+    static int textHash(Element element) {
+        int[] hash = {0};
+        boolean[] state = {false, false}; // {text written, space pending}
+        NodeTraversor.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (node instanceof Element child && ContentScorer.SKIPPED_TAGS.contains(child.normalName())) {
+                    return FilterResult.SKIP_ENTIRELY;
+                }
+                if (node instanceof TextNode text) {
+                    String value = text.getWholeText();
+                    for (int i = 0; i < value.length(); i++) {
+                        char c = value.charAt(i);
+                        if (c <= ' ' || c == '\u00a0') {
+                            state[1] = state[0];
+                        } else {
+                            if (state[1]) {
+                                hash[0] = 31 * hash[0] + ' ';
+                                state[1] = false;
+                            }
+                            hash[0] = 31 * hash[0] + c;
+                            state[0] = true;
+                        }
+                    }
+                }
+                return FilterResult.CONTINUE;
+            }
+
+            @Override
+            public FilterResult tail(Node node, int depth) {
+                return FilterResult.CONTINUE;
+            }
+        }, element);
+        return hash[0];
+    }
+
+    private void trimHosts() {
+        if (hosts.size() < MAX_HOSTS) {
+            return;
+        }
+        long now = System.nanoTime();
+        hosts.values().removeIf(host -> {
+            synchronized (host) {
+                return host.template == null || host.expiresAtNanos - now <= 0;
+            }
+        });
+        if (hosts.size() >= MAX_HOSTS) {
+            hosts.clear();
+        }
+    }
+
+    /**
+     * Pages taken from templates, pages scored, templates that stopped matching, templates learned,
+     * boilerplate blocks removed, and the hosts with a template
+     */
+    Map<String, Object> stats() {
+        long now = System.nanoTime();
+        int active = 0;
+        for (Host host : hosts.values()) {
+            synchronized (host) {
+                if (host.template != null && host.expiresAtNanos - now > 0) {
+                    active++;
+                }
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("hits", hits.sum());
+        stats.put("scored", scored.sum());
+        stats.put("misses", misses.sum());
+        stats.put("learned", learned.sum());
+        stats.put("removedBlocks", removedBlocks.sum());
+        stats.put("hosts", active);
+        return stats;
+    }
+}
@@ -0,0 +1,51 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * Identifies a fetch by normalized URL and mode, so that trivially different spellings of the
+ * same URL share cache entries.
+ */
+record FetchKey(String url, FetchMode mode) {
+
+    static FetchKey of(String url, FetchMode mode) {
+        return new FetchKey(normalize(url), mode);
+    }
+
+    /**
+     * Lower-cases scheme and host, drops default ports and fragments, and uses "/" for an empty path.
+     * URLs that cannot be parsed are returned unchanged.
+     */
+    static String normalize(String url) {
+        try {
+            URI uri = new URI(url.trim());
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return url.trim();
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            String host = uri.getHost().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+                port = -1;
+            }
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+
+            StringBuilder normalized = new StringBuilder(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                normalized.append(uri.getRawUserInfo()).append('@');
+            }
+            normalized.append(host);
+            if (port != -1) {
+                normalized.append(':').append(port);
+            }
+            normalized.append(path);
+            if (uri.getRawQuery() != null) {
+                normalized.append('?').append(uri.getRawQuery());
+            }
+            return normalized.toString();
+        } catch (Exception e) {
+            return url.trim();
+        }
+    }
+}
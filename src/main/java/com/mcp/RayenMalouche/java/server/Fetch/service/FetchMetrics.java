@@ -0,0 +1,141 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of the fetch pipeline. Each stage has a timer per fetch mode, with a percentile
+ * histogram so that p99 can be computed across instances. Origin responses and results have size
+ * histograms. Gauges cover the browser pool, the render queue, the fetch slots and the content cache.
+ * <p>
+ * A stage shared by concurrent requests for the same page is recorded once, under the mode of the
+ * request that started it.
+ */
+class FetchMetrics {
+
+    /**
+     * Steps of a fetch, named by the {@code stage} tag
+     */
+    enum Stage {
+        /**
+         * Sending the request until the response headers arrive, including DNS lookup and connecting,
+         * which the HTTP client does not time separately
+         */
+        TTFB("ttfb"),
+        /** Receiving and decoding the response body */
+        BODY("body"),
+        /** Waiting for a render worker and opening a page in its browser */
+        BROWSER_LEASE("browser-lease"),
+        /** Navigating and waiting for the page as the wait strategy asks */
+        NAVIGATION("navigation"),
+        /** Reading the rendered page, or its main content, out of the browser */
+        PAGE_CONTENT("page-content"),
+        /** Parsing HTML with jsoup */
+        PARSE("parse"),
+        /** Converting a parsed page to Markdown */
+        CONVERSION("conversion");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<FetchMode, Map<Stage, Timer>> stages = new EnumMap<>(FetchMode.class);
+    private final Map<FetchMode, DistributionSummary> responseSizes = new EnumMap<>(FetchMode.class);
+    private final Map<FetchMode, DistributionSummary> resultSizes = new EnumMap<>(FetchMode.class);
+
+    FetchMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (FetchMode mode : FetchMode.values()) {
+            Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+            for (Stage stage : Stage.values()) {
+                timers.put(stage, Timer.builder("fetch.stage")
+                        .description("Time spent in one stage of a fetch")
+                        .tag("stage", stage.getName())
+                        .tag("mode", mode.getName())
+                        .publishPercentileHistogram()
+                        .register(registry));
+            }
+            stages.put(mode, timers);
+            responseSizes.put(mode, DistributionSummary.builder("fetch.http.response.size")
+                    .description("Bytes received from the origin per HTTP response, before decoding")
+                    .baseUnit("bytes")
+                    .tag("mode", mode.getName())
+                    .publishPercentileHistogram()
+                    .register(registry));
+            resultSizes.put(mode, DistributionSummary.builder("fetch.result.size")
+                    .description("Characters of content produced per fetch, before pagination")
+                    .baseUnit("characters")
+                    .tag("mode", mode.getName())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    void record(Stage stage, FetchMode mode, long nanos) {
+        stages.get(mode).get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordResponse(FetchMode mode, long bytes) {
+        responseSizes.get(mode).record(bytes);
+    }
+
+    void recordResult(FetchMode mode, int characters) {
+        resultSizes.get(mode).record(characters);
+    }
+
+    /**
+     * Publishes gauges of the content cache, the global fetch slots and the render workers, which
+     * may not have started yet
+     */
+    void monitor(ContentCache cache, AsyncSemaphore permits, Supplier<RenderDispatcher> renderer) {
+        Gauge.builder("fetch.cache.entries", cache::size)
+                .description("Entries in the content cache")
+                .register(registry);
+        Gauge.builder("fetch.cache.size", cache::weightedSize)
+                .description("Approximate heap footprint of the content cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("fetch.cache.hit.ratio", cache::hitRatio)
+                .description("Share of cache lookups answered by a fresh entry")
+                .register(registry);
+        FunctionCounter.builder("fetch.cache.lookups", cache, ContentCache::hits)
+                .description("Content cache lookups")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("fetch.cache.lookups", cache, ContentCache::misses)
+                .description("Content cache lookups")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("fetch.permits.in.use", permits::inUse)
+                .description("Origin requests and renders holding one of the global fetch slots")
+                .register(registry);
+        Gauge.builder("fetch.permits.queued", permits::queued)
+                .description("Origin requests and renders waiting for a global fetch slot")
+                .register(registry);
+        Gauge.builder("fetch.browser.workers", () -> renderer.get() != null ? renderer.get().workerCount() : 0)
+                .description("Render workers, each with its own browser")
+                .register(registry);
+        Gauge.builder("fetch.browser.busy", () -> renderer.get() != null ? renderer.get().busyWorkers() : 0)
+                .description("Render workers rendering a page")
+                .register(registry);
+        Gauge.builder("fetch.render.queue.depth", () -> renderer.get() != null ? renderer.get().queueDepth() : 0)
+                .description("Render jobs waiting for a worker")
+                .register(registry);
+    }
+}
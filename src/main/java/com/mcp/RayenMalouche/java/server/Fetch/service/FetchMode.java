@@ -0,0 +1,37 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+/**
+ * The four ways the service can fetch a URL. The name matches the REST endpoint path.
+ */
+public enum FetchMode {
+    RAW_TEXT("raw-text"),
+    RENDERED_HTML("rendered-html"),
+    MARKDOWN("markdown"),
+    MARKDOWN_SUMMARY("markdown-summary");
+
+    private final String name;
+
+    FetchMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether this mode needs a headless browser
+     */
+    public boolean isRendered() {
+        return this != RAW_TEXT;
+    }
+
+    public static FetchMode fromName(String name) {
+        for (FetchMode mode : values()) {
+            if (mode.name.equalsIgnoreCase(name) || mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown fetch mode: " + name);
+    }
+}
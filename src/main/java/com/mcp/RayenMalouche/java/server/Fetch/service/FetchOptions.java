@@ -0,0 +1,116 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Per-request choices about how a page is fetched. {@code null} components use the server's configuration.
+ * Requests that change how the browser loads the page (blocked resources or wait strategy) are
+ * rendered afresh rather than served from a cached render.
+ *
+ * @param render           how Markdown modes obtain the page
+ * @param blockedResources resource types (image, font, ...) to block while rendering; an empty set
+ *                         loads everything
+ * @param waitStrategy     what a render waits for before reading the page; a {@code waitSelector}
+ *                         on its own implies {@link WaitStrategy#SELECTOR}
+ * @param waitSelector     CSS selector to wait for, only with {@link WaitStrategy#SELECTOR}
+ * @param deadline         how long the caller will wait for the page; the fetch fails with
+ *                         {@link DeadlineExceededException} once it is spent
+ */
+public record FetchOptions(RenderMode render, Set<String> blockedResources, WaitStrategy waitStrategy, String waitSelector,
+                           Duration deadline) {
+
+    public static final FetchOptions DEFAULT = new FetchOptions(null, null, null, null);
+
+    /**
+     * @throws IllegalArgumentException if the wait strategy and selector do not go together
+     */
+    public FetchOptions {
+        blockedResources = blockedResources != null ? Set.copyOf(blockedResources) : null;
+        waitSelector = waitSelector == null || waitSelector.isBlank() ? null : waitSelector.trim();
+        if (waitSelector != null && waitStrategy == null) {
+            waitStrategy = WaitStrategy.SELECTOR;
+        }
+        if (waitStrategy == WaitStrategy.SELECTOR && waitSelector == null) {
+            throw new IllegalArgumentException("wait_for is required when wait is selector");
+        }
+        if (waitStrategy != WaitStrategy.SELECTOR && waitSelector != null) {
+            throw new IllegalArgumentException("wait_for can only be used when wait is selector");
+        }
+        if (deadline != null && (deadline.isNegative() || deadline.isZero())) {
+            throw new IllegalArgumentException("deadline_ms must be positive");
+        }
+    }
+
+    public FetchOptions(RenderMode render, Set<String> blockedResources, WaitStrategy waitStrategy, String waitSelector) {
+        this(render, blockedResources, waitStrategy, waitSelector, null);
+    }
+
+    FetchOptions withRender(RenderMode mode) {
+        return new FetchOptions(mode, blockedResources, waitStrategy, waitSelector, deadline);
+    }
+
+    /**
+     * Copy of these options with the caller's deadline, {@code null} for none
+     */
+    public FetchOptions withDeadline(Duration deadline) {
+        return new FetchOptions(render, blockedResources, waitStrategy, waitSelector, deadline);
+    }
+
+    /**
+     * Whether the request changes how the browser loads the page
+     */
+    boolean customizesRendering() {
+        return blockedResources != null || waitStrategy != null;
+    }
+
+    /**
+     * Parses a {@code block_resources} argument given as a list of resource types or a comma-separated
+     * string. {@code none} blocks nothing; a missing value or {@code default} uses the configuration.
+     *
+     * @throws IllegalArgumentException if a resource type is unknown
+     */
+    public static Set<String> parseBlockedResources(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String spec = value instanceof Collection<?> values
+                ? values.stream().map(String::valueOf).collect(Collectors.joining(","))
+                : value.toString();
+        if (spec.isBlank() && !(value instanceof Collection<?>) || spec.trim().equalsIgnoreCase("default")) {
+            return null;
+        }
+        return ResourceBlocker.parseTypes(spec);
+    }
+
+    /**
+     * Parses an optional {@code wait} argument; a missing value uses the configuration
+     *
+     * @throws IllegalArgumentException if the strategy is unknown
+     */
+    public static WaitStrategy parseWait(Object value) {
+        return value == null || value.toString().isBlank() ? null : WaitStrategy.fromName(value.toString().trim());
+    }
+
+    /**
+     * Parses an optional {@code deadline_ms} argument; a missing value sets no deadline
+     *
+     * @throws IllegalArgumentException if it is not a positive number of milliseconds
+     */
+    public static Duration parseDeadline(Object value) {
+        if (value == null || value.toString().isBlank()) {
+            return null;
+        }
+        try {
+            long millis = value instanceof Number number ? number.longValue() : Long.parseLong(value.toString().trim());
+            if (millis <= 0) {
+                throw new IllegalArgumentException("deadline_ms must be positive");
+            }
+            return Duration.ofMillis(millis);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("deadline_ms must be an integer");
+        }
+    }
+}
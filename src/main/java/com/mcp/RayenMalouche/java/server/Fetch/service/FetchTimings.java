@@ -0,0 +1,39 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Where the time of one request went, as returned to callers that ask for timings
+ *
+ * @param totalMs      milliseconds from the start of the request until its content was ready
+ * @param stagesMs     milliseconds per stage this request ran, by stage name (ttfb, body,
+ *                     browser-lease, navigation, page-content, parse, conversion); stages of a fetch
+ *                     it joined or found in the cache are not included
+ * @param bytesFetched bytes received from the origin over plain HTTP, before decoding
+ * @param bytesEmitted UTF-8 bytes of the returned content
+ * @param cache        hit, miss, revalidated, coalesced or bypass
+ * @param browser      whether this request rendered the page in a browser
+ */
+public record FetchTimings(double totalMs, Map<String, Double> stagesMs, long bytesFetched, long bytesEmitted,
+                           String cache, boolean browser) {
+
+    public FetchTimings {
+        stagesMs = Collections.unmodifiableMap(new LinkedHashMap<>(stagesMs));
+    }
+
+    /**
+     * The timings as a JSON-friendly map, stages in pipeline order
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("totalMs", totalMs);
+        map.put("stagesMs", stagesMs);
+        map.put("bytesFetched", bytesFetched);
+        map.put("bytesEmitted", bytesEmitted);
+        map.put("cache", cache);
+        map.put("browser", browser);
+        return map;
+    }
+}
@@ -0,0 +1,268 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Follows one request through the fetch pipeline: the time spent in each stage, the bytes received
+ * from the origin, how the cache answered and whether a browser rendered the page. Stages are also
+ * recorded in the shared {@link FetchMetrics}. The trace also carries the caller's deadline down to
+ * the origin requests and renders made for it, except for work shared with other requests, which
+ * runs under a {@linkplain #withoutDeadline() view} without it.
+ * <p>
+ * Work done by a fetch this request joined, or served from the cache, is not part of its trace.
+ */
+final class FetchTrace {
+
+    /**
+     * How the cache answered a request, named by {@link #getName()}
+     */
+    enum CacheStatus {
+        /** Served from a fresh cache entry, or from a stored document for later pages */
+        HIT("hit"),
+        /** Fetched or rendered afresh */
+        MISS("miss"),
+        /** A stale entry that the origin confirmed to be current */
+        REVALIDATED("revalidated"),
+        /** Joined a fetch of the same page already in flight for another request */
+        COALESCED("coalesced"),
+        /** Skipped because the request changes how the browser loads the page */
+        BYPASS("bypass");
+
+        private final String name;
+
+        CacheStatus(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    private final FetchTrace owner;
+    private final FetchMetrics metrics;
+    private final FetchMode mode;
+    private final long startedNanos = System.nanoTime();
+    private final long deadlineNanos;
+    private final long[] stageNanos = new long[FetchMetrics.Stage.values().length];
+    private final boolean[] stageRecorded = new boolean[FetchMetrics.Stage.values().length];
+    private long bytesFetched;
+    private CacheStatus cache;
+    private boolean browser;
+
+    FetchTrace(FetchMetrics metrics, FetchMode mode) {
+        this(metrics, mode, null);
+    }
+
+    /**
+     * @param deadline how long the caller will wait, {@code null} for no deadline
+     */
+    FetchTrace(FetchMetrics metrics, FetchMode mode, Duration deadline) {
+        this.owner = this;
+        this.metrics = metrics;
+        this.mode = mode;
+        this.deadlineNanos = deadline != null ? startedNanos + deadline.toNanos() : Long.MAX_VALUE;
+    }
+
+    private FetchTrace(FetchTrace owner) {
+        this.owner = owner;
+        this.metrics = owner.metrics;
+        this.mode = owner.mode;
+        this.deadlineNanos = Long.MAX_VALUE;
+    }
+
+    /**
+     * This trace without its deadline, for work that other requests may join: what the work records
+     * still goes into this trace, but it is not cut short by this caller's deadline, which the caller
+     * applies to its own wait instead
+     */
+    FetchTrace withoutDeadline() {
+        return hasDeadline() ? new FetchTrace(owner) : this;
+    }
+
+    FetchMode mode() {
+        return mode;
+    }
+
+    /**
+     * {@link System#nanoTime()} by which the request must end, {@link Long#MAX_VALUE} for none
+     */
+    long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    boolean hasDeadline() {
+        return deadlineNanos != Long.MAX_VALUE;
+    }
+
+    /**
+     * Time left until the deadline, {@link Long#MAX_VALUE} for none
+     */
+    long remainingNanos() {
+        return hasDeadline() ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    synchronized void record(FetchMetrics.Stage stage, long nanos) {
+        if (owner != this) {
+            owner.record(stage, nanos);
+            return;
+        }
+        metrics.record(stage, mode, nanos);
+        stageNanos[stage.ordinal()] += nanos;
+        stageRecorded[stage.ordinal()] = true;
+    }
+
+    /**
+     * Records the time from {@code startedNanos} until now and returns now
+     */
+    long recordSince(FetchMetrics.Stage stage, long startedNanos) {
+        long now = System.nanoTime();
+        record(stage, now - startedNanos);
+        return now;
+    }
+
+    synchronized void recordResponse(long bytes) {
+        if (owner != this) {
+            owner.recordResponse(bytes);
+            return;
+        }
+        metrics.recordResponse(mode, bytes);
+        bytesFetched += bytes;
+    }
+
+    synchronized void usedBrowser() {
+        if (owner != this) {
+            owner.usedBrowser();
+            return;
+        }
+        browser = true;
+    }
+
+    /**
+     * Records how the cache answered. The outermost lookup of a request decides, except that a miss
+     * becomes {@link CacheStatus#REVALIDATED} or {@link CacheStatus#COALESCED} when the origin
+     * confirms the stale entry or the fetch is shared with another request.
+     */
+    synchronized void cache(CacheStatus status) {
+        if (owner != this) {
+            owner.cache(status);
+            return;
+        }
+        if (cache == null || (cache == CacheStatus.MISS
+                && (status == CacheStatus.REVALIDATED || status == CacheStatus.COALESCED))) {
+            cache = status;
+        }
+    }
+
+    /**
+     * Wraps a body handler to time the response headers from {@code sentNanos} and the body after
+     * them, and to measure the body as it arrives
+     */
+    <T> HttpResponse.BodyHandler<T> timed(HttpResponse.BodyHandler<T> handler, long sentNanos) {
+        return responseInfo -> {
+            long headersNanos = recordSince(FetchMetrics.Stage.TTFB, sentNanos);
+            return new MeasuredSubscriber<>(handler.apply(responseInfo), headersNanos);
+        };
+    }
+
+    /**
+     * Snapshots the trace for a request that returned {@code content}, or {@code null} if it failed
+     */
+    synchronized FetchTimings finish(String content) {
+        if (owner != this) {
+            return owner.finish(content);
+        }
+        Map<String, Double> stages = new LinkedHashMap<>();
+        for (FetchMetrics.Stage stage : FetchMetrics.Stage.values()) {
+            if (stageRecorded[stage.ordinal()]) {
+                stages.put(stage.getName(), millis(stageNanos[stage.ordinal()]));
+            }
+        }
+        return new FetchTimings(millis(System.nanoTime() - startedNanos), stages, bytesFetched,
+                content != null ? utf8Length(content) : 0,
+                (cache != null ? cache : CacheStatus.MISS).getName(), browser);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    /**
+     * Length of the UTF-8 encoding of {@code text}, without encoding it
+     */
+    static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // An unpaired surrogate is encoded as '?'
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Passes a response body through, counting its bytes and timing it until it is complete
+     */
+    private final class MeasuredSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private long bytes;
+
+        MeasuredSubscriber(HttpResponse.BodySubscriber<T> delegate, long headersNanos) {
+            this.delegate = delegate;
+            delegate.getBody().whenComplete((body, error) -> {
+                if (error == null) {
+                    recordSince(FetchMetrics.Stage.BODY, headersNanos);
+                    recordResponse(bytes);
+                }
+            });
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                bytes += item.remaining();
+            }
+            delegate.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Schedules origin requests politely, per host.
+ * <p>
+ * Every host gets its own cap on concurrent requests and its own token bucket for the request rate.
+ * Requests beyond either limit wait in a per-host queue without holding a thread, so a burst against
+ * one site is spread out while requests to other sites proceed at full speed. Limits come from the
+ * defaults unless an override is configured for the host or one of its parent domains.
+ */
+class HostScheduler {
+
+    /** Hosts tracked before idle ones are dropped */
+    private static final int MAX_IDLE_HOSTS = 1024;
+
+    /** Upper bound on how long a Retry-After header may hold back a host */
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(2);
+
+    /**
+     * Limits for one host
+     *
+     * @param maxConcurrent requests to the host in flight at the same time
+     * @param ratePerSecond sustained request rate, {@code 0} for no rate limit
+     * @param burst         requests allowed back-to-back before the rate applies
+     */
+    record HostLimits(int maxConcurrent, double ratePerSecond, int burst) {
+
+        HostLimits {
+            if (maxConcurrent < 1) {
+                throw new IllegalArgumentException("maxConcurrent must be at least 1");
+            }
+            burst = Math.max(1, burst);
+        }
+    }
+
+    private final HostLimits defaults;
+    private final Map<String, HostLimits> overrides;
+    private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    HostScheduler(HostLimits defaults, Map<String, HostLimits> overrides) {
+        this.defaults = defaults;
+        this.overrides = Map.copyOf(overrides);
+    }
+
+    /**
+     * Parses per-domain overrides of the form {@code domain=maxConcurrent:ratePerSecond[:burst]},
+     * separated by commas. An override applies to the domain and all of its subdomains.
+     */
+    static Map<String, HostLimits> parseOverrides(String spec) {
+        Map<String, HostLimits> parsed = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return parsed;
+        }
+
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] domainAndLimits = entry.split("=", 2);
+            String[] limits = domainAndLimits.length == 2 ? domainAndLimits[1].split(":") : new String[0];
+            if (limits.length < 2 || limits.length > 3) {
+                throw new IllegalArgumentException("Invalid host limit '" + entry.trim()
+                        + "', expected domain=maxConcurrent:ratePerSecond[:burst]");
+            }
+            try {
+                double rate = Double.parseDouble(limits[1].trim());
+                int burst = limits.length == 3 ? Integer.parseInt(limits[2].trim()) : (int) Math.ceil(rate);
+                parsed.put(domainAndLimits[0].trim().toLowerCase(Locale.ROOT),
+                        new HostLimits(Integer.parseInt(limits[0].trim()), rate, burst));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid host limit '" + entry.trim() + "': " + e.getMessage());
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses a Retry-After header given either in seconds or as an HTTP date
+     */
+    static Optional<Duration> parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim()))));
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, try a date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            Duration delay = Duration.between(ZonedDateTime.now(at.getZone()), at);
+            return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Runs the operation once the URL's host has a free slot and a token available.
+     * Cancelling the returned future while it is still queued removes it from the queue.
+     */
+    <T> CompletableFuture<T> schedule(String url, Supplier<CompletableFuture<T>> operation) {
+        Host host = hostFor(hostOf(url), tracked -> tracked.waiting.incrementAndGet());
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        CompletableFuture<Void> permit = host.permits.acquire();
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled() && permit.cancel(false)) {
+                host.waiting.decrementAndGet();
+            }
+        });
+
+        permit.thenRun(() -> {
+            long delay = host.bucket.reserve(System.nanoTime());
+            if (delay <= 0) {
+                host.start(result, operation);
+            } else {
+                Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS);
+                delayed.execute(() -> host.start(result, operation));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Holds back further requests to the URL's host, e.g. after a 429 or 503 with Retry-After
+     */
+    void backOff(String url, Duration delay) {
+        Duration capped = delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+        String host = hostOf(url);
+        System.err.println("Backing off " + host + " for " + capped.toSeconds() + " seconds");
+        long until = System.nanoTime() + capped.toNanos();
+        hostFor(host, tracked -> tracked.bucket.pauseUntil(until));
+    }
+
+    /**
+     * Requests waiting for a slot or a token on the given host
+     */
+    int queueDepth(String host) {
+        Host tracked = hosts.get(host.toLowerCase(Locale.ROOT));
+        return tracked != null ? tracked.waiting.get() : 0;
+    }
+
+    HostLimits limitsFor(String host) {
+        return overrides.entrySet().stream()
+                .filter(override -> host.equals(override.getKey()) || host.endsWith("." + override.getKey()))
+                .max(Comparator.comparingInt(override -> override.getKey().length()))
+                .map(Map.Entry::getValue)
+                .orElse(defaults);
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> perHost = new LinkedHashMap<>();
+        int queued = 0;
+        int active = 0;
+        for (Map.Entry<String, Host> entry : hosts.entrySet()) {
+            Host host = entry.getValue();
+            int hostQueued = host.waiting.get();
+            int hostActive = host.permits.inUse();
+            queued += hostQueued;
+            active += hostActive;
+            perHost.put(entry.getKey(), Map.of(
+                    "maxConcurrent", host.limits.maxConcurrent(),
+                    "ratePerSecond", host.limits.ratePerSecond(),
+                    "active", hostActive,
+                    "queued", hostQueued));
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracked", perHost.size());
+        stats.put("active", active);
+        stats.put("queued", queued);
+        stats.put("hosts", perHost);
+        return stats;
+    }
+
+    /**
+     * Looks up the host's state and claims it while the map entry is locked. Idle hosts are evicted
+     * under the same lock, so a host cannot be dropped between being claimed and being counted busy.
+     */
+    private Host hostFor(String host, Consumer<Host> claim) {
+        if (hosts.size() > MAX_IDLE_HOSTS) {
+            long now = System.nanoTime();
+            for (String name : hosts.keySet()) {
+                hosts.computeIfPresent(name, (key, tracked) -> tracked.isIdle(now) ? null : tracked);
+            }
+        }
+        return hosts.compute(host, (name, tracked) -> {
+            Host claimed = tracked != null ? tracked : new Host(limitsFor(name));
+            claim.accept(claimed);
+            return claimed;
+        });
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            if (host != null) {
+                return host.toLowerCase(Locale.ROOT);
+            }
+        } catch (IllegalArgumentException e) {
+            // Fall through and schedule malformed URLs under one shared key
+        }
+        return "";
+    }
+
+    private static class Host {
+
+        private final HostLimits limits;
+        private final AsyncSemaphore permits;
+        private final TokenBucket bucket;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        Host(HostLimits limits) {
+            this.limits = limits;
+            this.permits = new AsyncSemaphore(limits.maxConcurrent());
+            this.bucket = new TokenBucket(limits.ratePerSecond(), limits.burst(), System.nanoTime());
+        }
+
+        <T> void start(CompletableFuture<T> result, Supplier<CompletableFuture<T>> operation) {
+            waiting.decrementAndGet();
+            if (result.isDone()) {
+                permits.release();
+                return;
+            }
+
+            CompletableFuture<T> work;
+            try {
+                work = operation.get();
+            } catch (Throwable t) {
+                work = CompletableFuture.failedFuture(t);
+            }
+
+            CompletableFuture<T> started = work;
+            started.whenComplete((value, error) -> {
+                permits.release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    started.cancel(true);
+                }
+            });
+        }
+
+        boolean isIdle(long nowNanos) {
+            return waiting.get() == 0 && permits.inUse() == 0 && bucket.isIdle(nowNanos);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Thrown without contacting the origin when its host's circuit breaker is open
+ */
+class HostUnavailableException extends IOException {
+
+    private final Duration retryAfter;
+
+    HostUnavailableException(String host, String reason, Duration retryAfter) {
+        super("Host " + host + " is failing (" + reason + "), retry in "
+                + Math.max(1, (long) Math.ceil(retryAfter.toMillis() / 1000.0)) + " seconds");
+        this.retryAfter = retryAfter;
+    }
+
+    Duration retryAfter() {
+        return retryAfter;
+    }
+}
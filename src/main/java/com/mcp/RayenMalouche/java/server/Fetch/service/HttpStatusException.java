@@ -0,0 +1,20 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the origin answers a raw fetch with a status other than success or Not Modified
+ */
+class HttpStatusException extends IOException {
+
+    private final int statusCode;
+
+    HttpStatusException(int statusCode, String url) {
+        super("HTTP " + statusCode + " error fetching URL: " + url);
+        this.statusCode = statusCode;
+    }
+
+    int statusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.util.Locale;
+
+/**
+ * Decides from the HTML returned by a plain GET whether a page needs a browser to show its content.
+ * <p>
+ * A page is sent to the browser when it is an empty single-page application shell, when a
+ * {@code <noscript>} block asks for JavaScript and there is little other text, when it has almost no
+ * text but loads scripts, or when it carries a client-side framework's markers and its text is a tiny
+ * fraction of its markup. Server-rendered framework pages with real content stay on the HTTP path.
+ */
+final class JavaScriptDetector {
+
+    /** Mount points and markers of common client-side frameworks, by framework name */
+    private static final String[][] FRAMEWORK_MARKERS = {
+            {"Next.js", "#__next, script#__NEXT_DATA__"},
+            {"Nuxt", "#__nuxt"},
+            {"Gatsby", "#___gatsby"},
+            {"React", "#root, [data-reactroot]"},
+            {"Vue", "#app, [data-v-app], [data-server-rendered]"},
+            {"Angular", "app-root, [ng-version], [ng-app]"},
+            {"Svelte", "#svelte, [data-svelte-h]"}
+    };
+
+    /** Mount points that hold the whole application and are empty until its scripts run */
+    private static final String APPLICATION_ROOTS = "#root, #app, #__next, #__nuxt, #___gatsby, #svelte, app-root";
+
+    private final int minTextLength;
+    private final double minTextRatio;
+
+    /**
+     * @param minTextLength pages with less visible text than this are considered empty
+     * @param minTextRatio  framework pages whose text is a smaller fraction of their markup need rendering
+     */
+    JavaScriptDetector(int minTextLength, double minTextRatio) {
+        this.minTextLength = minTextLength;
+        this.minTextRatio = minTextRatio;
+    }
+
+    record Verdict(boolean needsBrowser, String reason) {
+    }
+
+    /**
+     * Assesses a page fetched over HTTP
+     *
+     * @param markupLength length of the HTML the document was parsed from
+     */
+    Verdict assess(Document doc, int markupLength) {
+        Element body = doc.body();
+        int noscriptLength = 0;
+        boolean noscriptAsksForJavaScript = false;
+        for (Element noscript : body.select("noscript")) {
+            String text = noscript.text();
+            noscriptLength += text.length();
+            if (text.toLowerCase(Locale.ROOT).contains("javascript")) {
+                noscriptAsksForJavaScript = true;
+            }
+        }
+        int textLength = Math.max(0, body.text().length() - noscriptLength);
+        // Little text outside the shell: the shell's content is what the page is about
+        boolean littleText = textLength < minTextLength * 4;
+
+        if (littleText) {
+            for (Element root : body.select(APPLICATION_ROOTS)) {
+                if (!root.hasText()) {
+                    return new Verdict(true, "empty application root " + describe(root));
+                }
+            }
+            if (noscriptAsksForJavaScript) {
+                return new Verdict(true, "noscript asks for JavaScript");
+            }
+        }
+
+        boolean hasScripts = !doc.select("script").isEmpty();
+        if (textLength < minTextLength && hasScripts) {
+            return new Verdict(true, "only " + textLength + " characters of text");
+        }
+
+        double ratio = markupLength > 0 ? (double) textLength / markupLength : 1;
+        if (ratio < minTextRatio) {
+            for (String[] marker : FRAMEWORK_MARKERS) {
+                if (doc.selectFirst(marker[1]) != null) {
+                    return new Verdict(true, marker[0] + " page with text-to-markup ratio " + format(ratio));
+                }
+            }
+        }
+
+        return new Verdict(false, "static HTML with " + textLength + " characters of text");
+    }
+
+    private static String describe(Element element) {
+        return element.id().isEmpty() ? element.normalName() : "#" + element.id();
+    }
+
+    private static String format(double ratio) {
+        return String.format(Locale.ROOT, "%.3f", ratio);
+    }
+}
@@ -0,0 +1,278 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import org.jsoup.Jsoup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses a rendered page's main content inside the browser and returns only that subtree's HTML,
+ * instead of serializing the whole DOM across the Playwright driver pipe for the JVM to parse and
+ * mostly discard. The choice is the one {@link MarkdownConverter} makes for summaries: page chrome
+ * is dropped, then {@link ContentScorer}'s scoring runs with the same constants, falling back to
+ * the body. Scripts, styles and templates, which the converter skips, go too.
+ * The result converts to the same summary as the whole page would. Hosts with a learned
+ * {@link ExtractionTemplates} template skip the scoring and take the content from its selector.
+ */
+class MainContentExtractor {
+
+    private static final String EXTRACTION_SCRIPT = """
+            ([[removals, skipped, paragraphs, blocks, minChars, semanticBonus, classWeight, tagWeights, positive, negative],
+              template, learn]) => {
+              for (const element of document.querySelectorAll(removals)) {
+                element.remove();
+              }
+              const root = document.body;
+              if (!root) {
+                return { html: document.documentElement.outerHTML, templated: false };
+              }
+
+              // Same hash as ExtractionTemplates.textHash: whitespace runs collapsed, ends trimmed
+              const textHash = element => {
+                let hash = 0;
+                let written = false;
+                let space = false;
+                const walk = node => {
+                  for (const child of node.childNodes) {
+                    if (child.nodeType === Node.TEXT_NODE) {
+                      const text = child.nodeValue;
+                      for (let i = 0; i < text.length; i++) {
+                        const c = text[i];
+                        if (c <= ' ' || c === '\u00a0') {
+                          space = written;
+                        } else {
+                          if (space) {
+                            hash = (Math.imul(31, hash) + 32) | 0;
+                            space = false;
+                          }
+                          hash = (Math.imul(31, hash) + text.charCodeAt(i)) | 0;
+                          written = true;
+                        }
+                      }
+                    } else if (child.nodeType === Node.ELEMENT_NODE && !skipped.includes(child.localName)) {
+                      walk(child);
+                    }
+                  }
+                };
+                walk(element);
+                return hash;
+              };
+
+              if (template) {
+                const matches = root.querySelectorAll(':scope ' + template.selector);
+                if (matches.length === 1 && matches[0].textContent.trim() !== '') {
+                  const content = matches[0];
+                  let removed = 0;
+                  for (const [selector, hash] of template.boilerplate) {
+                    for (const element of content.querySelectorAll(':scope > ' + selector)) {
+                      if (textHash(element) === hash) {
+                        element.remove();
+                        removed++;
+                      }
+                    }
+                  }
+                  return { html: content.outerHTML, templated: true, removed };
+                }
+              }
+
+              const positiveNames = new RegExp(positive, 'i');
+              const negativeNames = new RegExp(negative, 'i');
+              let best = root;
+              let bestScore = -Infinity;
+
+              const countText = (text, sums) => {
+                let space = true;
+                for (let i = 0; i < text.length; i++) {
+                  const c = text[i];
+                  if (c <= ' ' || c === '\u00a0') {
+                    if (!space) {
+                      sums.text++;
+                      space = true;
+                    }
+                  } else {
+                    sums.text++;
+                    space = false;
+                    if (c === ',') {
+                      sums.commas++;
+                    }
+                  }
+                }
+              };
+
+              // Sums an element's text, link text and commas, scores it from the paragraphs among its
+              // children (in full) and grandchildren (by half), and reports its own paragraph points
+              const visit = element => {
+                const sums = { text: 0, links: 0, commas: 0, points: 0, candidate: false, hasBlockChild: false,
+                               paragraph: 0, childParagraphs: 0 };
+                for (const child of element.childNodes) {
+                  if (child.nodeType === Node.TEXT_NODE) {
+                    countText(child.nodeValue, sums);
+                  } else if (child.nodeType === Node.ELEMENT_NODE && !skipped.includes(child.localName)) {
+                    const inner = visit(child);
+                    sums.text += inner.text;
+                    sums.links += inner.links;
+                    sums.commas += inner.commas;
+                    sums.points += inner.paragraph + inner.childParagraphs / 2;
+                    sums.candidate = sums.candidate || inner.paragraph > 0 || inner.childParagraphs > 0;
+                    sums.childParagraphs += inner.paragraph;
+                    sums.hasBlockChild = sums.hasBlockChild || blocks.includes(child.localName);
+                  }
+                }
+                const tag = element.localName;
+                if (tag === 'a') {
+                  sums.links = sums.text;
+                }
+                const paragraph = paragraphs.includes(tag) || (tag === 'div' && !sums.hasBlockChild);
+                if (paragraph && sums.text >= minChars) {
+                  sums.paragraph = 1 + sums.commas + Math.min(Math.floor(sums.text / 100), 3);
+                }
+                const semantic = tag === 'main' || tag === 'article' || element.getAttribute('role') === 'main';
+                if ((sums.candidate || semantic) && sums.text > 0) {
+                  const names = (element.getAttribute('class') || '') + ' ' + (element.id || '');
+                  let score = sums.points + (tagWeights[tag] || 0) + (semantic ? semanticBonus : 0);
+                  if (names.trim() !== '') {
+                    score += (negativeNames.test(names) ? -classWeight : 0) + (positiveNames.test(names) ? classWeight : 0);
+                  }
+                  score *= 1 - sums.links / sums.text;
+                  if (score > bestScore) {
+                    bestScore = score;
+                    best = element;
+                  }
+                }
+                return sums;
+              };
+
+              visit(root);
+              while (best !== root && ['thead', 'tbody', 'tfoot', 'tr'].includes(best.localName) && best.parentElement) {
+                best = best.parentElement;
+              }
+              if (!learn) {
+                return { html: best.outerHTML, templated: false };
+              }
+
+              // What ExtractionTemplates learns from: the path to the content and its named blocks
+              const step = element => ({ tag: element.localName, id: element.id, classes: Array.from(element.classList) });
+              const named = element => element.id !== '' || element.classList.length > 0;
+              const path = [];
+              for (let element = best; element !== root && element; element = element.parentElement) {
+                path.unshift(step(element));
+              }
+              const found = [];
+              for (const child of best.children) {
+                if (named(child)) {
+                  found.push({ steps: [step(child)], hash: textHash(child) });
+                  for (const grandchild of child.children) {
+                    if (named(grandchild)) {
+                      found.push({ steps: [step(child), step(grandchild)], hash: textHash(grandchild) });
+                    }
+                  }
+                }
+              }
+              return { html: best.outerHTML, templated: false, path, blocks: found };
+            }
+            """;
+
+    private static final String REMOVALS = MarkdownConverter.PAGE_CHROME + ", script, style, template";
+
+    private static final List<Object> SCORING = List.of(
+            REMOVALS,
+            List.copyOf(ContentScorer.SKIPPED_TAGS),
+            List.copyOf(ContentScorer.PARAGRAPH_TAGS),
+            List.copyOf(ContentScorer.BLOCK_TAGS),
+            ContentScorer.MIN_PARAGRAPH_CHARS,
+            ContentScorer.SEMANTIC_BONUS,
+            ContentScorer.CLASS_WEIGHT,
+            ContentScorer.TAG_WEIGHTS,
+            ContentScorer.POSITIVE_NAMES,
+            ContentScorer.NEGATIVE_NAMES);
+
+    private final ExtractionTemplates templates;
+    private final LongAdder extractions = new LongAdder();
+    private final LongAdder extractedChars = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    MainContentExtractor(ExtractionTemplates templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Returns the HTML of the page's main content, chosen from the whole page in the JVM if the script
+     * cannot run. The content comes from the host's learned template when it still matches, else it is scored
+     * and the template learns from it. Must be called on the render worker that owns the page,
+     * after it has loaded; it changes the DOM.
+     */
+    String extract(Page page, String url) {
+        ExtractionTemplates.Template template = templates.templateFor(url);
+        Map<String, Object> selected = null;
+        if (template != null) {
+            List<List<Object>> boilerplate = template.boilerplate().stream()
+                    .map(block -> List.<Object>of(block.selector(), block.textHash()))
+                    .toList();
+            selected = Map.of("selector", template.selector(), "boilerplate", boilerplate);
+        }
+        try {
+            List<Object> args = Arrays.asList(SCORING, selected, templates.enabled());
+            if (page.evaluate(EXTRACTION_SCRIPT, args) instanceof Map<?, ?> result
+                    && result.get("html") instanceof String subtree) {
+                if (Boolean.TRUE.equals(result.get("templated"))) {
+                    templates.recordHit(((Number) result.get("removed")).intValue());
+                } else if (result.get("path") instanceof List<?> path && result.get("blocks") instanceof List<?> blocks) {
+                    templates.observe(url, template, observation(path, blocks));
+                }
+                extractions.increment();
+                extractedChars.add(subtree.length());
+                return subtree;
+            }
+        } catch (PlaywrightException e) {
+            System.err.println("In-page extraction failed, reading the whole page: " + e.getMessage());
+        }
+        fallbacks.increment();
+        return templates.summaryContent(url, Jsoup.parse(page.content())).outerHtml();
+    }
+
+    private static ExtractionTemplates.Observation observation(List<?> path, List<?> blocks) {
+        List<ExtractionTemplates.Step> steps = new ArrayList<>();
+        for (Object step : path) {
+            steps.add(step((Map<?, ?>) step));
+        }
+        List<ExtractionTemplates.Block> found = new ArrayList<>();
+        for (Object item : blocks) {
+            Map<?, ?> block = (Map<?, ?>) item;
+            List<String> selectors = new ArrayList<>();
+            for (Object step : (List<?>) block.get("steps")) {
+                ExtractionTemplates.Step parsed = step((Map<?, ?>) step);
+                if (parsed.named()) {
+                    selectors.add(parsed.selector());
+                }
+            }
+            if (selectors.size() == ((List<?>) block.get("steps")).size()) {
+                found.add(new ExtractionTemplates.Block(String.join(" > ", selectors),
+                        ((Number) block.get("hash")).intValue()));
+            }
+        }
+        return new ExtractionTemplates.Observation(steps, found);
+    }
+
+    private static ExtractionTemplates.Step step(Map<?, ?> step) {
+        List<String> classes = ((List<?>) step.get("classes")).stream().map(String::valueOf).toList();
+        return ExtractionTemplates.Step.of(String.valueOf(step.get("tag")), String.valueOf(step.get("id")), classes);
+    }
+
+    /**
+     * Extractions, the characters they returned, and fallbacks to the whole page
+     */
+    Map<String, Object> stats() {
+        long count = extractions.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("extractions", count);
+        stats.put("averageChars", count > 0 ? extractedChars.sum() / count : 0);
+        stats.put("fallbacks", fallbacks.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,528 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+
+import java.util.Locale;
+
+/**
+ * Converts HTML to Markdown in a single walk over the Jsoup DOM.
+ * <p>
+ * The page is parsed once and Markdown is written straight into a per-thread buffer that is reused
+ * across conversions; tables, definition lists, code blocks and links are rendered as they are met
+ * instead of being rewritten to HTML and parsed again. The output follows the format of the
+ * previous Flexmark-based conversion: setext headings for levels 1 and 2, {@code *} bullets,
+ * {@code **}/{@code *} emphasis, fenced code blocks, pipe tables and {@code **term:**} definitions.
+ */
+final class MarkdownConverter {
+
+    /** Buffers that grew beyond this many characters are not kept for the next conversion */
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(16 * 1024));
+
+    /** Page furniture dropped before the main content is chosen */
+    static final String PAGE_CHROME = "header, footer, nav";
+
+    private static final String THEMATIC_BREAK = "*** ** * ** ***";
+
+    /**
+     * Converts an HTML document to Markdown
+     *
+     * @param mainContentOnly drop headers, footers and navigation and convert only the main content area
+     */
+    String convert(String html, boolean mainContentOnly) {
+        if (html == null || html.isEmpty()) {
+            return "";
+        }
+        return convert(Jsoup.parse(html), mainContentOnly);
+    }
+
+    /**
+     * Converts an already parsed document to Markdown. In main-content mode the document is modified.
+     */
+    String convert(Document doc, boolean mainContentOnly) {
+        Element root = doc.body();
+        if (mainContentOnly) {
+            doc.select(PAGE_CHROME).remove();
+            root = ContentScorer.mainContent(doc.body());
+        }
+        return convert(root);
+    }
+
+    /**
+     * Converts an element to Markdown: the body's content, or any other element as a whole, so that
+     * a table or list chosen as a page's main content keeps its markup
+     */
+    String convert(Element root) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        try {
+            Writer writer = new Writer(buffer);
+            if (root.normalName().equals("body")) {
+                writer.children(root);
+            } else {
+                writer.element(root);
+            }
+            return buffer.append('\n').toString();
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Walks the DOM and writes Markdown. Line breaks, spaces and opening markup are kept pending
+     * until visible content follows, so that empty elements and trailing whitespace leave no trace.
+     */
+    private static final class Writer {
+
+        private final StringBuilder out;
+        private final StringBuilder pendingMarkup = new StringBuilder();
+
+        /** Prefix of continuation lines: list indentation and blockquote markers */
+        private String prefix = "";
+        /** Prefix of the next line when it starts a list item, including the item marker */
+        private String itemPrefix;
+        /** 1 to start a new line, 2 to leave a blank line before the next content */
+        private int pendingNewlines;
+        /** Prefix in effect when the pending blank line was requested */
+        private String blankLinePrefix = "";
+        private boolean pendingSpace;
+        private boolean lineHasContent;
+        private int lineStart;
+        private int listDepth;
+
+        Writer(StringBuilder out) {
+            this.out = out;
+        }
+
+        void children(Element element) {
+            for (Node child : element.childNodes()) {
+                if (child instanceof TextNode text) {
+                    text(text.getWholeText());
+                } else if (child instanceof Element childElement) {
+                    element(childElement);
+                }
+            }
+        }
+
+        private void element(Element element) {
+            String tag = element.normalName();
+            switch (tag) {
+                case "script", "style", "template", "head" -> {
+                }
+                case "h1", "h2" -> setextHeading(element, tag.equals("h1") ? '=' : '-');
+                case "h3", "h4", "h5", "h6" -> atxHeading(element, tag.charAt(1) - '0');
+                case "ul", "ol" -> list(element, tag.equals("ol"));
+                case "li" -> listItem(element, "* ");
+                case "blockquote" -> blockquote(element);
+                case "pre" -> codeBlock(element);
+                case "table" -> table(element);
+                case "dl" -> definitionList(element);
+                case "hr" -> {
+                    block();
+                    raw(THEMATIC_BREAK);
+                    block();
+                }
+                case "br" -> lineBreak();
+                case "img" -> image(element);
+                case "a" -> link(element);
+                case "code", "kbd", "samp", "tt" -> inlineCode(element.text());
+                case "b", "strong" -> wrapped(element, "**");
+                case "i", "em" -> wrapped(element, "*");
+                case "del", "s", "strike" -> wrapped(element, "~~");
+                default -> {
+                    if (element.isBlock()) {
+                        block();
+                        children(element);
+                        block();
+                    } else {
+                        children(element);
+                    }
+                }
+            }
+        }
+
+        private void setextHeading(Element element, char underline) {
+            block();
+            int before = out.length();
+            children(element);
+            if (out.length() > before) {
+                int length = out.length() - lineStart;
+                out.append('\n').append(prefix);
+                for (int i = 0; i < Math.max(3, length); i++) {
+                    out.append(underline);
+                }
+                lineHasContent = true;
+            }
+            block();
+        }
+
+        private void atxHeading(Element element, int level) {
+            block();
+            int markup = pendingMarkup.length();
+            pendingMarkup.append("#".repeat(level)).append(' ');
+            children(element);
+            dropUnusedMarkup(markup);
+            block();
+        }
+
+        private void list(Element list, boolean ordered) {
+            boolean nested = listDepth > 0;
+            newlines(nested ? 1 : 2);
+            listDepth++;
+
+            int number = ordered ? parseStart(list.attr("start")) : 0;
+            for (Element item : list.children()) {
+                if (item.normalName().equals("li")) {
+                    listItem(item, ordered ? (number++) + ". " : "* ");
+                } else {
+                    element(item);
+                }
+            }
+
+            listDepth--;
+            if (!nested) {
+                block();
+            }
+        }
+
+        private void listItem(Element item, String marker) {
+            String outer = prefix;
+            newlines(1);
+            itemPrefix = outer + marker;
+            prefix = outer + " ".repeat(marker.length());
+            children(item);
+            itemPrefix = null;
+            prefix = outer;
+            // Items stay tight even when they end with a paragraph
+            pendingNewlines = Math.min(pendingNewlines, 1);
+            newlines(1);
+        }
+
+        private void blockquote(Element element) {
+            block();
+            String outer = prefix;
+            prefix = outer + "> ";
+            children(element);
+            prefix = outer;
+            block();
+        }
+
+        private void codeBlock(Element pre) {
+            Element code = pre.childrenSize() == 1 && pre.child(0).normalName().equals("code") ? pre.child(0) : pre;
+            String content = code.wholeText();
+            if (content.endsWith("\n")) {
+                content = content.substring(0, content.length() - 1);
+            }
+            String language = language(code);
+            if (language.isEmpty() && code != pre) {
+                language = language(pre);
+            }
+            String fence = content.contains("```") ? "~~~" : "```";
+
+            block();
+            raw(fence + language);
+            int start = 0;
+            while (start <= content.length()) {
+                int end = content.indexOf('\n', start);
+                if (end < 0) {
+                    end = content.length();
+                }
+                out.append('\n');
+                appendPrefix(prefix, end == start);
+                out.append(content, start, end);
+                start = end + 1;
+            }
+            out.append('\n');
+            appendPrefix(prefix, false);
+            out.append(fence);
+            block();
+        }
+
+        private void table(Element table) {
+            Elements rows = table.select("tr");
+            if (rows.isEmpty()) {
+                return;
+            }
+            Elements headerCells = rows.first().select("th, td");
+            if (headerCells.isEmpty()) {
+                return;
+            }
+
+            block();
+            tableRow(headerCells);
+            newlines(1);
+            raw("|");
+            for (int i = 0; i < headerCells.size(); i++) {
+                out.append("---|");
+            }
+            for (int i = 1; i < rows.size(); i++) {
+                newlines(1);
+                tableRow(rows.get(i).select("th, td"));
+            }
+            block();
+        }
+
+        private void tableRow(Elements cells) {
+            raw("|");
+            for (Element cell : cells) {
+                out.append(' ');
+                String text = cell.text().trim();
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (c == '|') {
+                        out.append('\\');
+                    }
+                    out.append(c);
+                }
+                out.append(" |");
+            }
+        }
+
+        private void definitionList(Element dl) {
+            block();
+            boolean afterTerm = false;
+            for (Element child : dl.children()) {
+                String text = child.text().trim();
+                if (text.isEmpty()) {
+                    continue;
+                }
+                if (child.normalName().equals("dt")) {
+                    newlines(1);
+                    raw("**");
+                    escaped(text);
+                    out.append(":** ");
+                    afterTerm = true;
+                } else if (child.normalName().equals("dd")) {
+                    if (!afterTerm) {
+                        newlines(1);
+                    }
+                    ensureInline();
+                    escaped(text);
+                    afterTerm = false;
+                }
+            }
+            block();
+        }
+
+        private void lineBreak() {
+            if (lineHasContent && pendingNewlines == 0) {
+                out.append("  ");
+                pendingSpace = false;
+                newlines(1);
+            }
+        }
+
+        private void image(Element img) {
+            String src = img.attr("src");
+            if (src.isEmpty()) {
+                return;
+            }
+            ensureInline();
+            out.append("![");
+            escaped(img.attr("alt").trim());
+            out.append("](").append(src);
+            appendTitle(img.attr("title"));
+            out.append(')');
+        }
+
+        private void link(Element a) {
+            String href = a.attr("href");
+            if (href.isEmpty() || href.regionMatches(true, 0, "javascript:", 0, 11)) {
+                children(a);
+                return;
+            }
+
+            int markup = pendingMarkup.length();
+            pendingMarkup.append('[');
+            children(a);
+            if (!dropUnusedMarkup(markup)) {
+                out.append("](").append(href);
+                appendTitle(a.attr("title"));
+                out.append(')');
+            }
+        }
+
+        private void inlineCode(String code) {
+            if (code.isEmpty()) {
+                return;
+            }
+            int longestRun = 0;
+            int run = 0;
+            for (int i = 0; i < code.length(); i++) {
+                run = code.charAt(i) == '`' ? run + 1 : 0;
+                longestRun = Math.max(longestRun, run);
+            }
+            String fence = "`".repeat(longestRun + 1);
+            boolean pad = code.charAt(0) == '`' || code.charAt(code.length() - 1) == '`';
+
+            ensureInline();
+            out.append(fence);
+            if (pad) {
+                out.append(' ');
+            }
+            out.append(code);
+            if (pad) {
+                out.append(' ');
+            }
+            out.append(fence);
+        }
+
+        private void wrapped(Element element, String marker) {
+            int markup = pendingMarkup.length();
+            pendingMarkup.append(marker);
+            children(element);
+            if (!dropUnusedMarkup(markup)) {
+                out.append(marker);
+            }
+        }
+
+        private void text(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c) || c == ' ') {
+                    pendingSpace = true;
+                } else {
+                    ensureInline();
+                    escape(c);
+                }
+            }
+        }
+
+        private void escaped(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                escape(text.charAt(i));
+            }
+        }
+
+        private void escape(char c) {
+            switch (c) {
+                case '\\', '*', '[', ']', '`', '<', '>', '&', '|', '~' -> out.append('\\');
+                default -> {
+                }
+            }
+            out.append(c);
+        }
+
+        private void raw(String markup) {
+            ensureInline();
+            out.append(markup);
+        }
+
+        /**
+         * Writes whatever is pending before inline content: line breaks with their prefix, a
+         * collapsed space, and opening markup
+         */
+        private void ensureInline() {
+            if (pendingNewlines > 0 || itemPrefix != null) {
+                String linePrefix = itemPrefix != null ? itemPrefix : prefix;
+                if (out.length() > 0) {
+                    out.append('\n');
+                    if (pendingNewlines > 1) {
+                        // A blank line only carries the markers shared by the blocks on both sides
+                        int shared = 0;
+                        int max = Math.min(blankLinePrefix.length(), linePrefix.length());
+                        while (shared < max && blankLinePrefix.charAt(shared) == linePrefix.charAt(shared)) {
+                            shared++;
+                        }
+                        appendPrefix(linePrefix.substring(0, shared), true);
+                        out.append('\n');
+                    }
+                }
+                appendPrefix(linePrefix, false);
+                itemPrefix = null;
+                pendingNewlines = 0;
+                pendingSpace = false;
+                lineHasContent = false;
+                lineStart = out.length();
+            } else if (pendingSpace && lineHasContent) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            if (pendingMarkup.length() > 0) {
+                out.append(pendingMarkup);
+                pendingMarkup.setLength(0);
+            }
+            lineHasContent = true;
+        }
+
+        private void appendPrefix(String linePrefix, boolean blankLine) {
+            if (blankLine) {
+                int end = linePrefix.length();
+                while (end > 0 && linePrefix.charAt(end - 1) == ' ') {
+                    end--;
+                }
+                out.append(linePrefix, 0, end);
+            } else {
+                out.append(linePrefix);
+            }
+        }
+
+        /**
+         * Discards markup opened at {@code length} if no content followed it
+         *
+         * @return whether the markup was discarded
+         */
+        private boolean dropUnusedMarkup(int length) {
+            if (pendingMarkup.length() > length) {
+                pendingMarkup.setLength(length);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Separates the next content from the previous with a blank line
+         */
+        private void block() {
+            newlines(2);
+        }
+
+        private void newlines(int count) {
+            pendingSpace = false;
+            // The first block of a list item starts on the item's marker line
+            if (itemPrefix != null) {
+                return;
+            }
+            if (count > pendingNewlines) {
+                pendingNewlines = count;
+                blankLinePrefix = prefix;
+            }
+        }
+
+        private void appendTitle(String title) {
+            if (!title.isEmpty()) {
+                out.append(" \"").append(title.replace("\"", "\\\"")).append('"');
+            }
+        }
+
+        private static int parseStart(String start) {
+            try {
+                return start.isEmpty() ? 1 : Integer.parseInt(start.trim());
+            } catch (NumberFormatException e) {
+                return 1;
+            }
+        }
+
+        private static String language(Element element) {
+            for (String className : element.classNames()) {
+                String name = className.toLowerCase(Locale.ROOT);
+                if (name.startsWith("language-")) {
+                    return className.substring("language-".length());
+                }
+                if (name.startsWith("lang-")) {
+                    return className.substring("lang-".length());
+                }
+            }
+            return "";
+        }
+    }
+}
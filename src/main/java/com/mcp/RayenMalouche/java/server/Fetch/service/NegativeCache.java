@@ -0,0 +1,99 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.microsoft.playwright.PlaywrightException;
+
+import java.net.UnknownHostException;
+import java.nio.channels.UnresolvedAddressException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers for a short while the fetches that failed for good, so that asking again for a missing
+ * page or an unknown host fails at once instead of reaching the origin.
+ * <p>
+ * Only error statuses and DNS failures are remembered. Timeouts and connection errors are left to
+ * the circuit breakers, which judge a host by more than one request.
+ */
+class NegativeCache {
+
+    private final Duration ttl;
+    private final int maxEntries;
+    private final LinkedHashMap<FetchKey, Failure> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+
+    private record Failure(Throwable error, long expiresAtNanos) {
+    }
+
+    /**
+     * @param ttl        how long a failure is remembered, zero to remember none
+     * @param maxEntries failures remembered before the least recently used are dropped
+     */
+    NegativeCache(Duration ttl, int maxEntries) {
+        this.ttl = ttl;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Returns the remembered failure of the fetch, or {@code null}
+     */
+    synchronized Throwable lookup(FetchKey key) {
+        Failure failure = entries.get(key);
+        if (failure == null) {
+            return null;
+        }
+        if (System.nanoTime() - failure.expiresAtNanos() >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        hits.incrementAndGet();
+        return failure.error();
+    }
+
+    /**
+     * Remembers the failure of the fetch if it is an error status or a DNS failure
+     */
+    void record(FetchKey key, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (ttl.isZero() || !isLasting(cause)) {
+            return;
+        }
+        synchronized (this) {
+            entries.put(key, new Failure(cause, System.nanoTime() + ttl.toNanos()));
+            if (entries.size() > maxEntries) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+        }
+        stored.incrementAndGet();
+    }
+
+    /**
+     * Error statuses and names that do not resolve, which asking again right away will not change
+     */
+    static boolean isLasting(Throwable error) {
+        if (error instanceof HttpStatusException status) {
+            return status.statusCode() >= 400;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnknownHostException || cause instanceof UnresolvedAddressException) {
+                return true;
+            }
+            if (cause instanceof PlaywrightException && String.valueOf(cause.getMessage()).contains("ERR_NAME_NOT_RESOLVED")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ttlSeconds", ttl.toSeconds());
+        stats.put("entries", entries.size());
+        stats.put("stored", stored.get());
+        stats.put("hits", hits.get());
+        return stats;
+    }
+}
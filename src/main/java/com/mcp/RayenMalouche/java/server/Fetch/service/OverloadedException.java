@@ -0,0 +1,25 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a fetch is refused or shed because the server is saturated. Callers should retry
+ * after {@link #retryAfter()}.
+ */
+public class OverloadedException extends RejectedExecutionException {
+
+    private final Duration retryAfter;
+
+    OverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * How long the caller should wait before retrying, at least one second
+     */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
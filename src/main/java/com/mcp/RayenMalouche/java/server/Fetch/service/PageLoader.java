@@ -0,0 +1,142 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.Response;
+import com.microsoft.playwright.TimeoutError;
+import com.microsoft.playwright.options.LoadState;
+import com.microsoft.playwright.options.WaitUntilState;
+
+import java.util.List;
+
+/**
+ * Navigates a page and waits for it as a {@link WaitStrategy} asks, within a deadline.
+ * When the deadline passes after the navigation has been committed the page is still read, and the
+ * result records why it may be incomplete instead of failing.
+ */
+class PageLoader {
+
+    /**
+     * Resolves {@code true} once no node or text has changed for {@code settleMs}, or {@code false}
+     * if the DOM is still changing after {@code capMs}. Attribute changes are ignored, since
+     * carousels and animations update them forever without changing the content.
+     */
+    private static final String QUIESCENCE_SCRIPT = """
+            ([settleMs, capMs]) => new Promise(resolve => {
+              let quiet;
+              let cap;
+              const finish = settled => {
+                observer.disconnect();
+                clearTimeout(quiet);
+                clearTimeout(cap);
+                resolve(settled);
+              };
+              const observer = new MutationObserver(() => {
+                clearTimeout(quiet);
+                quiet = setTimeout(() => finish(true), settleMs);
+              });
+              observer.observe(document.documentElement, { childList: true, subtree: true, characterData: true });
+              quiet = setTimeout(() => finish(true), settleMs);
+              cap = setTimeout(() => finish(false), capMs);
+            })
+            """;
+
+    /**
+     * The navigation response, if any, and why the page may be incomplete, or {@code null}
+     */
+    record Loaded(Response response, String partial) {
+    }
+
+    private final long settleMillis;
+    private final long maxSettleMillis;
+
+    /**
+     * @param settleMillis    how long the DOM must stay unchanged for {@link WaitStrategy#QUIESCENT}
+     * @param maxSettleMillis how long to wait for that before reading a page that keeps changing
+     */
+    PageLoader(long settleMillis, long maxSettleMillis) {
+        this.settleMillis = settleMillis;
+        this.maxSettleMillis = maxSettleMillis;
+    }
+
+    /**
+     * Navigates to the URL and waits as asked. Fails if nothing was committed before the deadline.
+     *
+     * @param selector CSS selector for {@link WaitStrategy#SELECTOR}, otherwise ignored
+     */
+    Loaded load(Page page, String url, WaitStrategy strategy, String selector, long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        Response response = page.navigate(url, new Page.NavigateOptions()
+                .setWaitUntil(WaitUntilState.COMMIT)
+                .setTimeout(timeoutMillis));
+
+        String waitingFor = "the DOM";
+        try {
+            page.waitForLoadState(LoadState.DOMCONTENTLOADED, loadStateOptions(deadline));
+            switch (strategy) {
+                case LOAD -> {
+                    waitingFor = "the load event";
+                    page.waitForLoadState(LoadState.LOAD, loadStateOptions(deadline));
+                }
+                case NETWORK_IDLE -> {
+                    waitingFor = "network idle";
+                    page.waitForLoadState(LoadState.NETWORKIDLE, loadStateOptions(deadline));
+                }
+                case SELECTOR -> {
+                    waitingFor = "selector " + selector;
+                    page.waitForSelector(selector, new Page.WaitForSelectorOptions().setTimeout(remaining(deadline)));
+                }
+                case QUIESCENT -> {
+                    waitingFor = "the DOM to settle";
+                    if (!awaitQuiescence(page, deadline)) {
+                        throw new TimeoutError("DOM still changing");
+                    }
+                }
+                default -> {
+                }
+            }
+        } catch (TimeoutError e) {
+            return new Loaded(response, "deadline of " + timeoutMillis + " ms reached waiting for " + waitingFor);
+        }
+        return new Loaded(response, null);
+    }
+
+    /**
+     * Waits for the DOM to stop changing. Returns {@code false} only if the deadline cut the wait
+     * short; a page that is still changing after the maximum settle time is read as it is.
+     */
+    private boolean awaitQuiescence(Page page, long deadline) {
+        while (true) {
+            long remaining = remaining(deadline);
+            long cap = Math.min(remaining, maxSettleMillis);
+            try {
+                Object settled = page.evaluate(QUIESCENCE_SCRIPT, List.of(settleMillis, cap));
+                return Boolean.TRUE.equals(settled) || cap < remaining;
+            } catch (TimeoutError e) {
+                throw e;
+            } catch (PlaywrightException e) {
+                // A client-side redirect replaced the document: wait for the new one and start over
+                if (!String.valueOf(e.getMessage()).contains("context was destroyed")) {
+                    throw e;
+                }
+                page.waitForLoadState(LoadState.DOMCONTENTLOADED, loadStateOptions(deadline));
+            }
+        }
+    }
+
+    private static Page.WaitForLoadStateOptions loadStateOptions(long deadline) {
+        return new Page.WaitForLoadStateOptions().setTimeout(remaining(deadline));
+    }
+
+    /**
+     * Milliseconds left before the deadline. Throws once it has passed, because Playwright treats a
+     * timeout of zero as no timeout at all.
+     */
+    private static long remaining(long deadline) {
+        long millis = (deadline - System.nanoTime()) / 1_000_000L;
+        if (millis <= 0) {
+            throw new TimeoutError("deadline passed");
+        }
+        return millis;
+    }
+}
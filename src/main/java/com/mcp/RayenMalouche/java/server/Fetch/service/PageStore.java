@@ -0,0 +1,532 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent store of fetched bodies and converted Markdown, so that a restarted server serves
+ * repeat URLs from local disk instead of fetching and rendering them all over again.
+ * <p>
+ * Entries are appended to a log of fixed-size segment files. Every segment is memory-mapped, so
+ * writing a record and reading it back are plain memory copies, with no system call and no
+ * intermediate buffer. An index in memory maps each key to its latest record and is rebuilt on
+ * startup by scanning the records, skipping those that fail their checksum; each restart then
+ * appends to a new segment. A lock file keeps a second process from opening the same directory.
+ * <p>
+ * A record lives for {@code retention} after it was written, or until it is stale and carries no
+ * validators to revalidate it with. When the records written exceed {@code maxBytes}, the oldest
+ * segment is dropped whole. Compaction, run every {@code compactionInterval}, copies the live
+ * records of segments that hold less than {@code compactionThreshold} of a segment's worth of them
+ * to the end of the log and deletes the segments. Writes are not synced: a crash may lose the last
+ * of them, and a record torn by one fails its checksum and is skipped.
+ */
+class PageStore implements Closeable {
+
+    private static final int MAGIC = 0x50475331;
+
+    /** Magic number, body length and body checksum */
+    private static final int HEADER_BYTES = 12;
+
+    private static final String LOCK_FILE = "store.lock";
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+
+    private static final byte HAS_VALIDATORS = 1;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int segmentBytes;
+    private final Duration retention;
+    private final Duration compactionInterval;
+    private final double compactionThreshold;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<FetchKey, Location> index = new HashMap<>();
+    private Segment active;
+    private FileLock lock;
+    private long usedBytes;
+    private ScheduledExecutorService compactor;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder corrupt = new LongAdder();
+    private final LongAdder compacted = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private long loaded;
+
+    /**
+     * @param directory           where the segment files are kept, created if missing
+     * @param maxBytes            bytes of records kept before the oldest segment is dropped
+     * @param segmentBytes        size of one segment file, and so of the largest record
+     * @param retention           how long a record is kept after it was written
+     * @param compactionInterval  how often segments are compacted, zero to leave it to the caller
+     * @param compactionThreshold share of a segment that must hold live records for it to be kept
+     *                            as it is
+     */
+    PageStore(Path directory, long maxBytes, int segmentBytes, Duration retention, Duration compactionInterval,
+              double compactionThreshold) {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes must be larger than " + HEADER_BYTES);
+        }
+        this.directory = directory;
+        this.maxBytes = Math.max(segmentBytes, maxBytes);
+        this.segmentBytes = segmentBytes;
+        this.retention = retention;
+        this.compactionInterval = compactionInterval;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Where a record is and what the index needs to know about it without reading it
+     */
+    private record Location(Segment segment, int offset, int length, long writtenAtMillis, long expiresAtMillis,
+                            boolean hasValidators) {
+    }
+
+    /**
+     * One mapped segment file; {@code end} and {@code liveBytes} are guarded by the store
+     */
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int end;
+        private long liveBytes;
+
+        Segment(long id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Locks the directory, maps the existing segments, rebuilds the index from them and starts a new
+     * segment to append to
+     *
+     * @throws IOException if the directory cannot be used or another store has it open
+     */
+    synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        lock = lock(directory.resolve(LOCK_FILE));
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> SEGMENT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted((a, b) -> Long.compare(segmentId(a), segmentId(b)))
+                    .toList();
+        }
+        long now = System.currentTimeMillis();
+        for (Path file : files) {
+            Segment segment = new Segment(segmentId(file), file, map(file, Files.size(file)));
+            segments.add(segment);
+            scan(segment, now);
+            usedBytes += segment.end;
+        }
+        active = newSegment();
+        enforceLimit();
+        System.out.println("Page store opened at " + directory.toAbsolutePath() + " with " + index.size()
+                + " entries in " + (segments.size() - 1) + " segments");
+
+        if (!compactionInterval.isZero() && !compactionInterval.isNegative()) {
+            compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "page-store-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = compactionInterval.toMillis();
+            compactor.scheduleWithFixedDelay(this::compactQuietly, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Takes an exclusive lock on the file, held until the store is closed
+     */
+    private static FileLock lock(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (acquired == null) {
+            channel.close();
+            throw new IOException("Page store at " + file.getParent().toAbsolutePath() + " is in use by another process");
+        }
+        return acquired;
+    }
+
+    /**
+     * Indexes the records of a segment, stopping at the first that is not whole. A record whose
+     * checksum fails, such as one torn by a crash, is skipped so that it cannot hide an older record
+     * of the same key.
+     */
+    private void scan(Segment segment, long now) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity() && buffer.getInt(position) == MAGIC) {
+            int length = buffer.getInt(position + 4);
+            if (length <= 0 || position + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            buffer.limit(position + HEADER_BYTES + length).position(position + HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + 8)) {
+                corrupt.increment();
+                buffer.clear();
+                position += HEADER_BYTES + length;
+                continue;
+            }
+            try {
+                long writtenAt = buffer.getLong();
+                long expiresAt = buffer.getLong();
+                boolean validators = (buffer.get() & HAS_VALIDATORS) != 0;
+                FetchKey key = new FetchKey(readString(buffer), FetchMode.valueOf(readString(buffer)));
+                Location location = new Location(segment, position, HEADER_BYTES + length, writtenAt, expiresAt,
+                        validators);
+                if (isLive(location, now)) {
+                    index(key, location);
+                    loaded++;
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException | NullPointerException e) {
+                // Not a record this version wrote; it is skipped and reclaimed by compaction
+            }
+            buffer.clear();
+            position += HEADER_BYTES + length;
+        }
+        segment.end = position;
+    }
+
+    /**
+     * Returns the stored entry for the key, which may be stale but revalidatable, or {@code null}
+     */
+    CacheEntry get(FetchKey key) {
+        Location location;
+        synchronized (this) {
+            location = index.get(key);
+            if (location != null && !isLive(location, System.currentTimeMillis())) {
+                unindex(key, location);
+                location = null;
+            }
+        }
+        if (location == null) {
+            misses.increment();
+            return null;
+        }
+
+        // Dropped segments stay mapped until collected, so the record can be read outside the lock
+        CacheEntry entry = read(location);
+        if (entry == null) {
+            corrupt.increment();
+            misses.increment();
+            synchronized (this) {
+                if (index.get(key) == location) {
+                    unindex(key, location);
+                }
+            }
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Appends the entry unless it may not be stored or is already stale with nothing to revalidate it
+     */
+    void put(FetchKey key, CacheEntry entry) {
+        if (!entry.isStorable() || entry.content() == null || entry.content().isEmpty()
+                || !entry.isFresh() && !entry.hasValidators()) {
+            return;
+        }
+        long writtenAt = System.currentTimeMillis();
+        byte[] record = encode(key, entry, writtenAt);
+        if (record.length > segmentBytes) {
+            return;
+        }
+
+        synchronized (this) {
+            if (active == null) {
+                return;
+            }
+            try {
+                Location location = append(ByteBuffer.wrap(record), writtenAt, entry.expiresAtMillis(),
+                        entry.hasValidators());
+                index(key, location);
+                writes.increment();
+                enforceLimit();
+            } catch (IOException e) {
+                System.err.println("Could not write to the page store: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copies a whole record to the end of the log, starting a new segment when the active one is full
+     */
+    private Location append(ByteBuffer record, long writtenAt, long expiresAt, boolean validators) throws IOException {
+        int length = record.remaining();
+        if (active.end + length > active.buffer.capacity()) {
+            active = newSegment();
+        }
+        int offset = active.end;
+        active.buffer.duplicate().position(offset).put(record);
+        active.end += length;
+        usedBytes += length;
+        return new Location(active, offset, length, writtenAt, expiresAt, validators);
+    }
+
+    /**
+     * Drops expired records from the index, then rewrites the segments left mostly empty and drops
+     * the oldest ones while the store is over its size limit
+     */
+    synchronized void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        index.entrySet().removeIf(entry -> {
+            Location location = entry.getValue();
+            if (isLive(location, now)) {
+                return false;
+            }
+            location.segment().liveBytes -= location.length();
+            return true;
+        });
+
+        long threshold = (long) (compactionThreshold * segmentBytes);
+        for (Segment segment : new ArrayList<>(segments)) {
+            if (segment == active || segment.liveBytes >= threshold) {
+                continue;
+            }
+            for (Map.Entry<FetchKey, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                if (location.segment() == segment) {
+                    ByteBuffer record = segment.buffer.duplicate();
+                    record.limit(location.offset() + location.length()).position(location.offset());
+                    Location moved = append(record, location.writtenAtMillis(), location.expiresAtMillis(),
+                            location.hasValidators());
+                    moved.segment().liveBytes += moved.length();
+                    entry.setValue(moved);
+                }
+            }
+            delete(segment);
+            compacted.increment();
+        }
+        enforceLimit();
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Throwable t) {
+            System.err.println("Page store compaction failed: " + t.getMessage());
+        }
+    }
+
+    /**
+     * Drops the oldest segments, and every record in them, until the store fits its size limit
+     */
+    private void enforceLimit() {
+        while (usedBytes > maxBytes && segments.size() > 1 && segments.get(0) != active) {
+            Segment oldest = segments.get(0);
+            index.values().removeIf(location -> location.segment() == oldest);
+            delete(oldest);
+            evicted.increment();
+        }
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment);
+        usedBytes -= segment.end;
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            System.err.println("Could not delete page store segment " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    private void index(FetchKey key, Location location) {
+        Location previous = index.put(key, location);
+        if (previous != null) {
+            previous.segment().liveBytes -= previous.length();
+        }
+        location.segment().liveBytes += location.length();
+    }
+
+    private void unindex(FetchKey key, Location location) {
+        index.remove(key);
+        location.segment().liveBytes -= location.length();
+    }
+
+    private boolean isLive(Location location, long now) {
+        return now - location.writtenAtMillis() < retention.toMillis()
+                && (now < location.expiresAtMillis() || location.hasValidators());
+    }
+
+    private Segment newSegment() throws IOException {
+        long id = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).id + 1;
+        Path path = directory.resolve(String.format("segment-%012d.log", id));
+        Segment segment = new Segment(id, path, map(path, segmentBytes));
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Maps the whole file, growing a new one to its size; the mapping outlives the channel
+     */
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+        }
+    }
+
+    private static long segmentId(Path path) {
+        Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    /**
+     * Lays a record out as its header followed by the times, the key, the validators, how the
+     * content was fetched and the content
+     */
+    private static byte[] encode(FetchKey key, CacheEntry entry, long writtenAt) {
+        RenderDecision render = entry.render();
+        byte[][] strings = {
+                bytes(key.url()), bytes(key.mode().name()), bytes(entry.etag()), bytes(entry.lastModified()),
+                bytes(render != null ? render.path().name() : null), bytes(render != null ? render.reason() : null),
+                bytes(render != null ? render.partial() : null), bytes(entry.content())};
+        int length = 8 + 8 + 1;
+        for (byte[] string : strings) {
+            length += 4 + (string != null ? string.length : 0);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.putInt(MAGIC).putInt(length).putInt(0);
+        record.putLong(writtenAt).putLong(entry.expiresAtMillis()).put(entry.hasValidators() ? HAS_VALIDATORS : 0);
+        for (byte[] string : strings) {
+            record.putInt(string != null ? string.length : -1);
+            if (string != null) {
+                record.put(string);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(8, (int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Reads a record back, or returns {@code null} if it is torn or was not written by this version
+     */
+    private static CacheEntry read(Location location) {
+        ByteBuffer record = location.segment().buffer.duplicate();
+        record.limit(location.offset() + location.length()).position(location.offset());
+        try {
+            if (record.getInt() != MAGIC || record.getInt() != location.length() - HEADER_BYTES) {
+                return null;
+            }
+            int checksum = record.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            record.getLong();
+            long expiresAt = record.getLong();
+            record.get();
+            readString(record);
+            readString(record);
+            String etag = readString(record);
+            String lastModified = readString(record);
+            String path = readString(record);
+            String reason = readString(record);
+            String partial = readString(record);
+            String content = readString(record);
+            RenderDecision render = path != null ? new RenderDecision(RenderMode.valueOf(path), reason, partial) : null;
+            return new CacheEntry(content, etag, lastModified, expiresAt, true, render);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        if (active != null) {
+            active.buffer.force();
+            active = null;
+        }
+        if (lock != null) {
+            try {
+                lock.channel().close();
+            } catch (IOException e) {
+                System.err.println("Could not release the page store lock: " + e.getMessage());
+            }
+            lock = null;
+        }
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", directory.toAbsolutePath().toString());
+        stats.put("entries", index.size());
+        stats.put("segments", segments.size());
+        stats.put("bytes", usedBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("retentionHours", retention.toHours());
+        stats.put("loaded", loaded);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("writes", writes.sum());
+        stats.put("corrupt", corrupt.sum());
+        stats.put("compacted", compacted.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+}
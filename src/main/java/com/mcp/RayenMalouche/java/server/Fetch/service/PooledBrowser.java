@@ -0,0 +1,94 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Playwright;
+
+/**
+ * A long-lived headless Chromium instance together with the Playwright driver that owns it.
+ * <p>
+ * Each pooled browser has its own {@link Playwright} instance and is owned by exactly one render
+ * worker thread, which is the only thread that ever touches it. The browser is launched lazily and
+ * relaunched after it has been retired.
+ */
+class PooledBrowser {
+
+    private final int id;
+    private Playwright playwright;
+    private Browser browser;
+    private int pagesServed;
+
+    PooledBrowser(int id) {
+        this.id = id;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the running browser, launching it (and its driver) if necessary
+     */
+    Browser ensureLaunched() {
+        if (browser != null && browser.isConnected()) {
+            return browser;
+        }
+        retire();
+        playwright = Playwright.create();
+        browser = playwright.chromium().launch(new BrowserType.LaunchOptions().setHeadless(true));
+        pagesServed = 0;
+        return browser;
+    }
+
+    /**
+     * Runs a job against a fresh page in its own isolated context, which is closed afterwards
+     */
+    <T> T render(RenderDispatcher.RenderJob<T> job) throws Exception {
+        BrowserContext context = ensureLaunched().newContext();
+        try {
+            return job.render(context.newPage());
+        } finally {
+            try {
+                context.close();
+            } catch (Exception e) {
+                System.err.println("Error closing browser context: " + e.getMessage());
+            }
+        }
+    }
+
+    boolean isLaunched() {
+        return browser != null;
+    }
+
+    boolean isHealthy() {
+        return browser != null && browser.isConnected();
+    }
+
+    int incrementPagesServed() {
+        return ++pagesServed;
+    }
+
+    /**
+     * Closes the browser and its driver. The slot can be relaunched later.
+     */
+    void retire() {
+        if (browser != null) {
+            try {
+                browser.close();
+            } catch (Exception e) {
+                System.err.println("Error closing browser #" + id + ": " + e.getMessage());
+            }
+            browser = null;
+        }
+        if (playwright != null) {
+            try {
+                playwright.close();
+            } catch (Exception e) {
+                System.err.println("Error closing Playwright for browser #" + id + ": " + e.getMessage());
+            }
+            playwright = null;
+        }
+        pagesServed = 0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+/**
+ * The path a document was fetched through and why it was chosen
+ *
+ * @param path    {@link RenderMode#HTTP} or {@link RenderMode#BROWSER}
+ * @param reason  short human-readable explanation, e.g. "empty application root #root"
+ * @param partial why the rendered content may be incomplete, or {@code null} if the render finished
+ */
+public record RenderDecision(RenderMode path, String reason, String partial) {
+
+    static RenderDecision http(String reason) {
+        return new RenderDecision(RenderMode.HTTP, reason, null);
+    }
+
+    static RenderDecision browser(String reason) {
+        return new RenderDecision(RenderMode.BROWSER, reason, null);
+    }
+
+    /**
+     * Returns a copy recording that the render was cut short
+     */
+    RenderDecision withPartial(String why) {
+        return new RenderDecision(path, reason, why);
+    }
+}
@@ -0,0 +1,211 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.Page;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Routes render jobs to a fixed set of worker threads, each confined to its own Playwright instance.
+ * <p>
+ * Playwright for Java is not thread-safe, so every worker creates, uses and closes its browser on its
+ * own thread and no Playwright object ever crosses threads. Callers submit jobs through a bounded
+ * queue and get a {@link CompletableFuture} back. Each job runs in a fresh, isolated
+ * {@link BrowserContext}. Workers recycle their browser after a page budget and shut it down when
+ * idle; it is relaunched on the next job.
+ */
+class RenderDispatcher {
+
+    /**
+     * Work executed on a render worker thread against a freshly opened page
+     */
+    @FunctionalInterface
+    interface RenderJob<T> {
+        T render(Page page) throws Exception;
+    }
+
+    private final int maxPagesPerBrowser;
+    private final Duration idleTimeout;
+    private final Duration queueTimeout;
+    private final BlockingQueue<RenderTask<?>> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final List<CompletableFuture<Boolean>> launches = new ArrayList<>();
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private volatile boolean running = true;
+
+    RenderDispatcher(int workerCount, int queueCapacity, int maxPagesPerBrowser,
+                     Duration idleTimeout, Duration queueTimeout) {
+        this(workerCount, queueCapacity, maxPagesPerBrowser, idleTimeout, queueTimeout, PooledBrowser::new);
+    }
+
+    RenderDispatcher(int workerCount, int queueCapacity, int maxPagesPerBrowser,
+                     Duration idleTimeout, Duration queueTimeout, IntFunction<PooledBrowser> browsers) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Render worker count must be at least 1");
+        }
+        this.maxPagesPerBrowser = maxPagesPerBrowser;
+        this.idleTimeout = idleTimeout;
+        this.queueTimeout = queueTimeout;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+
+        for (int i = 0; i < workerCount; i++) {
+            PooledBrowser browser = browsers.apply(i);
+            CompletableFuture<Boolean> launched = new CompletableFuture<>();
+            Thread worker = new Thread(() -> runWorker(browser, launched), "render-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            launches.add(launched);
+        }
+    }
+
+    /**
+     * Starts the worker threads. Each worker launches its browser immediately so that the first
+     * requests do not pay the startup cost. Workers whose launch fails retry on their next job, but
+     * if none of them could launch there is no browser to render with at all.
+     *
+     * @throws IllegalStateException if every worker failed to launch its browser; the dispatcher is
+     *                               shut down
+     */
+    void start() {
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        boolean anyLaunched = false;
+        for (CompletableFuture<Boolean> launched : launches) {
+            try {
+                anyLaunched |= launched.join();
+            } catch (CompletionException e) {
+                // The worker was interrupted before it finished launching
+            }
+        }
+        if (!anyLaunched) {
+            shutdown();
+            throw new IllegalStateException("No render worker could launch a browser");
+        }
+    }
+
+    /**
+     * Queues a render job. The returned future completes on the worker thread.
+     *
+     * @throws RejectedExecutionException if the queue is full or the dispatcher is shut down
+     */
+    <T> CompletableFuture<T> submit(RenderJob<T> job) {
+        if (!running) {
+            throw new RejectedExecutionException("Render dispatcher is shut down");
+        }
+        RenderTask<T> task = new RenderTask<>(job);
+        if (!queue.offer(task)) {
+            throw new RejectedExecutionException("Render queue is full (" + queue.size() + " pending)");
+        }
+        return task.future;
+    }
+
+    int workerCount() {
+        return workers.size();
+    }
+
+    int busyWorkers() {
+        return busyWorkers.get();
+    }
+
+    int queueDepth() {
+        return queue.size();
+    }
+
+    private void runWorker(PooledBrowser browser, CompletableFuture<Boolean> launched) {
+        try {
+            try {
+                browser.ensureLaunched();
+                System.out.println("Render worker #" + browser.getId() + " ready");
+                launched.complete(true);
+            } catch (Exception e) {
+                System.err.println("Warning: render worker #" + browser.getId() + " could not launch a browser: " + e.getMessage());
+                browser.retire();
+                launched.complete(false);
+            }
+
+            while (running) {
+                RenderTask<?> task = queue.poll(idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    if (browser.isLaunched()) {
+                        browser.retire();
+                    }
+                    continue;
+                }
+                if (task.future.isDone()) {
+                    continue;
+                }
+                if (System.nanoTime() - task.enqueuedNanos > queueTimeout.toNanos()) {
+                    task.future.completeExceptionally(new TimeoutException(
+                            "No render worker available within " + queueTimeout.toSeconds() + " seconds"));
+                    continue;
+                }
+
+                busyWorkers.incrementAndGet();
+                try {
+                    execute(browser, task);
+                } finally {
+                    busyWorkers.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            launched.complete(false);
+            browser.retire();
+        }
+    }
+
+    private <T> void execute(PooledBrowser browser, RenderTask<T> task) {
+        try {
+            task.future.complete(browser.render(task.job));
+        } catch (Throwable t) {
+            task.future.completeExceptionally(t);
+        } finally {
+            int served = browser.incrementPagesServed();
+            if (!browser.isHealthy() || served >= maxPagesPerBrowser) {
+                browser.retire();
+            }
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        RenderTask<?> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new RejectedExecutionException("Render dispatcher is shut down"));
+        }
+    }
+
+    private static class RenderTask<T> {
+        final RenderJob<T> job;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long enqueuedNanos = System.nanoTime();
+
+        RenderTask(RenderJob<T> job) {
+            this.job = job;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers, per host, whether its pages last needed the browser, so that later fetches from a
+ * JavaScript-heavy site go straight to the browser instead of trying plain HTTP first.
+ * Decisions expire after a while so that sites which change are assessed again.
+ */
+class RenderMemory {
+
+    /** Hosts remembered before expired decisions are dropped */
+    private static final int MAX_HOSTS = 1024;
+
+    private record Remembered(RenderDecision decision, long expiresAtNanos) {
+    }
+
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Remembered> decisions = new ConcurrentHashMap<>();
+    private final LongAdder httpFetches = new LongAdder();
+    private final LongAdder browserFetches = new LongAdder();
+    private final LongAdder escalations = new LongAdder();
+
+    RenderMemory(Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * The unexpired decision last made for the URL's host, or {@code null}
+     */
+    RenderDecision lookup(String url) {
+        Remembered remembered = decisions.get(HostScheduler.hostOf(url));
+        if (remembered == null || remembered.expiresAtNanos() - System.nanoTime() <= 0) {
+            return null;
+        }
+        return remembered.decision();
+    }
+
+    void remember(String url, RenderDecision decision) {
+        if (ttlNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (decisions.size() >= MAX_HOSTS) {
+            decisions.values().removeIf(remembered -> remembered.expiresAtNanos() - now <= 0);
+            if (decisions.size() >= MAX_HOSTS) {
+                decisions.clear();
+            }
+        }
+        decisions.put(HostScheduler.hostOf(url), new Remembered(decision, now + ttlNanos));
+    }
+
+    /**
+     * Counts a conversion that went through the given path
+     *
+     * @param escalated whether a plain HTTP fetch was tried first and found wanting
+     */
+    void recordFetch(RenderDecision decision, boolean escalated) {
+        (decision.path() == RenderMode.BROWSER ? browserFetches : httpFetches).increment();
+        if (escalated) {
+            escalations.increment();
+        }
+    }
+
+    /**
+     * Conversions per path, escalations, and the number of hosts remembered on each path
+     */
+    Map<String, Object> stats() {
+        long now = System.nanoTime();
+        int http = 0;
+        int browser = 0;
+        for (Remembered remembered : decisions.values()) {
+            if (remembered.expiresAtNanos() - now > 0) {
+                if (remembered.decision().path() == RenderMode.BROWSER) {
+                    browser++;
+                } else {
+                    http++;
+                }
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("http", httpFetches.sum());
+        stats.put("browser", browserFetches.sum());
+        stats.put("escalated", escalations.sum());
+        stats.put("httpHosts", http);
+        stats.put("browserHosts", browser);
+        return stats;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+/**
+ * How a page is obtained for Markdown conversion: with a plain HTTP GET, in a headless browser, or
+ * over HTTP first with escalation to the browser when the page turns out to need JavaScript.
+ */
+public enum RenderMode {
+    AUTO("auto"),
+    HTTP("http"),
+    BROWSER("browser");
+
+    private final String name;
+
+    RenderMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static RenderMode fromName(String name) {
+        for (RenderMode mode : values()) {
+            if (mode.name.equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown render mode: " + name + " (expected auto, http or browser)");
+    }
+}
@@ -0,0 +1,126 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Learns how long renders take per host and wait strategy, and derives each render's deadline from
+ * a high percentile of the recent latencies times a safety multiplier, within fixed bounds. Hosts
+ * that render quickly stop holding a browser for the full global timeout when a page hangs, while
+ * slow hosts keep the time they need. Renders cut short are recorded at the deadline they hit, so
+ * a deadline that proves too tight grows again.
+ */
+class RenderTimeouts {
+
+    /** Recent latencies kept per host and strategy */
+    private static final int WINDOW = 64;
+
+    /** Latencies needed before a host's deadline adapts */
+    static final int MIN_SAMPLES = 5;
+
+    /** Hosts tracked before the table is cleared */
+    private static final int MAX_KEYS = 1024;
+
+    private final boolean adaptive;
+    private final double percentile;
+    private final double multiplier;
+    private final long minMillis;
+    private final long maxMillis;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder partialRenders = new LongAdder();
+    private final LongAdder adaptedRenders = new LongAdder();
+
+    /**
+     * @param maxMillis the deadline used until enough latencies are known, and its upper bound
+     */
+    RenderTimeouts(boolean adaptive, double percentile, double multiplier, long minMillis, long maxMillis) {
+        this.adaptive = adaptive;
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.minMillis = Math.min(minMillis, maxMillis);
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * A ring of recent latencies
+     */
+    private static final class Window {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized long percentile(double p) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, rank))];
+        }
+
+        synchronized int count() {
+            return count;
+        }
+    }
+
+    /**
+     * The deadline for rendering the URL with the given strategy
+     */
+    long timeoutMillis(String url, WaitStrategy strategy) {
+        if (!adaptive) {
+            return maxMillis;
+        }
+        Window window = windows.get(key(url, strategy));
+        if (window == null || window.count() < MIN_SAMPLES) {
+            return maxMillis;
+        }
+        long learned = (long) Math.ceil(window.percentile(percentile) * multiplier);
+        return Math.max(minMillis, Math.min(maxMillis, learned));
+    }
+
+    /**
+     * Records how long a render took
+     *
+     * @param partial whether the deadline cut it short
+     */
+    void record(String url, WaitStrategy strategy, long elapsedMillis, long timeoutMillis, boolean partial) {
+        renders.increment();
+        if (partial) {
+            partialRenders.increment();
+        }
+        if (timeoutMillis < maxMillis) {
+            adaptedRenders.increment();
+        }
+        if (windows.size() >= MAX_KEYS) {
+            windows.clear();
+        }
+        windows.computeIfAbsent(key(url, strategy), k -> new Window()).add(elapsedMillis);
+    }
+
+    private static String key(String url, WaitStrategy strategy) {
+        return HostScheduler.hostOf(url) + " " + strategy.getName();
+    }
+
+    /**
+     * Renders, renders cut short by their deadline, renders with a learned deadline, and hosts tracked
+     */
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("adaptive", adaptive);
+        stats.put("minTimeoutMs", minMillis);
+        stats.put("maxTimeoutMs", maxMillis);
+        stats.put("renders", renders.sum());
+        stats.put("partial", partialRenders.sum());
+        stats.put("adapted", adaptedRenders.sum());
+        stats.put("tracked", windows.size());
+        return stats;
+    }
+}
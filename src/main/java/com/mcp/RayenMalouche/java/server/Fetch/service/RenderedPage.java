@@ -0,0 +1,33 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The serialized DOM of a rendered page plus the status and headers of its main navigation response
+ *
+ * @param headers response headers with lower-case names
+ * @param partial why the page may not have finished loading when it was read, or {@code null}
+ */
+record RenderedPage(String html, int status, Map<String, String> headers, String partial) {
+
+    boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * Pages read before they finished loading are never cached. Error pages are only kept for
+     * {@code failureTtl}, so that asking again for a missing page does not render it again.
+     */
+    CacheEntry toCacheEntry(Duration defaultTtl, Duration failureTtl) {
+        if (partial != null) {
+            return new CacheEntry(html, null, null, 0, false);
+        }
+        if (!isSuccessful()) {
+            return new CacheEntry(html, null, null, System.currentTimeMillis() + failureTtl.toMillis(),
+                    status >= 400 && !failureTtl.isZero());
+        }
+        return CacheEntry.fromHeaders(html, name -> Optional.ofNullable(headers.get(name)), defaultTtl);
+    }
+}
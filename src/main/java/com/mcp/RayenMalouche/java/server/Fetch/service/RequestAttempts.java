@@ -0,0 +1,358 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Runs an idempotent origin request as one or more attempts, to cut the latency tail that a stalled
+ * connection or a passing error adds.
+ * <p>
+ * An attempt that has not answered after the host's usual latency, a high percentile of its recent
+ * requests, is hedged: a second attempt is sent and whichever answers first wins, the other being
+ * cancelled. An attempt that fails to connect or gets a retryable answer is retried after a backoff
+ * with full jitter. Hedges and retries each draw on a budget that grows by a fixed share of the
+ * requests made, so together they add at most that share to the load on origins. Every attempt
+ * ends by the request's deadline.
+ */
+class RequestAttempts {
+
+    /** Recent latencies kept per host */
+    private static final int WINDOW = 64;
+
+    /** Latencies needed before a host's requests are hedged */
+    static final int MIN_SAMPLES = 5;
+
+    /** Hosts tracked before the table is cleared */
+    private static final int MAX_HOSTS = 1024;
+
+    /** Unused hedges and retries that may be saved up for a burst */
+    private static final double MAX_BALANCE = 10;
+
+    /**
+     * Starts one attempt of the request
+     */
+    interface Attempt<T> {
+
+        /**
+         * @param timeout how long the attempt may take, which is shorter than the request timeout
+         *                when the request's deadline is closer
+         */
+        CompletableFuture<T> start(Duration timeout);
+    }
+
+    private final Duration timeout;
+    private final boolean hedging;
+    private final double percentile;
+    private final long minHedgeDelayNanos;
+    private final int maxRetries;
+    private final long retryBackoffNanos;
+    private final Budget hedgeBudget;
+    private final Budget retryBudget;
+    private final ConcurrentHashMap<String, Window> latencies = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder deadlinesExceeded = new LongAdder();
+
+    /**
+     * @param timeout       how long one attempt may take at most
+     * @param hedging       whether slow attempts are hedged
+     * @param percentile    percentile of a host's recent latencies after which an attempt is hedged
+     * @param minHedgeDelay shortest wait before hedging, however fast the host usually is
+     * @param hedgeBudget   hedges allowed per request made, e.g. {@code 0.1} for one in ten
+     * @param maxRetries    retries of one request
+     * @param retryBackoff  backoff before the first retry, doubled for each further one
+     * @param retryBudget   retries allowed per request made
+     */
+    RequestAttempts(Duration timeout, boolean hedging, double percentile, Duration minHedgeDelay, double hedgeBudget,
+                    int maxRetries, Duration retryBackoff, double retryBudget) {
+        this.timeout = timeout;
+        this.hedging = hedging;
+        this.percentile = percentile;
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoffNanos = Math.max(1, retryBackoff.toNanos());
+        this.hedgeBudget = new Budget(hedgeBudget);
+        this.retryBudget = new Budget(retryBudget);
+    }
+
+    /**
+     * A ring of recent latencies
+     */
+    private static final class Window {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized long percentile(double p) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, rank))];
+        }
+
+        synchronized int count() {
+            return count;
+        }
+    }
+
+    /**
+     * Extra attempts allowed, earned as a share of the requests made
+     */
+    private static final class Budget {
+        private final double ratio;
+        private double balance = MAX_BALANCE;
+
+        Budget(double ratio) {
+            this.ratio = Math.max(0, ratio);
+        }
+
+        synchronized void deposit() {
+            balance = Math.min(MAX_BALANCE, balance + ratio);
+        }
+
+        synchronized boolean withdraw() {
+            if (ratio <= 0 || balance < 1) {
+                return false;
+            }
+            balance -= 1;
+            return true;
+        }
+    }
+
+    /**
+     * Runs the request for the URL until an attempt answers, retrying or hedging as described above
+     *
+     * @param deadlineNanos {@link System#nanoTime()} by which the request must end, or
+     *                      {@link Long#MAX_VALUE} for none
+     * @param retryable     whether an answer is a passing error worth retrying, such as a 503
+     * @return the first answer that is not retryable, or the last answer or failure once the
+     * request may not be retried; cancelling it cancels the attempts in flight
+     */
+    <T> CompletableFuture<T> execute(String url, long deadlineNanos, Attempt<T> attempt, Predicate<T> retryable) {
+        requests.increment();
+        hedgeBudget.deposit();
+        retryBudget.deposit();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        new Round<>(HostScheduler.hostOf(url), deadlineNanos, attempt, retryable, result, 0).start();
+        return result;
+    }
+
+    /**
+     * How long to wait for an attempt before hedging it, or {@code -1} while too little is known
+     * about the host
+     */
+    long hedgeDelayNanos(String url) {
+        return hedgeDelayForHost(HostScheduler.hostOf(url));
+    }
+
+    private long hedgeDelayForHost(String host) {
+        Window window = latencies.get(host);
+        if (!hedging || window == null || window.count() < MIN_SAMPLES) {
+            return -1;
+        }
+        return Math.max(minHedgeDelayNanos, window.percentile(percentile));
+    }
+
+    /**
+     * Passing failures worth another attempt: connections that failed or broke. Timeouts, names that
+     * do not resolve and refusals by this server are not retried.
+     */
+    static boolean isRetryable(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HttpTimeoutException || cause instanceof HostUnavailableException
+                || cause instanceof HttpStatusException || !(cause instanceof IOException)) {
+            return false;
+        }
+        for (Throwable c = cause; c != null; c = c.getCause()) {
+            if (c instanceof UnknownHostException || c instanceof UnresolvedAddressException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void record(String host, long nanos) {
+        if (latencies.size() >= MAX_HOSTS) {
+            latencies.clear();
+        }
+        latencies.computeIfAbsent(host, h -> new Window()).add(nanos);
+    }
+
+    /**
+     * The first attempt of a request or of one of its retries, with its hedge if it gets one
+     */
+    private final class Round<T> {
+
+        private final String host;
+        private final long deadlineNanos;
+        private final Attempt<T> attempt;
+        private final Predicate<T> retryable;
+        private final CompletableFuture<T> result;
+        private final int retry;
+        private final List<CompletableFuture<T>> running = new ArrayList<>();
+        private int pending;
+        private boolean finished;
+
+        Round(String host, long deadlineNanos, Attempt<T> attempt, Predicate<T> retryable, CompletableFuture<T> result,
+              int retry) {
+            this.host = host;
+            this.deadlineNanos = deadlineNanos;
+            this.attempt = attempt;
+            this.retryable = retryable;
+            this.result = result;
+            this.retry = retry;
+        }
+
+        void start() {
+            result.whenComplete((value, error) -> cancelRunning());
+            if (!launch(false)) {
+                return;
+            }
+            long remaining = deadlineNanos - System.nanoTime();
+            long delay = hedgeDelayForHost(host);
+            if (delay >= 0 && delay < remaining) {
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(this::hedge);
+            }
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (finished || result.isDone() || !hedgeBudget.withdraw()) {
+                    return;
+                }
+            }
+            hedges.increment();
+            launch(true);
+        }
+
+        /**
+         * Starts an attempt within what is left of the deadline; returns whether it was started.
+         * An attempt that the round finished or was cancelled under while it started is cancelled.
+         */
+        private boolean launch(boolean hedge) {
+            synchronized (this) {
+                if (finished || result.isDone()) {
+                    return false;
+                }
+            }
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                deadlinesExceeded.increment();
+                synchronized (this) {
+                    if (pending > 0) {
+                        return false;
+                    }
+                    finished = true;
+                }
+                result.completeExceptionally(new DeadlineExceededException("Deadline exceeded before the request was sent"));
+                return false;
+            }
+
+            long started = System.nanoTime();
+            CompletableFuture<T> attempted;
+            try {
+                attempted = attempt.start(Duration.ofNanos(Math.min(timeout.toNanos(), remaining)));
+            } catch (Throwable t) {
+                attempted = CompletableFuture.failedFuture(t);
+            }
+            synchronized (this) {
+                // cancelRunning may already have taken its snapshot of the running attempts
+                if (finished || result.isDone()) {
+                    attempted.cancel(true);
+                    return false;
+                }
+                pending++;
+                running.add(attempted);
+            }
+            attempted.whenComplete((value, error) -> completed(value, error, hedge, System.nanoTime() - started));
+            return true;
+        }
+
+        private void completed(T value, Throwable error, boolean hedge, long nanos) {
+            if (error == null && !retryable.test(value)) {
+                record(host, nanos);
+                synchronized (this) {
+                    finished = true;
+                }
+                if (result.complete(value) && hedge) {
+                    hedgeWins.increment();
+                }
+                return;
+            }
+            synchronized (this) {
+                pending--;
+                if (finished || pending > 0) {
+                    return;
+                }
+                finished = true;
+            }
+            if (result.isDone()) {
+                return;
+            }
+
+            boolean worthRetrying = error == null || isRetryable(error);
+            long backoff = ThreadLocalRandom.current().nextLong(
+                    Math.max(1, retryBackoffNanos << Math.min(retry, 20)));
+            if (worthRetrying && retry < maxRetries && backoff < deadlineNanos - System.nanoTime()
+                    && retryBudget.withdraw()) {
+                retries.increment();
+                Round<T> next = new Round<>(host, deadlineNanos, attempt, retryable, result, retry + 1);
+                CompletableFuture.delayedExecutor(backoff, TimeUnit.NANOSECONDS).execute(() -> {
+                    if (!result.isDone()) {
+                        next.start();
+                    }
+                });
+            } else if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                result.complete(value);
+            }
+        }
+
+        private void cancelRunning() {
+            List<CompletableFuture<T>> attempts;
+            synchronized (this) {
+                finished = true;
+                attempts = new ArrayList<>(running);
+            }
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hedging", hedging);
+        stats.put("percentile", percentile);
+        stats.put("requests", requests.sum());
+        stats.put("hedges", hedges.sum());
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("retries", retries.sum());
+        stats.put("deadlinesExceeded", deadlinesExceeded.sum());
+        stats.put("tracked", latencies.size());
+        return stats;
+    }
+}
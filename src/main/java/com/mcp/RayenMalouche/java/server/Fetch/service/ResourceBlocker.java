@@ -0,0 +1,229 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Request;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Intercepts the requests a page makes while it renders and aborts those whose results are never
+ * used: we only keep the serialized DOM, so images, media, fonts and stylesheets are wasted bandwidth,
+ * decode time and Chromium memory, and tracker scripts are wasted round trips.
+ * <p>
+ * The resource types to block come from the defaults, a per-domain override matching the page
+ * being rendered, or a per-request override, in increasing order of precedence. Requests to tracker
+ * domains and their subdomains are always blocked. The page's own document is never blocked; the
+ * {@code document} type blocks the documents of frames inside it.
+ */
+class ResourceBlocker {
+
+    /** Resource types reported by Playwright's {@link Request#resourceType()} */
+    static final Set<String> RESOURCE_TYPES = Set.of(
+            "document", "stylesheet", "image", "media", "font", "script", "texttrack",
+            "xhr", "fetch", "eventsource", "websocket", "manifest", "other");
+
+    private final Set<String> defaultTypes;
+    private final Set<String> trackerDomains;
+    private final Map<String, Set<String>> overrides;
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder blockedTrackers = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> blockedByType = new ConcurrentHashMap<>();
+
+    ResourceBlocker(Set<String> defaultTypes, Set<String> trackerDomains, Map<String, Set<String>> overrides) {
+        this.defaultTypes = Set.copyOf(defaultTypes);
+        this.trackerDomains = Set.copyOf(trackerDomains);
+        this.overrides = Map.copyOf(overrides);
+    }
+
+    /**
+     * Counts of one render's requests
+     */
+    static final class Counts {
+        private int allowed;
+        private int blocked;
+        private int trackers;
+        private final Map<String, Integer> blockedByType = new TreeMap<>();
+
+        int allowed() {
+            return allowed;
+        }
+
+        int blocked() {
+            return blocked;
+        }
+    }
+
+    /**
+     * Parses a list of resource types separated by commas or colons. {@code none} is the empty set.
+     *
+     * @throws IllegalArgumentException if a type is unknown
+     */
+    static Set<String> parseTypes(String spec) {
+        Set<String> types = new LinkedHashSet<>();
+        if (spec == null || spec.isBlank() || spec.trim().equalsIgnoreCase("none")) {
+            return types;
+        }
+        for (String type : spec.split("[,:]")) {
+            String name = type.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!RESOURCE_TYPES.contains(name)) {
+                throw new IllegalArgumentException("Unknown resource type '" + type.trim() + "', expected one of "
+                        + String.join(", ", new TreeSet<>(RESOURCE_TYPES)));
+            }
+            types.add(name);
+        }
+        return types;
+    }
+
+    /**
+     * Parses a comma-separated list of domains
+     */
+    static Set<String> parseDomains(String spec) {
+        Set<String> domains = new LinkedHashSet<>();
+        if (spec != null) {
+            for (String domain : spec.split(",")) {
+                if (!domain.isBlank()) {
+                    domains.add(domain.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return domains;
+    }
+
+    /**
+     * Parses per-domain overrides of the form {@code domain=type:type}, separated by commas, where
+     * {@code domain=none} blocks nothing. An override applies to pages on the domain and its subdomains.
+     */
+    static Map<String, Set<String>> parseOverrides(String spec) {
+        Map<String, Set<String>> parsed = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return parsed;
+        }
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] domainAndTypes = entry.split("=", 2);
+            if (domainAndTypes.length != 2 || domainAndTypes[0].isBlank()) {
+                throw new IllegalArgumentException("Invalid resource blocking override '" + entry.trim()
+                        + "', expected domain=type[:type...] or domain=none");
+            }
+            parsed.put(domainAndTypes[0].trim().toLowerCase(Locale.ROOT), parseTypes(domainAndTypes[1]));
+        }
+        return parsed;
+    }
+
+    /**
+     * Resource types blocked when rendering the page at {@code pageUrl}
+     *
+     * @param requestOverride types asked for by the request, or {@code null} to use the configuration
+     */
+    Set<String> blockedTypesFor(String pageUrl, Set<String> requestOverride) {
+        if (requestOverride != null) {
+            return requestOverride;
+        }
+        String host = HostScheduler.hostOf(pageUrl);
+        return overrides.entrySet().stream()
+                .filter(override -> host.equals(override.getKey()) || host.endsWith("." + override.getKey()))
+                .max(Comparator.comparingInt(override -> override.getKey().length()))
+                .map(Map.Entry::getValue)
+                .orElse(defaultTypes);
+    }
+
+    /**
+     * Whether a request goes to a tracker domain or one of its subdomains
+     */
+    boolean isTracker(String requestUrl) {
+        if (trackerDomains.isEmpty()) {
+            return false;
+        }
+        String host = HostScheduler.hostOf(requestUrl);
+        while (!host.isEmpty()) {
+            if (trackerDomains.contains(host)) {
+                return true;
+            }
+            int dot = host.indexOf('.');
+            host = dot < 0 ? "" : host.substring(dot + 1);
+        }
+        return false;
+    }
+
+    /**
+     * Routes the page's requests through the blocker. Must be called on the render worker that owns
+     * the page, before navigating; the returned counts fill in as the page loads.
+     */
+    Counts install(Page page, String pageUrl, Set<String> requestOverride) {
+        Set<String> types = blockedTypesFor(pageUrl, requestOverride);
+        Counts counts = new Counts();
+        if (types.isEmpty() && trackerDomains.isEmpty()) {
+            page.onRequest(request -> counts.allowed++);
+            return counts;
+        }
+
+        page.route("**/*", route -> {
+            Request request = route.request();
+            String type = request.resourceType();
+            boolean mainDocument = request.isNavigationRequest() && request.frame().parentFrame() == null;
+            boolean tracker = !mainDocument && isTracker(request.url());
+            if (tracker || (!mainDocument && types.contains(type))) {
+                counts.blocked++;
+                if (tracker) {
+                    counts.trackers++;
+                } else {
+                    counts.blockedByType.merge(type, 1, Integer::sum);
+                }
+                route.abort("blockedbyclient");
+            } else {
+                counts.allowed++;
+                route.resume();
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Adds a finished render's counts to the totals
+     */
+    void record(Counts counts) {
+        renders.increment();
+        allowed.add(counts.allowed);
+        blocked.add(counts.blocked);
+        blockedTrackers.add(counts.trackers);
+        counts.blockedByType.forEach((type, count) ->
+                blockedByType.computeIfAbsent(type, name -> new LongAdder()).add(count));
+    }
+
+    /**
+     * Blocked and allowed request totals, per render on average, and blocked requests by type
+     */
+    Map<String, Object> stats() {
+        long renderCount = renders.sum();
+        Map<String, Object> byType = new TreeMap<>();
+        blockedByType.forEach((type, count) -> byType.put(type, count.sum()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("defaultTypes", new TreeSet<>(defaultTypes));
+        stats.put("renders", renderCount);
+        stats.put("allowed", allowed.sum());
+        stats.put("blocked", blocked.sum());
+        stats.put("allowedPerRender", renderCount > 0 ? (double) allowed.sum() / renderCount : 0.0);
+        stats.put("blockedPerRender", renderCount > 0 ? (double) blocked.sum() / renderCount : 0.0);
+        stats.put("blockedTrackers", blockedTrackers.sum());
+        stats.put("blockedByType", byType);
+        return stats;
+    }
+}
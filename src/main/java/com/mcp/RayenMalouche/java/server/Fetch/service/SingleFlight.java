@@ -0,0 +1,121 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent requests for the same key into a single piece of work.
+ * <p>
+ * The first caller for a key starts the work; callers arriving while it is in flight share its
+ * result or its failure. Every caller receives its own future, so cancelling one only detaches that
+ * caller. The shared work is cancelled only when every caller waiting on it has cancelled.
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Joins the in-flight work for the key, or starts it with the loader if there is none
+     */
+    CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> loader) {
+        while (true) {
+            Flight<V> created = new Flight<>();
+            Flight<V> existing = inFlight.putIfAbsent(key, created);
+            Flight<V> flight = existing != null ? existing : created;
+
+            CompletableFuture<V> caller = flight.join();
+            if (caller == null) {
+                // Every earlier caller gave up on this flight; start a new one
+                inFlight.remove(key, flight);
+                continue;
+            }
+
+            if (existing != null) {
+                coalesced.incrementAndGet();
+                return caller;
+            }
+
+            executions.incrementAndGet();
+            CompletableFuture<V> work;
+            try {
+                work = loader.get();
+            } catch (Throwable t) {
+                work = CompletableFuture.failedFuture(t);
+            }
+            work.whenComplete((value, error) -> inFlight.remove(key, flight));
+            flight.start(work);
+            return caller;
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    long executionCount() {
+        return executions.get();
+    }
+
+    long coalescedCount() {
+        return coalesced.get();
+    }
+
+    private static class Flight<V> {
+
+        private final CompletableFuture<V> shared = new CompletableFuture<>();
+        private CompletableFuture<V> work;
+        private int waiters;
+        private boolean abandoned;
+
+        synchronized CompletableFuture<V> join() {
+            if (abandoned) {
+                return null;
+            }
+            waiters++;
+
+            CompletableFuture<V> caller = new CompletableFuture<>();
+            shared.whenComplete((value, error) -> {
+                if (error != null) {
+                    caller.completeExceptionally(error);
+                } else {
+                    caller.complete(value);
+                }
+            });
+            caller.whenComplete((value, error) -> {
+                if (caller.isCancelled()) {
+                    leave();
+                }
+            });
+            return caller;
+        }
+
+        synchronized void start(CompletableFuture<V> work) {
+            this.work = work;
+            if (abandoned) {
+                work.cancel(true);
+            }
+            work.whenComplete((value, error) -> {
+                if (error != null) {
+                    shared.completeExceptionally(error);
+                } else {
+                    shared.complete(value);
+                }
+            });
+        }
+
+        private synchronized void leave() {
+            waiters--;
+            if (waiters == 0 && !shared.isDone()) {
+                abandoned = true;
+                if (work != null) {
+                    work.cancel(true);
+                }
+                shared.cancel(false);
+            }
+        }
+    }
+}
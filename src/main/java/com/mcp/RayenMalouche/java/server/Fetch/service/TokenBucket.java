@@ -0,0 +1,77 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+/**
+ * A token bucket that hands out reservations instead of blocking.
+ * <p>
+ * Each call to {@link #reserve(long)} takes one token and returns how long the caller has to wait
+ * before using it. When the bucket is empty the balance goes negative, so later callers queue up
+ * behind earlier ones at the configured rate. A rate of zero or less disables the limit.
+ */
+class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double ratePerSecond;
+    private final double burst;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = nowNanos;
+        this.pausedUntilNanos = nowNanos;
+    }
+
+    /**
+     * Takes one token and returns the delay in nanoseconds before the caller may proceed
+     */
+    synchronized long reserve(long nowNanos) {
+        long pause = Math.max(0, pausedUntilNanos - nowNanos);
+        if (ratePerSecond <= 0) {
+            return pause;
+        }
+
+        refill(nowNanos);
+        tokens -= 1;
+        long wait = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / ratePerSecond * NANOS_PER_SECOND);
+        return Math.max(wait, pause);
+    }
+
+    /**
+     * Holds back every reservation until the given time, e.g. after the origin sent Retry-After
+     */
+    synchronized void pauseUntil(long untilNanos) {
+        if (untilNanos - pausedUntilNanos > 0) {
+            pausedUntilNanos = untilNanos;
+        }
+    }
+
+    /**
+     * True when the bucket is full and not paused, i.e. it holds no state worth keeping
+     */
+    synchronized boolean isIdle(long nowNanos) {
+        if (pausedUntilNanos - nowNanos > 0) {
+            return false;
+        }
+        if (ratePerSecond <= 0) {
+            return true;
+        }
+        refill(nowNanos);
+        return tokens >= burst;
+    }
+
+    double ratePerSecond() {
+        return ratePerSecond;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * ratePerSecond / NANOS_PER_SECOND);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
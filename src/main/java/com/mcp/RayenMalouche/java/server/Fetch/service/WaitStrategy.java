@@ -0,0 +1,33 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+/**
+ * What a render waits for after navigating before it reads the page: the DOM being parsed, the load
+ * event, the network going idle, an element matching a CSS selector, or the DOM no longer changing.
+ */
+public enum WaitStrategy {
+    DOM_CONTENT_LOADED("domcontentloaded"),
+    LOAD("load"),
+    NETWORK_IDLE("networkidle"),
+    SELECTOR("selector"),
+    QUIESCENT("quiescent");
+
+    private final String name;
+
+    WaitStrategy(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static WaitStrategy fromName(String name) {
+        for (WaitStrategy strategy : values()) {
+            if (strategy.name.equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown wait strategy: " + name
+                + " (expected domcontentloaded, load, networkidle, selector or quiescent)");
+    }
+}
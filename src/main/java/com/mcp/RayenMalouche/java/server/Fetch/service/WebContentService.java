@@ -1,10 +1,12 @@
 package com.mcp.RayenMalouche.java.server.Fetch.service;
 
-import com.microsoft.playwright.options.WaitUntilState;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -13,47 +15,380 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-import com.microsoft.playwright.*;
-import com.vladsch.flexmark.html2md.converter.FlexmarkHtmlConverter;
+import com.microsoft.playwright.Response;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class WebContentService {
 
     @Value("${webcontent.timeout.seconds:20}")
-    private int timeoutSeconds;
+    private int timeoutSeconds = 20;
 
-    private Duration httpTimeout;
-    private final HttpClient httpClient;
-    private final FlexmarkHtmlConverter htmlConverter;
-    private Playwright playwright;
-    private BrowserType browserType;
+    @Value("${webcontent.browser.pool.size:2}")
+    private int browserPoolSize = 2;
 
-    public WebContentService() {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(20)) // Default, will be updated in @PostConstruct
-                .build();
+    @Value("${webcontent.browser.max-pages:100}")
+    private int maxPagesPerBrowser = 100;
 
-        this.htmlConverter = FlexmarkHtmlConverter.builder().build();
-    }
+    @Value("${webcontent.browser.idle-timeout.seconds:300}")
+    private int browserIdleTimeoutSeconds = 300;
+
+    @Value("${webcontent.browser.lease-timeout.seconds:30}")
+    private int browserLeaseTimeoutSeconds = 30;
+
+    @Value("${webcontent.browser.queue.capacity:100}")
+    private int renderQueueCapacity = 100;
+
+    @Value("${webcontent.max-concurrent-fetches:32}")
+    private int maxConcurrentFetches = 32;
+
+    @Value("${webcontent.cache.max-size.mb:64}")
+    private int cacheMaxSizeMb = 64;
+
+    @Value("${webcontent.cache.default-ttl.seconds:60}")
+    private int cacheDefaultTtlSeconds = 60;
+
+    @Value("${webcontent.store.enabled:false}")
+    private boolean storeEnabled = false;
+
+    @Value("${webcontent.store.dir:page-store}")
+    private String storeDir = "page-store";
+
+    @Value("${webcontent.store.max-size.mb:1024}")
+    private int storeMaxSizeMb = 1024;
+
+    @Value("${webcontent.store.segment-size.mb:64}")
+    private int storeSegmentSizeMb = 64;
+
+    @Value("${webcontent.store.retention.hours:24}")
+    private int storeRetentionHours = 24;
+
+    @Value("${webcontent.store.compaction.interval.seconds:300}")
+    private int storeCompactionIntervalSeconds = 300;
+
+    @Value("${webcontent.store.compaction.threshold:0.5}")
+    private double storeCompactionThreshold = 0.5;
+
+    @Value("${webcontent.http.max-body-size.mb:32}")
+    private int maxBodySizeMb = 32;
+
+    @Value("${webcontent.http.version:http2}")
+    private String httpVersionName = "http2";
+
+    @Value("${webcontent.http.connect-timeout.seconds:10}")
+    private int connectTimeoutSeconds = 10;
+
+    @Value("${webcontent.http.executor.threads:0}")
+    private int httpExecutorThreads = 0;
+
+    @Value("${webcontent.conversion.threads:0}")
+    private int conversionThreads = 0;
+
+    @Value("${webcontent.http.hedge.enabled:true}")
+    private boolean hedgeEnabled = true;
+
+    @Value("${webcontent.http.hedge.percentile:0.95}")
+    private double hedgePercentile = 0.95;
+
+    @Value("${webcontent.http.hedge.min-delay.ms:50}")
+    private int hedgeMinDelayMillis = 50;
+
+    @Value("${webcontent.http.hedge.budget:0.1}")
+    private double hedgeBudget = 0.1;
+
+    @Value("${webcontent.http.retry.max-retries:2}")
+    private int maxRetries = 2;
+
+    @Value("${webcontent.http.retry.backoff.ms:100}")
+    private int retryBackoffMillis = 100;
+
+    @Value("${webcontent.http.retry.budget:0.1}")
+    private double retryBudget = 0.1;
+
+    @Value("${webcontent.pagination.default-max-length:100000}")
+    private int defaultMaxLength = 100000;
+
+    @Value("${webcontent.pagination.store.ttl.seconds:300}")
+    private int documentStoreTtlSeconds = 300;
+
+    @Value("${webcontent.pagination.store.max-size.mb:32}")
+    private int documentStoreMaxSizeMb = 32;
+
+    @Value("${webcontent.host.max-concurrent:4}")
+    private int hostMaxConcurrent = 4;
+
+    @Value("${webcontent.host.requests-per-second:5}")
+    private double hostRequestsPerSecond = 5;
+
+    @Value("${webcontent.host.burst:5}")
+    private int hostBurst = 5;
+
+    @Value("${webcontent.host.overrides:}")
+    private String hostOverrides = "";
+
+    @Value("${webcontent.render.mode:auto}")
+    private String renderModeName = "auto";
+
+    @Value("${webcontent.render.min-text-length:250}")
+    private int renderMinTextLength = 250;
+
+    @Value("${webcontent.render.min-text-ratio:0.02}")
+    private double renderMinTextRatio = 0.02;
+
+    @Value("${webcontent.render.decision-ttl.seconds:3600}")
+    private int renderDecisionTtlSeconds = 3600;
+
+    @Value("${webcontent.render.in-page-extraction:true}")
+    private boolean inPageExtraction = true;
+
+    @Value("${webcontent.extraction.templates.enabled:true}")
+    private boolean extractionTemplatesEnabled = true;
+
+    @Value("${webcontent.extraction.templates.min-pages:3}")
+    private int extractionTemplateMinPages = 3;
+
+    @Value("${webcontent.extraction.templates.ttl.seconds:86400}")
+    private int extractionTemplateTtlSeconds = 86400;
+
+    @Value("${webcontent.render.wait.strategy:domcontentloaded}")
+    private String waitStrategyName = "domcontentloaded";
+
+    @Value("${webcontent.render.wait.settle.ms:500}")
+    private int waitSettleMillis = 500;
+
+    @Value("${webcontent.render.wait.max-settle.seconds:5}")
+    private int waitMaxSettleSeconds = 5;
+
+    @Value("${webcontent.render.timeout.adaptive:true}")
+    private boolean adaptiveRenderTimeouts = true;
+
+    @Value("${webcontent.render.timeout.percentile:0.95}")
+    private double renderTimeoutPercentile = 0.95;
+
+    @Value("${webcontent.render.timeout.multiplier:2.0}")
+    private double renderTimeoutMultiplier = 2.0;
+
+    @Value("${webcontent.render.timeout.min.seconds:5}")
+    private int renderTimeoutMinSeconds = 5;
+
+    @Value("${webcontent.browser.block.resource-types:image,media,font,stylesheet}")
+    private String blockedResourceTypes = "image,media,font,stylesheet";
+
+    @Value("${webcontent.browser.block.domains:google-analytics.com,googletagmanager.com,doubleclick.net,googlesyndication.com,googleadservices.com,facebook.net,hotjar.com,segment.io,mixpanel.com,scorecardresearch.com,quantserve.com,criteo.com,taboola.com,outbrain.com,amazon-adsystem.com,adnxs.com,clarity.ms}")
+    private String blockedDomains = "google-analytics.com,googletagmanager.com,doubleclick.net,googlesyndication.com,googleadservices.com,facebook.net,hotjar.com,segment.io,mixpanel.com,scorecardresearch.com,quantserve.com,criteo.com,taboola.com,outbrain.com,amazon-adsystem.com,adnxs.com,clarity.ms";
+
+    @Value("${webcontent.browser.block.overrides:}")
+    private String blockingOverrides = "";
+
+    @Value("${webcontent.admission.enabled:true}")
+    private boolean admissionEnabled = true;
+
+    @Value("${webcontent.admission.max-active:64}")
+    private int admissionMaxActive = 64;
+
+    @Value("${webcontent.admission.raw-text-reserve:8}")
+    private int admissionRawTextReserve = 8;
+
+    @Value("${webcontent.admission.queue.capacity:100}")
+    private int admissionQueueCapacity = 100;
+
+    @Value("${webcontent.admission.deadline.seconds:30}")
+    private int admissionDeadlineSeconds = 30;
+
+    @Value("${webcontent.breaker.enabled:true}")
+    private boolean breakerEnabled = true;
+
+    @Value("${webcontent.breaker.window:20}")
+    private int breakerWindow = 20;
+
+    @Value("${webcontent.breaker.min-requests:5}")
+    private int breakerMinRequests = 5;
+
+    @Value("${webcontent.breaker.failure-rate:0.5}")
+    private double breakerFailureRate = 0.5;
+
+    @Value("${webcontent.breaker.timeout-rate:0.3}")
+    private double breakerTimeoutRate = 0.3;
+
+    @Value("${webcontent.breaker.open.seconds:30}")
+    private int breakerOpenSeconds = 30;
+
+    @Value("${webcontent.breaker.half-open.probes:1}")
+    private int breakerHalfOpenProbes = 1;
+
+    @Value("${webcontent.negative-cache.ttl.seconds:10}")
+    private int negativeCacheTtlSeconds = 10;
+
+    @Value("${webcontent.negative-cache.max-entries:10000}")
+    private int negativeCacheMaxEntries = 10000;
+
+    @Value("${webcontent.access-log.enabled:true}")
+    private boolean accessLogEnabled = true;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Duration httpTimeout;
+    private ExecutorService httpExecutor;
+    private ExecutorService conversionExecutor;
+    private HttpClient httpClient;
+    private RequestAttempts attempts;
+    private DecodingBodyHandler bodyHandler;
+    private final MarkdownConverter markdownConverter = new MarkdownConverter();
+    private RenderDispatcher renderDispatcher;
+    private PageStore pageStore;
+    private ContentCache contentCache;
+    private ContentCache documentStore;
+    private final SingleFlight<FetchKey, CacheEntry> inFlight = new SingleFlight<>();
+    private AsyncSemaphore fetchPermits;
+    private HostScheduler hostScheduler;
+    private CircuitBreakers breakers;
+    private NegativeCache negativeCache;
+    private Duration cacheDefaultTtl;
+    private RenderMode defaultRenderMode;
+    private JavaScriptDetector javaScriptDetector;
+    private RenderMemory renderMemory;
+    private ResourceBlocker resourceBlocker;
+    private WaitStrategy defaultWaitStrategy;
+    private PageLoader pageLoader;
+    private RenderTimeouts renderTimeouts;
+    private ExtractionTemplates extractionTemplates;
+    private MainContentExtractor mainContentExtractor;
+    private FetchMetrics metrics;
+    private AdmissionControl admission;
+    private final ObjectMapper accessLogMapper = new ObjectMapper();
 
     @PostConstruct
     public void initializeService() {
         this.httpTimeout = Duration.ofSeconds(timeoutSeconds);
+        this.httpExecutor = newExecutor("http-client", httpExecutorThreads > 0
+                ? httpExecutorThreads : 2 * Runtime.getRuntime().availableProcessors());
+        this.conversionExecutor = newExecutor("conversion", conversionThreads > 0
+                ? conversionThreads : Runtime.getRuntime().availableProcessors());
+        this.httpClient = HttpClient.newBuilder()
+                .version(parseHttpVersion(httpVersionName))
+                .connectTimeout(Duration.ofSeconds(Math.min(connectTimeoutSeconds, timeoutSeconds)))
+                .executor(httpExecutor)
+                .build();
+        this.attempts = new RequestAttempts(httpTimeout, hedgeEnabled, hedgePercentile,
+                Duration.ofMillis(hedgeMinDelayMillis), hedgeBudget, maxRetries, Duration.ofMillis(retryBackoffMillis),
+                retryBudget);
+        this.cacheDefaultTtl = Duration.ofSeconds(cacheDefaultTtlSeconds);
+        this.bodyHandler = new DecodingBodyHandler((int) Math.min(Integer.MAX_VALUE - 8, maxBodySizeMb * 1024L * 1024L));
+        this.pageStore = storeEnabled ? openPageStore() : null;
+        this.contentCache = new ContentCache(cacheMaxSizeMb * 1024L * 1024L, pageStore);
+        this.documentStore = new ContentCache(documentStoreMaxSizeMb * 1024L * 1024L);
+        this.fetchPermits = new AsyncSemaphore(maxConcurrentFetches);
+        this.hostScheduler = new HostScheduler(
+                new HostScheduler.HostLimits(hostMaxConcurrent, hostRequestsPerSecond, hostBurst),
+                HostScheduler.parseOverrides(hostOverrides));
+        this.breakers = new CircuitBreakers(breakerWindow, breakerMinRequests, breakerFailureRate, breakerTimeoutRate,
+                Duration.ofSeconds(breakerOpenSeconds), breakerHalfOpenProbes);
+        this.negativeCache = new NegativeCache(Duration.ofSeconds(negativeCacheTtlSeconds), negativeCacheMaxEntries);
+        this.defaultRenderMode = RenderMode.fromName(renderModeName.trim());
+        this.javaScriptDetector = new JavaScriptDetector(renderMinTextLength, renderMinTextRatio);
+        this.renderMemory = new RenderMemory(Duration.ofSeconds(renderDecisionTtlSeconds));
+        this.resourceBlocker = new ResourceBlocker(
+                ResourceBlocker.parseTypes(blockedResourceTypes),
+                ResourceBlocker.parseDomains(blockedDomains),
+                ResourceBlocker.parseOverrides(blockingOverrides));
+        this.defaultWaitStrategy = WaitStrategy.fromName(waitStrategyName.trim());
+        if (defaultWaitStrategy == WaitStrategy.SELECTOR) {
+            throw new IllegalArgumentException("webcontent.render.wait.strategy cannot be selector");
+        }
+        this.pageLoader = new PageLoader(waitSettleMillis, waitMaxSettleSeconds * 1000L);
+        this.renderTimeouts = new RenderTimeouts(adaptiveRenderTimeouts, renderTimeoutPercentile,
+                renderTimeoutMultiplier, renderTimeoutMinSeconds * 1000L, timeoutSeconds * 1000L);
+        this.extractionTemplates = new ExtractionTemplates(extractionTemplatesEnabled, extractionTemplateMinPages,
+                Duration.ofSeconds(extractionTemplateTtlSeconds));
+        this.mainContentExtractor = new MainContentExtractor(extractionTemplates);
+        this.metrics = new FetchMetrics(meterRegistry);
+        this.admission = new AdmissionControl(admissionMaxActive, admissionRawTextReserve, admissionQueueCapacity,
+                Duration.ofSeconds(admissionDeadlineSeconds));
         System.out.println("WebContentService initialized with timeout: " + timeoutSeconds + " seconds");
 
         // Initialize Playwright for browser operations
         initializePlaywright();
+        metrics.monitor(contentCache, fetchPermits, () -> renderDispatcher);
+    }
+
+    /**
+     * Daemon threads for the HTTP client's response handling or for parsing and converting pages,
+     * bounded so that a burst of responses does not start a thread each
+     */
+    private static ExecutorService newExecutor(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the persistent page store, or returns {@code null} so that the server runs without one
+     * when its directory cannot be used
+     */
+    private PageStore openPageStore() {
+        PageStore store = new PageStore(Path.of(storeDir), storeMaxSizeMb * 1024L * 1024L,
+                (int) Math.min(Integer.MAX_VALUE, storeSegmentSizeMb * 1024L * 1024L),
+                Duration.ofHours(storeRetentionHours), Duration.ofSeconds(storeCompactionIntervalSeconds),
+                storeCompactionThreshold);
+        try {
+            store.open();
+            return store;
+        } catch (IOException e) {
+            System.err.println("Warning: Could not open the page store at " + storeDir + ". Pages will not persist.");
+            System.err.println("Error: " + e.getMessage());
+            store.close();
+            return null;
+        }
+    }
+
+    private static HttpClient.Version parseHttpVersion(String name) {
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "http2", "http/2", "h2" -> HttpClient.Version.HTTP_2;
+            case "http1.1", "http/1.1" -> HttpClient.Version.HTTP_1_1;
+            default -> throw new IllegalArgumentException(
+                    "webcontent.http.version must be http2 or http1.1, not '" + name + "'");
+        };
     }
 
     private void initializePlaywright() {
         try {
-            this.playwright = Playwright.create();
-            this.browserType = playwright.chromium();
-            System.out.println("Playwright initialized successfully");
+            RenderDispatcher dispatcher = new RenderDispatcher(
+                    browserPoolSize,
+                    renderQueueCapacity,
+                    maxPagesPerBrowser,
+                    Duration.ofSeconds(browserIdleTimeoutSeconds),
+                    Duration.ofSeconds(browserLeaseTimeoutSeconds));
+            // Left unset when no worker could launch, so renders fail fast and auto mode stays on HTTP
+            dispatcher.start();
+            this.renderDispatcher = dispatcher;
+            System.out.println("Render dispatcher started with " + browserPoolSize + " browser workers");
         } catch (Exception e) {
             System.err.println("Warning: Could not initialize Playwright. Browser-based operations will fail.");
             System.err.println("Error: " + e.getMessage());
@@ -61,215 +396,956 @@ public class WebContentService {
     }
 
     /**
-     * Fetches raw text content from a URL using HTTP client
+     * Fetches raw text content from a URL using HTTP client.
+     * Cached bodies are served while fresh and revalidated with the origin once stale; compressed
+     * responses are decoded as they stream in.
      */
     public String getRawTextContent(String url) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .timeout(httpTimeout)
-                .header("User-Agent", "Mozilla/5.0 (compatible; MCP-Fetch-Server/1.0)")
-                .GET()
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return response.body();
-        } else {
-            throw new IOException("HTTP " + response.statusCode() + " error fetching URL: " + url);
+        try {
+            return await(getRawTextContentAsync(url));
+        } catch (ExecutionException e) {
+            throw unwrap(e);
         }
     }
 
     /**
-     * Fetches fully rendered HTML content using Playwright browser
+     * Fetches fully rendered HTML content using a pooled Playwright browser
      */
     public String getRenderedHtmlContent(String url) throws Exception {
-        if (playwright == null || browserType == null) {
-            throw new Exception("Playwright not initialized. Cannot fetch rendered content.");
+        requireRenderer();
+        try {
+            return await(getRenderedHtmlContentAsync(url));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Failed to fetch HTML for " + url + ": " + cause.getMessage());
+            return "";
         }
+    }
 
-        Browser browser = null;
-        Page page = null;
+    /**
+     * Converts HTML content to Markdown format.
+     * With the default {@code auto} render mode the page is fetched over plain HTTP and only rendered
+     * in the browser when it appears to need JavaScript.
+     */
+    public String getMarkdownContent(String url) throws Exception {
+        return getConvertedContent(url, FetchMode.MARKDOWN);
+    }
 
-        try {
-            browser = browserType.launch(new BrowserType.LaunchOptions().setHeadless(true));
-            BrowserContext context = browser.newContext();
-            page = context.newPage();
+    /**
+     * Extracts main content and converts to Markdown
+     */
+    public String getMarkdownSummary(String url) throws Exception {
+        return getConvertedContent(url, FetchMode.MARKDOWN_SUMMARY);
+    }
 
-            // Navigate and wait for content to load
-            page.navigate(url, new Page.NavigateOptions()
-                    .setWaitUntil(WaitUntilState.DOMCONTENTLOADED)
-                    .setTimeout(timeoutSeconds * 1000));
+    /**
+     * Fetches a URL in the given mode without blocking the calling thread
+     */
+    public CompletableFuture<String> fetchAsync(FetchMode mode, String url) {
+        return fetchAsync(mode, url, null);
+    }
 
-            return page.content();
+    /**
+     * Fetches a URL in the given mode without blocking the calling thread
+     *
+     * @param options how the page is obtained; the render mode only applies to Markdown modes and
+     *                resource blocking only to pages that are rendered
+     */
+    public CompletableFuture<String> fetchAsync(FetchMode mode, String url, FetchOptions options) {
+        FetchTrace trace = new FetchTrace(metrics, mode, options != null ? options.deadline() : null);
+        CompletableFuture<CacheEntry> entry = withinDeadline(url, trace,
+                admit(mode, url, options, () -> fetchEntryAsync(mode, url, options, trace)));
+        entry.whenComplete((value, error) -> logAccess(trace, url, 0,
+                trace.finish(value != null ? value.content() : null), value != null ? value.render() : null, error));
+        return contentOf(entry);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Failed to fetch HTML for " + url + ": " + e.getMessage());
-            return "";
-        } finally {
-            if (page != null) {
-                try {
-                    page.close();
-                } catch (Exception e) {
-                    System.err.println("Error closing page: " + e.getMessage());
-                }
+    /**
+     * Fetches one page of a document in the given mode, for clients that read long pages in parts.
+     * Raw fetch failures are rethrown, as is {@link OverloadedException} when the fetch is refused
+     * because the server is saturated; rendering and conversion failures yield an empty page.
+     *
+     * @param maxLength maximum page length in characters, {@code null} for the configured default,
+     *                  zero or less for no limit
+     */
+    public ContentPage getContentPage(FetchMode mode, String url, int startIndex, Integer maxLength) throws Exception {
+        return getContentPage(mode, url, startIndex, maxLength, null);
+    }
+
+    /**
+     * Variant of {@link #getContentPage(FetchMode, String, int, Integer)} that chooses how the page is
+     * obtained. The returned page reports the path that was taken.
+     */
+    public ContentPage getContentPage(FetchMode mode, String url, int startIndex, Integer maxLength,
+                                      FetchOptions options) throws Exception {
+        if (needsBrowser(mode, options != null ? options.render() : null)) {
+            requireRenderer();
+        }
+        try {
+            return await(fetchPageAsync(mode, url, startIndex, maxLength, options));
+        } catch (ExecutionException e) {
+            if (mode == FetchMode.RAW_TEXT || e.getCause() instanceof OverloadedException
+                    || e.getCause() instanceof DeadlineExceededException) {
+                throw unwrap(e);
             }
-            if (browser != null) {
-                try {
-                    browser.close();
-                } catch (Exception e) {
-                    System.err.println("Error closing browser: " + e.getMessage());
-                }
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Failed to fetch HTML for " + url + ": " + cause.getMessage());
+            return ContentPage.of("", 0, 0);
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #getContentPage(FetchMode, String, int, Integer)}.
+     * A document that does not fit in one page is kept for a short while, so that the following
+     * pages are served from memory even when the page itself may not be cached. Only documents
+     * obtained the default way are kept, since other options yield a different document.
+     */
+    public CompletableFuture<ContentPage> fetchPageAsync(FetchMode mode, String url, int startIndex, Integer maxLength) {
+        return fetchPageAsync(mode, url, startIndex, maxLength, null);
+    }
+
+    /**
+     * Variant of {@link #fetchPageAsync(FetchMode, String, int, Integer)} that chooses how the page is obtained
+     */
+    public CompletableFuture<ContentPage> fetchPageAsync(FetchMode mode, String url, int startIndex, Integer maxLength,
+                                                         FetchOptions options) {
+        int length = maxLength != null ? maxLength : defaultMaxLength;
+        FetchKey key = obtainsDefaultDocument(mode, options) ? FetchKey.of(url, mode) : null;
+        FetchTrace trace = new FetchTrace(metrics, mode, options != null ? options.deadline() : null);
+        if (startIndex > 0 && key != null) {
+            CacheEntry stored = documentStore.lookup(key);
+            if (stored != null) {
+                trace.cache(FetchTrace.CacheStatus.HIT);
+                ContentPage slice = ContentPage.of(stored.content(), startIndex, length).withRender(stored.render());
+                slice = slice.withTimings(trace.finish(slice.content()));
+                logAccess(trace, url, startIndex, slice.timings(), slice.render(), null);
+                return CompletableFuture.completedFuture(slice);
             }
         }
+
+        CompletableFuture<CacheEntry> document = withinDeadline(url, trace,
+                admit(mode, url, options, () -> fetchEntryAsync(mode, url, options, trace)));
+        CompletableFuture<ContentPage> page = document.thenApply(entry -> {
+            metrics.recordResult(mode, entry.content().length());
+            RenderDecision decision = entry.render() != null ? entry.render() : modeDecision(mode);
+            ContentPage slice = ContentPage.of(entry.content(), startIndex, length).withRender(decision);
+            if (slice.truncated() && key != null) {
+                long expiresAt = System.currentTimeMillis() + documentStoreTtlSeconds * 1000L;
+                documentStore.put(key, new CacheEntry(entry.content(), null, null, expiresAt, true, decision));
+            }
+            return slice.withTimings(trace.finish(slice.content()));
+        });
+        page.whenComplete((value, error) -> {
+            if (page.isCancelled()) {
+                document.cancel(true);
+            }
+            logAccess(trace, url, startIndex, value != null ? value.timings() : trace.finish(null),
+                    value != null ? value.render() : null, error);
+        });
+        return page;
     }
 
     /**
-     * Converts HTML content to Markdown format
+     * Asynchronous variant of {@link #getRawTextContent(String)}.
+     * Concurrent requests for the same URL share a single HTTP exchange.
      */
-    public String getMarkdownContent(String url) throws Exception {
-        String htmlContent = getRenderedHtmlContent(url);
-        return convertHtmlToMarkdown(htmlContent, false);
+    public CompletableFuture<String> getRawTextContentAsync(String url) {
+        return contentOf(getRawEntryAsync(url, new FetchTrace(metrics, FetchMode.RAW_TEXT)));
     }
 
     /**
-     * Extracts main content and converts to Markdown
+     * Queues a render of the URL on one of the browser workers.
+     * The returned future fails if the page cannot be rendered.
      */
-    public String getMarkdownSummary(String url) throws Exception {
-        String htmlContent = getRenderedHtmlContent(url);
-        return convertHtmlToMarkdown(htmlContent, true);
+    public CompletableFuture<String> getRenderedHtmlContentAsync(String url) {
+        return contentOf(getRenderedPageAsync(url, FetchOptions.DEFAULT, new FetchTrace(metrics, FetchMode.RENDERED_HTML)));
     }
 
-    private String convertHtmlToMarkdown(String htmlContent, boolean mainContentOnly) {
-        if (htmlContent == null || htmlContent.isEmpty()) {
-            return "";
+    /**
+     * Asynchronous variant of {@link #getMarkdownContent(String)}
+     */
+    public CompletableFuture<String> getMarkdownContentAsync(String url) {
+        return getConvertedContentAsync(url, FetchMode.MARKDOWN);
+    }
+
+    /**
+     * Asynchronous variant of {@link #getMarkdownSummary(String)}
+     */
+    public CompletableFuture<String> getMarkdownSummaryAsync(String url) {
+        return getConvertedContentAsync(url, FetchMode.MARKDOWN_SUMMARY);
+    }
+
+    /**
+     * Cache, in-flight deduplication, concurrency and per-host scheduling statistics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cache", contentCache.stats());
+        if (pageStore != null) {
+            stats.put("store", pageStore.stats());
         }
+        stats.put("documents", documentStore.stats());
+        stats.put("transfer", bodyHandler.stats());
+        stats.put("inFlight", Map.of(
+                "active", inFlight.inFlightCount(),
+                "executions", inFlight.executionCount(),
+                "coalesced", inFlight.coalescedCount()));
+        stats.put("admission", admission.stats());
+        stats.put("concurrency", Map.of(
+                "limit", fetchPermits.permits(),
+                "inUse", fetchPermits.inUse(),
+                "queued", fetchPermits.queued()));
+        stats.put("hosts", hostScheduler.stats());
+        stats.put("breakers", breakers.stats());
+        Map<String, Object> http = new LinkedHashMap<>();
+        http.put("version", httpClient.version().name());
+        http.putAll(attempts.stats());
+        stats.put("http", http);
+        stats.put("negativeCache", negativeCache.stats());
+        Map<String, Object> render = new LinkedHashMap<>();
+        render.put("defaultMode", defaultRenderMode.getName());
+        render.putAll(renderMemory.stats());
+        stats.put("render", render);
+        stats.put("blocking", resourceBlocker.stats());
+        Map<String, Object> wait = new LinkedHashMap<>();
+        wait.put("defaultStrategy", defaultWaitStrategy.getName());
+        wait.putAll(renderTimeouts.stats());
+        stats.put("wait", wait);
+        Map<String, Object> extraction = new LinkedHashMap<>();
+        extraction.put("inPage", inPageExtraction);
+        extraction.putAll(mainContentExtractor.stats());
+        stats.put("extraction", extraction);
+        stats.put("templates", extractionTemplates.stats());
+        return stats;
+    }
 
+    private String getConvertedContent(String url, FetchMode mode) throws Exception {
+        if (needsBrowser(mode, null)) {
+            requireRenderer();
+        }
         try {
-            Document doc = Jsoup.parse(htmlContent);
+            return await(getConvertedContentAsync(url, mode));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Failed to fetch HTML for " + url + ": " + cause.getMessage());
+            return "";
+        }
+    }
 
-            // Remove script and style elements
-            doc.select("script").remove();
-            doc.select("style").remove();
+    private CompletableFuture<String> getConvertedContentAsync(String url, FetchMode mode) {
+        return contentOf(getConvertedEntryAsync(url, mode, FetchOptions.DEFAULT.withRender(defaultRenderMode),
+                new FetchTrace(metrics, mode)));
+    }
 
-            if (mainContentOnly) {
-                // Remove navigation, header, footer elements
-                doc.select("header, footer, nav").remove();
+    /**
+     * Passes a fetch through admission control, unless admission is disabled or the page can be
+     * served from the cache, which costs next to nothing even when the server is saturated
+     */
+    private CompletableFuture<CacheEntry> admit(FetchMode mode, String url, FetchOptions options,
+                                                Supplier<CompletableFuture<CacheEntry>> fetch) {
+        boolean cacheable = options == null
+                || (!options.customizesRendering() && options.render() != RenderMode.BROWSER);
+        if (!admissionEnabled || cacheable && isFresh(contentCache.get(FetchKey.of(url, mode)))) {
+            return fetch.get();
+        }
+        return admission.submit(mode, options != null ? options.deadline() : null, fetch);
+    }
 
-                // Try to extract main content area
-                Element mainContent = extractMainContent(doc);
-                if (mainContent != null) {
-                    doc = Jsoup.parse(mainContent.outerHtml());
-                }
+    /**
+     * Fails the fetch with {@link DeadlineExceededException} and stops waiting for it once the
+     * request's deadline has passed
+     */
+    private static <T> CompletableFuture<T> withinDeadline(String url, FetchTrace trace, CompletableFuture<T> fetch) {
+        if (!trace.hasDeadline() || fetch.isDone()) {
+            return fetch;
+        }
+        CompletableFuture<T> bounded = new CompletableFuture<>();
+        fetch.whenComplete((value, error) -> {
+            if (error != null) {
+                bounded.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                bounded.complete(value);
             }
-
-            // Handle tables manually for better formatting
-            Elements tables = doc.select("table");
-            for (Element table : tables) {
-                String tableMarkdown = convertTableToMarkdown(table);
-                table.replaceWith(Jsoup.parse(tableMarkdown).body());
+        });
+        CompletableFuture.delayedExecutor(Math.max(0, trace.remainingNanos()), TimeUnit.NANOSECONDS).execute(() ->
+                bounded.completeExceptionally(new DeadlineExceededException("Deadline exceeded fetching URL: " + url)));
+        bounded.whenComplete((value, error) -> {
+            if (bounded.isCancelled() || error instanceof DeadlineExceededException) {
+                fetch.cancel(true);
             }
+        });
+        return bounded;
+    }
 
-            // Handle definition lists
-            Elements dlLists = doc.select("dl");
-            for (Element dl : dlLists) {
-                String dlMarkdown = convertDefinitionListToMarkdown(dl);
-                dl.replaceWith(Jsoup.parse(dlMarkdown).body());
-            }
+    /**
+     * Whether the options produce the same document as a request without them: the default render
+     * mode, and resources and waits as configured. The deadline does not change the document.
+     */
+    private boolean obtainsDefaultDocument(FetchMode mode, FetchOptions options) {
+        if (options == null || mode == FetchMode.RAW_TEXT) {
+            return true;
+        }
+        return !options.customizesRendering() && (options.render() == null || options.render() == defaultRenderMode);
+    }
 
-            return htmlConverter.convert(doc.html());
+    private static boolean isFresh(CacheEntry entry) {
+        return entry != null && entry.isFresh();
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error converting HTML to Markdown: " + e.getMessage());
-            return htmlContent; // Return original HTML if conversion fails
+    private CompletableFuture<CacheEntry> fetchEntryAsync(FetchMode mode, String url, FetchOptions options,
+                                                         FetchTrace trace) {
+        FetchOptions effective = options != null ? options : FetchOptions.DEFAULT;
+        switch (mode) {
+            case RAW_TEXT:
+                return getRawEntryAsync(url, trace);
+            case RENDERED_HTML:
+                return getRenderedPageAsync(url, effective, trace);
+            default:
+                return getConvertedEntryAsync(url, mode, effective.render() != null
+                        ? effective : effective.withRender(defaultRenderMode), trace);
         }
     }
 
-    private Element extractMainContent(Document doc) {
-        // Try various selectors for main content
-        String[] selectors = {
-                "main", "article", "[role=main]", "#main", "#content",
-                ".main", ".content", ".article", ".post", ".entry"
-        };
+    /**
+     * Whether a fetch in this mode can only be served by the browser
+     */
+    private boolean needsBrowser(FetchMode mode, RenderMode render) {
+        return mode == FetchMode.RENDERED_HTML
+                || (mode.isRendered() && (render != null ? render : defaultRenderMode) == RenderMode.BROWSER);
+    }
+
+    private static RenderDecision modeDecision(FetchMode mode) {
+        return mode == FetchMode.RAW_TEXT
+                ? RenderDecision.http("raw-text mode")
+                : RenderDecision.browser("rendered-html mode");
+    }
+
+    /**
+     * Returns the raw body for a URL from the cache, or fetches it and caches the result.
+     * Concurrent requests for the same URL share a single HTTP exchange.
+     *
+     * @param trace the request the body is fetched for, which the exchange is timed under
+     */
+    private CompletableFuture<CacheEntry> getRawEntryAsync(String url, FetchTrace trace) {
+        FetchKey key = FetchKey.of(url, FetchMode.RAW_TEXT);
+        CacheEntry cached = contentCache.lookup(key);
+        if (cached != null && cached.isFresh()) {
+            trace.cache(FetchTrace.CacheStatus.HIT);
+            return CompletableFuture.completedFuture(cached);
+        }
+        Throwable failed = negativeCache.lookup(key);
+        if (failed != null) {
+            trace.cache(FetchTrace.CacheStatus.HIT);
+            return CompletableFuture.failedFuture(failed);
+        }
+        trace.cache(FetchTrace.CacheStatus.MISS);
+        return shared(key, trace, shared -> loadRawText(key, cached, shared));
+    }
+
+    /**
+     * Joins the in-flight fetch for the key or starts it with the loader, noting in the trace when it was joined.
+     * The loader runs without the caller's deadline, since later callers with other deadlines or none
+     * may join it; each caller's deadline bounds only its own wait, through {@link #withinDeadline}.
+     */
+    private CompletableFuture<CacheEntry> shared(FetchKey key, FetchTrace trace,
+                                                 Function<FetchTrace, CompletableFuture<CacheEntry>> loader) {
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<CacheEntry> result = inFlight.execute(key, () -> {
+            started.set(true);
+            return loader.apply(trace.withoutDeadline());
+        });
+        if (!started.get()) {
+            trace.cache(FetchTrace.CacheStatus.COALESCED);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Markdown for a URL from the cache, or fetches and converts the page.
+     * A cached conversion made over plain HTTP does not satisfy a request for browser rendering, and
+     * a request that changes how the browser loads the page is always fetched afresh.
+     *
+     * @param options options whose render mode has been resolved
+     */
+    private CompletableFuture<CacheEntry> getConvertedEntryAsync(String url, FetchMode mode, FetchOptions options,
+                                                                FetchTrace trace) {
+        FetchKey key = FetchKey.of(url, mode);
+        RenderMode render = options.render();
+        boolean customRendering = options.customizesRendering();
+        CacheEntry cached = customRendering ? null : contentCache.lookup(key);
+        if (cached != null && render == RenderMode.BROWSER
+                && (cached.render() == null || cached.render().path() != RenderMode.BROWSER)) {
+            cached = null;
+        }
+        if (cached != null && cached.isFresh()) {
+            trace.cache(FetchTrace.CacheStatus.HIT);
+            return CompletableFuture.completedFuture(cached);
+        }
+        trace.cache(customRendering ? FetchTrace.CacheStatus.BYPASS : FetchTrace.CacheStatus.MISS);
+
+        CacheEntry stale = cached;
+        Function<FetchTrace, CompletableFuture<CacheEntry>> load = loading -> revalidateOrLoad(key, stale, loading,
+                () -> loadConverted(key, url, mode, options, loading));
+        // Forced renders do not join a shared conversion that may have been served over plain HTTP,
+        // nor renders of their own one that loads the page differently
+        return render == RenderMode.BROWSER || customRendering ? load.apply(trace) : shared(key, trace, load);
+    }
 
-        for (String selector : selectors) {
-            Element element = doc.selectFirst(selector);
-            if (element != null && !element.text().trim().isEmpty()) {
-                return element;
+    /**
+     * Fetches and converts a page along the path the render mode asks for. In auto mode the page is
+     * fetched over HTTP first unless its host is remembered as needing the browser, and escalated to
+     * the browser when the HTML looks like it needs JavaScript or the origin refuses the plain GET.
+     */
+    private CompletableFuture<CacheEntry> loadConverted(FetchKey key, String url, FetchMode mode, FetchOptions options,
+                                                        FetchTrace trace) {
+        RenderMode render = options.render();
+        if (render == RenderMode.BROWSER) {
+            return convertRendered(key, url, mode, options, RenderDecision.browser("browser rendering requested"),
+                    false, trace);
+        }
+        if (render == RenderMode.AUTO && renderDispatcher != null) {
+            RenderDecision remembered = renderMemory.lookup(url);
+            if (remembered != null && remembered.path() == RenderMode.BROWSER) {
+                return convertRendered(key, url, mode, options,
+                        RenderDecision.browser("host remembered as needing JavaScript: " + remembered.reason()), false,
+                        trace);
             }
         }
 
-        // Fallback: return body if no main content found
-        return doc.body();
+        return getRawEntryAsync(url, trace).handleAsync((raw, error) -> {
+            if (error == null) {
+                return convertFetched(key, url, mode, options, raw, trace);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (render == RenderMode.AUTO && renderDispatcher != null
+                    && cause instanceof HttpStatusException status && status.statusCode() == 403) {
+                return convertRendered(key, url, mode, options,
+                        RenderDecision.browser("plain GET refused with HTTP 403"), true, trace);
+            }
+            return CompletableFuture.<CacheEntry>failedFuture(cause);
+        }, conversionExecutor).thenCompose(converted -> converted);
     }
 
-    private String convertTableToMarkdown(Element table) {
-        StringBuilder markdown = new StringBuilder("\n\n");
-        Elements rows = table.select("tr");
+    /**
+     * Converts a page fetched over HTTP, or hands it to the browser if auto mode finds it needs JavaScript.
+     * When the browser is unavailable or fails, the HTTP version is converted instead.
+     */
+    private CompletableFuture<CacheEntry> convertFetched(FetchKey key, String url, FetchMode mode, FetchOptions options,
+                                                        CacheEntry raw, FetchTrace trace) {
+        Document doc = parse(raw.content(), trace);
+        if (options.render() != RenderMode.AUTO) {
+            return CompletableFuture.completedFuture(
+                    convertHttp(key, mode, raw, doc, RenderDecision.http("plain HTTP requested"), trace));
+        }
 
-        if (rows.isEmpty()) {
-            return "";
+        JavaScriptDetector.Verdict verdict = javaScriptDetector.assess(doc, raw.content().length());
+        if (!verdict.needsBrowser()) {
+            RenderDecision decision = RenderDecision.http(verdict.reason());
+            renderMemory.remember(url, decision);
+            return CompletableFuture.completedFuture(convertHttp(key, mode, raw, doc, decision, trace));
+        }
+        if (renderDispatcher == null) {
+            return CompletableFuture.completedFuture(convertHttp(key, mode, raw, doc,
+                    RenderDecision.http(verdict.reason() + ", but no browser is available"), trace));
         }
 
-        // Process header row
-        Element headerRow = rows.first();
-        Elements headerCells = headerRow.select("th, td");
+        return convertRendered(key, url, mode, options, RenderDecision.browser(verdict.reason()), true, trace)
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    String message = briefMessage(cause);
+                    System.err.println("Rendering " + url + " failed, using the plain HTTP version: " + message);
+                    return convertHttp(key, mode, raw, doc,
+                            RenderDecision.http(verdict.reason() + ", but rendering failed: " + message), trace);
+                });
+    }
 
-        if (!headerCells.isEmpty()) {
-            markdown.append("|");
-            for (Element cell : headerCells) {
-                markdown.append(" ").append(cell.text().trim()).append(" |");
-            }
-            markdown.append("\n|");
-            for (int i = 0; i < headerCells.size(); i++) {
-                markdown.append("---|");
+    /**
+     * First line of an error message. Playwright errors span many lines: "Error {", then
+     * "message='...'", an installation banner and a stack trace.
+     */
+    private static String briefMessage(Throwable error) {
+        String message = String.valueOf(error.getMessage());
+        int start = message.indexOf("message='");
+        return (start >= 0 ? message.substring(start + "message='".length()) : message)
+                .lines().findFirst().orElse("").trim();
+    }
+
+    private CacheEntry convertHttp(FetchKey key, FetchMode mode, CacheEntry raw, Document doc, RenderDecision decision,
+                                   FetchTrace trace) {
+        long started = System.nanoTime();
+        String markdown = mode == FetchMode.MARKDOWN_SUMMARY
+                ? convertSummary(key.url(), doc, raw.content())
+                : convertHtmlToMarkdown(doc, raw.content());
+        trace.recordSince(FetchMetrics.Stage.CONVERSION, started);
+        CacheEntry converted = raw.withContent(markdown).withRender(decision);
+        renderMemory.recordFetch(decision, false);
+        contentCache.put(key, converted);
+        return converted;
+    }
+
+    /**
+     * Renders and converts a page. A page read before it finished loading is converted as it was,
+     * but not cached. Summaries extracted inside the browser are already the main content.
+     */
+    private CompletableFuture<CacheEntry> convertRendered(FetchKey key, String url, FetchMode mode, FetchOptions options,
+                                                          RenderDecision decision, boolean escalated, FetchTrace trace) {
+        CompletableFuture<CacheEntry> rendered = mode == FetchMode.MARKDOWN_SUMMARY && inPageExtraction
+                ? getMainContentAsync(url, options, trace)
+                : getRenderedPageAsync(url, options, trace);
+        return rendered.thenApplyAsync(page -> {
+            Document doc = parse(page.content(), trace);
+            long started = System.nanoTime();
+            String markdown = mode == FetchMode.MARKDOWN_SUMMARY && !inPageExtraction
+                    ? convertSummary(url, doc, page.content())
+                    : convertHtmlToMarkdown(doc, page.content());
+            trace.recordSince(FetchMetrics.Stage.CONVERSION, started);
+            String partial = page.render() != null ? page.render().partial() : null;
+            CacheEntry converted = page.withContent(markdown)
+                    .withRender(partial != null ? decision.withPartial(partial) : decision);
+            if (escalated) {
+                renderMemory.remember(url, decision);
             }
-            markdown.append("\n");
-
-            // Process remaining rows
-            for (int i = 1; i < rows.size(); i++) {
-                Element row = rows.get(i);
-                Elements cells = row.select("th, td");
-                markdown.append("|");
-                for (Element cell : cells) {
-                    markdown.append(" ").append(cell.text().trim()).append(" |");
-                }
-                markdown.append("\n");
+            renderMemory.recordFetch(decision, escalated);
+            contentCache.put(key, converted);
+            return converted;
+        }, conversionExecutor);
+    }
+
+    /**
+     * Returns the rendered HTML for a URL from the cache, or renders it and caches the result.
+     * A render that changes how the browser loads the page skips the cache and in-flight renders, but
+     * its result is cached for later requests. Pages read before they finished loading are not cached.
+     *
+     * @param trace the request the page is rendered for, which the render is timed under
+     */
+    private CompletableFuture<CacheEntry> getRenderedPageAsync(String url, FetchOptions options, FetchTrace trace) {
+        FetchKey key = FetchKey.of(url, FetchMode.RENDERED_HTML);
+        Function<FetchTrace, CompletableFuture<CacheEntry>> render = rendering ->
+                renderAsync(url, options, rendering, false).thenApply(page -> {
+                    CacheEntry rendered = renderedEntry(page);
+                    contentCache.put(key, rendered);
+                    return rendered;
+                });
+        if (options.customizesRendering()) {
+            trace.cache(FetchTrace.CacheStatus.BYPASS);
+            return render.apply(trace);
+        }
+
+        CacheEntry cached = contentCache.lookup(key);
+        if (cached != null && cached.isFresh()) {
+            trace.cache(FetchTrace.CacheStatus.HIT);
+            return CompletableFuture.completedFuture(cached);
+        }
+        trace.cache(FetchTrace.CacheStatus.MISS);
+        return shared(key, trace, shared -> revalidateOrLoad(key, cached, shared, () -> render.apply(shared)));
+    }
+
+    /**
+     * Returns the HTML of a page's main content for a summary, chosen inside the browser so that only
+     * that subtree leaves it. When a fresh render of the whole page is cached, the main content is
+     * chosen from it instead; the extracted HTML is not cached, since it is not the page.
+     */
+    private CompletableFuture<CacheEntry> getMainContentAsync(String url, FetchOptions options, FetchTrace trace) {
+        if (!options.customizesRendering()) {
+            CacheEntry cached = contentCache.lookup(FetchKey.of(url, FetchMode.RENDERED_HTML));
+            if (cached != null && cached.isFresh()) {
+                trace.cache(FetchTrace.CacheStatus.HIT);
+                return CompletableFuture.completedFuture(cached.withContent(extractionTemplates.summaryContent(
+                        url, parse(cached.content(), trace)).outerHtml()));
             }
         }
+        return renderAsync(url, options, trace, true).thenApply(this::renderedEntry);
+    }
 
-        return markdown.append("\n").toString();
+    /**
+     * Wraps a rendered page for caching; one read before it finished loading records why and is not storable
+     */
+    private CacheEntry renderedEntry(RenderedPage page) {
+        CacheEntry rendered = page.toCacheEntry(cacheDefaultTtl, Duration.ofSeconds(negativeCacheTtlSeconds));
+        return page.partial() != null
+                ? rendered.withRender(modeDecision(FetchMode.RENDERED_HTML).withPartial(page.partial()))
+                : rendered;
     }
 
-    private String convertDefinitionListToMarkdown(Element dl) {
-        StringBuilder markdown = new StringBuilder("\n\n");
-        Elements children = dl.children();
+    private CompletableFuture<CacheEntry> loadRawText(FetchKey key, CacheEntry cached, FetchTrace trace) {
+        HttpRequest.Builder request = newRequest(key.url());
+        if (cached != null) {
+            addValidators(request, cached);
+        }
 
-        String currentDt = "";
-        for (Element child : children) {
-            if (child.tagName().equals("dt")) {
-                currentDt = child.text().trim();
-                if (!currentDt.isEmpty()) {
-                    markdown.append("**").append(currentDt).append(":** ");
+        CompletableFuture<CacheEntry> loaded = attempts.execute(key.url(), trace.deadlineNanos(),
+                        timeout -> sendAttempt(key.url(), request, timeout, trace), WebContentService::isPassingError)
+                .thenApply(response -> {
+                    backOffIfThrottled(key.url(), response.statusCode(), response.headers().firstValue("retry-after"));
+                    if (response.statusCode() == 304 && cached != null) {
+                        CacheEntry refreshed = cached.revalidated(response.headers()::firstValue, cacheDefaultTtl);
+                        trace.cache(FetchTrace.CacheStatus.REVALIDATED);
+                        contentCache.recordRevalidation();
+                        contentCache.put(key, refreshed);
+                        return refreshed;
+                    } else if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                        CacheEntry fetched = CacheEntry.fromHeaders(
+                                response.body(), response.headers()::firstValue, cacheDefaultTtl);
+                        contentCache.put(key, fetched);
+                        return fetched;
+                    } else {
+                        throw new CompletionException(new HttpStatusException(response.statusCode(), key.url()));
+                    }
+                });
+        loaded.whenComplete((entry, error) -> {
+            if (error != null) {
+                negativeCache.record(key, error);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Sends one attempt of an origin GET within the given timeout. Cancelling the returned future
+     * aborts the exchange, so that the attempt that loses a hedge stops holding its connection.
+     */
+    private CompletableFuture<HttpResponse<String>> sendAttempt(String url, HttpRequest.Builder request,
+                                                                Duration timeout, FetchTrace trace) {
+        return schedule(url, () -> {
+            CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(
+                    request.copy().timeout(timeout).build(), trace.timed(bodyHandler, System.nanoTime()));
+            CompletableFuture<HttpResponse<String>> answered = withDeadlineTimeouts(url, timeout, exchange);
+            answered.whenComplete((response, error) -> {
+                if (answered.isCancelled()) {
+                    exchange.cancel(true);
                 }
-            } else if (child.tagName().equals("dd")) {
-                String ddContent = child.text().trim();
-                if (!ddContent.isEmpty()) {
-                    markdown.append(ddContent).append("\n");
+            });
+            return answered;
+        }, response -> hostOutcome(response.statusCode()));
+    }
+
+    /**
+     * Reports a timeout that the caller's deadline imposed, being shorter than the request timeout,
+     * as {@link DeadlineExceededException} so that it is not held against the host
+     */
+    private <T> CompletableFuture<T> withDeadlineTimeouts(String url, Duration timeout, CompletableFuture<T> exchange) {
+        if (timeout.compareTo(httpTimeout) >= 0) {
+            return exchange;
+        }
+        return exchange.exceptionallyCompose(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            return CompletableFuture.failedFuture(cause instanceof HttpTimeoutException
+                    ? new DeadlineExceededException("Deadline exceeded fetching URL: " + url)
+                    : cause);
+        });
+    }
+
+    /**
+     * Gateway errors without a Retry-After, which another attempt may well not get
+     */
+    private static boolean isPassingError(HttpResponse<?> response) {
+        int status = response.statusCode();
+        return (status == 502 || status == 503 || status == 504)
+                && response.headers().firstValue("retry-after").isEmpty();
+    }
+
+    /**
+     * How long an origin request made for the trace may take: the request timeout, or less when
+     * the caller's deadline is closer
+     *
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    private Duration requestTimeout(String url, FetchTrace trace) throws DeadlineExceededException {
+        long remaining = trace.remainingNanos();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("Deadline exceeded fetching URL: " + url);
+        }
+        return remaining < httpTimeout.toNanos() ? Duration.ofNanos(remaining) : httpTimeout;
+    }
+
+    /**
+     * Renders a page within a deadline learned from the host's recent render times, returning what
+     * has loaded by then if the wait strategy is not satisfied in time
+     *
+     * @param trace           the request the page is rendered for, which the render is timed under
+     * @param mainContentOnly return only the main content's HTML, chosen inside the page
+     */
+    private CompletableFuture<RenderedPage> renderAsync(String url, FetchOptions options, FetchTrace trace,
+                                                        boolean mainContentOnly) {
+        if (renderDispatcher == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Playwright not initialized. Cannot fetch rendered content."));
+        }
+
+        // Pages that failed to resolve are shared by every way of rendering them
+        FetchKey key = FetchKey.of(url, FetchMode.RENDERED_HTML);
+        Throwable failed = negativeCache.lookup(key);
+        if (failed != null) {
+            trace.cache(FetchTrace.CacheStatus.HIT);
+            return CompletableFuture.failedFuture(failed);
+        }
+
+        WaitStrategy wait = options.waitStrategy() != null ? options.waitStrategy() : defaultWaitStrategy;
+        if (trace.remainingNanos() <= 0) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException("Deadline exceeded rendering URL: " + url));
+        }
+        // Set when the caller's deadline, not the learned timeout, bounds the render
+        AtomicBoolean deadlineBound = new AtomicBoolean();
+        CompletableFuture<RenderedPage> result = schedule(url, () -> {
+            long submitted = System.nanoTime();
+            return renderDispatcher.submit(page -> {
+                trace.recordSince(FetchMetrics.Stage.BROWSER_LEASE, submitted);
+                trace.usedBrowser();
+                // Drop subresources the serialized DOM does not need before anything is requested
+                ResourceBlocker.Counts counts = resourceBlocker.install(page, url, options.blockedResources());
+
+                // Navigate and wait for content to load, within what is left of the caller's deadline
+                long learnedMillis = renderTimeouts.timeoutMillis(url, wait);
+                long timeoutMillis = Math.min(learnedMillis, Math.max(1, trace.remainingNanos() / 1_000_000L));
+                deadlineBound.set(timeoutMillis < learnedMillis);
+                long started = System.nanoTime();
+                PageLoader.Loaded loaded = pageLoader.load(page, url, wait, options.waitSelector(), timeoutMillis);
+                long navigated = trace.recordSince(FetchMetrics.Stage.NAVIGATION, started);
+                Response response = loaded.response();
+
+                String content = mainContentOnly ? mainContentExtractor.extract(page, url) : page.content();
+                trace.recordSince(FetchMetrics.Stage.PAGE_CONTENT, navigated);
+                RenderedPage rendered = new RenderedPage(
+                        content,
+                        response != null ? response.status() : 200,
+                        response != null ? response.allHeaders() : Map.of(),
+                        loaded.partial());
+                // A render cut short by the caller says nothing about how long the host takes
+                if (loaded.partial() == null || !deadlineBound.get()) {
+                    renderTimeouts.record(url, wait, (System.nanoTime() - started) / 1_000_000L, timeoutMillis,
+                            loaded.partial() != null);
                 }
+                resourceBlocker.record(counts);
+                return rendered;
+            });
+        }, page -> page.partial() == null ? hostOutcome(page.status())
+                : deadlineBound.get() ? CircuitBreakers.Outcome.IGNORED : CircuitBreakers.Outcome.TIMEOUT)
+                .thenApply(page -> {
+                    backOffIfThrottled(url, page.status(), Optional.ofNullable(page.headers().get("retry-after")));
+                    return page;
+                });
+        result.whenComplete((page, error) -> {
+            if (error != null) {
+                negativeCache.record(key, error);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Asks the origin whether a stale entry is still current using a conditional GET and falls back
+     * to the loader when there is nothing to revalidate or the content has changed.
+     */
+    private CompletableFuture<CacheEntry> revalidateOrLoad(FetchKey key, CacheEntry stale, FetchTrace trace,
+                                                          Supplier<CompletableFuture<CacheEntry>> loader) {
+        if (stale == null || !stale.hasValidators()) {
+            return loader.get();
+        }
+
+        HttpRequest.Builder request = newRequest(key.url());
+        addValidators(request, stale);
+        Duration timeout;
+        try {
+            timeout = requestTimeout(key.url(), trace);
+        } catch (DeadlineExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return schedule(key.url(), () -> withDeadlineTimeouts(key.url(), timeout,
+                                httpClient.sendAsync(request.timeout(timeout).build(), HttpResponse.BodyHandlers.discarding())),
+                        response -> hostOutcome(response.statusCode()))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        System.err.println("Failed to revalidate " + key.url() + ": " + error.getMessage());
+                        return null;
+                    }
+                    backOffIfThrottled(key.url(), response.statusCode(), response.headers().firstValue("retry-after"));
+                    if (response.statusCode() != 304) {
+                        return null;
+                    }
+                    CacheEntry refreshed = stale.revalidated(response.headers()::firstValue, cacheDefaultTtl);
+                    trace.cache(FetchTrace.CacheStatus.REVALIDATED);
+                    contentCache.recordRevalidation();
+                    contentCache.put(key, refreshed);
+                    return refreshed;
+                })
+                .thenCompose(refreshed -> refreshed != null ? CompletableFuture.completedFuture(refreshed) : loader.get());
+    }
+
+    /**
+     * Runs an origin request once its host's politeness limits allow it and a global fetch slot is free.
+     * The host limits are applied first so that requests queued for a busy host do not hold global slots.
+     * Requests to a host whose circuit breaker is open fail at once, without queueing.
+     *
+     * @param outcome judges a completed request for the host's circuit breaker
+     */
+    private <T> CompletableFuture<T> schedule(String url, Supplier<CompletableFuture<T>> operation,
+                                              Function<T, CircuitBreakers.Outcome> outcome) {
+        Supplier<CompletableFuture<T>> scheduled = () -> hostScheduler.schedule(url, () -> fetchPermits.run(operation));
+        return breakerEnabled ? breakers.call(url, scheduled, outcome) : scheduled.get();
+    }
+
+    /**
+     * Server errors and throttling count against a host; other statuses show it is up
+     */
+    private static CircuitBreakers.Outcome hostOutcome(int status) {
+        return status >= 500 || status == 429 ? CircuitBreakers.Outcome.FAILURE : CircuitBreakers.Outcome.SUCCESS;
+    }
+
+    /**
+     * Pauses the host when it answers 429 or 503 with a Retry-After header
+     */
+    private void backOffIfThrottled(String url, int status, Optional<String> retryAfter) {
+        if (status == 429 || status == 503) {
+            retryAfter.flatMap(HostScheduler::parseRetryAfter)
+                    .ifPresent(delay -> hostScheduler.backOff(url, delay));
+        }
+    }
+
+    /**
+     * Maps a shared fetch to its content. Cancelling the returned future detaches from the fetch.
+     */
+    private static CompletableFuture<String> contentOf(CompletableFuture<CacheEntry> shared) {
+        CompletableFuture<String> content = shared.thenApply(CacheEntry::content);
+        content.whenComplete((value, error) -> {
+            if (content.isCancelled()) {
+                shared.cancel(true);
             }
+        });
+        return content;
+    }
+
+    /**
+     * Rethrows the cause of a failed raw fetch, wrapping checked exceptions other than IOException
+     */
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
         }
+        return new IOException(cause.getMessage(), cause);
+    }
 
-        return markdown.append("\n").toString();
+    private void requireRenderer() throws Exception {
+        if (renderDispatcher == null) {
+            throw new Exception("Playwright not initialized. Cannot fetch rendered content.");
+        }
     }
 
+    /**
+     * Waits for a shared fetch. If the calling thread is interrupted it stops waiting and detaches
+     * from the fetch, which keeps running for any other callers.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws InterruptedException, ExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    private HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(httpTimeout)
+                .header("User-Agent", "Mozilla/5.0 (compatible; MCP-Fetch-Server/1.0)")
+                .header("Accept-Encoding", DecodingBodyHandler.ACCEPT_ENCODING)
+                .GET();
+    }
+
+    private static void addValidators(HttpRequest.Builder request, CacheEntry cached) {
+        if (cached.etag() != null) {
+            request.header("If-None-Match", cached.etag());
+        }
+        if (cached.lastModified() != null) {
+            request.header("If-Modified-Since", cached.lastModified());
+        }
+    }
+
+    private Document parse(String html, FetchTrace trace) {
+        long started = System.nanoTime();
+        Document doc = Jsoup.parse(html);
+        trace.recordSince(FetchMetrics.Stage.PARSE, started);
+        return doc;
+    }
+
+    /**
+     * Writes one JSON line per request with its outcome and timings, when the access log is enabled
+     *
+     * @param render how the document was fetched, or {@code null} if the request failed
+     * @param error  why the request failed, or {@code null}
+     */
+    private void logAccess(FetchTrace trace, String url, int startIndex, FetchTimings timings, RenderDecision render,
+                           Throwable error) {
+        if (!accessLogEnabled) {
+            return;
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("event", "fetch");
+        line.put("timestamp", Instant.now().toString());
+        line.put("mode", trace.mode().getName());
+        line.put("url", url);
+        line.put("startIndex", startIndex);
+        if (error == null) {
+            line.put("outcome", "ok");
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            line.put("outcome", cause instanceof CancellationException ? "cancelled" : "error");
+            line.put("error", briefMessage(cause));
+        }
+        if (render != null) {
+            line.put("render", render.path().getName());
+        }
+        line.putAll(timings.toMap());
+        try {
+            System.out.println(accessLogMapper.writeValueAsString(line));
+        } catch (JsonProcessingException e) {
+            System.err.println("Could not write access log line for " + url + ": " + e.getMessage());
+        }
+    }
+
+    private String convertHtmlToMarkdown(Document doc, String htmlContent) {
+        try {
+            return markdownConverter.convert(doc, false);
+        } catch (Exception e) {
+            System.err.println("Error converting HTML to Markdown: " + e.getMessage());
+            return htmlContent; // Return original HTML if conversion fails
+        }
+    }
+
+    /**
+     * Converts a page's main content, taken from the host's learned template or scored
+     */
+    private String convertSummary(String url, Document doc, String htmlContent) {
+        try {
+            return markdownConverter.convert(extractionTemplates.summaryContent(url, doc));
+        } catch (Exception e) {
+            System.err.println("Error converting HTML to Markdown: " + e.getMessage());
+            return htmlContent; // Return original HTML if conversion fails
+        }
+    }
+
+    @PreDestroy
     public void cleanup() {
-        if (playwright != null) {
+        if (httpExecutor != null) {
+            httpExecutor.shutdown();
+        }
+        if (conversionExecutor != null) {
+            conversionExecutor.shutdown();
+        }
+        if (pageStore != null) {
+            pageStore.close();
+        }
+        if (renderDispatcher != null) {
             try {
-                playwright.close();
-                System.out.println("Playwright closed successfully");
+                renderDispatcher.shutdown();
+                System.out.println("Render dispatcher closed successfully");
             } catch (Exception e) {
-                System.err.println("Error closing Playwright: " + e.getMessage());
+                System.err.println("Error closing render dispatcher: " + e.getMessage());
             }
         }
     }
@@ -1,41 +1,284 @@
 package com.mcp.RayenMalouche.java.server.Fetch.tools;
 
+import com.mcp.RayenMalouche.java.server.Fetch.service.ContentPage;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchOptions;
+import com.mcp.RayenMalouche.java.server.Fetch.service.OverloadedException;
+import com.mcp.RayenMalouche.java.server.Fetch.service.RenderMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public abstract class BaseFetchTool {
 
     protected static final String URL_PARAMETER = "url";
+    protected static final String START_INDEX_PARAMETER = "start_index";
+    protected static final String MAX_LENGTH_PARAMETER = "max_length";
+    protected static final String RENDER_PARAMETER = "render";
+    protected static final String BLOCK_RESOURCES_PARAMETER = "block_resources";
+    protected static final String WAIT_PARAMETER = "wait";
+    protected static final String WAIT_FOR_PARAMETER = "wait_for";
+    protected static final String TIMINGS_PARAMETER = "timings";
+    protected static final String DEADLINE_PARAMETER = "deadline_ms";
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
 
     /**
-     * Creates the tool specification for this fetch tool
+     * Describes the tool: name, description and input schema
      */
-    public abstract McpServerFeatures.SyncToolSpecification getToolSpecification();
+    protected abstract McpSchema.Tool createTool();
+
+    /**
+     * Prefix of the error result returned when the fetch fails
+     */
+    protected abstract String getFailureMessage();
+
+    /**
+     * Runs one tool call
+     *
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    protected abstract CompletableFuture<McpSchema.CallToolResult> execute(Map<String, Object> params,
+                                                                           ProgressReporter progress);
+
+    /**
+     * Returns {@code result}, arranging for {@code source} to be cancelled when it is cancelled
+     */
+    protected static <T> CompletableFuture<T> cancelling(CompletableFuture<?> source, CompletableFuture<T> result) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Creates the tool specification for the synchronous MCP server.
+     * The calling request thread waits for the fetch to finish.
+     */
+    public McpServerFeatures.SyncToolSpecification getToolSpecification() {
+        McpSchema.Tool tool = createTool();
+        return McpServerFeatures.SyncToolSpecification.builder()
+                .tool(tool)
+                .callHandler((exchange, request) -> {
+                    ProgressReporter progress = progressReporter(request, exchange::progressNotification);
+                    CompletableFuture<McpSchema.CallToolResult> result = null;
+                    try {
+                        result = timed(tool.name(), () -> execute(arguments(request), progress));
+                        return result.get();
+                    } catch (IllegalArgumentException e) {
+                        return createErrorResult("Invalid parameters: " + e.getMessage());
+                    } catch (InterruptedException e) {
+                        result.cancel(true);
+                        Thread.currentThread().interrupt();
+                        return createErrorResult(getFailureMessage() + ": interrupted");
+                    } catch (Exception e) {
+                        return createFailureResult(e);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Creates the tool specification for the asynchronous MCP server.
+     * No thread is held while the fetch is in progress, and cancelling the call detaches from it.
+     */
+    public McpServerFeatures.AsyncToolSpecification getAsyncToolSpecification() {
+        McpSchema.Tool tool = createTool();
+        return McpServerFeatures.AsyncToolSpecification.builder()
+                .tool(tool)
+                .callHandler((exchange, request) -> {
+                    ProgressReporter progress = progressReporter(request,
+                            notification -> exchange.progressNotification(notification).subscribe());
+                    return Mono.fromFuture(() -> timed(tool.name(),
+                                    () -> execute(arguments(request), progress)))
+                            .onErrorResume(IllegalArgumentException.class, e -> Mono.just(
+                                    createErrorResult("Invalid parameters: " + e.getMessage())))
+                            .onErrorResume(e -> Mono.just(createFailureResult(e)));
+                })
+                .build();
+    }
+
+    /**
+     * Starts a tool call and times it as {@code mcp.tool.calls}, by tool and by whether it succeeded
+     */
+    private CompletableFuture<McpSchema.CallToolResult> timed(String tool,
+                                                             Supplier<CompletableFuture<McpSchema.CallToolResult>> call) {
+        if (meterRegistry == null) {
+            return call.get();
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<McpSchema.CallToolResult> result = call.get();
+        result.whenComplete((value, error) -> sample.stop(Timer.builder("mcp.tool.calls")
+                .description("MCP tool calls, from the request to the result")
+                .tag("tool", tool)
+                .tag("outcome", error == null && !Boolean.TRUE.equals(value.isError()) ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+        return result;
+    }
+
+    private static Map<String, Object> arguments(McpSchema.CallToolRequest request) {
+        return request.arguments() != null ? request.arguments() : Map.of();
+    }
+
+    /**
+     * Sends progress notifications when the client asked for them with a progress token
+     */
+    private static ProgressReporter progressReporter(McpSchema.CallToolRequest request,
+                                                     Consumer<McpSchema.ProgressNotification> sender) {
+        Object token = request.meta() != null ? request.meta().get("progressToken") : null;
+        if (token == null) {
+            return ProgressReporter.NONE;
+        }
+        return (progress, total, message) -> sender.accept(
+                new McpSchema.ProgressNotification(token.toString(), progress, total, message));
+    }
 
     /**
      * Validates that the URL parameter is present and valid
      */
     protected String validateAndGetUrl(Map<String, Object> params) throws IllegalArgumentException {
-        Object urlObj = params.get(URL_PARAMETER);
+        return validateUrl(params.get(URL_PARAMETER), URL_PARAMETER);
+    }
+
+    /**
+     * Validates a single URL value; {@code name} identifies it in error messages
+     */
+    protected String validateUrl(Object urlObj, String name) throws IllegalArgumentException {
         if (urlObj == null) {
-            throw new IllegalArgumentException("url parameter is required");
+            throw new IllegalArgumentException(name + " parameter is required");
         }
 
         String url = urlObj.toString().trim();
         if (url.isEmpty()) {
-            throw new IllegalArgumentException("url parameter cannot be empty");
+            throw new IllegalArgumentException(name + " parameter cannot be empty");
         }
 
         // Basic URL validation
         if (!url.startsWith("http://") && !url.startsWith("https://")) {
-            throw new IllegalArgumentException("url must start with http:// or https://");
+            throw new IllegalArgumentException(name + " must start with http:// or https://");
         }
 
         return url;
     }
 
+    /**
+     * Validates an optional non-negative integer argument; a missing value is {@code 0}
+     */
+    protected int validateIndex(Object value, String name) throws IllegalArgumentException {
+        if (value == null) {
+            return 0;
+        }
+
+        long parsed;
+        if (value instanceof Number number) {
+            if (number.doubleValue() != Math.rint(number.doubleValue())) {
+                throw new IllegalArgumentException(name + " must be an integer");
+            }
+            parsed = number.longValue();
+        } else {
+            try {
+                parsed = Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " must be an integer");
+            }
+        }
+
+        if (parsed < 0 || parsed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(name + " must be between 0 and " + Integer.MAX_VALUE);
+        }
+        return (int) parsed;
+    }
+
+    /**
+     * Validates an optional boolean argument given as a boolean or a string; a missing value is {@code false}
+     */
+    protected boolean validateFlag(Object value, String name) throws IllegalArgumentException {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean flag) {
+            return flag;
+        }
+        String flag = value.toString().trim();
+        if (!flag.equalsIgnoreCase("true") && !flag.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException(name + " must be true or false");
+        }
+        return Boolean.parseBoolean(flag);
+    }
+
+    /**
+     * Validates an optional render mode argument; a missing value is {@code null}
+     */
+    protected RenderMode validateRender(Object value) throws IllegalArgumentException {
+        return value == null || value.toString().isBlank() ? null : RenderMode.fromName(value.toString().trim());
+    }
+
+    /**
+     * Validates the optional {@code render}, {@code block_resources}, {@code wait}, {@code wait_for}
+     * and {@code deadline_ms} arguments
+     */
+    protected FetchOptions validateOptions(Map<String, Object> params) throws IllegalArgumentException {
+        Object waitFor = params.get(WAIT_FOR_PARAMETER);
+        return new FetchOptions(validateRender(params.get(RENDER_PARAMETER)),
+                FetchOptions.parseBlockedResources(params.get(BLOCK_RESOURCES_PARAMETER)),
+                FetchOptions.parseWait(params.get(WAIT_PARAMETER)),
+                waitFor != null ? waitFor.toString() : null,
+                FetchOptions.parseDeadline(params.get(DEADLINE_PARAMETER)));
+    }
+
+    /**
+     * Creates a successful tool result for one page of content, telling the client how to get the
+     * next page when the content was truncated. The path the page was fetched through, and why it
+     * may be incomplete when the render hit its deadline, are reported in the result's metadata.
+     *
+     * @param timings whether to add where the time of the request went to the metadata
+     */
+    protected McpSchema.CallToolResult createPageResult(ContentPage page, boolean timings) {
+        String text;
+        if (page.startIndex() > 0 && page.content().isEmpty()) {
+            text = "No more content available: start_index " + page.startIndex()
+                    + " is at or past the end of the content (" + page.totalLength() + " characters).";
+        } else if (!page.truncated()) {
+            text = page.content();
+        } else {
+            text = page.content() + "\n\n<content truncated at character " + page.endIndex()
+                    + " of " + page.totalLength() + ". Call this tool again with start_index="
+                    + page.nextStartIndex() + " to get more content.>";
+        }
+
+        boolean withTimings = timings && page.timings() != null;
+        if (page.render() == null && !withTimings) {
+            return createSuccessResult(text);
+        }
+        Map<String, Object> meta = new LinkedHashMap<>();
+        if (page.render() != null) {
+            meta.put("render", page.render().path().getName());
+            meta.put("renderReason", page.render().reason());
+            if (page.render().partial() != null) {
+                meta.put("partial", page.render().partial());
+            }
+        }
+        if (withTimings) {
+            meta.put("timings", page.timings().toMap());
+        }
+        return new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(text)), false, null, meta);
+    }
+
     /**
      * Creates a successful tool result with text content
      */
@@ -56,10 +299,89 @@ public abstract class BaseFetchTool {
         );
     }
 
+    /**
+     * Creates the error result of a failed fetch. One refused because the server is saturated says
+     * when to retry, in its text and as {@code retryAfterSeconds} in the result's metadata.
+     */
+    protected McpSchema.CallToolResult createFailureResult(Throwable error) {
+        if (getRootCause(error) instanceof OverloadedException overloaded) {
+            return new McpSchema.CallToolResult(
+                    List.of(new McpSchema.TextContent("Error: Server busy: " + overloaded.getMessage())),
+                    true, null, Map.of("retryAfterSeconds", overloaded.retryAfter().toSeconds()));
+        }
+        return createErrorResult(getFailureMessage() + ": " + getRootMessage(error));
+    }
+
+    /**
+     * Unwraps the exception thrown by a failed future
+     */
+    protected String getRootMessage(Throwable error) {
+        Throwable cause = getRootCause(error);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    private static Throwable getRootCause(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
     /**
      * Creates the standard URL input schema used by all fetch tools
      */
     protected String createUrlInputSchema() {
+        return createUrlInputSchema("");
+    }
+
+    /**
+     * Creates the URL input schema of tools that render pages, which also take {@code block_resources},
+     * {@code wait} and {@code wait_for}
+     */
+    protected String createRenderedUrlInputSchema() {
+        return createUrlInputSchema(BLOCK_RESOURCES_PROPERTY + WAIT_PROPERTIES);
+    }
+
+    /**
+     * Creates the URL input schema of tools that convert pages, which also take a {@code render} mode
+     * and the options of {@link #createRenderedUrlInputSchema()}
+     */
+    protected String createRenderableUrlInputSchema() {
+        return createUrlInputSchema("""
+                ,
+                    "render": {
+                      "type": "string",
+                      "enum": ["auto", "http", "browser"],
+                      "description": "How to obtain the page: 'auto' fetches it over plain HTTP and uses a headless browser only when it needs JavaScript, 'http' never uses the browser, 'browser' always does. Defaults to the server's setting, normally 'auto'"
+                    }""" + BLOCK_RESOURCES_PROPERTY + WAIT_PROPERTIES);
+    }
+
+    private static final String BLOCK_RESOURCES_PROPERTY = """
+            ,
+                "block_resources": {
+                  "type": "array",
+                  "items": {
+                    "type": "string",
+                    "enum": ["document", "stylesheet", "image", "media", "font", "script", "texttrack", "xhr", "fetch", "eventsource", "websocket", "manifest", "other"]
+                  },
+                  "description": "Resource types the browser should not load while rendering; an empty list loads everything. Defaults to the server's setting, normally images, media, fonts and stylesheets. Requests to known trackers are always blocked"
+                }""";
+
+    private static final String WAIT_PROPERTIES = """
+            ,
+                "wait": {
+                  "type": "string",
+                  "enum": ["domcontentloaded", "load", "networkidle", "selector", "quiescent"],
+                  "description": "What the browser waits for before reading the page: the DOM being parsed, the load event, no network activity, the wait_for selector, or the DOM no longer changing. Defaults to the server's setting, normally 'domcontentloaded'. If the page is not ready in time, what has loaded is returned and marked partial"
+                },
+                "wait_for": {
+                  "type": "string",
+                  "description": "CSS selector of an element to wait for; implies wait 'selector'"
+                }""";
+
+    private String createUrlInputSchema(String extraProperties) {
         return """
                 {
                   "type": "object",
@@ -67,10 +389,31 @@ public abstract class BaseFetchTool {
                     "url": {
                       "type": "string",
                       "description": "URL of the target resource"
-                    }
+                    },
+                    "start_index": {
+                      "type": "integer",
+                      "minimum": 0,
+                      "default": 0,
+                      "description": "Character offset to start from, used to read the rest of content that was truncated"
+                    },
+                    "max_length": {
+                      "type": "integer",
+                      "minimum": 0,
+                      "description": "Maximum number of characters to return; 0 for no limit. Defaults to the server's page size"
+                    },
+                    "timings": {
+                      "type": "boolean",
+                      "default": false,
+                      "description": "Report in the result metadata where the time went: per-stage milliseconds, bytes fetched and returned, cache status and whether a browser was used"
+                    },
+                    "deadline_ms": {
+                      "type": "integer",
+                      "minimum": 1,
+                      "description": "How long you will wait for the result, in milliseconds. Requests to the site are cut to fit, and the call fails once the deadline has passed. Defaults to the server's timeouts"
+                    }%s
                   },
                   "required": ["url"]
                 }
-                """;
+                """.formatted(extraProperties);
     }
 }
\ No newline at end of file
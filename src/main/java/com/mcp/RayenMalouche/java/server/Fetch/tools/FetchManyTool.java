@@ -0,0 +1,111 @@
+package com.mcp.RayenMalouche.java.server.Fetch.tools;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.RayenMalouche.java.server.Fetch.service.BatchFetchService;
+import com.mcp.RayenMalouche.java.server.Fetch.service.BatchResult;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchMode;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class FetchManyTool extends BaseFetchTool {
+
+    private static final String URLS_PARAMETER = "urls";
+    private static final String MODE_PARAMETER = "mode";
+
+    private final BatchFetchService batchFetchService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public FetchManyTool(BatchFetchService batchFetchService) {
+        this.batchFetchService = batchFetchService;
+    }
+
+    @Override
+    protected McpSchema.Tool createTool() {
+        return new McpSchema.Tool(
+                "fetch_many",
+                "Fetches several URLs in parallel in one call and returns a JSON object with one result " +
+                        "per URL (success flag, content or error, and duration in milliseconds). Use it " +
+                        "instead of repeated single-URL calls when several pages are needed. When the " +
+                        "request carries a progress token, a progress notification is sent as each URL completes.",
+                createBatchInputSchema()
+        );
+    }
+
+    @Override
+    protected CompletableFuture<McpSchema.CallToolResult> execute(Map<String, Object> params,
+                                                                  ProgressReporter progress) {
+        List<String> urls = validateAndGetUrls(params);
+        FetchMode mode = validateAndGetMode(params);
+
+        AtomicInteger completed = new AtomicInteger();
+        double total = urls.size();
+        CompletableFuture<List<BatchResult>> batch = batchFetchService.fetchAll(urls, mode, result ->
+                progress.report(completed.incrementAndGet(), total, result.url() + ": "
+                        + (result.success() ? "ok" : "failed") + " (" + result.durationMillis() + " ms)"));
+
+        return cancelling(batch, batch.thenApply(results -> {
+            try {
+                return createSuccessResult(objectMapper.writeValueAsString(Map.of("results", results)));
+            } catch (JsonProcessingException e) {
+                return createErrorResult(getFailureMessage() + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    @Override
+    protected String getFailureMessage() {
+        return "Failed to fetch URLs";
+    }
+
+    private List<String> validateAndGetUrls(Map<String, Object> params) {
+        Object urlsObj = params.get(URLS_PARAMETER);
+        if (!(urlsObj instanceof List<?> values) || values.isEmpty()) {
+            throw new IllegalArgumentException("urls parameter must be a non-empty array");
+        }
+        if (values.size() > batchFetchService.getMaxUrls()) {
+            throw new IllegalArgumentException("urls parameter accepts at most " + batchFetchService.getMaxUrls() + " URLs");
+        }
+
+        List<String> urls = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            urls.add(validateUrl(values.get(i), "urls[" + i + "]"));
+        }
+        return urls;
+    }
+
+    private FetchMode validateAndGetMode(Map<String, Object> params) {
+        Object modeObj = params.get(MODE_PARAMETER);
+        return modeObj == null ? FetchMode.MARKDOWN : FetchMode.fromName(modeObj.toString().trim());
+    }
+
+    private String createBatchInputSchema() {
+        return """
+                {
+                  "type": "object",
+                  "properties": {
+                    "urls": {
+                      "type": "array",
+                      "items": { "type": "string" },
+                      "minItems": 1,
+                      "description": "URLs of the target resources"
+                    },
+                    "mode": {
+                      "type": "string",
+                      "enum": ["raw-text", "rendered-html", "markdown", "markdown-summary"],
+                      "default": "markdown",
+                      "description": "How to fetch each URL"
+                    }
+                  },
+                  "required": ["urls"]
+                }
+                """;
+    }
+}
@@ -1,10 +1,16 @@
 package com.mcp.RayenMalouche.java.server.Fetch.tools;
 
+import com.mcp.RayenMalouche.java.server.Fetch.service.ContentPage;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchMode;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchOptions;
 import com.mcp.RayenMalouche.java.server.Fetch.service.WebContentService;
-import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.stereotype.Component;
 
-public class GetMarkdownSummaryTool extends BaseFetchTool {
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class GetMarkdownSummaryTool extends SingleUrlFetchTool {
 
     private final WebContentService webContentService;
 
@@ -13,27 +19,25 @@ public class GetMarkdownSummaryTool extends BaseFetchTool {
     }
 
     @Override
-    public McpServerFeatures.SyncToolSpecification getToolSpecification() {
-        return new McpServerFeatures.SyncToolSpecification(
-                new McpSchema.Tool(
-                        "get_markdown_summary",
-                        "Extracts and converts the main content area of a web page to Markdown format, " +
-                                "automatically removing navigation menus, headers, footers, and other peripheral " +
-                                "content. Perfect for capturing the core content of articles, blog posts, " +
-                                "or documentation pages.",
-                        createUrlInputSchema()
-                ),
-                (exchange, params) -> {
-                    try {
-                        String url = validateAndGetUrl(params);
-                        String content = webContentService.getMarkdownSummary(url);
-                        return createSuccessResult(content);
-                    } catch (IllegalArgumentException e) {
-                        return createErrorResult("Invalid parameters: " + e.getMessage());
-                    } catch (Exception e) {
-                        return createErrorResult("Failed to extract and convert main content: " + e.getMessage());
-                    }
-                }
+    protected McpSchema.Tool createTool() {
+        return new McpSchema.Tool(
+                "get_markdown_summary",
+                "Extracts and converts the main content area of a web page to Markdown format, " +
+                        "automatically removing navigation menus, headers, footers, and other peripheral " +
+                        "content. Perfect for capturing the core content of articles, blog posts, " +
+                        "or documentation pages.",
+                createRenderableUrlInputSchema()
         );
     }
-}
\ No newline at end of file
+
+    @Override
+    protected CompletableFuture<ContentPage> fetch(String url, int startIndex, Integer maxLength,
+                                                   FetchOptions options) {
+        return webContentService.fetchPageAsync(FetchMode.MARKDOWN_SUMMARY, url, startIndex, maxLength, options);
+    }
+
+    @Override
+    protected String getFailureMessage() {
+        return "Failed to extract and convert main content";
+    }
+}
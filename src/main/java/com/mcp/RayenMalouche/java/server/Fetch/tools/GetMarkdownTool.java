@@ -1,10 +1,16 @@
 package com.mcp.RayenMalouche.java.server.Fetch.tools;
 
+import com.mcp.RayenMalouche.java.server.Fetch.service.ContentPage;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchMode;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchOptions;
 import com.mcp.RayenMalouche.java.server.Fetch.service.WebContentService;
-import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.stereotype.Component;
 
-public class GetMarkdownTool extends BaseFetchTool {
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class GetMarkdownTool extends SingleUrlFetchTool {
 
     private final WebContentService webContentService;
 
@@ -13,27 +19,25 @@ public class GetMarkdownTool extends BaseFetchTool {
     }
 
     @Override
-    public McpServerFeatures.SyncToolSpecification getToolSpecification() {
-        return new McpServerFeatures.SyncToolSpecification(
-                new McpSchema.Tool(
-                        "get_markdown",
-                        "Converts web page content to well-formatted Markdown, preserving structural " +
-                                "elements like tables and definition lists. Recommended as the default tool " +
-                                "for web content extraction when a clean, readable text format is needed " +
-                                "while maintaining document structure.",
-                        createUrlInputSchema()
-                ),
-                (exchange, params) -> {
-                    try {
-                        String url = validateAndGetUrl(params);
-                        String content = webContentService.getMarkdownContent(url);
-                        return createSuccessResult(content);
-                    } catch (IllegalArgumentException e) {
-                        return createErrorResult("Invalid parameters: " + e.getMessage());
-                    } catch (Exception e) {
-                        return createErrorResult("Failed to convert content to markdown: " + e.getMessage());
-                    }
-                }
+    protected McpSchema.Tool createTool() {
+        return new McpSchema.Tool(
+                "get_markdown",
+                "Converts web page content to well-formatted Markdown, preserving structural " +
+                        "elements like tables and definition lists. Recommended as the default tool " +
+                        "for web content extraction when a clean, readable text format is needed " +
+                        "while maintaining document structure.",
+                createRenderableUrlInputSchema()
         );
     }
-}
\ No newline at end of file
+
+    @Override
+    protected CompletableFuture<ContentPage> fetch(String url, int startIndex, Integer maxLength,
+                                                   FetchOptions options) {
+        return webContentService.fetchPageAsync(FetchMode.MARKDOWN, url, startIndex, maxLength, options);
+    }
+
+    @Override
+    protected String getFailureMessage() {
+        return "Failed to convert content to markdown";
+    }
+}
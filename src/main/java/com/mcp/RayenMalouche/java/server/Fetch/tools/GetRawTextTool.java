@@ -1,10 +1,16 @@
 package com.mcp.RayenMalouche.java.server.Fetch.tools;
 
+import com.mcp.RayenMalouche.java.server.Fetch.service.ContentPage;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchMode;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchOptions;
 import com.mcp.RayenMalouche.java.server.Fetch.service.WebContentService;
-import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.stereotype.Component;
 
-public class GetRawTextTool extends BaseFetchTool {
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class GetRawTextTool extends SingleUrlFetchTool {
 
     private final WebContentService webContentService;
 
@@ -13,27 +19,25 @@ public class GetRawTextTool extends BaseFetchTool {
     }
 
     @Override
-    public McpServerFeatures.SyncToolSpecification getToolSpecification() {
-        return new McpServerFeatures.SyncToolSpecification(
-                new McpSchema.Tool(
-                        "get_raw_text",
-                        "Retrieves raw text content directly from a URL without browser rendering. " +
-                                "Ideal for structured data formats like JSON, XML, CSV, TSV, or plain text files. " +
-                                "Best used when fast, direct access to the source content is needed without " +
-                                "processing dynamic elements.",
-                        createUrlInputSchema()
-                ),
-                (exchange, params) -> {
-                    try {
-                        String url = validateAndGetUrl(params);
-                        String content = webContentService.getRawTextContent(url);
-                        return createSuccessResult(content);
-                    } catch (IllegalArgumentException e) {
-                        return createErrorResult("Invalid parameters: " + e.getMessage());
-                    } catch (Exception e) {
-                        return createErrorResult("Failed to fetch raw text content: " + e.getMessage());
-                    }
-                }
+    protected McpSchema.Tool createTool() {
+        return new McpSchema.Tool(
+                "get_raw_text",
+                "Retrieves raw text content directly from a URL without browser rendering. " +
+                        "Ideal for structured data formats like JSON, XML, CSV, TSV, or plain text files. " +
+                        "Best used when fast, direct access to the source content is needed without " +
+                        "processing dynamic elements.",
+                createUrlInputSchema()
         );
     }
-}
\ No newline at end of file
+
+    @Override
+    protected CompletableFuture<ContentPage> fetch(String url, int startIndex, Integer maxLength,
+                                                   FetchOptions options) {
+        return webContentService.fetchPageAsync(FetchMode.RAW_TEXT, url, startIndex, maxLength, options);
+    }
+
+    @Override
+    protected String getFailureMessage() {
+        return "Failed to fetch raw text content";
+    }
+}
@@ -1,10 +1,16 @@
 package com.mcp.RayenMalouche.java.server.Fetch.tools;
 
+import com.mcp.RayenMalouche.java.server.Fetch.service.ContentPage;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchMode;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchOptions;
 import com.mcp.RayenMalouche.java.server.Fetch.service.WebContentService;
-import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.stereotype.Component;
 
-public class GetRenderedHtmlTool extends BaseFetchTool {
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class GetRenderedHtmlTool extends SingleUrlFetchTool {
 
     private final WebContentService webContentService;
 
@@ -13,27 +19,25 @@ public class GetRenderedHtmlTool extends BaseFetchTool {
     }
 
     @Override
-    public McpServerFeatures.SyncToolSpecification getToolSpecification() {
-        return new McpServerFeatures.SyncToolSpecification(
-                new McpSchema.Tool(
-                        "get_rendered_html",
-                        "Fetches fully rendered HTML content using a headless browser, including " +
-                                "JavaScript-generated content. Essential for modern web applications, " +
-                                "single-page applications (SPAs), or any content that requires client-side " +
-                                "rendering to be complete.",
-                        createUrlInputSchema()
-                ),
-                (exchange, params) -> {
-                    try {
-                        String url = validateAndGetUrl(params);
-                        String content = webContentService.getRenderedHtmlContent(url);
-                        return createSuccessResult(content);
-                    } catch (IllegalArgumentException e) {
-                        return createErrorResult("Invalid parameters: " + e.getMessage());
-                    } catch (Exception e) {
-                        return createErrorResult("Failed to fetch rendered HTML content: " + e.getMessage());
-                    }
-                }
+    protected McpSchema.Tool createTool() {
+        return new McpSchema.Tool(
+                "get_rendered_html",
+                "Fetches fully rendered HTML content using a headless browser, including " +
+                        "JavaScript-generated content. Essential for modern web applications, " +
+                        "single-page applications (SPAs), or any content that requires client-side " +
+                        "rendering to be complete.",
+                createRenderedUrlInputSchema()
         );
     }
-}
\ No newline at end of file
+
+    @Override
+    protected CompletableFuture<ContentPage> fetch(String url, int startIndex, Integer maxLength,
+                                                   FetchOptions options) {
+        return webContentService.fetchPageAsync(FetchMode.RENDERED_HTML, url, startIndex, maxLength, options);
+    }
+
+    @Override
+    protected String getFailureMessage() {
+        return "Failed to fetch rendered HTML content";
+    }
+}
@@ -0,0 +1,15 @@
+package com.mcp.RayenMalouche.java.server.Fetch.tools;
+
+/**
+ * Streams progress of a long-running tool call to the MCP client
+ */
+@FunctionalInterface
+public interface ProgressReporter {
+
+    /**
+     * Reporter used when the client did not ask for progress notifications
+     */
+    ProgressReporter NONE = (progress, total, message) -> { };
+
+    void report(double progress, Double total, String message);
+}
@@ -0,0 +1,47 @@
+package com.mcp.RayenMalouche.java.server.Fetch.tools;
+
+import com.mcp.RayenMalouche.java.server.Fetch.service.ContentPage;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchOptions;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A tool that returns one page of the content of a single {@code url}
+ */
+public abstract class SingleUrlFetchTool extends BaseFetchTool {
+
+    /**
+     * Starts fetching one page of a validated URL
+     *
+     * @param maxLength maximum page length in characters, or {@code null} for the server default
+     * @param options   how to obtain the page; only meaningful to tools that render or convert pages
+     */
+    protected abstract CompletableFuture<ContentPage> fetch(String url, int startIndex, Integer maxLength,
+                                                            FetchOptions options);
+
+    /**
+     * Fetches the page of the {@code url} argument selected by {@code start_index} and
+     * {@code max_length}, obtained as {@code render}, {@code block_resources} and {@code wait} ask,
+     * with its timings when {@code timings} is set.
+     *
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    @Override
+    protected CompletableFuture<McpSchema.CallToolResult> execute(Map<String, Object> params,
+                                                                  ProgressReporter progress) {
+        String url = validateAndGetUrl(params);
+        int startIndex = validateIndex(params.get(START_INDEX_PARAMETER), START_INDEX_PARAMETER);
+        Integer maxLength = params.get(MAX_LENGTH_PARAMETER) != null
+                ? validateIndex(params.get(MAX_LENGTH_PARAMETER), MAX_LENGTH_PARAMETER)
+                : null;
+        FetchOptions options = validateOptions(params);
+        boolean timings = validateFlag(params.get(TIMINGS_PARAMETER), TIMINGS_PARAMETER);
+
+        CompletableFuture<ContentPage> fetch = fetch(url, startIndex, maxLength, options);
+        return cancelling(fetch, fetch.handle((page, error) -> error == null
+                ? createPageResult(page, timings)
+                : createFailureResult(error)));
+    }
+}
@@ -3,13 +3,15 @@ package com.mcp.RayenMalouche.java.server.Fetch;
 
 import com.mcp.RayenMalouche.java.server.Fetch.service.WebContentService;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 class WebContentServiceTests {
 
-    private final WebContentService service = new WebContentService();
+    @Autowired
+    private WebContentService service;
 
     @Test
     void testGetRawTextContent() throws Exception {
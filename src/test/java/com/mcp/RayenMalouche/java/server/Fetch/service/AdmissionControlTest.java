@@ -0,0 +1,119 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    private static final Duration LONG_DEADLINE = Duration.ofMinutes(1);
+
+    @Test
+    public void testQueuedFetchesAreAdmittedRawTextFirst() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, 0, 10, LONG_DEADLINE);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        List<String> order = new ArrayList<>();
+
+        CompletableFuture<String> first = admission.submit(FetchMode.MARKDOWN, () -> running);
+        CompletableFuture<String> render = admission.submit(FetchMode.RENDERED_HTML, () -> {
+            order.add("rendered-html");
+            return CompletableFuture.completedFuture("html");
+        });
+        CompletableFuture<String> raw = admission.submit(FetchMode.RAW_TEXT, () -> {
+            order.add("raw-text");
+            return CompletableFuture.completedFuture("text");
+        });
+        assertTrue(order.isEmpty());
+
+        running.complete("markdown");
+        assertEquals("markdown", first.get(1, TimeUnit.SECONDS));
+        assertEquals("text", raw.get(1, TimeUnit.SECONDS));
+        assertEquals("html", render.get(1, TimeUnit.SECONDS));
+        assertEquals(List.of("raw-text", "rendered-html"), order);
+    }
+
+    @Test
+    public void testRenderedModesLeaveTheRawTextReserveFree() {
+        AdmissionControl admission = new AdmissionControl(2, 1, 10, LONG_DEADLINE);
+
+        CompletableFuture<String> markdown = admission.submit(FetchMode.MARKDOWN, CompletableFuture::new);
+        CompletableFuture<String> render = admission.submit(FetchMode.RENDERED_HTML,
+                () -> CompletableFuture.completedFuture("html"));
+        CompletableFuture<String> raw = admission.submit(FetchMode.RAW_TEXT,
+                () -> CompletableFuture.completedFuture("text"));
+
+        assertFalse(markdown.isDone());
+        assertFalse(render.isDone());
+        assertEquals("text", raw.join());
+    }
+
+    @Test
+    public void testFullQueueIsRefusedWithRetryAfter() {
+        AdmissionControl admission = new AdmissionControl(1, 0, 1, LONG_DEADLINE);
+        admission.submit(FetchMode.RAW_TEXT, CompletableFuture::new);
+        CompletableFuture<String> queued = admission.submit(FetchMode.RAW_TEXT, CompletableFuture::new);
+        CompletableFuture<String> refused = admission.submit(FetchMode.RAW_TEXT, CompletableFuture::new);
+
+        assertFalse(queued.isDone());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> refused.get(1, TimeUnit.SECONDS));
+        OverloadedException overloaded = assertInstanceOf(OverloadedException.class, e.getCause());
+        assertTrue(overloaded.retryAfter().toSeconds() >= 1);
+    }
+
+    @Test
+    public void testCancelledWaiterGivesUpItsPlace() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, 0, 1, LONG_DEADLINE);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        admission.submit(FetchMode.RAW_TEXT, () -> running);
+        admission.submit(FetchMode.RAW_TEXT, CompletableFuture::new).cancel(true);
+
+        CompletableFuture<String> next = admission.submit(FetchMode.RAW_TEXT,
+                () -> CompletableFuture.completedFuture("next"));
+        running.complete("done");
+        assertEquals("next", next.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFetchesThatCannotFinishInTimeAreShed() throws Exception {
+        AdmissionControl admission = new AdmissionControl(1, 0, 10, Duration.ofMillis(50));
+        // Teach it that markdown fetches take longer than the deadline
+        admission.submit(FetchMode.MARKDOWN, () -> CompletableFuture.supplyAsync(() -> {
+            sleep(80);
+            return "slow";
+        })).get(1, TimeUnit.SECONDS);
+
+        admission.submit(FetchMode.MARKDOWN, CompletableFuture::new);
+        CompletableFuture<String> shed = admission.submit(FetchMode.MARKDOWN, CompletableFuture::new);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> shed.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(OverloadedException.class, e.getCause());
+    }
+
+    @Test
+    public void testWaiterIsShedAtItsDeadline() {
+        AdmissionControl admission = new AdmissionControl(1, 0, 10, Duration.ofMillis(100));
+        admission.submit(FetchMode.RENDERED_HTML, CompletableFuture::new);
+        CompletableFuture<String> waiting = admission.submit(FetchMode.RENDERED_HTML, CompletableFuture::new);
+
+        assertFalse(waiting.isDone());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(OverloadedException.class, e.getCause());
+        Map<?, ?> modes = (Map<?, ?>) admission.stats().get("modes");
+        assertEquals(1L, ((Map<?, ?>) modes.get("rendered-html")).get("shed"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
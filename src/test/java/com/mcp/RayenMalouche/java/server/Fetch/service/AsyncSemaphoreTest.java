@@ -0,0 +1,87 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncSemaphoreTest {
+
+    @Test
+    public void testQueuesWorkBeyondThePermitCount() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        CompletableFuture<String> firstWork = new CompletableFuture<>();
+
+        CompletableFuture<String> first = semaphore.run(() -> firstWork);
+        CompletableFuture<String> second = semaphore.run(() -> CompletableFuture.completedFuture("second"));
+
+        assertEquals(1, semaphore.inUse());
+        assertEquals(1, semaphore.queued());
+        assertFalse(second.isDone());
+
+        firstWork.complete("first");
+        assertEquals("first", first.get());
+        assertEquals("second", second.get());
+        assertEquals(0, semaphore.inUse());
+    }
+
+    @Test
+    public void testSkipsCancelledWaiters() {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        semaphore.acquire();
+        CompletableFuture<Void> cancelled = semaphore.acquire();
+        CompletableFuture<Void> waiting = semaphore.acquire();
+
+        cancelled.cancel(true);
+        semaphore.release();
+
+        assertTrue(waiting.isDone());
+        assertEquals(1, semaphore.inUse());
+    }
+
+    @Test
+    public void testReleasesPermitWhenOperationThrows() {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+
+        CompletableFuture<String> failed = semaphore.run(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, semaphore.inUse());
+    }
+
+    @Test
+    public void testCancellingQueuedRunWithdrawsIt() throws Exception {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        CompletableFuture<String> firstWork = new CompletableFuture<>();
+        AtomicBoolean secondRan = new AtomicBoolean();
+
+        CompletableFuture<String> first = semaphore.run(() -> firstWork);
+        CompletableFuture<String> second = semaphore.run(() -> {
+            secondRan.set(true);
+            return CompletableFuture.completedFuture("second");
+        });
+        second.cancel(true);
+        assertEquals(0, semaphore.queued());
+
+        firstWork.complete("first");
+        assertEquals("first", first.get());
+        assertFalse(secondRan.get());
+        assertEquals(0, semaphore.inUse());
+    }
+
+    @Test
+    public void testCancellingStartedRunCancelsOperation() {
+        AsyncSemaphore semaphore = new AsyncSemaphore(1);
+        CompletableFuture<String> work = new CompletableFuture<>();
+
+        CompletableFuture<String> running = semaphore.run(() -> work);
+        running.cancel(true);
+
+        assertTrue(work.isCancelled());
+        assertEquals(0, semaphore.inUse());
+    }
+}
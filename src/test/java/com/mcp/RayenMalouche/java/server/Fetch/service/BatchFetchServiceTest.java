@@ -0,0 +1,123 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchFetchServiceTest {
+
+    /**
+     * Hands out one pending fetch per URL, to be completed by the test
+     */
+    private static class PendingFetches extends WebContentService {
+        private final Map<String, CompletableFuture<String>> fetches = new ConcurrentHashMap<>();
+
+        @Override
+        public CompletableFuture<String> fetchAsync(FetchMode mode, String url) {
+            return fetches.computeIfAbsent(url, u -> new CompletableFuture<>());
+        }
+
+        CompletableFuture<String> fetch(String url) {
+            return fetches.get(url);
+        }
+
+        int started() {
+            return fetches.size();
+        }
+    }
+
+    private static BatchFetchService batchService(WebContentService engine, int maxUrls, int concurrency) {
+        BatchFetchService service = new BatchFetchService(engine);
+        ReflectionTestUtils.setField(service, "maxUrls", maxUrls);
+        ReflectionTestUtils.setField(service, "concurrency", concurrency);
+        service.initialize();
+        return service;
+    }
+
+    @Test
+    public void testReturnsResultsInRequestOrder() throws Exception {
+        PendingFetches engine = new PendingFetches();
+        BatchFetchService service = batchService(engine, 10, 10);
+        List<String> urls = List.of("https://a.example/", "https://b.example/", "https://c.example/");
+        List<Integer> completionOrder = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<List<BatchResult>> batch = service.fetchAll(urls, FetchMode.RAW_TEXT,
+                result -> completionOrder.add(result.index()));
+        engine.fetch(urls.get(2)).complete("c");
+        engine.fetch(urls.get(0)).complete("a");
+        engine.fetch(urls.get(1)).complete("b");
+
+        List<BatchResult> results = batch.get();
+        assertEquals(List.of(2, 0, 1), completionOrder);
+        assertEquals(List.of(0, 1, 2), results.stream().map(BatchResult::index).toList());
+        assertEquals(List.of("a", "b", "c"), results.stream().map(BatchResult::content).toList());
+        assertEquals("raw-text", results.get(0).mode());
+    }
+
+    @Test
+    public void testReportsFailuresPerUrl() throws Exception {
+        PendingFetches engine = new PendingFetches();
+        BatchFetchService service = batchService(engine, 10, 10);
+        List<String> urls = List.of("https://ok.example/", "https://down.example/");
+
+        CompletableFuture<List<BatchResult>> batch = service.fetchAll(urls, FetchMode.MARKDOWN, result -> { });
+        engine.fetch(urls.get(0)).complete("# ok");
+        engine.fetch(urls.get(1)).completeExceptionally(new IOException("Connection refused"));
+
+        List<BatchResult> results = batch.get();
+        assertTrue(results.get(0).success());
+        assertFalse(results.get(1).success());
+        assertNull(results.get(1).content());
+        assertEquals("Connection refused", results.get(1).error());
+    }
+
+    @Test
+    public void testLimitsUrlCount() {
+        BatchFetchService service = batchService(new PendingFetches(), 2, 10);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.fetchAll(List.of(), FetchMode.MARKDOWN, result -> { }));
+        assertThrows(IllegalArgumentException.class, () -> service.fetchAll(
+                List.of("https://a.example/", "https://b.example/", "https://c.example/"), FetchMode.MARKDOWN,
+                result -> { }));
+    }
+
+    @Test
+    public void testCapsConcurrentFetches() throws Exception {
+        PendingFetches engine = new PendingFetches();
+        BatchFetchService service = batchService(engine, 10, 2);
+        List<String> urls = List.of("https://a.example/", "https://b.example/", "https://c.example/",
+                "https://d.example/");
+
+        CompletableFuture<List<BatchResult>> batch = service.fetchAll(urls, FetchMode.RAW_TEXT, result -> { });
+        assertEquals(2, engine.started());
+
+        engine.fetch(urls.get(0)).complete("a");
+        assertEquals(3, engine.started());
+        engine.fetch(urls.get(1)).complete("b");
+        engine.fetch(urls.get(2)).complete("c");
+        engine.fetch(urls.get(3)).complete("d");
+        assertEquals(4, batch.get().size());
+    }
+
+    @Test
+    public void testCancellingBatchCancelsFetches() {
+        PendingFetches engine = new PendingFetches();
+        BatchFetchService service = batchService(engine, 10, 1);
+        List<String> urls = List.of("https://a.example/", "https://b.example/");
+
+        CompletableFuture<List<BatchResult>> batch = service.fetchAll(urls, FetchMode.RENDERED_HTML, result -> { });
+        batch.cancel(true);
+
+        assertTrue(engine.fetch(urls.get(0)).isCancelled());
+        assertEquals(1, engine.started());
+    }
+}
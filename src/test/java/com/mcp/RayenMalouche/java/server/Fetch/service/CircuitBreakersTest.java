@@ -0,0 +1,109 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakersTest {
+
+    private static final String URL = "https://down.example/page";
+
+    @Test
+    public void testOpensAfterFailuresAndFailsFast() throws Exception {
+        CircuitBreakers breakers = new CircuitBreakers(10, 4, 0.5, 1.0, Duration.ofMinutes(1), 1);
+        for (int i = 0; i < 4; i++) {
+            fail(breakers, URL, new IOException("Connection refused"));
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> refused = breakers.call(URL, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture("body");
+        }, body -> CircuitBreakers.Outcome.SUCCESS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> refused.get(1, TimeUnit.SECONDS));
+        HostUnavailableException unavailable = assertInstanceOf(HostUnavailableException.class, e.getCause());
+        assertTrue(unavailable.getMessage().contains("down.example"));
+        assertEquals(0, attempts.get());
+
+        // Other hosts are not affected
+        assertEquals("ok", breakers.call("https://up.example/", () -> CompletableFuture.completedFuture("ok"),
+                body -> CircuitBreakers.Outcome.SUCCESS).get(1, TimeUnit.SECONDS));
+        Map<?, ?> hosts = (Map<?, ?>) breakers.stats().get("hosts");
+        assertEquals("open", ((Map<?, ?>) hosts.get("down.example")).get("state"));
+    }
+
+    @Test
+    public void testStaysClosedWhileMostRequestsSucceed() throws Exception {
+        CircuitBreakers breakers = new CircuitBreakers(10, 4, 0.5, 1.0, Duration.ofMinutes(1), 1);
+        for (int i = 0; i < 6; i++) {
+            succeed(breakers, URL);
+            fail(breakers, URL, new IOException("Connection reset"));
+            succeed(breakers, URL);
+        }
+        assertEquals("ok", breakers.call(URL, () -> CompletableFuture.completedFuture("ok"),
+                body -> CircuitBreakers.Outcome.SUCCESS).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTimeoutsOpenTheBreakerAtTheirOwnRate() {
+        CircuitBreakers breakers = new CircuitBreakers(10, 4, 0.9, 0.25, Duration.ofMinutes(1), 1);
+        for (int i = 0; i < 3; i++) {
+            succeed(breakers, URL);
+        }
+        fail(breakers, URL, new HttpTimeoutException("request timed out"));
+
+        assertEquals(1, breakers.stats().get("open"));
+    }
+
+    @Test
+    public void testHalfOpenProbeClosesOrReopensTheBreaker() throws Exception {
+        CircuitBreakers breakers = new CircuitBreakers(4, 2, 0.5, 1.0, Duration.ofMillis(50), 1);
+        fail(breakers, URL, new IOException("Connection refused"));
+        fail(breakers, URL, new IOException("Connection refused"));
+        Thread.sleep(80);
+
+        // A failed probe reopens the breaker
+        fail(breakers, URL, new IOException("Connection refused"));
+        assertThrows(ExecutionException.class, () -> breakers.call(URL,
+                () -> CompletableFuture.completedFuture("body"), body -> CircuitBreakers.Outcome.SUCCESS).get());
+        Thread.sleep(80);
+
+        // Only one probe at a time; the others are refused until it succeeds
+        CompletableFuture<String> probe = new CompletableFuture<>();
+        breakers.call(URL, () -> probe, body -> CircuitBreakers.Outcome.SUCCESS);
+        assertThrows(ExecutionException.class, () -> breakers.call(URL,
+                () -> CompletableFuture.completedFuture("body"), body -> CircuitBreakers.Outcome.SUCCESS).get());
+        probe.complete("body");
+        assertEquals("ok", breakers.call(URL, () -> CompletableFuture.completedFuture("ok"),
+                body -> CircuitBreakers.Outcome.SUCCESS).get(1, TimeUnit.SECONDS));
+        assertEquals(0, breakers.stats().get("open"));
+    }
+
+    @Test
+    public void testOurOwnFailuresDoNotCountAgainstTheHost() {
+        assertEquals(CircuitBreakers.Outcome.IGNORED, CircuitBreakers.classify(new CancellationException()));
+        assertEquals(CircuitBreakers.Outcome.IGNORED,
+                CircuitBreakers.classify(new OverloadedException("busy", Duration.ofSeconds(1))));
+        assertEquals(CircuitBreakers.Outcome.TIMEOUT,
+                CircuitBreakers.classify(new HttpTimeoutException("request timed out")));
+        assertEquals(CircuitBreakers.Outcome.FAILURE, CircuitBreakers.classify(new IOException("refused")));
+    }
+
+    private static void succeed(CircuitBreakers breakers, String url) {
+        breakers.call(url, () -> CompletableFuture.completedFuture("body"), body -> CircuitBreakers.Outcome.SUCCESS);
+    }
+
+    private static void fail(CircuitBreakers breakers, String url, Throwable error) {
+        breakers.call(url, () -> CompletableFuture.<String>failedFuture(error), body -> CircuitBreakers.Outcome.SUCCESS);
+    }
+}
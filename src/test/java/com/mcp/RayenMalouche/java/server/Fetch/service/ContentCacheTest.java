@@ -0,0 +1,92 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentCacheTest {
+
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(60);
+
+    private static CacheEntry entry(String content, Map<String, String> headers) {
+        return CacheEntry.fromHeaders(content, name -> Optional.ofNullable(headers.get(name)), DEFAULT_TTL);
+    }
+
+    @Test
+    public void testNormalizesUrlKeys() {
+        assertEquals(FetchKey.of("HTTPS://Example.COM:443", FetchMode.MARKDOWN),
+                FetchKey.of("https://example.com/#section", FetchMode.MARKDOWN));
+        assertNotEquals(FetchKey.of("https://example.com/", FetchMode.MARKDOWN),
+                FetchKey.of("https://example.com/", FetchMode.RAW_TEXT));
+        assertEquals("http://example.com:8080/a?b=c", FetchKey.normalize("http://EXAMPLE.com:8080/a?b=c#d"));
+    }
+
+    @Test
+    public void testHonorsCacheControl() {
+        assertTrue(entry("body", Map.of("cache-control", "max-age=300")).isFresh());
+        assertFalse(entry("body", Map.of("cache-control", "no-cache", "etag", "\"v1\"")).isFresh());
+        assertFalse(entry("body", Map.of("cache-control", "no-store")).isStorable());
+        assertFalse(entry("body", Map.of("expires", "Thu, 01 Jan 1970 00:00:00 GMT")).isFresh());
+        assertTrue(entry("body", Map.of()).isFresh());
+    }
+
+    @Test
+    public void testServesFreshEntriesAndCountsHits() {
+        ContentCache cache = new ContentCache(1024 * 1024);
+        FetchKey key = FetchKey.of("https://example.com", FetchMode.RAW_TEXT);
+
+        assertNull(cache.lookup(key));
+        cache.put(key, entry("hello", Map.of("cache-control", "max-age=60")));
+        assertEquals("hello", cache.lookup(key).content());
+
+        Map<String, Object> stats = cache.stats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+    }
+
+    @Test
+    public void testKeepsStaleEntriesOnlyWhenRevalidatable() {
+        ContentCache cache = new ContentCache(1024 * 1024);
+        FetchKey withValidator = FetchKey.of("https://example.com/a", FetchMode.RAW_TEXT);
+        FetchKey withoutValidator = FetchKey.of("https://example.com/b", FetchMode.RAW_TEXT);
+
+        cache.put(withValidator, entry("a", Map.of("cache-control", "max-age=0", "etag", "\"v1\"")));
+        cache.put(withoutValidator, entry("b", Map.of("cache-control", "max-age=0")));
+
+        CacheEntry stale = cache.lookup(withValidator);
+        assertNotNull(stale);
+        assertFalse(stale.isFresh());
+        assertNull(cache.lookup(withoutValidator));
+
+        CacheEntry refreshed = stale.revalidated(name -> Optional.ofNullable(
+                Map.of("cache-control", "max-age=60").get(name)), DEFAULT_TTL);
+        assertTrue(refreshed.isFresh());
+        assertEquals("\"v1\"", refreshed.etag());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedByWeight() {
+        String body = "x".repeat(1000);
+        long weight = entry(body, Map.of()).weight();
+        ContentCache cache = new ContentCache(weight * 2);
+
+        FetchKey first = FetchKey.of("https://example.com/1", FetchMode.RAW_TEXT);
+        FetchKey second = FetchKey.of("https://example.com/2", FetchMode.RAW_TEXT);
+        FetchKey third = FetchKey.of("https://example.com/3", FetchMode.RAW_TEXT);
+
+        cache.put(first, entry(body, Map.of()));
+        cache.put(second, entry(body, Map.of()));
+        cache.lookup(first);
+        cache.put(third, entry(body, Map.of()));
+
+        assertNotNull(cache.lookup(first));
+        assertNull(cache.lookup(second));
+        assertNotNull(cache.lookup(third));
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertTrue(cache.weightedSize() <= weight * 2);
+    }
+}
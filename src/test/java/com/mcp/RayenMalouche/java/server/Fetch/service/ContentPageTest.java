@@ -0,0 +1,51 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentPageTest {
+
+    @Test
+    public void testPagesThroughDocument() {
+        ContentPage first = ContentPage.of("abcdefghij", 0, 4);
+        assertEquals("abcd", first.content());
+        assertTrue(first.truncated());
+        assertEquals(4, first.nextStartIndex());
+        assertEquals(10, first.totalLength());
+
+        ContentPage last = ContentPage.of("abcdefghij", 8, 4);
+        assertEquals("ij", last.content());
+        assertFalse(last.truncated());
+        assertNull(last.nextStartIndex());
+    }
+
+    @Test
+    public void testUnlimitedAndOutOfRangePages() {
+        assertEquals("cdef", ContentPage.of("abcdef", 2, 0).content());
+
+        ContentPage pastEnd = ContentPage.of("abcdef", 100, 10);
+        assertEquals("", pastEnd.content());
+        assertEquals(6, pastEnd.startIndex());
+        assertFalse(pastEnd.truncated());
+    }
+
+    @Test
+    public void testDoesNotSplitSurrogatePairs() {
+        String document = "ab😀cd";
+        ContentPage page = ContentPage.of(document, 0, 3);
+        assertEquals("ab", page.content());
+        assertEquals(2, page.nextStartIndex());
+        assertEquals("😀c", ContentPage.of(document, page.nextStartIndex(), 3).content());
+    }
+
+    @Test
+    public void testSingleCharacterPagesAdvancePastSurrogatePairs() {
+        String document = "a😀b";
+        ContentPage pair = ContentPage.of(document, 1, 1);
+        assertEquals("😀", pair.content());
+        assertTrue(pair.truncated());
+        assertEquals(3, pair.nextStartIndex());
+        assertEquals("b", ContentPage.of(document, pair.nextStartIndex(), 1).content());
+    }
+}
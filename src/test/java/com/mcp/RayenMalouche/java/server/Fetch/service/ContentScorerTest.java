@@ -0,0 +1,58 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentScorerTest {
+
+    private static final String PARAGRAPH = "<p>The council met on Tuesday, and after a long debate, it approved the budget for next year.</p>";
+
+    @Test
+    public void testPicksStoryOutOfUnmarkedDivs() {
+        Document doc = Jsoup.parse("<div class=\"wrapper\">"
+                + "<div class=\"sidebar\"><p>Popular this week, across all of our sections and blogs.</p></div>"
+                + "<div class=\"story\">" + PARAGRAPH.repeat(4) + "</div>"
+                + "<div class=\"comments\">" + PARAGRAPH + "</div></div>");
+
+        assertEquals("story", ContentScorer.mainContent(doc.body()).className());
+    }
+
+    @Test
+    public void testPenalizesLinkHeavyBlocks() {
+        String link = "<p><a href=\"/next\">Another story you might like, with a long headline</a></p>";
+        Document doc = Jsoup.parse("<div id=\"links\">" + link.repeat(6) + "</div>"
+                + "<div id=\"text\">" + PARAGRAPH.repeat(2) + "</div>");
+
+        assertEquals("text", ContentScorer.mainContent(doc.body()).id());
+    }
+
+    @Test
+    public void testCountsTextOnlyDivsAsParagraphs() {
+        String block = "<div><span>Rendered by a script, this block has no paragraph markup at all.</span></div>";
+        Document doc = Jsoup.parse("<div id=\"app\"><div class=\"x1\">" + block.repeat(5) + "</div>"
+                + "<div class=\"x2\"><span>Short note</span></div></div>");
+
+        assertEquals("x1", ContentScorer.mainContent(doc.body()).className());
+    }
+
+    @Test
+    public void testWidensTableSectionsToTheTable() {
+        String row = "<tr><td>Is there a way to stream responses, without buffering the whole body?</td></tr>";
+        Document doc = Jsoup.parse("<table id=\"topics\"><tbody>" + row.repeat(4) + "</tbody></table>");
+
+        assertEquals("topics", ContentScorer.mainContent(doc.body()).id());
+    }
+
+    @Test
+    public void testFallsBackToRoot() {
+        Document doc = Jsoup.parse("<div><span>Hi</span></div><ul><li><a href=\"/\">Home</a></li></ul>");
+
+        assertSame(doc.body(), ContentScorer.mainContent(doc.body()));
+        // Marked-up main content is chosen even when it is short
+        doc = Jsoup.parse("<div><span>Hi</span></div><article><h2>Story</h2><p>Body</p></article>");
+        assertEquals("article", ContentScorer.mainContent(doc.body()).tagName());
+    }
+}
@@ -0,0 +1,178 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecodingBodyHandlerTest {
+
+    private static final String PAGE = "<html><head><title>Café</title></head><body>"
+            + "<p>Naïve résumé — ".repeat(200) + "</p></body></html>";
+
+    private static String read(DecodingBodyHandler handler, Map<String, String> headers, byte[] body, int chunkSize)
+            throws Exception {
+        HttpHeaders httpHeaders = HttpHeaders.of(
+                headers.entrySet().stream().collect(Collectors.toMap(
+                        Map.Entry::getKey, entry -> List.of(entry.getValue()))),
+                (name, value) -> true);
+        HttpResponse.BodySubscriber<String> subscriber = handler.apply(new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return httpHeaders;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        });
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        for (int offset = 0; offset < body.length; offset += chunkSize) {
+            List<ByteBuffer> chunk = new ArrayList<>();
+            chunk.add(ByteBuffer.wrap(body, offset, Math.min(chunkSize, body.length - offset)).slice());
+            subscriber.onNext(chunk);
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().get(1, TimeUnit.SECONDS);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Wraps data in a brotli stream made of one uncompressed meta-block (RFC 7932, section 9.2)
+     */
+    private static byte[] brotliStored(byte[] data) {
+        int header = (data.length - 1) << 4 | 1 << 20;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(header & 0xFF);
+        bytes.write(header >> 8 & 0xFF);
+        bytes.write(header >> 16 & 0xFF);
+        bytes.write(data, 0, data.length);
+        bytes.write(0x03);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testDecodesCompressedBodiesInSmallChunks() throws Exception {
+        DecodingBodyHandler handler = new DecodingBodyHandler(1024 * 1024);
+        byte[] utf8 = PAGE.getBytes(StandardCharsets.UTF_8);
+        Map<String, String> html = Map.of("content-type", "text/html; charset=utf-8");
+
+        assertEquals(PAGE, read(handler, Map.of("content-encoding", "gzip", "content-type", "text/html"), gzip(utf8), 7));
+        assertEquals(PAGE, read(handler, Map.of("content-encoding", "deflate"), deflate(utf8, false), 1));
+        assertEquals(PAGE, read(handler, Map.of("content-encoding", "deflate"), deflate(utf8, true), 100));
+        assertEquals(PAGE, read(handler, Map.of("content-encoding", "br"), brotliStored(utf8), 64));
+        assertEquals(PAGE, read(handler, html, utf8, 4096));
+
+        Map<String, Object> stats = handler.stats();
+        assertTrue((long) stats.get("decodedBytes") > (long) stats.get("wireBytes"));
+    }
+
+    @Test
+    public void testDecodesEmptyCompressedBodies() throws Exception {
+        DecodingBodyHandler handler = new DecodingBodyHandler(1024 * 1024);
+
+        for (String encoding : List.of("gzip", "deflate", "br")) {
+            assertEquals("", read(handler, Map.of("content-encoding", encoding), new byte[0], 512));
+        }
+    }
+
+    @Test
+    public void testDecodesEveryGzipMember() throws Exception {
+        DecodingBodyHandler handler = new DecodingBodyHandler(1024 * 1024);
+        byte[] first = gzip("<html><body>first half, ".getBytes(StandardCharsets.UTF_8));
+        byte[] second = gzip("second half</body></html>".getBytes(StandardCharsets.UTF_8));
+        byte[] members = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, members, first.length, second.length);
+
+        for (int chunkSize : new int[]{1, 7, members.length}) {
+            assertEquals("<html><body>first half, second half</body></html>",
+                    read(handler, Map.of("content-encoding", "gzip"), members, chunkSize));
+        }
+
+        byte[] garbage = Arrays.copyOf(first, first.length + 16);
+        ExecutionException trailing = assertThrows(ExecutionException.class,
+                () -> read(handler, Map.of("content-encoding", "gzip"), garbage, 512));
+        assertInstanceOf(IOException.class, trailing.getCause());
+    }
+
+    @Test
+    public void testRejectsCorruptAndOversizedBodies() throws Exception {
+        byte[] compressed = gzip(PAGE.getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+        DecodingBodyHandler handler = new DecodingBodyHandler(1024 * 1024);
+        ExecutionException corrupt = assertThrows(ExecutionException.class,
+                () -> read(handler, Map.of("content-encoding", "gzip"), truncated, 512));
+        assertInstanceOf(IOException.class, corrupt.getCause());
+
+        DecodingBodyHandler small = new DecodingBodyHandler(1024);
+        ExecutionException oversized = assertThrows(ExecutionException.class,
+                () -> read(small, Map.of("content-encoding", "gzip"), compressed, 512));
+        assertTrue(oversized.getCause().getMessage().contains("exceeds"));
+    }
+
+    @Test
+    public void testDetectsCharset() throws Exception {
+        DecodingBodyHandler handler = new DecodingBodyHandler(1024 * 1024);
+        Charset latin1 = StandardCharsets.ISO_8859_1;
+        String page = "<html><head><meta charset=\"iso-8859-1\"></head><body>Café</body></html>";
+        String httpEquiv = "<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=ISO-8859-1\">"
+                + "</head><body>Café</body></html>";
+
+        assertEquals(page, read(handler, Map.of(), page.getBytes(latin1), 16));
+        assertEquals(httpEquiv, read(handler, Map.of("content-type", "text/html"), httpEquiv.getBytes(latin1), 16));
+        assertEquals("Café", read(handler, Map.of("content-type", "text/plain; charset=\"ISO-8859-1\""),
+                "Café".getBytes(latin1), 16));
+
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'h', 'i'};
+        assertEquals("hi", read(handler, Map.of(), bom, 16));
+    }
+}
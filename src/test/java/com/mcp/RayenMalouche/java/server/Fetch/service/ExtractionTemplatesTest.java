@@ -0,0 +1,95 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExtractionTemplatesTest {
+
+    private static final String PARAGRAPH = "<p>The council met on Tuesday, and after a long debate, it approved the budget.</p>";
+
+    private static Document page(int id, String story) {
+        return Jsoup.parse("<div class=\"layout\"><div class=\"col\">"
+                + "<div class=\"story post-" + id + "\">"
+                + "<div class=\"share\">Share on Mastodon or by email</div>" + story
+                + "<div class=\"byline\">By reporter " + id + "</div></div>"
+                + "<div class=\"sidebar\"><p>Most read today, this week, and this month on the site.</p></div>"
+                + "</div></div>");
+    }
+
+    @Test
+    public void testLearnsTemplateFromAgreeingPages() {
+        ExtractionTemplates templates = new ExtractionTemplates(true, 2, Duration.ofHours(1));
+        String url = "https://news.example.com/story/";
+
+        Element first = templates.mainContent(url + 1, page(1, PARAGRAPH.repeat(3)).body());
+        assertTrue(first.hasClass("post-1"));
+        assertNull(templates.templateFor(url + 1));
+        // The same URL again does not count as a second page
+        templates.mainContent(url + 1, page(1, PARAGRAPH.repeat(3)).body());
+        assertNull(templates.templateFor(url + 1));
+
+        templates.mainContent(url + 2, page(2, PARAGRAPH.repeat(4)).body());
+        ExtractionTemplates.Template template = templates.templateFor("https://news.example.com/other");
+        assertNotNull(template);
+        // Per-page class names are not part of the template
+        assertEquals("> div.layout > div.col > div.story", template.selector());
+        assertNull(templates.templateFor("https://blog.example.org/"));
+
+        // Later pages take the template even where scoring would choose differently
+        Document brief = page(3, "<p>Brief.</p>");
+        Element content = templates.mainContent(url + 3, brief.body());
+        assertTrue(content.hasClass("post-3"));
+        Map<String, Object> stats = templates.stats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("learned"));
+        assertEquals(1, stats.get("hosts"));
+    }
+
+    @Test
+    public void testRemovesRepeatedBoilerplate() {
+        ExtractionTemplates templates = new ExtractionTemplates(true, 2, Duration.ofHours(1));
+        templates.mainContent("https://a.example.com/1", page(1, PARAGRAPH.repeat(3)).body());
+        templates.mainContent("https://a.example.com/2", page(2, PARAGRAPH.repeat(3)).body());
+
+        Element content = templates.mainContent("https://a.example.com/3", page(3, PARAGRAPH.repeat(3)).body());
+        // The share bar never changed; the byline did
+        assertNull(content.selectFirst(".share"));
+        assertEquals("By reporter 3", content.selectFirst(".byline").text());
+        assertEquals(1L, templates.stats().get("removedBlocks"));
+    }
+
+    @Test
+    public void testRelearnsWhenTemplateStopsMatching() {
+        ExtractionTemplates templates = new ExtractionTemplates(true, 2, Duration.ofHours(1));
+        templates.mainContent("https://b.example.com/1", page(1, PARAGRAPH.repeat(3)).body());
+        templates.mainContent("https://b.example.com/2", page(2, PARAGRAPH.repeat(3)).body());
+        assertNotNull(templates.templateFor("https://b.example.com/"));
+
+        Document redesigned = Jsoup.parse("<main><div class=\"article-body\">" + PARAGRAPH.repeat(3) + "</div></main>");
+        Element content = templates.mainContent("https://b.example.com/3", redesigned.body());
+        assertTrue(content.hasClass("article-body"));
+        assertNull(templates.templateFor("https://b.example.com/"));
+        assertEquals(1L, templates.stats().get("misses"));
+
+        templates.mainContent("https://b.example.com/4",
+                Jsoup.parse("<main><div class=\"article-body\">" + PARAGRAPH.repeat(2) + "</div></main>").body());
+        assertEquals("> main > div.article-body", templates.templateFor("https://b.example.com/").selector());
+    }
+
+    @Test
+    public void testScoresEveryPageWhenDisabled() {
+        ExtractionTemplates templates = new ExtractionTemplates(false, 2, Duration.ofHours(1));
+        for (int i = 1; i <= 3; i++) {
+            templates.mainContent("https://c.example.com/" + i, page(i, PARAGRAPH.repeat(3)).body());
+        }
+        assertNull(templates.templateFor("https://c.example.com/"));
+        assertEquals(3L, templates.stats().get("scored"));
+    }
+}
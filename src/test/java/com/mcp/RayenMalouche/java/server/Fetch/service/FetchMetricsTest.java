@@ -0,0 +1,50 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FetchMetricsTest {
+
+    @Test
+    public void testStagesAreRecordedPerMode() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        FetchMetrics metrics = new FetchMetrics(registry);
+
+        metrics.record(FetchMetrics.Stage.NAVIGATION, FetchMode.RENDERED_HTML, TimeUnit.MILLISECONDS.toNanos(250));
+        metrics.recordResult(FetchMode.MARKDOWN_SUMMARY, 1200);
+        metrics.recordResponse(FetchMode.RAW_TEXT, 4096);
+
+        assertEquals(250, registry.get("fetch.stage").tags("stage", "navigation", "mode", "rendered-html")
+                .timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(0, registry.get("fetch.stage").tags("stage", "navigation", "mode", "markdown")
+                .timer().count());
+        assertEquals(1200, registry.get("fetch.result.size").tags("mode", "markdown-summary")
+                .summary().totalAmount());
+        assertEquals(4096, registry.get("fetch.http.response.size").tags("mode", "raw-text")
+                .summary().totalAmount());
+    }
+
+    @Test
+    public void testGaugesFollowCacheAndRenderer() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        FetchMetrics metrics = new FetchMetrics(registry);
+        ContentCache cache = new ContentCache(1024 * 1024);
+        metrics.monitor(cache, new AsyncSemaphore(4), () -> null);
+
+        FetchKey key = FetchKey.of("https://example.com/", FetchMode.RAW_TEXT);
+        cache.lookup(key);
+        cache.put(key, new CacheEntry("body", null, null, System.currentTimeMillis() + 60_000, true));
+        cache.lookup(key);
+
+        assertEquals(1, registry.get("fetch.cache.entries").gauge().value());
+        assertEquals(0.5, registry.get("fetch.cache.hit.ratio").gauge().value(), 0.001);
+        assertEquals(1, registry.get("fetch.cache.lookups").tags("result", "hit").functionCounter().count());
+        assertEquals(0, registry.get("fetch.browser.workers").gauge().value());
+        assertEquals(0, registry.get("fetch.render.queue.depth").gauge().value());
+    }
+}
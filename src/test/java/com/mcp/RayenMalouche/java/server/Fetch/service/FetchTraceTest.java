@@ -0,0 +1,122 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FetchTraceTest {
+
+    private static HttpResponse.ResponseInfo responseInfo() {
+        HttpHeaders headers = HttpHeaders.of(Map.of(), (name, value) -> true);
+        return new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+
+    @Test
+    public void testTimedBodyHandlerRecordsHeadersBodyAndSize() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        FetchTrace trace = new FetchTrace(new FetchMetrics(registry), FetchMode.MARKDOWN);
+        HttpResponse.BodyHandler<String> handler = trace.timed(new DecodingBodyHandler(1024 * 1024), System.nanoTime());
+
+        HttpResponse.BodySubscriber<String> subscriber = handler.apply(responseInfo());
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onNext(List.of(ByteBuffer.wrap("<p>Hello, ".getBytes(StandardCharsets.UTF_8))));
+        subscriber.onNext(List.of(ByteBuffer.wrap("world</p>".getBytes(StandardCharsets.UTF_8))));
+        subscriber.onComplete();
+
+        assertEquals("<p>Hello, world</p>", subscriber.getBody().toCompletableFuture().get(1, TimeUnit.SECONDS));
+        assertEquals(1, registry.get("fetch.stage").tags("stage", "ttfb", "mode", "markdown").timer().count());
+        assertEquals(1, registry.get("fetch.stage").tags("stage", "body", "mode", "markdown").timer().count());
+        assertEquals(0, registry.get("fetch.stage").tags("stage", "body", "mode", "raw-text").timer().count());
+        assertEquals(19, registry.get("fetch.http.response.size").tags("mode", "markdown").summary().totalAmount());
+
+        FetchTimings timings = trace.finish("Hello, world");
+        assertEquals(List.of("ttfb", "body"), List.copyOf(timings.stagesMs().keySet()));
+        assertEquals(19, timings.bytesFetched());
+        assertEquals(12, timings.bytesEmitted());
+        assertFalse(timings.browser());
+    }
+
+    @Test
+    public void testFinishReportsOnlyStagesThatRan() {
+        FetchTrace trace = new FetchTrace(new FetchMetrics(new SimpleMeterRegistry()), FetchMode.RENDERED_HTML);
+        trace.record(FetchMetrics.Stage.NAVIGATION, TimeUnit.MILLISECONDS.toNanos(120));
+        trace.record(FetchMetrics.Stage.BROWSER_LEASE, TimeUnit.MILLISECONDS.toNanos(5));
+        trace.record(FetchMetrics.Stage.NAVIGATION, TimeUnit.MILLISECONDS.toNanos(30));
+        trace.usedBrowser();
+
+        FetchTimings timings = trace.finish(null);
+        assertEquals(Map.of("browser-lease", 5.0, "navigation", 150.0), timings.stagesMs());
+        assertEquals(List.of("browser-lease", "navigation"), List.copyOf(timings.stagesMs().keySet()));
+        assertEquals(0, timings.bytesFetched());
+        assertEquals(0, timings.bytesEmitted());
+        assertTrue(timings.browser());
+        assertTrue(timings.totalMs() >= 0);
+    }
+
+    @Test
+    public void testOutermostCacheLookupDecides() {
+        FetchMetrics metrics = new FetchMetrics(new SimpleMeterRegistry());
+
+        FetchTrace hit = new FetchTrace(metrics, FetchMode.MARKDOWN);
+        hit.cache(FetchTrace.CacheStatus.HIT);
+        hit.cache(FetchTrace.CacheStatus.REVALIDATED);
+        assertEquals("hit", hit.finish("").cache());
+
+        FetchTrace converted = new FetchTrace(metrics, FetchMode.MARKDOWN);
+        converted.cache(FetchTrace.CacheStatus.MISS);
+        converted.cache(FetchTrace.CacheStatus.HIT);
+        assertEquals("miss", converted.finish("").cache());
+
+        FetchTrace revalidated = new FetchTrace(metrics, FetchMode.RAW_TEXT);
+        revalidated.cache(FetchTrace.CacheStatus.MISS);
+        revalidated.cache(FetchTrace.CacheStatus.REVALIDATED);
+        assertEquals("revalidated", revalidated.finish("").cache());
+
+        FetchTrace bypass = new FetchTrace(metrics, FetchMode.RENDERED_HTML);
+        bypass.cache(FetchTrace.CacheStatus.BYPASS);
+        bypass.cache(FetchTrace.CacheStatus.COALESCED);
+        assertEquals("bypass", bypass.finish("").cache());
+    }
+
+    @Test
+    public void testUtf8LengthMatchesEncoding() {
+        for (String text : List.of("", "plain", "café", "日本語", "😀 ok", "\uD83D")) {
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, FetchTrace.utf8Length(text), text);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HostSchedulerTest {
+
+    private static final HostScheduler.HostLimits UNLIMITED_RATE = new HostScheduler.HostLimits(1, 0, 1);
+
+    @Test
+    public void testLimitsConcurrencyPerHost() throws Exception {
+        HostScheduler scheduler = new HostScheduler(UNLIMITED_RATE, Map.of());
+        CompletableFuture<String> slowWork = new CompletableFuture<>();
+
+        CompletableFuture<String> first = scheduler.schedule("https://a.example/1", () -> slowWork);
+        CompletableFuture<String> sameHost = scheduler.schedule("https://a.example/2",
+                () -> CompletableFuture.completedFuture("same host"));
+        CompletableFuture<String> otherHost = scheduler.schedule("https://b.example/1",
+                () -> CompletableFuture.completedFuture("other host"));
+
+        assertEquals("other host", otherHost.get(1, TimeUnit.SECONDS));
+        assertFalse(sameHost.isDone());
+        assertEquals(1, scheduler.queueDepth("a.example"));
+
+        slowWork.complete("first");
+        assertEquals("first", first.get(1, TimeUnit.SECONDS));
+        assertEquals("same host", sameHost.get(1, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.queueDepth("a.example"));
+    }
+
+    @Test
+    public void testCancelledRequestsLeaveTheQueue() throws Exception {
+        HostScheduler scheduler = new HostScheduler(UNLIMITED_RATE, Map.of());
+        CompletableFuture<String> slowWork = new CompletableFuture<>();
+        scheduler.schedule("https://a.example/1", () -> slowWork);
+
+        boolean[] ran = {false};
+        CompletableFuture<String> queued = scheduler.schedule("https://a.example/2", () -> {
+            ran[0] = true;
+            return CompletableFuture.completedFuture("queued");
+        });
+        queued.cancel(true);
+        assertEquals(0, scheduler.queueDepth("a.example"));
+
+        slowWork.complete("first");
+        CompletableFuture<String> next = scheduler.schedule("https://a.example/3",
+                () -> CompletableFuture.completedFuture("next"));
+        assertEquals("next", next.get(1, TimeUnit.SECONDS));
+        assertFalse(ran[0]);
+    }
+
+    @Test
+    public void testEvictingIdleHostsKeepsOneQueuePerHost() throws Exception {
+        HostScheduler scheduler = new HostScheduler(UNLIMITED_RATE, Map.of());
+        for (int i = 0; i < 1100; i++) {
+            scheduler.schedule("https://idle" + i + ".example/", () -> CompletableFuture.completedFuture("")).get();
+        }
+
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<CompletableFuture<String>> requests = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            int n = i;
+            requests.add(CompletableFuture.supplyAsync(() -> {
+                if (n % 2 == 0) {
+                    return scheduler.schedule("https://churn" + n + ".example/",
+                            () -> CompletableFuture.completedFuture("")).join();
+                }
+                return scheduler.schedule("https://a.example/" + n, () -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    Thread.onSpinWait();
+                    active.decrementAndGet();
+                    return CompletableFuture.completedFuture("");
+                }).join();
+            }, threads));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        threads.shutdown();
+
+        assertEquals(1, maxActive.get());
+        assertEquals(0, scheduler.queueDepth("a.example"));
+    }
+
+    @Test
+    public void testTokenBucketSpacesRequestsAtTheConfiguredRate() {
+        long start = 0;
+        TokenBucket bucket = new TokenBucket(10, 2, start);
+
+        assertEquals(0, bucket.reserve(start));
+        assertEquals(0, bucket.reserve(start));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.reserve(start));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), bucket.reserve(start));
+
+        long later = start + TimeUnit.SECONDS.toNanos(1);
+        assertEquals(0, bucket.reserve(later));
+        bucket.pauseUntil(later + TimeUnit.SECONDS.toNanos(5));
+        assertEquals(TimeUnit.SECONDS.toNanos(5), bucket.reserve(later));
+    }
+
+    @Test
+    public void testAppliesMostSpecificDomainOverride() {
+        HostScheduler scheduler = new HostScheduler(new HostScheduler.HostLimits(4, 5, 5),
+                HostScheduler.parseOverrides("example.com=2:1, docs.example.com=8:20:40"));
+
+        assertEquals(new HostScheduler.HostLimits(8, 20, 40), scheduler.limitsFor("docs.example.com"));
+        assertEquals(new HostScheduler.HostLimits(2, 1, 1), scheduler.limitsFor("www.example.com"));
+        assertEquals(new HostScheduler.HostLimits(4, 5, 5), scheduler.limitsFor("notexample.com"));
+        assertThrows(IllegalArgumentException.class, () -> HostScheduler.parseOverrides("example.com=2"));
+    }
+
+    @Test
+    public void testParsesRetryAfter() {
+        assertEquals(Duration.ofSeconds(120), HostScheduler.parseRetryAfter("120").orElseThrow());
+        assertEquals(Duration.ZERO, HostScheduler.parseRetryAfter("Thu, 01 Jan 1970 00:00:00 GMT").orElseThrow());
+        assertTrue(HostScheduler.parseRetryAfter("soon").isEmpty());
+    }
+}
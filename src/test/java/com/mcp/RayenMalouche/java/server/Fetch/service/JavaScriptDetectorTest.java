@@ -0,0 +1,56 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JavaScriptDetectorTest {
+
+    private final JavaScriptDetector detector = new JavaScriptDetector(250, 0.02);
+
+    private static final String ARTICLE = "<p>" + "Static pages carry their content in the HTML itself. ".repeat(40) + "</p>";
+
+    private JavaScriptDetector.Verdict assess(String html) {
+        return detector.assess(Jsoup.parse(html), html.length());
+    }
+
+    @Test
+    public void testKeepsStaticPagesOnHttp() {
+        JavaScriptDetector.Verdict verdict = assess("<html><head><script src=\"/analytics.js\"></script></head>"
+                + "<body><nav><a href=\"/\">Home</a></nav><article><h1>Docs</h1>" + ARTICLE + "</article></body></html>");
+        assertFalse(verdict.needsBrowser());
+
+        // Server-rendered framework page with real content
+        assertFalse(assess("<body><div id=\"__next\">" + ARTICLE + "</div>"
+                + "<script id=\"__NEXT_DATA__\" type=\"application/json\">{}</script></body>").needsBrowser());
+
+        // Tiny page without scripts has nothing more to show in a browser
+        assertFalse(assess("<body><p>Short note.</p></body>").needsBrowser());
+    }
+
+    @Test
+    public void testEscalatesApplicationShells() {
+        JavaScriptDetector.Verdict shell = assess("<html><head><title>App</title></head><body>"
+                + "<noscript>You need to enable JavaScript to run this app.</noscript>"
+                + "<div id=\"root\"></div><script src=\"/static/js/main.js\"></script></body></html>");
+        assertTrue(shell.needsBrowser());
+        assertEquals("empty application root #root", shell.reason());
+
+        JavaScriptDetector.Verdict noscript = assess("<body><noscript>Please enable JavaScript.</noscript>"
+                + "<div class=\"loading\">Loading…</div></body>");
+        assertTrue(noscript.needsBrowser());
+        assertEquals("noscript asks for JavaScript", noscript.reason());
+
+        assertTrue(assess("<body><div class=\"spinner\"></div><script src=\"/bundle.js\"></script></body>").needsBrowser());
+    }
+
+    @Test
+    public void testEscalatesFrameworkPagesWithLittleText() {
+        String bundle = "<script>" + "window.__STATE__={\"items\":[]};".repeat(5000) + "</script>";
+        JavaScriptDetector.Verdict verdict = assess("<body><app-root ng-version=\"17.0.0\"><header>"
+                + ARTICLE + "</header></app-root>" + bundle + "</body>");
+        assertTrue(verdict.needsBrowser());
+        assertTrue(verdict.reason().startsWith("Angular page"), verdict.reason());
+    }
+}
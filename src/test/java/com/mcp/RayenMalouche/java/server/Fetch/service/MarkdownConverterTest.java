@@ -0,0 +1,112 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MarkdownConverterTest {
+
+    private final MarkdownConverter converter = new MarkdownConverter();
+
+    @Test
+    public void testConvertsTextFormatting() {
+        String html = "<h1>Title <em>x</em></h1><p>Hello <b> bold </b>world &amp; a*b [x]</p>"
+                + "<h3>Sub</h3><p>use <code>a`b</code> and <a href=\"/x\" title=\"T\">link</a> "
+                + "<a>plain</a><a href=\"/e\"></a> <img src=\"a.png\" alt=\"A\"><br>next</p>"
+                + "<script>ignored()</script>";
+
+        assertEquals("""
+                Title *x*
+                =========
+
+                Hello **bold** world \\& a\\*b \\[x\\]
+
+                ### Sub
+
+                use ``a`b`` and [link](/x "T") plain ![A](a.png) \s
+                next
+                """, converter.convert(html, false));
+    }
+
+    @Test
+    public void testConvertsBlocks() {
+        String html = "<ul><li>one</li><li>two<ul><li>inner</li></ul></li></ul>"
+                + "<ol start=\"3\"><li><p>para1</p><p>para2</p></li><li>x</li></ol>"
+                + "<blockquote><p>q1</p><p>q2</p></blockquote><hr>"
+                + "<pre><code class=\"language-java\">int x;\n\nint y;\n</code></pre>";
+
+        assertEquals("""
+                * one
+                * two
+                  * inner
+
+                3. para1
+
+                   para2
+                4. x
+
+                > q1
+                >
+                > q2
+
+                *** ** * ** ***
+
+                ```java
+                int x;
+
+                int y;
+                ```
+                """, converter.convert(html, false));
+    }
+
+    @Test
+    public void testConvertsTablesAndDefinitionLists() {
+        String html = "<table><tr><th>A|x</th><th>B</th></tr><tr><td>1</td><td><b>2</b></td></tr></table>"
+                + "<dl><dt>Term</dt><dd>Def *x*</dd><dt>T2</dt><dd>D2</dd></dl>";
+
+        assertEquals("""
+                | A\\|x | B |
+                |---|---|
+                | 1 | 2 |
+
+                **Term:** Def \\*x\\*
+                **T2:** D2
+                """, converter.convert(html, false));
+    }
+
+    @Test
+    public void testExtractsMainContent() {
+        String html = "<header>Site</header><nav><a href=\"/\">Home</a></nav>"
+                + "<div class=\"sidebar\">Ads</div><article><h2>Story</h2><p>Body</p></article>"
+                + "<footer>Copyright</footer>";
+
+        assertEquals("Story\n-----\n\nBody\n", converter.convert(html, true));
+        assertTrue(converter.convert(html, false).startsWith("Site\n\n[Home](/)\n\nAds"));
+        assertEquals("", converter.convert("", true));
+    }
+
+    @Test
+    public void testSummarizesExtractedMainContentLikeWholePage() {
+        String html = "<body><header><h1>Site</h1></header><main></main>"
+                + "<div id=\"content\"><nav>Menu</nav><h2>Guide</h2><p>Step <em>one</em></p>"
+                + "<ul><li>a</li><li>b</li></ul><script>track()</script></div><footer>Bye</footer></body>";
+
+        // What the in-page extraction returns: page chrome removed, then the best scored element
+        Document page = Jsoup.parse(html);
+        page.select(MarkdownConverter.PAGE_CHROME + ", script, style, template").remove();
+        String extracted = ContentScorer.mainContent(page.body()).outerHtml();
+
+        assertEquals(converter.convert(html, true), converter.convert(extracted, false));
+        assertEquals("Guide\n-----\n\nStep *one*\n\n* a\n* b\n", converter.convert(extracted, true));
+    }
+
+    @Test
+    public void testKeepsMarkupOfTableChosenAsMainContent() {
+        String row = "<tr><td>How do I stream a response body without buffering all of it?</td><td>12</td></tr>";
+        String html = "<nav>Forum</nav><div><table>" + row.repeat(3) + "</table></div>";
+
+        assertTrue(converter.convert(html, true).startsWith("| How do I stream"));
+    }
+}
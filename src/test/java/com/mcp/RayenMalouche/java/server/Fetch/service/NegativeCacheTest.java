@@ -0,0 +1,55 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NegativeCacheTest {
+
+    private static final FetchKey KEY = FetchKey.of("https://example.com/missing", FetchMode.RAW_TEXT);
+
+    @Test
+    public void testRemembersErrorStatuses() {
+        NegativeCache cache = new NegativeCache(Duration.ofMinutes(1), 100);
+        cache.record(KEY, new CompletionException(new HttpStatusException(404, KEY.url())));
+
+        HttpStatusException failure = assertInstanceOf(HttpStatusException.class, cache.lookup(KEY));
+        assertEquals(404, failure.statusCode());
+        assertNull(cache.lookup(FetchKey.of(KEY.url(), FetchMode.MARKDOWN)));
+    }
+
+    @Test
+    public void testRemembersOnlyLastingFailures() {
+        ConnectException dns = new ConnectException();
+        dns.initCause(new UnresolvedAddressException());
+        assertTrue(NegativeCache.isLasting(dns));
+        assertTrue(NegativeCache.isLasting(new HttpStatusException(503, KEY.url())));
+        assertFalse(NegativeCache.isLasting(new HttpStatusException(304, KEY.url())));
+        assertFalse(NegativeCache.isLasting(new HttpTimeoutException("request timed out")));
+        assertFalse(NegativeCache.isLasting(new IOException("Connection reset")));
+    }
+
+    @Test
+    public void testFailuresExpire() throws Exception {
+        NegativeCache cache = new NegativeCache(Duration.ofMillis(300), 100);
+        cache.record(KEY, new HttpStatusException(500, KEY.url()));
+        assertNotNull(cache.lookup(KEY));
+
+        Thread.sleep(400);
+        assertNull(cache.lookup(KEY));
+    }
+
+    @Test
+    public void testZeroTtlRemembersNothing() {
+        NegativeCache cache = new NegativeCache(Duration.ZERO, 100);
+        cache.record(KEY, new HttpStatusException(404, KEY.url()));
+        assertNull(cache.lookup(KEY));
+    }
+}
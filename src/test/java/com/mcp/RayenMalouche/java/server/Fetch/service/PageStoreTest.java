@@ -0,0 +1,191 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageStoreTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    private PageStore open(long maxBytes, Duration retention) throws IOException {
+        PageStore store = new PageStore(directory, maxBytes, SEGMENT_BYTES, retention, Duration.ZERO, 0.5);
+        store.open();
+        return store;
+    }
+
+    private static CacheEntry fresh(String content) {
+        return new CacheEntry(content, null, null, System.currentTimeMillis() + 60_000, true);
+    }
+
+    private static FetchKey key(String path) {
+        return FetchKey.of("https://example.com/" + path, FetchMode.MARKDOWN);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    @Test
+    public void testServesEntriesAfterReopening() throws IOException {
+        PageStore store = open(1 << 20, Duration.ofHours(1));
+        RenderDecision decision = RenderDecision.browser("empty application root #root").withPartial("timed out");
+        store.put(key("a"), new CacheEntry("# Héllo", "\"v1\"", null, System.currentTimeMillis() + 60_000, true,
+                decision));
+        store.put(key("b"), fresh("first"));
+        store.put(key("b"), fresh("second"));
+        store.close();
+
+        PageStore reopened = open(1 << 20, Duration.ofHours(1));
+        CacheEntry entry = reopened.get(key("a"));
+        assertEquals("# Héllo", entry.content());
+        assertEquals("\"v1\"", entry.etag());
+        assertEquals(decision, entry.render());
+        assertTrue(entry.isFresh());
+        assertEquals("second", reopened.get(key("b")).content());
+        assertNull(reopened.get(FetchKey.of("https://example.com/a", FetchMode.RAW_TEXT)));
+        assertEquals(2, reopened.stats().get("entries"));
+        reopened.close();
+    }
+
+    @Test
+    public void testKeepsStaleEntriesOnlyWhenRevalidatable() throws IOException {
+        PageStore store = open(1 << 20, Duration.ofHours(1));
+        long past = System.currentTimeMillis() - 1000;
+        store.put(key("validated"), new CacheEntry("a", "\"v1\"", null, past, true));
+        store.put(key("unvalidated"), new CacheEntry("b", null, null, past, true));
+        store.put(key("private"), new CacheEntry("c", null, null, past + 60_000, false));
+
+        CacheEntry stale = store.get(key("validated"));
+        assertFalse(stale.isFresh());
+        assertNull(store.get(key("unvalidated")));
+        assertNull(store.get(key("private")));
+        store.close();
+    }
+
+    @Test
+    public void testDropsEntriesPastRetention() throws Exception {
+        PageStore store = open(1 << 20, Duration.ofMillis(200));
+        store.put(key("a"), fresh("content"));
+        assertNotNull(store.get(key("a")));
+
+        Thread.sleep(300);
+        assertNull(store.get(key("a")));
+        store.close();
+    }
+
+    @Test
+    public void testDropsOldestSegmentsOverSizeLimit() throws IOException {
+        PageStore store = open(2 * SEGMENT_BYTES, Duration.ofHours(1));
+        String page = "x".repeat(1000);
+        for (int i = 0; i < 12; i++) {
+            store.put(key("page" + i), fresh(page + i));
+        }
+
+        assertNull(store.get(key("page0")));
+        assertEquals(page + 11, store.get(key("page11")).content());
+        assertTrue((long) store.stats().get("bytes") <= 2 * SEGMENT_BYTES);
+        assertTrue((long) store.stats().get("evicted") >= 1);
+        store.close();
+    }
+
+    @Test
+    public void testCompactionKeepsLatestRecords() throws IOException {
+        PageStore store = open(1 << 20, Duration.ofHours(1));
+        String page = "y".repeat(1000);
+        for (int i = 0; i < 8; i++) {
+            store.put(key("page"), fresh(page + i));
+        }
+        store.put(key("other"), fresh("kept"));
+        assertTrue((int) store.stats().get("segments") > 1);
+
+        store.compact();
+        assertEquals(1, store.stats().get("segments"));
+        assertEquals(page + 7, store.get(key("page")).content());
+        assertEquals("kept", store.get(key("other")).content());
+        store.close();
+
+        PageStore reopened = open(1 << 20, Duration.ofHours(1));
+        assertEquals(page + 7, reopened.get(key("page")).content());
+        reopened.close();
+    }
+
+    @Test
+    public void testSkipsCorruptRecords() throws IOException {
+        PageStore store = open(1 << 20, Duration.ofHours(1));
+        store.put(key("a"), fresh("intact content"));
+        store.close();
+
+        Path segment = segmentFiles().get(0);
+        int content = new String(Files.readAllBytes(segment), StandardCharsets.ISO_8859_1).indexOf("intact");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'!'}), content);
+        }
+
+        PageStore reopened = open(1 << 20, Duration.ofHours(1));
+        assertNull(reopened.get(key("a")));
+        assertEquals(1L, reopened.stats().get("corrupt"));
+        reopened.close();
+    }
+
+    @Test
+    public void testTornRecordDoesNotHideOlderRecord() throws IOException {
+        PageStore store = open(1 << 20, Duration.ofHours(1));
+        store.put(key("a"), fresh("older content"));
+        store.put(key("a"), fresh("newer content"));
+        store.close();
+
+        Path segment = segmentFiles().get(0);
+        int content = new String(Files.readAllBytes(segment), StandardCharsets.ISO_8859_1).indexOf("newer");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'!'}), content);
+        }
+
+        PageStore reopened = open(1 << 20, Duration.ofHours(1));
+        assertEquals("older content", reopened.get(key("a")).content());
+        assertEquals(1L, reopened.stats().get("corrupt"));
+        reopened.close();
+    }
+
+    @Test
+    public void testLocksItsDirectory() throws IOException {
+        PageStore store = open(1 << 20, Duration.ofHours(1));
+
+        PageStore second = new PageStore(directory, 1 << 20, SEGMENT_BYTES, Duration.ofHours(1), Duration.ZERO, 0.5);
+        IOException locked = assertThrows(IOException.class, second::open);
+        assertTrue(locked.getMessage().contains("in use"));
+        second.close();
+
+        store.close();
+        open(1 << 20, Duration.ofHours(1)).close();
+    }
+
+    @Test
+    public void testContentCacheReadsThroughToStore() throws IOException {
+        PageStore store = open(1 << 20, Duration.ofHours(1));
+        new ContentCache(1 << 20, store).put(key("a"), fresh("from disk"));
+
+        ContentCache restarted = new ContentCache(1 << 20, store);
+        assertEquals("from disk", restarted.lookup(key("a")).content());
+        assertEquals(1, restarted.size());
+        assertEquals(1L, store.stats().get("hits"));
+        store.close();
+    }
+}
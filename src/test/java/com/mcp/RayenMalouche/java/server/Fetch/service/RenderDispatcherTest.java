@@ -0,0 +1,202 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import com.microsoft.playwright.Browser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderDispatcherTest {
+
+    /**
+     * Stands in for Chromium: launching only flips a flag, and jobs run against a null page
+     */
+    private static class FakeBrowser extends PooledBrowser {
+        private final boolean launchFails;
+        private volatile boolean launched;
+        private final AtomicInteger launches = new AtomicInteger();
+        private final AtomicInteger retirements = new AtomicInteger();
+
+        FakeBrowser(int id, boolean launchFails) {
+            super(id);
+            this.launchFails = launchFails;
+        }
+
+        @Override
+        Browser ensureLaunched() {
+            if (launchFails) {
+                throw new IllegalStateException("Failed to create driver");
+            }
+            if (!launched) {
+                launched = true;
+                launches.incrementAndGet();
+            }
+            return null;
+        }
+
+        @Override
+        <T> T render(RenderDispatcher.RenderJob<T> job) throws Exception {
+            ensureLaunched();
+            return job.render(null);
+        }
+
+        @Override
+        boolean isLaunched() {
+            return launched;
+        }
+
+        @Override
+        boolean isHealthy() {
+            return launched;
+        }
+
+        @Override
+        void retire() {
+            if (launched) {
+                retirements.incrementAndGet();
+            }
+            launched = false;
+        }
+    }
+
+    private final List<FakeBrowser> browsers = new CopyOnWriteArrayList<>();
+    private RenderDispatcher dispatcher;
+
+    @AfterEach
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    private RenderDispatcher start(int workers, int queueCapacity, Duration idleTimeout, Duration queueTimeout) {
+        dispatcher = new RenderDispatcher(workers, queueCapacity, 100, idleTimeout, queueTimeout, id -> {
+            FakeBrowser browser = new FakeBrowser(id, false);
+            browsers.add(browser);
+            return browser;
+        });
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Occupies a worker until the latch is released
+     */
+    private static CompletableFuture<String> blockWorker(RenderDispatcher dispatcher, CountDownLatch release)
+            throws InterruptedException {
+        CompletableFuture<String> blocked = dispatcher.submit(page -> {
+            release.await();
+            return "blocked";
+        });
+        await(() -> dispatcher.busyWorkers() == 1);
+        return blocked;
+    }
+
+    @Test
+    public void testRunsJobsOnWorkers() throws Exception {
+        RenderDispatcher dispatcher = start(2, 10, Duration.ofMinutes(5), Duration.ofSeconds(30));
+
+        assertEquals("rendered", dispatcher.submit(page -> "rendered").get(5, TimeUnit.SECONDS));
+        assertEquals(2, dispatcher.workerCount());
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        RenderDispatcher dispatcher = start(1, 1, Duration.ofMinutes(5), Duration.ofSeconds(30));
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> blocked = blockWorker(dispatcher, release);
+
+        CompletableFuture<String> queued = dispatcher.submit(page -> "queued");
+        assertEquals(1, dispatcher.queueDepth());
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.submit(page -> "rejected"));
+
+        release.countDown();
+        assertEquals("blocked", blocked.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailsJobsThatWaitedTooLongForAWorker() throws Exception {
+        RenderDispatcher dispatcher = start(1, 10, Duration.ofMinutes(5), Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> blocked = blockWorker(dispatcher, release);
+        AtomicInteger ran = new AtomicInteger();
+
+        CompletableFuture<String> late = dispatcher.submit(page -> {
+            ran.incrementAndGet();
+            return "late";
+        });
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals("blocked", blocked.get(5, TimeUnit.SECONDS));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    public void testRetiresIdleBrowserAndRelaunchesOnNextJob() throws Exception {
+        RenderDispatcher dispatcher = start(1, 10, Duration.ofMillis(50), Duration.ofSeconds(30));
+        FakeBrowser browser = browsers.get(0);
+
+        await(() -> !browser.isLaunched());
+        assertEquals(1, browser.retirements.get());
+
+        assertEquals("rendered", dispatcher.submit(page -> "rendered").get(5, TimeUnit.SECONDS));
+        assertEquals(2, browser.launches.get());
+    }
+
+    @Test
+    public void testShutdownFailsPendingJobsAndRejectsNewOnes() throws Exception {
+        RenderDispatcher dispatcher = start(1, 10, Duration.ofMinutes(5), Duration.ofSeconds(30));
+        CompletableFuture<String> blocked = blockWorker(dispatcher, new CountDownLatch(1));
+        CompletableFuture<String> queued = dispatcher.submit(page -> "queued");
+
+        dispatcher.shutdown();
+
+        ExecutionException interrupted = assertThrows(ExecutionException.class, () -> blocked.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(InterruptedException.class, interrupted.getCause());
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.submit(page -> "late"));
+        assertFalse(browsers.get(0).isLaunched());
+    }
+
+    @Test
+    public void testStartFailsWhenNoBrowserCanLaunch() {
+        dispatcher = new RenderDispatcher(2, 10, 100, Duration.ofMinutes(5), Duration.ofSeconds(30),
+                id -> new FakeBrowser(id, true));
+
+        assertThrows(IllegalStateException.class, dispatcher::start);
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.submit(page -> "rendered"));
+    }
+
+    @Test
+    public void testStartSucceedsWhenSomeBrowsersLaunch() {
+        dispatcher = new RenderDispatcher(2, 10, 100, Duration.ofMinutes(5), Duration.ofSeconds(30),
+                id -> new FakeBrowser(id, id == 0));
+
+        assertDoesNotThrow(dispatcher::start);
+    }
+}
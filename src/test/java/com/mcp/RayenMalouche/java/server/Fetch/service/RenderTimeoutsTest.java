@@ -0,0 +1,60 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderTimeoutsTest {
+
+    private static final String FAST = "https://fast.example.com/page";
+    private static final String SLOW = "https://slow.example.org/page";
+
+    @Test
+    public void testUsesFullTimeoutUntilLatenciesAreKnown() {
+        RenderTimeouts timeouts = new RenderTimeouts(true, 0.95, 2.0, 1000, 20000);
+        for (int i = 0; i < RenderTimeouts.MIN_SAMPLES - 1; i++) {
+            timeouts.record(FAST, WaitStrategy.QUIESCENT, 800, 20000, false);
+        }
+        assertEquals(20000, timeouts.timeoutMillis(FAST, WaitStrategy.QUIESCENT));
+
+        timeouts.record(FAST, WaitStrategy.QUIESCENT, 900, 20000, false);
+        assertEquals(1800, timeouts.timeoutMillis(FAST, WaitStrategy.QUIESCENT));
+        // Latencies are learned per host and strategy
+        assertEquals(20000, timeouts.timeoutMillis(FAST, WaitStrategy.NETWORK_IDLE));
+        assertEquals(20000, timeouts.timeoutMillis(SLOW, WaitStrategy.QUIESCENT));
+    }
+
+    @Test
+    public void testKeepsLearnedTimeoutsWithinBounds() {
+        RenderTimeouts timeouts = new RenderTimeouts(true, 0.95, 2.0, 5000, 20000);
+        for (int i = 0; i < 10; i++) {
+            timeouts.record(FAST, WaitStrategy.LOAD, 100, 20000, false);
+            timeouts.record(SLOW, WaitStrategy.LOAD, 15000, 20000, false);
+        }
+        assertEquals(5000, timeouts.timeoutMillis(FAST, WaitStrategy.LOAD));
+        assertEquals(20000, timeouts.timeoutMillis(SLOW, WaitStrategy.LOAD));
+
+        RenderTimeouts fixed = new RenderTimeouts(false, 0.95, 2.0, 5000, 20000);
+        for (int i = 0; i < 10; i++) {
+            fixed.record(FAST, WaitStrategy.LOAD, 100, 20000, false);
+        }
+        assertEquals(20000, fixed.timeoutMillis(FAST, WaitStrategy.LOAD));
+    }
+
+    @Test
+    public void testFollowsHighPercentile() {
+        RenderTimeouts timeouts = new RenderTimeouts(true, 0.95, 2.0, 100, 60000);
+        for (int i = 1; i <= 20; i++) {
+            timeouts.record(FAST, WaitStrategy.QUIESCENT, i * 100L, 60000, false);
+        }
+        // 95th percentile of 100..2000 ms is 1900 ms
+        assertEquals(3800, timeouts.timeoutMillis(FAST, WaitStrategy.QUIESCENT));
+
+        // Renders cut short at their deadline push it back up
+        for (int i = 0; i < 5; i++) {
+            timeouts.record(FAST, WaitStrategy.QUIESCENT, 3800, 3800, true);
+        }
+        assertEquals(7600, timeouts.timeoutMillis(FAST, WaitStrategy.QUIESCENT));
+        assertEquals(5L, timeouts.stats().get("partial"));
+    }
+}
@@ -0,0 +1,143 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestAttemptsTest {
+
+    private static final String URL = "https://slow.example/page";
+
+    @Test
+    public void testSlowAttemptIsHedgedAndTheFirstAnswerWins() throws Exception {
+        RequestAttempts attempts = attempts(true, 1.0, 0);
+        learnFastHost(attempts);
+        assertTrue(attempts.hedgeDelayNanos(URL) >= 0);
+
+        List<CompletableFuture<String>> started = new ArrayList<>();
+        CompletableFuture<String> result = attempts.execute(URL, Long.MAX_VALUE, timeout -> {
+            CompletableFuture<String> attempt = started.isEmpty()
+                    ? new CompletableFuture<>()
+                    : CompletableFuture.completedFuture("hedge");
+            started.add(attempt);
+            return attempt;
+        }, answer -> false);
+
+        assertEquals("hedge", result.get(1, TimeUnit.SECONDS));
+        assertEquals(2, started.size());
+        assertTrue(started.get(0).isCancelled());
+        assertEquals(1L, attempts.stats().get("hedges"));
+    }
+
+    @Test
+    public void testNothingIsHedgedWithoutBudget() throws Exception {
+        RequestAttempts attempts = attempts(true, 0, 0);
+        learnFastHost(attempts);
+
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> result = attempts.execute(URL, Long.MAX_VALUE, timeout -> {
+            started.incrementAndGet();
+            return slow;
+        }, answer -> false);
+        Thread.sleep(100);
+
+        assertEquals(1, started.get());
+        slow.complete("primary");
+        assertEquals("primary", result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRetryStartedAsTheRequestIsCancelledIsCancelled() throws Exception {
+        RequestAttempts attempts = attempts(false, 0, 1.0);
+        CompletableFuture<String> retry = new CompletableFuture<>();
+        CompletableFuture<CompletableFuture<String>> request = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        request.complete(attempts.execute(URL, Long.MAX_VALUE, timeout -> {
+            if (started.incrementAndGet() == 1) {
+                return CompletableFuture.failedFuture(new ConnectException("Connection refused"));
+            }
+            // The caller gives up while the retry is being sent
+            request.join().cancel(true);
+            return retry;
+        }, answer -> false));
+
+        assertThrows(CancellationException.class, () -> retry.get(1, TimeUnit.SECONDS));
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    public void testConnectionFailuresAndPassingErrorsAreRetried() throws Exception {
+        RequestAttempts attempts = attempts(false, 0, 1.0);
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<String> result = attempts.execute(URL, Long.MAX_VALUE, timeout -> switch (started.incrementAndGet()) {
+            case 1 -> CompletableFuture.failedFuture(new ConnectException("Connection refused"));
+            case 2 -> CompletableFuture.completedFuture("503");
+            default -> CompletableFuture.completedFuture("200");
+        }, "503"::equals);
+
+        assertEquals("200", result.get(1, TimeUnit.SECONDS));
+        assertEquals(3, started.get());
+        assertEquals(2L, attempts.stats().get("retries"));
+    }
+
+    @Test
+    public void testTimeoutsAreNotRetriedAndRetriesEnd() throws Exception {
+        RequestAttempts attempts = attempts(false, 0, 1.0);
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<String> timedOut = attempts.execute(URL, Long.MAX_VALUE, timeout -> {
+            started.incrementAndGet();
+            return CompletableFuture.failedFuture(new HttpTimeoutException("request timed out"));
+        }, answer -> false);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> timedOut.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(HttpTimeoutException.class, e.getCause());
+        assertEquals(1, started.get());
+
+        // The last retryable answer is returned once the retries are spent
+        CompletableFuture<String> unavailable = attempts.execute(URL, Long.MAX_VALUE,
+                timeout -> CompletableFuture.completedFuture("503"), "503"::equals);
+        assertEquals("503", unavailable.get(1, TimeUnit.SECONDS));
+        assertFalse(RequestAttempts.isRetryable(new HttpStatusException(404, URL)));
+        assertTrue(RequestAttempts.isRetryable(new IOException("Connection reset")));
+    }
+
+    @Test
+    public void testAttemptsFitTheDeadline() throws Exception {
+        RequestAttempts attempts = attempts(false, 0, 1.0);
+        List<Duration> timeouts = new ArrayList<>();
+        attempts.execute(URL, System.nanoTime() + Duration.ofSeconds(2).toNanos(), timeout -> {
+            timeouts.add(timeout);
+            return CompletableFuture.completedFuture("ok");
+        }, answer -> false).get(1, TimeUnit.SECONDS);
+        assertTrue(timeouts.get(0).compareTo(Duration.ofSeconds(2)) <= 0);
+
+        CompletableFuture<String> late = attempts.execute(URL, System.nanoTime() - 1,
+                timeout -> CompletableFuture.completedFuture("ok"), answer -> false);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, e.getCause());
+    }
+
+    private static RequestAttempts attempts(boolean hedging, double hedgeBudget, double retryBudget) {
+        return new RequestAttempts(Duration.ofSeconds(20), hedging, 0.95, Duration.ofMillis(10), hedgeBudget,
+                2, Duration.ofMillis(5), retryBudget);
+    }
+
+    private static void learnFastHost(RequestAttempts attempts) throws Exception {
+        for (int i = 0; i < RequestAttempts.MIN_SAMPLES; i++) {
+            attempts.execute(URL, Long.MAX_VALUE, timeout -> CompletableFuture.completedFuture("fast"), answer -> false)
+                    .get(1, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourceBlockerTest {
+
+    private final ResourceBlocker blocker = new ResourceBlocker(
+            Set.of("image", "media", "font", "stylesheet"),
+            Set.of("doubleclick.net", "google-analytics.com"),
+            ResourceBlocker.parseOverrides("example.com=image,maps.example.com=none"));
+
+    @Test
+    public void testParsesResourceTypes() {
+        assertEquals(Set.of("image", "font"), ResourceBlocker.parseTypes(" Image, font "));
+        assertEquals(Set.of("image", "media"), ResourceBlocker.parseTypes("image:media"));
+        assertTrue(ResourceBlocker.parseTypes("none").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ResourceBlocker.parseTypes("image,pictures"));
+        assertThrows(IllegalArgumentException.class, () -> ResourceBlocker.parseOverrides("example.com"));
+
+        assertNull(FetchOptions.parseBlockedResources(null));
+        assertNull(FetchOptions.parseBlockedResources("default"));
+        assertEquals(Set.of("font"), FetchOptions.parseBlockedResources(List.of("font")));
+        assertTrue(FetchOptions.parseBlockedResources(List.of()).isEmpty());
+        assertTrue(FetchOptions.parseBlockedResources("none").isEmpty());
+    }
+
+    @Test
+    public void testChoosesBlockedTypesByPrecedence() {
+        assertEquals(Set.of("image", "media", "font", "stylesheet"), blocker.blockedTypesFor("https://other.org/", null));
+        assertEquals(Set.of("image"), blocker.blockedTypesFor("https://www.example.com/page", null));
+        // The most specific domain override wins
+        assertTrue(blocker.blockedTypesFor("https://maps.example.com/", null).isEmpty());
+        // A request's own choice wins over any override
+        assertEquals(Set.of("script"), blocker.blockedTypesFor("https://maps.example.com/", Set.of("script")));
+    }
+
+    @Test
+    public void testMatchesTrackerSubdomains() {
+        assertTrue(blocker.isTracker("https://doubleclick.net/pixel"));
+        assertTrue(blocker.isTracker("https://stats.g.doubleclick.net/j/collect"));
+        assertTrue(blocker.isTracker("https://www.google-analytics.com/analytics.js"));
+        assertFalse(blocker.isTracker("https://notdoubleclick.net/"));
+        assertFalse(blocker.isTracker("https://example.com/doubleclick.net"));
+    }
+
+    @Test
+    public void testReportsPerRenderAverages() {
+        ResourceBlocker totals = new ResourceBlocker(Set.of(), Set.of(), Map.of());
+        totals.record(new ResourceBlocker.Counts());
+        totals.record(new ResourceBlocker.Counts());
+        Map<String, Object> stats = totals.stats();
+        assertEquals(2L, stats.get("renders"));
+        assertEquals(0.0, stats.get("blockedPerRender"));
+    }
+}
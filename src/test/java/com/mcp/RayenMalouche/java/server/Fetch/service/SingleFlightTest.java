@@ -0,0 +1,84 @@
+package com.mcp.RayenMalouche.java.server.Fetch.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallersShareOneExecution() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> work = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = singleFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            return work;
+        });
+        CompletableFuture<String> second = singleFlight.execute("key", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertEquals(1, singleFlight.inFlightCount());
+        work.complete("page");
+
+        assertEquals("page", first.get());
+        assertEquals("page", second.get());
+        assertEquals(1, loads.get());
+        assertEquals(1, singleFlight.coalescedCount());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void testFailureIsSharedAndNotRemembered() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> work = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("key", () -> work);
+        CompletableFuture<String> second = singleFlight.execute("key", () -> work);
+        work.completeExceptionally(new IOException("boom"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, second::get);
+        assertInstanceOf(IOException.class, error.getCause());
+        assertTrue(first.isCompletedExceptionally());
+
+        assertEquals("again", singleFlight.execute("key", () -> CompletableFuture.completedFuture("again")).get());
+    }
+
+    @Test
+    public void testCancellingOneCallerKeepsSharedWorkRunning() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> work = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("key", () -> work);
+        CompletableFuture<String> second = singleFlight.execute("key", () -> work);
+
+        first.cancel(true);
+        assertFalse(work.isCancelled());
+
+        work.complete("page");
+        assertEquals("page", second.get());
+    }
+
+    @Test
+    public void testCancellingEveryCallerCancelsSharedWork() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> work = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("key", () -> work);
+        CompletableFuture<String> second = singleFlight.execute("key", () -> work);
+
+        first.cancel(true);
+        second.cancel(true);
+
+        assertTrue(work.isCancelled());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+}
@@ -1,8 +1,17 @@
 package com.mcp.RayenMalouche.java.server.Fetch.service;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.boot.test.context.SpringBootTest;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -81,6 +90,36 @@ public class WebContentServiceTest {
         }
     }
 
+    @Test
+    public void testJoinedFetchIsNotCutShortByTheFirstCallersDeadline() throws Exception {
+        HttpServer origin = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        origin.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "slow page".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        origin.start();
+        try {
+            String url = "http://127.0.0.1:" + origin.getAddress().getPort() + "/slow";
+            CompletableFuture<String> hurried = webContentService.fetchAsync(FetchMode.RAW_TEXT, url,
+                    FetchOptions.DEFAULT.withDeadline(Duration.ofMillis(100)));
+            CompletableFuture<String> patient = webContentService.fetchAsync(FetchMode.RAW_TEXT, url, null);
+
+            ExecutionException expired = assertThrows(ExecutionException.class, () -> hurried.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(DeadlineExceededException.class, expired.getCause());
+            assertEquals("slow page", patient.get(5, TimeUnit.SECONDS));
+        } finally {
+            origin.stop(0);
+        }
+    }
+
     @Test
     public void testServiceCleanup() {
         // Test cleanup method doesn't throw exceptions
@@ -0,0 +1,87 @@
+package com.mcp.RayenMalouche.java.server.Fetch.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.RayenMalouche.java.server.Fetch.service.BatchFetchService;
+import com.mcp.RayenMalouche.java.server.Fetch.service.FetchMode;
+import com.mcp.RayenMalouche.java.server.Fetch.service.WebContentService;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FetchManyToolTest {
+
+    /**
+     * Answers each URL at once with its path, failing URLs on the host "down.example"
+     */
+    private static class EchoService extends WebContentService {
+        @Override
+        public CompletableFuture<String> fetchAsync(FetchMode mode, String url) {
+            if (url.contains("down.example")) {
+                return CompletableFuture.failedFuture(new IOException("Connection refused"));
+            }
+            return CompletableFuture.completedFuture(mode.getName() + " " + url);
+        }
+    }
+
+    private static FetchManyTool tool(int maxUrls) {
+        WebContentService engine = new EchoService();
+        BatchFetchService batch = new BatchFetchService(engine);
+        ReflectionTestUtils.setField(batch, "maxUrls", maxUrls);
+        batch.initialize();
+        return new FetchManyTool(batch);
+    }
+
+    private static String text(McpSchema.CallToolResult result) {
+        return ((McpSchema.TextContent) result.content().get(0)).text();
+    }
+
+    @Test
+    public void testReturnsOneResultPerUrlInOrder() throws Exception {
+        List<String> progress = Collections.synchronizedList(new ArrayList<>());
+        McpSchema.CallToolResult result = tool(10).execute(Map.of(
+                "urls", List.of("https://a.example/", "https://down.example/", "https://c.example/"),
+                "mode", "raw-text"), (done, total, message) -> progress.add(done + "/" + total)).get();
+
+        assertFalse(result.isError());
+        JsonNode results = new ObjectMapper().readTree(text(result)).get("results");
+        assertEquals(3, results.size());
+        assertEquals("raw-text https://a.example/", results.get(0).get("content").asText());
+        assertFalse(results.get(1).get("success").asBoolean());
+        assertEquals("Connection refused", results.get(1).get("error").asText());
+        assertEquals(2, results.get(2).get("index").asInt());
+        assertEquals(List.of("1.0/3.0", "2.0/3.0", "3.0/3.0"), progress);
+    }
+
+    @Test
+    public void testDefaultsToMarkdown() throws Exception {
+        McpSchema.CallToolResult result = tool(10).execute(Map.of("urls", List.of("https://a.example/")),
+                ProgressReporter.NONE).get();
+
+        JsonNode first = new ObjectMapper().readTree(text(result)).get("results").get(0);
+        assertEquals("markdown", first.get("mode").asText());
+    }
+
+    @Test
+    public void testValidatesUrls() {
+        FetchManyTool tool = tool(2);
+
+        assertThrows(IllegalArgumentException.class, () -> tool.execute(Map.of("urls", List.of()),
+                ProgressReporter.NONE));
+        assertThrows(IllegalArgumentException.class, () -> tool.execute(Map.of("urls", "https://a.example/"),
+                ProgressReporter.NONE));
+        assertThrows(IllegalArgumentException.class, () -> tool.execute(Map.of("urls",
+                List.of("https://a.example/", "https://b.example/", "https://c.example/")), ProgressReporter.NONE));
+        assertThrows(IllegalArgumentException.class, () -> tool.execute(Map.of("urls", List.of("ftp://a.example/")),
+                ProgressReporter.NONE));
+    }
+}